@@ -31,6 +31,7 @@ import java.awt.image.BufferedImage;
 import org.tinylog.Logger;
 
 import de.lars.remotelightcore.utils.color.Color;
+import de.lars.remotelightcore.utils.color.ColorMath;
 
 public class ScreenColorDetector {
 	
@@ -119,17 +120,14 @@ public class ScreenColorDetector {
 	
 	
 	private Color getColorForSection(BufferedImage imgSection) {
-		Color color = getAvgColor(imgSection);
-		final float[] hsb = Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), null);
+		int hsv = ColorMath.rgb2hsv(getAvgColor(imgSection));
 		// apply filters
-		color = increaseSaturation(hsb);
-		color = brightnessThreshold(hsb);
-		
-		return color;
+		hsv = increaseSaturation(hsv);
+		return new Color(brightnessThreshold(hsv));
 	}
 	
 	//adapted from https://javastart.pl/b/programowanie/ambilight-w-oparciu-o-jave-i-arduino/
-    private Color getAvgColor(BufferedImage imgSection) {
+    private int getAvgColor(BufferedImage imgSection) {
         int width = imgSection.getWidth();
         int height = imgSection.getHeight();
         
@@ -141,17 +139,16 @@ public class ScreenColorDetector {
         for (int x = 0; x < width; x += xIncrement) {
             for (int y = 0; y < height; y += yIncrement) {
                 int rgb = imgSection.getRGB(x, y);
-                Color color = new Color(rgb);
-                r += color.getRed();
-                g += color.getGreen();
-                b += color.getBlue();
+                r += rgb >> 16 & 0xFF;
+                g += rgb >> 8 & 0xFF;
+                b += rgb & 0xFF;
                 loops++;
             }
         }
         r = r / loops;
         g = g / loops;
         b = b / loops;
-        return new Color(r, g, b);
+        return (r << 16) | (g << 8) | b;
     }
     
     //------------------
@@ -161,17 +158,24 @@ public class ScreenColorDetector {
     protected float saturationMultiplier = 1.0f;
     protected float brightnessThreshold = 0.0f;
     
-    private Color increaseSaturation(float[] hsb) {
-    	hsb[1] = hsb[1] * saturationMultiplier;
-    	if(hsb[1] > 1.0f) hsb[1] = 1.0f;
-    	return Color.getHSBColor(hsb[0], hsb[1], hsb[2]);
+    /**
+     * @param hsv	packed 0xHHSSVV color
+     * @return		packed 0xHHSSVV color with multiplied saturation
+     */
+    private int increaseSaturation(int hsv) {
+    	int sat = Math.min(255, (int) ((hsv >> 8 & 0xFF) * saturationMultiplier));
+    	return (hsv & 0xFF00FF) | (sat << 8);
     }
     
-    private Color brightnessThreshold(float[] hsb) {
+    /**
+     * @param hsv	packed 0xHHSSVV color
+     * @return		packed 0xRRGGBB color
+     */
+    private int brightnessThreshold(int hsv) {
     	// return black if brightness is below threshold
-    	if(hsb[2] < brightnessThreshold)
-    		return Color.BLACK;
-    	return Color.getHSBColor(hsb[0], hsb[1], hsb[2]);
+    	if((hsv & 0xFF) < brightnessThreshold * 255)
+    		return 0;
+    	return ColorMath.hsv2rgbSpectrum(hsv >> 16 & 0xFF, hsv >> 8 & 0xFF, hsv & 0xFF);
     }
 
 }
@@ -167,7 +167,6 @@ public class AboutPanel extends MenuPanel {
 		addLabel("TarsosDSP", "https://github.com/JorenSix/TarsosDSP");
 		addLabel("tinylog", "https://tinylog.org");
 		addLabel("Gson", "https://github.com/google/gson");
-		addLabel("artnet4j", "https://github.com/cansik/artnet4j");
 		addLabel("Luaj", "https://sourceforge.net/projects/luaj");
 		addLabel("FlatLaf", "https://github.com/JFormDesigner/FlatLaf");
 		addLabel("XT-Audio", "https://sjoerdvankreel.github.io/xt-audio/");
@@ -75,7 +75,8 @@ public class OutputInfo extends JPanel {
 			String output = OutputUtil.getOutputTypeAsString(o);
 			String id = o.getId();
 			
-			lblOutput.setText(output + " (" + id + ")");
+			int additional = om.getActiveOutputs().size() - 1;
+			lblOutput.setText(output + " (" + id + ")" + (additional > 0 ? " +" + additional : ""));
 			
 			String state = OutputUtil.getConnectionStateAsString(o.getState()).toLowerCase();
 			
@@ -45,6 +45,7 @@ import de.lars.remotelightclient.ui.panels.controlbars.DefaultControlBar;
 import de.lars.remotelightclient.ui.panels.output.outputComps.ArduinoSettingsPanel;
 import de.lars.remotelightclient.ui.panels.output.outputComps.ArtnetSettingsPanel;
 import de.lars.remotelightclient.ui.panels.output.outputComps.ChainSettingsPanel;
+import de.lars.remotelightclient.ui.panels.output.outputComps.DDPSettingsPanel;
 import de.lars.remotelightclient.ui.panels.output.outputComps.DeviceSettingsPanel;
 import de.lars.remotelightclient.ui.panels.output.outputComps.E131SettingsPanel;
 import de.lars.remotelightclient.ui.panels.output.outputComps.MultiOutputSettingsPanel;
@@ -60,6 +61,7 @@ import de.lars.remotelightcore.devices.Device;
 import de.lars.remotelightcore.devices.DeviceManager;
 import de.lars.remotelightcore.devices.arduino.Arduino;
 import de.lars.remotelightcore.devices.artnet.Artnet;
+import de.lars.remotelightcore.devices.ddp.DDP;
 import de.lars.remotelightcore.devices.e131.E131;
 import de.lars.remotelightcore.devices.link.chain.Chain;
 import de.lars.remotelightcore.devices.link.multi.MultiOutput;
@@ -71,6 +73,8 @@ import de.lars.remotelightcore.notification.NotificationType;
 import de.lars.remotelightcore.out.Output;
 import de.lars.remotelightcore.out.OutputActionListener;
 import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.PowerLimit;
+import de.lars.remotelightcore.out.patch.PixelMapping;
 import de.lars.remotelightcore.utils.OutputUtil;
 import jiconfont.IconCode;
 
@@ -85,6 +89,11 @@ public class OutputPanel extends MenuPanel {
 	private DeviceSettingsPanel currentSettingsPanel;
 	private JPopupMenu popupMenu;
 	private JButton btnActivate;
+	private JButton btnAddActive;
+	private JSpinner spinnerFrameRate;
+	private JTextField fieldMapping;
+	private JSpinner spinnerChannelCurrent;
+	private JSpinner spinnerPowerBudget;
 
 	/**
 	 * Create the panel.
@@ -147,6 +156,11 @@ public class OutputPanel extends MenuPanel {
 		this.configureAddPopup(itemE131, "e131");
 		popupMenu.add(itemE131);
 		
+		JMenuItem itemDdp = new JMenuItem("DDP");
+		itemDdp.setIcon(Style.getFontIcon(MenuIcon.ARTNET)); //$NON-NLS-1$
+		this.configureAddPopup(itemDdp, "ddp");
+		popupMenu.add(itemDdp);
+		
 		JMenuItem itemVirtual = new JMenuItem("Virtual");
 		itemVirtual.setIcon(Style.getFontIcon(MenuIcon.VIRTUAL)); //$NON-NLS-1$
 		this.configureAddPopup(itemVirtual, "virtual");
@@ -253,10 +267,51 @@ public class OutputPanel extends MenuPanel {
 		btnActivate.addActionListener(optionsButtonListener);
 		panelOptions.add(btnActivate);
 		
+		btnAddActive = new JButton("Add to active");
+		btnAddActive.setToolTipText("Activate this output in addition to the active outputs.");
+		btnAddActive.setName("addactive"); //$NON-NLS-1$
+		btnAddActive.addActionListener(optionsButtonListener);
+		panelOptions.add(btnAddActive);
+		
+		JLabel lblFrameRate = new JLabel("FPS (0 = global):");
+		panelOptions.add(lblFrameRate);
+		
+		int frameRate = currentSettingsPanel != null ? currentSettingsPanel.getDevice().getFrameRate() : 0;
+		spinnerFrameRate = new JSpinner(new SpinnerNumberModel(frameRate, 0, 1000, 1));
+		spinnerFrameRate.setToolTipText("Every active output runs at its own frame rate.");
+		UiUtils.configureSpinner(spinnerFrameRate);
+		panelOptions.add(spinnerFrameRate);
+		
+		JLabel lblMapping = new JLabel("Mapping:");
+		panelOptions.add(lblMapping);
+		
+		PixelMapping mapping = currentSettingsPanel != null ? currentSettingsPanel.getDevice().getOutputPatch().getMapping() : null;
+		fieldMapping = new JTextField(mapping != null ? mapping.getDefinition() : "", 16);
+		fieldMapping.setToolTipText("<html>Physical pixel order, e.g. <i>0-49, gap 3, 99-50, grid 16x8 from 100 serpentine</i>"
+				+ "<br>Leave empty to use the frame pixels in order.</html>");
+		panelOptions.add(fieldMapping);
+		
+		PowerLimit power = currentSettingsPanel != null ? currentSettingsPanel.getDevice().getPowerLimit() : new PowerLimit();
+		JLabel lblChannelCurrent = new JLabel("mA per channel:");
+		panelOptions.add(lblChannelCurrent);
+		
+		spinnerChannelCurrent = new JSpinner(new SpinnerNumberModel(power.getRedCurrent(), 0.0, 1000.0, 1.0));
+		spinnerChannelCurrent.setToolTipText("Current of one color channel of a LED at full brightness (WS2812: 20 mA).");
+		UiUtils.configureSpinner(spinnerChannelCurrent);
+		panelOptions.add(spinnerChannelCurrent);
+		
+		JLabel lblPowerBudget = new JLabel("Max mA (0 = no limit):");
+		panelOptions.add(lblPowerBudget);
+		
+		spinnerPowerBudget = new JSpinner(new SpinnerNumberModel(power.getBudget(), 0, 500000, 100));
+		spinnerPowerBudget.setToolTipText("The brightness is reduced when the estimated current exceeds the power supply rating.");
+		UiUtils.configureSpinner(spinnerPowerBudget);
+		panelOptions.add(spinnerPowerBudget);
 		
 		if(setup) {
 			btnRemove.setVisible(false);
 			btnActivate.setVisible(false);
+			btnAddActive.setVisible(false);
 		}
 		return bgrDeviceSettings;
 	}
@@ -272,6 +327,8 @@ public class OutputPanel extends MenuPanel {
 				icon = MenuIcon.ARTNET;
 			} else if(d instanceof E131) {
 				icon = MenuIcon.ARTNET; // TODO: add E1.31 icon
+			} else if(d instanceof DDP) {
+				icon = MenuIcon.ARTNET;
 			} else if(d instanceof VirtualOutput) {
 				icon = MenuIcon.VIRTUAL;
 			} else if(d instanceof Chain) {
@@ -284,7 +341,7 @@ public class OutputPanel extends MenuPanel {
 			BigImageButton btn =  new BigImageButton(Style.getFontIcon(icon, 35), d.getId());
 			btn.setName(d.getId());
 			btn.addMouseListener(deviceClicked);
-			if(om.getActiveOutput() != null && om.getActiveOutput() == d && d.getConnectionState() == ConnectionState.CONNECTED) {
+			if(om.isActive(d) && d.getConnectionState() == ConnectionState.CONNECTED) {
 				btn.setBorder(BorderFactory.createLineBorder(Style.accent().get()));
 			}
 			panel.add(btn);
@@ -323,6 +380,8 @@ public class OutputPanel extends MenuPanel {
 			panel = new ArtnetSettingsPanel((Artnet) d, setup);
 		} else if(d instanceof E131) {
 			panel = new E131SettingsPanel((E131) d, setup);
+		} else if(d instanceof DDP) {
+			panel = new DDPSettingsPanel((DDP) d, setup);
 		} else if(d instanceof VirtualOutput) {
 			panel = new VirtualOutputSettingsPanel((VirtualOutput) d, setup);
 		} else if(d instanceof Chain) {
@@ -340,6 +399,7 @@ public class OutputPanel extends MenuPanel {
 			
 			if(d.getConnectionState() == ConnectionState.CONNECTED) {
 				btnActivate.setText(i18n.getString("Basic.Deactivate")); //$NON-NLS-1$
+				btnAddActive.setVisible(false);
 			}
 			
 			bgrMenu.removeAll();
@@ -400,6 +460,9 @@ public class OutputPanel extends MenuPanel {
 			case "e131":
 				device = new E131(null);
 				break;
+			case "ddp":
+				device = new DDP(null);
+				break;
 			case "virtual":
 				device = new VirtualOutput(null, OutputManager.MIN_PIXELS);
 				break;
@@ -430,8 +493,21 @@ public class OutputPanel extends MenuPanel {
 					
 					if(!dm.isIdUsed(currentSettingsPanel.getId()) || currentSettingsPanel.getId().equals(currentSettingsPanel.getDevice().getId())) {
 						
+						PixelMapping mapping;
+						try {
+							mapping = PixelMapping.parse(fieldMapping.getText());
+						} catch(IllegalArgumentException ex) {
+							main.showNotification(NotificationType.ERROR, notiTitle, ex.getMessage());
+							return;
+						}
+						
 						currentSettingsPanel.save();
 						Device device = currentSettingsPanel.getDevice();
+						device.setFrameRate((int) spinnerFrameRate.getValue());
+						device.getOutputPatch().setMapping(mapping);
+						double channelCurrent = (double) spinnerChannelCurrent.getValue();
+						device.getPowerLimit().setChannelCurrent(channelCurrent, channelCurrent, channelCurrent);
+						device.getPowerLimit().setBudget((int) spinnerPowerBudget.getValue());
 						
 						if(currentSettingsPanel.isSetup()) {
 							if(dm.addDevice(device)) {
@@ -475,6 +551,16 @@ public class OutputPanel extends MenuPanel {
 						main.showNotification(NotificationType.ERROR, i18n.getString("OutputPanel.CouldNotConnect"));
 					}
 				}
+			//ADD TO ACTIVE clicked
+			} else if(name.equals("addactive") && currentSettingsPanel != null) { //$NON-NLS-1$
+				Device device = currentSettingsPanel.getDevice();
+				if(!currentSettingsPanel.isSetup() && dm.isIdUsed(device.getId())) {
+					om.addActiveOutput(device);
+					mainFrame.displayPanel(new OutputPanel(mainFrame));
+					if(device.getConnectionState() == ConnectionState.FAILED) {
+						main.showNotification(NotificationType.ERROR, i18n.getString("OutputPanel.CouldNotConnect"));
+					}
+				}
 			//CANCEL clicked
 			} else if(name.equals("cancel")) { //$NON-NLS-1$
 				hideSettingsPanel();
@@ -40,6 +40,7 @@ import de.lars.remotelightclient.utils.ui.UiUtils;
 import de.lars.remotelightcore.devices.arduino.Arduino;
 import de.lars.remotelightcore.devices.arduino.ComPort;
 import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.devices.arduino.SerialProtocol;
 import de.lars.remotelightcore.lang.i18n;
 import de.lars.remotelightcore.out.OutputManager;
 
@@ -54,6 +55,7 @@ public class ArduinoSettingsPanel extends DeviceSettingsPanel {
 	private JSpinner spinnerPixels;
 	private JComboBox<String> comboPorts;
 	private JComboBox<RgbOrder> comboOrder;
+	private JComboBox<SerialProtocol> comboProtocol;
 	private JSpinner spinnerShift;
 	private JSpinner spinnerClone;
 	private JCheckBox checkboxCloneMirrored;
@@ -129,6 +131,14 @@ public class ArduinoSettingsPanel extends DeviceSettingsPanel {
 		comboOrder.setModel(new DefaultComboBoxModel<>(RgbOrder.values()));
 		panelOrder.add(comboOrder);
 		
+		JLabel lblProtocol = new JLabel("Protocol:");
+		panelOrder.add(lblProtocol);
+		
+		comboProtocol = new JComboBox<SerialProtocol>();
+		comboProtocol.setModel(new DefaultComboBoxModel<>(SerialProtocol.values()));
+		comboProtocol.setToolTipText("The Arduino sketch must support the selected protocol.");
+		panelOrder.add(comboProtocol);
+		
 		JLabel lblOutputPatch = new JLabel(i18n.getString("OutputPanel.OutputPatch"), SwingConstants.LEFT);
 		lblOutputPatch.setFont(Style.getFontBold(11));
 		lblOutputPatch.setBorder(new EmptyBorder(5, 5, 0, 0));
@@ -198,6 +208,7 @@ public class ArduinoSettingsPanel extends DeviceSettingsPanel {
 			arduino.setRgbOrder(RgbOrder.GRB);
 		}
 		comboOrder.setSelectedItem(arduino.getRgbOrder());
+		comboProtocol.setSelectedItem(arduino.getProtocol());
 	}
 
 	@Override
@@ -209,6 +220,7 @@ public class ArduinoSettingsPanel extends DeviceSettingsPanel {
 		arduino.setSerialPort((String) comboPorts.getSelectedItem());
 		arduino.setPixels((int) spinnerPixels.getValue());
 		arduino.setRgbOrder((RgbOrder) comboOrder.getSelectedItem());
+		arduino.setProtocol((SerialProtocol) comboProtocol.getSelectedItem());
 		arduino.getOutputPatch().setShift((int) spinnerShift.getValue());
 		arduino.getOutputPatch().setClone((int) spinnerClone.getValue());
 		arduino.getOutputPatch().setCloneMirrored(checkboxCloneMirrored.isSelected());
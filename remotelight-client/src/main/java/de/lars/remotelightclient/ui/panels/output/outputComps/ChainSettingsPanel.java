@@ -29,6 +29,7 @@ import java.awt.FlowLayout;
 
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -51,6 +52,7 @@ public class ChainSettingsPanel extends DeviceSettingsPanel {
 	private JPanel panelDevices;
 	private JPanel panelAdd;
 	private JComboBox<String> boxOutputs;
+	private JCheckBox chckbxParallel;
 
 	public ChainSettingsPanel(Chain chain, boolean setup) {
 		super(chain, setup);
@@ -74,6 +76,11 @@ public class ChainSettingsPanel extends DeviceSettingsPanel {
 			fieldId.setText(chain.getId());
 		}
 		
+		chckbxParallel = new JCheckBox("Send to devices in parallel");
+		chckbxParallel.setToolTipText("A slow device does not delay the other devices.");
+		chckbxParallel.setSelected(chain.isParallel());
+		panelId.add(chckbxParallel);
+		
 		panelDevices = new JPanel();
 		panelDevices.setAlignmentX(Component.LEFT_ALIGNMENT);
 		panelDevices.setLayout(new WrapLayout(FlowLayout.LEFT));
@@ -148,6 +155,7 @@ public class ChainSettingsPanel extends DeviceSettingsPanel {
 			return false;
 		}
 		chain.setId(fieldId.getText());
+		chain.setParallel(chckbxParallel.isSelected());
 		return true;
 	}
 
@@ -0,0 +1,222 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightclient.ui.panels.output.outputComps;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import de.lars.remotelightclient.ui.Style;
+import de.lars.remotelightclient.utils.ui.UiUtils;
+import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.devices.ddp.DDP;
+import de.lars.remotelightcore.lang.i18n;
+import de.lars.remotelightcore.out.OutputManager;
+
+public class DDPSettingsPanel extends DeviceSettingsPanel {
+	private static final long serialVersionUID = 4466917373384312711L;
+	
+	private DDP ddp;
+	private JTextField fieldId;
+	private JSpinner spinnerPixels;
+	private JComboBox<RgbOrder> comboOrder;
+	private Dimension size;
+	private JTextField fieldIpAddress;
+	private JSpinner spinnerPort;
+	private JSpinner spinnerShift;
+	private JSpinner spinnerClone;
+	private JCheckBox checkboxCloneMirrored;
+
+	public DDPSettingsPanel(DDP ddp, boolean setup) {
+		super(ddp, setup);
+		this.ddp = ddp;
+		
+		size = new Dimension(800, 40);
+		setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+		setAlignmentX(Component.LEFT_ALIGNMENT);
+		
+		JPanel panelId = new JPanel();
+		FlowLayout flowLayout = (FlowLayout) panelId.getLayout();
+		flowLayout.setAlignment(FlowLayout.LEFT);
+		panelId.setPreferredSize(size);
+		panelId.setMaximumSize(size);
+		panelId.setAlignmentX(Component.LEFT_ALIGNMENT);
+		add(panelId);
+		
+		JLabel lblNameId = new JLabel(i18n.getString("OutputPanel.NameID")); //$NON-NLS-1$
+		panelId.add(lblNameId);
+		
+		fieldId = new JTextField();
+		panelId.add(fieldId);
+		fieldId.setColumns(10);
+		
+		JPanel panelIpAddress = new JPanel();
+		FlowLayout fl_panelIpAddress = (FlowLayout) panelIpAddress.getLayout();
+		fl_panelIpAddress.setAlignment(FlowLayout.LEFT);
+		panelIpAddress.setPreferredSize(size);
+		panelIpAddress.setMaximumSize(size);
+		panelIpAddress.setAlignmentX(Component.LEFT_ALIGNMENT);
+		add(panelIpAddress);
+		
+		JLabel lblIpAddress = new JLabel("IP Address:"); //$NON-NLS-1$
+		panelIpAddress.add(lblIpAddress);
+		
+		fieldIpAddress = new JTextField();
+		fieldIpAddress.setText("");
+		panelIpAddress.add(fieldIpAddress);
+		fieldIpAddress.setColumns(10);
+		
+		JLabel lblPort = new JLabel("Port:"); //$NON-NLS-1$
+		panelIpAddress.add(lblPort);
+		
+		spinnerPort = new JSpinner();
+		spinnerPort.setModel(new SpinnerNumberModel(DDP.PORT, 1, 65535, 1));
+		spinnerPort.setEditor(new JSpinner.NumberEditor(spinnerPort, "#"));
+		UiUtils.configureSpinner(spinnerPort);
+		panelIpAddress.add(spinnerPort);
+		
+		JPanel panelPixels = new JPanel();
+		FlowLayout flowLayout_2 = (FlowLayout) panelPixels.getLayout();
+		flowLayout_2.setAlignment(FlowLayout.LEFT);
+		panelPixels.setPreferredSize(size);
+		panelPixels.setMaximumSize(size);
+		panelPixels.setAlignmentX(Component.LEFT_ALIGNMENT);
+		add(panelPixels);
+		
+		JLabel lblPixels = new JLabel(i18n.getString("OutputPanel.Pixels")); //$NON-NLS-1$
+		panelPixels.add(lblPixels);
+		
+		spinnerPixels = new JSpinner();
+		spinnerPixels.setModel(new SpinnerNumberModel(new Integer(OutputManager.MIN_PIXELS), new Integer(OutputManager.MIN_PIXELS), null, new Integer(1)));
+		UiUtils.configureSpinner(spinnerPixels);
+		panelPixels.add(spinnerPixels);
+		
+		JPanel panelOrder = new JPanel();
+		FlowLayout flowLayout_3 = (FlowLayout) panelOrder.getLayout();
+		flowLayout_3.setAlignment(FlowLayout.LEFT);
+		panelOrder.setPreferredSize(size);
+		panelOrder.setMaximumSize(size);
+		panelOrder.setAlignmentX(Component.LEFT_ALIGNMENT);
+		add(panelOrder);
+		
+		JLabel lblRgbOrder = new JLabel(i18n.getString("OutputPanel.RgbOrder"));
+		panelOrder.add(lblRgbOrder);
+		
+		comboOrder = new JComboBox<RgbOrder>();
+		comboOrder.setModel(new DefaultComboBoxModel<>(RgbOrder.values()));
+		panelOrder.add(comboOrder);
+		
+		JLabel lblOutputPatch = new JLabel(i18n.getString("OutputPanel.OutputPatch"), SwingConstants.LEFT);
+		lblOutputPatch.setFont(Style.getFontBold(11));
+		lblOutputPatch.setBorder(new EmptyBorder(5, 5, 0, 0));
+		add(lblOutputPatch);
+		
+		JPanel panelShift = new JPanel();
+		FlowLayout flowLayout_Order = (FlowLayout) panelShift.getLayout();
+		flowLayout_Order.setAlignment(FlowLayout.LEFT);
+		panelShift.setPreferredSize(new Dimension(800, 40));
+		panelShift.setMaximumSize(new Dimension(800, 40));
+		panelShift.setAlignmentX(0.0f);
+		add(panelShift);
+		
+		JLabel lblShift = new JLabel(i18n.getString("OutputPanel.ShiftPixels"));
+		panelShift.add(lblShift);
+		
+		spinnerShift = new JSpinner();
+		spinnerShift.setModel(new SpinnerNumberModel(ddp.getOutputPatch().getShift(), -ddp.getPixels(), ddp.getPixels(), 1));
+		UiUtils.configureSpinner(spinnerShift);
+		spinnerShift.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent arg0) {
+				int max = (int) spinnerPixels.getValue() - 1;
+				spinnerShift.setModel(new SpinnerNumberModel((int) spinnerShift.getValue(), -max, max, 1));
+			}
+		});
+		panelShift.add(spinnerShift);
+		
+		JLabel lblClone = new JLabel(i18n.getString("OutputPanel.Clone"));
+		panelShift.add(lblClone);
+		
+		spinnerClone = new JSpinner();
+		spinnerClone.setModel(new SpinnerNumberModel(ddp.getOutputPatch().getClone(), 0, ddp.getPixels() / 2, 1));
+		UiUtils.configureSpinner(spinnerClone);
+		spinnerClone.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent arg0) {
+				spinnerClone.setModel(new SpinnerNumberModel((Number) spinnerClone.getValue(), 0, ddp.getPixels() / 2, 1));
+			}
+		});
+		panelShift.add(spinnerClone);
+		
+		checkboxCloneMirrored = new JCheckBox(i18n.getString("OutputPanel.Mirror"));
+		checkboxCloneMirrored.setSelected(ddp.getOutputPatch().isCloneMirrored());
+		panelShift.add(checkboxCloneMirrored);
+		
+		setValues();
+	}
+	
+	private void setValues() {
+		if(ddp.getId() != null) {
+			fieldId.setText(ddp.getId());
+		}
+		
+		spinnerPixels.setValue(ddp.getPixels());
+		
+		if(ddp.getAddress() != null) {
+			fieldIpAddress.setText(ddp.getAddress());
+		}
+		if(ddp.getPort() > 0) {
+			spinnerPort.setValue(ddp.getPort());
+		}
+		
+		if(ddp.getRgbOrder() == null) {
+			ddp.setRgbOrder(RgbOrder.RGB);
+		}
+		comboOrder.setSelectedItem(ddp.getRgbOrder());
+	}
+
+	@Override
+	public boolean save() {
+		if(fieldId.getText().isEmpty()) {
+			return false;
+		}
+		ddp.setId(fieldId.getText());
+		ddp.setPixels((int) spinnerPixels.getValue());
+		ddp.setRgbOrder((RgbOrder) comboOrder.getSelectedItem());
+		ddp.setAddress(fieldIpAddress.getText());
+		ddp.setPort((int) spinnerPort.getValue());
+		ddp.getOutputPatch().setShift((int) spinnerShift.getValue());
+		ddp.getOutputPatch().setClone((int) spinnerClone.getValue());
+		ddp.getOutputPatch().setCloneMirrored(checkboxCloneMirrored.isSelected());
+		return true;
+	}
+
+	@Override
+	public String getId() {
+		return fieldId.getText();
+	}
+
+}
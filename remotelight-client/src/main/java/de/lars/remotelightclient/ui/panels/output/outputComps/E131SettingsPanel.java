@@ -52,6 +52,7 @@ public class E131SettingsPanel extends DeviceSettingsPanel {
 	private JLabel lblEndUniverse;
 	private JSpinner spinnerStartUniverse;
 	private JSpinner spinnerUniverseSize;
+	private JSpinner spinnerSyncUniverse;
 	private JSpinner spinnerShift;
 	private JSpinner spinnerClone;
 	private JCheckBox checkboxCloneMirrored;
@@ -138,6 +139,14 @@ public class E131SettingsPanel extends DeviceSettingsPanel {
 		spinnerStartUniverse.setAlignmentX(Component.LEFT_ALIGNMENT);
 		panelUniverseSize.add(spinnerUniverseSize);
 		
+		JLabel lblSyncUniverse = new JLabel("Sync universe (0 = off):");
+		panelUniverseSize.add(lblSyncUniverse);
+		
+		spinnerSyncUniverse = new JSpinner();
+		spinnerSyncUniverse.setModel(new SpinnerNumberModel(e131.getSyncUniverse(), 0, 63999, 1));
+		UiUtils.configureSpinner(spinnerSyncUniverse);
+		panelUniverseSize.add(spinnerSyncUniverse);
+		
 		JPanel panelPixels = new JPanel();
 		FlowLayout flowLayout_2 = (FlowLayout) panelPixels.getLayout();
 		flowLayout_2.setAlignment(FlowLayout.LEFT);
@@ -231,6 +240,7 @@ public class E131SettingsPanel extends DeviceSettingsPanel {
 		
 		spinnerStartUniverse.setValue(e131.getStartUniverse());
 		spinnerUniverseSize.setValue(e131.getUniverseSize());
+		spinnerSyncUniverse.setValue(e131.getSyncUniverse());
 		updateEndUniverseText();
 		
 		if(e131.getRgbOrder() == null) {
@@ -275,6 +285,7 @@ public class E131SettingsPanel extends DeviceSettingsPanel {
 		e131.setMulticast(chckbxMulticast.isSelected());
 		e131.setStartUniverse((int) spinnerStartUniverse.getValue());
 		e131.setUniverseSize((int) spinnerUniverseSize.getValue());
+		e131.setSyncUniverse((int) spinnerSyncUniverse.getValue());
 		e131.getOutputPatch().setShift((int) spinnerShift.getValue());
 		e131.getOutputPatch().setClone((int) spinnerClone.getValue());
 		e131.getOutputPatch().setCloneMirrored(checkboxCloneMirrored.isSelected());
@@ -31,6 +31,7 @@ import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -54,6 +55,7 @@ public class MultiOutputSettingsPanel extends DeviceSettingsPanel {
 	private JComboBox<String> boxOutputs;
 	private JComboBox<DividingMethod> comboProcessing;
 	private JLabel lblPixels;
+	private JCheckBox chckbxParallel;
 
 	public MultiOutputSettingsPanel(MultiOutput multi, boolean setup) {
 		super(multi, setup);
@@ -77,6 +79,11 @@ public class MultiOutputSettingsPanel extends DeviceSettingsPanel {
 			fieldId.setText(multi.getId());
 		}
 		
+		chckbxParallel = new JCheckBox("Send to devices in parallel");
+		chckbxParallel.setToolTipText("A slow device does not delay the other devices.");
+		chckbxParallel.setSelected(multi.isParallel());
+		panelId.add(chckbxParallel);
+		
 		lblPixels = new JLabel("Pixels: " + multi.getPixels());
 		lblPixels.setAlignmentX(Component.LEFT_ALIGNMENT);
 		lblPixels.setBorder(BorderFactory.createEmptyBorder(5, 5, 0, 0));
@@ -190,6 +197,7 @@ public class MultiOutputSettingsPanel extends DeviceSettingsPanel {
 		}
 		multi.setId(fieldId.getText());
 		multi.setProcessingMethod((DividingMethod) comboProcessing.getSelectedItem());
+		multi.setParallel(chckbxParallel.isSelected());
 		return true;
 	}
 
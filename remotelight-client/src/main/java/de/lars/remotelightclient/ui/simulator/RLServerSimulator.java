@@ -24,20 +24,19 @@ package de.lars.remotelightclient.ui.simulator;
 
 import java.awt.Color;
 import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 
 import org.tinylog.Logger;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-import de.lars.remotelightclient.utils.ColorSerializer;
+import de.lars.remotelightcore.devices.remotelightserver.RLFrameReader;
+import de.lars.remotelightcore.devices.remotelightserver.RLProtocol;
 import de.lars.remotelightcore.lang.i18n;
 
 public class RLServerSimulator {
@@ -46,17 +45,12 @@ public class RLServerSimulator {
 	private boolean running = false;
 	private ServerSocket serverSocket;
 	private Socket socket;
-	private Scanner scanner;
-	private Gson gson;
 	private Color[] inputPixels;
 	private List<ConnectionStateChangeListener> listenersState;
 	private PixelReceiver pixelReceiver;
 	
 	public RLServerSimulator(PixelReceiver pixelReceiver) {
 		listenersState = new ArrayList<>();
-		gson = new GsonBuilder()
-				.registerTypeAdapter(Color.class, new ColorSerializer())
-				.create();
 		this.pixelReceiver = pixelReceiver;
 	}
 	
@@ -77,19 +71,27 @@ public class RLServerSimulator {
 						Logger.info("[Simulator] Client connected: " + socket.getRemoteSocketAddress());
 						onStateChanged(i18n.getString("RLServerEmulator.Connected")); //$NON-NLS-1$
 						
-						scanner = new Scanner(new BufferedInputStream(socket.getInputStream()));
+						// tell the client that binary frames are supported
+						OutputStream output = socket.getOutputStream();
+						output.write(RLProtocol.getGreeting());
+						output.flush();
+						
+						RLFrameReader reader = new RLFrameReader(new BufferedInputStream(socket.getInputStream()));
 						
 						while(running) {
-							
-							if(scanner.hasNextLine()) {
-								String input = scanner.nextLine();
-								inputPixels = gson.fromJson(input, Color[].class);
-								if(pixelReceiver != null) {
-									pixelReceiver.onPixelReceived(inputPixels);
-								}
+							int[] frame = reader.read();
+							Color[] pixels = new Color[frame.length];
+							for(int i = 0; i < frame.length; i++) {
+								pixels[i] = new Color(frame[i]);
+							}
+							inputPixels = pixels;
+							if(pixelReceiver != null) {
+								pixelReceiver.onPixelReceived(inputPixels);
 							}
 						}
 						
+					} catch (EOFException e) {
+						Logger.info("[Simulator] Client disconnected.");
 					} catch (SocketException e) {
 						// do nothing
 					} catch (Exception e) {
@@ -105,8 +107,6 @@ public class RLServerSimulator {
 			running = false;
 			onStateChanged(i18n.getString("RLServerEmulator.Disconnected")); //$NON-NLS-1$
 			try {
-				if(scanner != null)
-					scanner.close();
 				if(socket != null)
 					socket.close();
 				if(serverSocket != null)
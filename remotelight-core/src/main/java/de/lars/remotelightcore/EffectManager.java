@@ -24,6 +24,7 @@ package de.lars.remotelightcore;
 
 import de.lars.remotelightcore.event.EventHandler;
 import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.TransitionEngine;
 import de.lars.remotelightcore.settings.types.SettingBoolean;
 import de.lars.remotelightcore.utils.color.Color;
 import de.lars.remotelightcore.utils.color.PixelColorUtils;
@@ -35,7 +36,16 @@ public abstract class EffectManager {
 	public abstract boolean isActive();
 	
 	protected void turnOffLeds() {
-		if(RemoteLightCore.getInstance().getSettingsManager().getSetting(SettingBoolean.class, "out.effects.disableleds").get()) {
+		RemoteLightCore core = RemoteLightCore.getInstance();
+		TransitionEngine transitions = core.getOutputManager().getTransitionEngine();
+		if(transitions.isRunning()) {
+			if(core.getEffectManagerHelper().isSwitchingEffect()) {
+				// another effect is started, the transition fades out this effect
+				return;
+			}
+			transitions.cancel();
+		}
+		if(core.getSettingsManager().getSetting(SettingBoolean.class, "out.effects.disableleds").get()) {
 			// turn off leds when disabling effect
 			OutputManager.addToOutput(PixelColorUtils.colorAllPixels(Color.BLACK, RemoteLightCore.getLedNum()));
 		}
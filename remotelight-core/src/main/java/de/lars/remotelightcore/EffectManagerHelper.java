@@ -28,10 +28,13 @@ import java.util.List;
 
 import de.lars.remotelightcore.animation.Animation;
 import de.lars.remotelightcore.animation.AnimationManager;
+import de.lars.remotelightcore.compositor.Compositor;
 import de.lars.remotelightcore.effect.AbstractEffect;
 import de.lars.remotelightcore.lua.LuaManager;
 import de.lars.remotelightcore.musicsync.MusicEffect;
 import de.lars.remotelightcore.musicsync.MusicSyncManager;
+import de.lars.remotelightcore.out.Transition;
+import de.lars.remotelightcore.out.TransitionEngine;
 import de.lars.remotelightcore.scene.Scene;
 import de.lars.remotelightcore.scene.SceneManager;
 import de.lars.remotelightcore.screencolor.AbstractScreenColorManager;
@@ -44,9 +47,12 @@ public class EffectManagerHelper {
 	private SceneManager sm;
 	private AbstractScreenColorManager scm;
 	private LuaManager lua;
+	private Compositor compositor;
+	/** true while the other managers are stopped because an effect is started */
+	private volatile boolean switching;
 	
 	public enum EffectType {
-		Animation, Scene, MusicSync, ScreenColor, Lua
+		Animation, Scene, MusicSync, ScreenColor, Lua, Compositor
 	}
 	
 	public EffectManagerHelper() {
@@ -60,10 +66,11 @@ public class EffectManagerHelper {
 		sm = remoteLightCore.getSceneManager();
 		scm = remoteLightCore.getScreenColorManager();
 		lua = remoteLightCore.getLuaManager();
+		compositor = remoteLightCore.getCompositor();
 		if(scm == null) {
-			allManager = new EffectManager[] {am, msm, sm, lua};
+			allManager = new EffectManager[] {am, msm, sm, lua, compositor};
 		} else {
-			allManager = new EffectManager[] {am, msm, sm, lua, scm};
+			allManager = new EffectManager[] {am, msm, sm, lua, compositor, scm};
 		}
 	}
 	
@@ -72,6 +79,7 @@ public class EffectManagerHelper {
 	}
 	
 	public void stopAll() {
+		RemoteLightCore.getInstance().getOutputManager().getTransitionEngine().cancel();
 		if(am.isActive())
 			am.stop();
 		if(msm.isActive())
@@ -82,9 +90,20 @@ public class EffectManagerHelper {
 			scm.stop();
 		if(lua.isActive())
 			lua.stopLuaScript();
+		if(compositor.isActive())
+			compositor.stop();
 	}
 	
 	public void stopAllExceptFor(EffectType type) {
+		switching = true;
+		try {
+			stopManagersExceptFor(type);
+		} finally {
+			switching = false;
+		}
+	}
+	
+	private void stopManagersExceptFor(EffectType type) {
 		if(type != EffectType.Animation && am.isActive()) {
 			am.stop();
 		}
@@ -100,6 +119,17 @@ public class EffectManagerHelper {
 		if(type != EffectType.Lua && lua.isActive()) {
 			lua.stopLuaScript();
 		}
+		if(type != EffectType.Compositor && compositor.isActive()) {
+			compositor.stop();
+		}
+	}
+	
+	/**
+	 * 
+	 * @return True while the other effects are stopped because an effect is started
+	 */
+	public boolean isSwitchingEffect() {
+		return switching;
 	}
 	
 	/**
@@ -123,6 +153,30 @@ public class EffectManagerHelper {
 	 * 			
 	 */
 	public boolean startEffect(EffectManager manager, String effect) {
+		return startEffect(manager, effect, null);
+	}
+	
+	/**
+	 * Start effect/animation using specified manager and blend it with
+	 * the current effect
+	 * @param manager corresponding EffectManager (except for ScreenColorManager)
+	 * @param effect effect/animation etc to start
+	 * @param transition transition from the current effect or null to use
+	 * 			the default transition (see {@link TransitionEngine#setDefaultTransition(Transition)})
+	 * @return true if effect was found and started, false otherwise
+	 */
+	public boolean startEffect(EffectManager manager, String effect, Transition transition) {
+		TransitionEngine transitions = RemoteLightCore.getInstance().getOutputManager().getTransitionEngine();
+		transitions.setNextTransition(transition);
+		try {
+			return startEffectByName(manager, effect);
+		} finally {
+			// only used if the effect was started
+			transitions.setNextTransition(null);
+		}
+	}
+	
+	private boolean startEffectByName(EffectManager manager, String effect) {
 		if(manager instanceof AnimationManager) {
 			AnimationManager m = (AnimationManager) manager;
 			for(Animation animation : m.getAnimations()) {
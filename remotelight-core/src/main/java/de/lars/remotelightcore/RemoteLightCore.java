@@ -41,6 +41,7 @@ import de.lars.remotelightcore.cmd.ConsoleReader;
 import de.lars.remotelightcore.cmd.StartParameterHandler;
 import de.lars.remotelightcore.colors.ColorManager;
 import de.lars.remotelightcore.colors.palette.PaletteLoader;
+import de.lars.remotelightcore.compositor.Compositor;
 import de.lars.remotelightcore.devices.DeviceManager;
 import de.lars.remotelightcore.event.EventHandler;
 import de.lars.remotelightcore.event.events.Stated.State;
@@ -48,6 +49,7 @@ import de.lars.remotelightcore.event.events.types.ShutdownEvent;
 import de.lars.remotelightcore.io.AutoSave;
 import de.lars.remotelightcore.io.FileStorage;
 import de.lars.remotelightcore.lua.LuaManager;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
 import de.lars.remotelightcore.musicsync.MusicSyncManager;
 import de.lars.remotelightcore.notification.Notification;
 import de.lars.remotelightcore.notification.NotificationManager;
@@ -73,6 +75,7 @@ public class RemoteLightCore {
 	public final static String DISCORD = "https://discord.gg/JcsKm5U";
 	
 	private static RemoteLightCore instance;
+	private final static ThreadLocal<int[]> threadLedNum = ThreadLocal.withInitial(() -> new int[1]);
 	private static boolean headless;
 	public  static StartParameterHandler startParameter;
 	
@@ -88,6 +91,7 @@ public class RemoteLightCore {
 	private MusicSyncManager musicManager;
 	private AbstractScreenColorManager screenColorManager;
 	private LuaManager luaManager;
+	private Compositor compositor;
 	private ColorManager colorManager;
 	
 	private FileStorage fileStorage;
@@ -140,6 +144,7 @@ public class RemoteLightCore {
 		settingsManager.load(fileStorage.KEY_SETTINGS_LIST);
 		deviceManager = new DeviceManager();
 		outputManager = new OutputManager();
+		PipelineMetrics.getInstance().setOutputManager(outputManager);
 		luaManager = new LuaManager();
 		colorManager = new ColorManager();
 		
@@ -147,6 +152,7 @@ public class RemoteLightCore {
 		aniManager = new AnimationManager();
 		sceneManager = new SceneManager();
 		musicManager = new MusicSyncManager();
+		compositor = new Compositor();
 		effectManagerHelper = new EffectManagerHelper();
 		
 		// load devices
@@ -166,6 +172,13 @@ public class RemoteLightCore {
 		return instance;
 	}
 	
+	/**
+	 * @return true if the core is initialized and {@link #getInstance()} can be used
+	 */
+	public static boolean isInitialized() {
+		return instance != null;
+	}
+	
 	public void registerShutdownHook() {
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			public void run() {
@@ -200,6 +213,14 @@ public class RemoteLightCore {
 		return musicManager;
 	}
 	
+	/**
+	 * 
+	 * @return Compositor that renders several effects as layers
+	 */
+	public Compositor getCompositor() {
+		return compositor;
+	}
+	
 	public AbstractScreenColorManager getScreenColorManager() {
 		return screenColorManager;
 	}
@@ -221,6 +242,10 @@ public class RemoteLightCore {
 		return outputManager;
 	}
 	
+	public PipelineMetrics getPipelineMetrics() {
+		return PipelineMetrics.getInstance();
+	}
+	
 	public SettingsManager getSettingsManager() {
 		return settingsManager;
 	}
@@ -254,13 +279,18 @@ public class RemoteLightCore {
 	}
 
 	/**
-	 * Returns the number of LEDs of the active output
+	 * Returns the number of LEDs of the active output or the number
+	 * set by {@link #setThreadLedNum(int)} on the calling thread
 	 * @return
 	 */
 	public static int getLedNum() {
+		int threadPixels = threadLedNum.get()[0];
+		if(threadPixels > 0) {
+			return threadPixels;
+		}
 		Output out = instance.getOutputManager().getActiveOutput();
 		if(out != null) {
-			if(out.getOutputPatch().getClone() > 0) {
+			if(out.getOutputPatch().isResizing()) {
 				return out.getOutputPatch().getPatchedPixelNumber();
 			}
 			return out.getPixels();
@@ -270,6 +300,19 @@ public class RemoteLightCore {
 		return OutputManager.MIN_PIXELS;
 	}
 	
+	/**
+	 * Let {@link #getLedNum()} return the specified number of pixels on the
+	 * calling thread, e.g. while an effect renders a part of the strip.
+	 * @param pixels	number of pixels or 0 to use the active output again
+	 * @return the previous number of pixels of the calling thread
+	 */
+	public static int setThreadLedNum(int pixels) {
+		int[] holder = threadLedNum.get();
+		int previous = holder[0];
+		holder[0] = Math.max(0, pixels);
+		return previous;
+	}
+	
 	/**
 	 * Returns the elapsed time in milliseconds since the program started as int value
 	 * @return elapsed time in ms
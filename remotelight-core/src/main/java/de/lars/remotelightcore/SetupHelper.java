@@ -28,16 +28,24 @@ import de.lars.remotelightcore.cmd.CommandParser;
 import de.lars.remotelightcore.cmd.exceptions.CommandException;
 import de.lars.remotelightcore.devices.Device;
 import de.lars.remotelightcore.io.AutoSave;
+import de.lars.remotelightcore.out.ColorCorrection;
+import de.lars.remotelightcore.out.Transition;
+import de.lars.remotelightcore.out.TransitionEngine;
 import de.lars.remotelightcore.settings.SettingsManager;
 import de.lars.remotelightcore.settings.SettingsManager.SettingCategory;
 import de.lars.remotelightcore.settings.types.SettingBoolean;
+import de.lars.remotelightcore.settings.types.SettingDouble;
 import de.lars.remotelightcore.settings.types.SettingInt;
 import de.lars.remotelightcore.settings.types.SettingObject;
+import de.lars.remotelightcore.settings.types.SettingSelection;
+import de.lars.remotelightcore.settings.types.SettingSelection.Model;
 import de.lars.remotelightcore.utils.DirectoryUtil;
 import de.lars.remotelightcore.utils.color.RainbowWheel;
 
 public class SetupHelper {
 
+	private final static String[] TRANSITIONS = {"None", "Crossfade", "Wipe", "Dissolve"};
+
 	private RemoteLightCore core;
 	private SettingsManager s;
 
@@ -65,6 +73,20 @@ public class SetupHelper {
 	private void registerSettings() {
 		s.addSetting(new SettingInt("out.delay", "Output delay", SettingCategory.General,
 				"Delay (ms) between sending output packets.", 50, 5, 500, 5));
+		s.addSetting(new SettingDouble("out.gamma", "Gamma correction", SettingCategory.General,
+				"Gamma of the output colors (1.0 = linear). LED strips usually look best with 2.0 to 2.8.", 1.0, 1.0, 3.0, 0.1));
+		s.addSetting(new SettingBoolean("out.dithering", "Temporal dithering", SettingCategory.General,
+				"Smooth dim colors and low brightness by alternating between neighbouring values on every output frame.", false));
+		s.addSetting(new SettingBoolean("out.interpolation", "Frame interpolation", SettingCategory.General,
+				"Fade between the frames of slow effects on outputs with a higher frame rate.", false));
+		s.addSetting(new SettingSelection("out.transition", "Effect transition", SettingCategory.General,
+				"Blend the old effect into the new effect when the effect is changed.", TRANSITIONS, TRANSITIONS[0], Model.ComboBox));
+		s.addSetting(new SettingInt("out.transition.duration", "Transition duration (ms)", SettingCategory.General,
+				"Duration of the transition between two effects.", 1000, 50, Transition.MAX_DURATION, 50));
+		s.addSetting(new SettingInt("out.transition.maxload", "Transition CPU limit (%)", SettingCategory.Others,
+				"Max CPU load of the old effect during a transition in percent of one core. The old effect renders fewer frames when it is exceeded.", TransitionEngine.DEFAULT_MAX_LOAD, 1, 100, 5));
+		s.addSetting(new SettingInt("out.power.budget", "Power budget (mA)", SettingCategory.General,
+				"Max estimated current of all active outputs in milliamps. The brightness is reduced when it is exceeded (0 = no limit).", 0, 0, 500000, 500));
 		s.addSetting(new SettingBoolean("out.autoconnect", "Auto connect", SettingCategory.General,
 				"Automaticly connect/open last used output.", false));
 		s.addSetting(new SettingBoolean("manager.lastactive.enabled", "Auto enable last effect",
@@ -81,11 +103,37 @@ public class SetupHelper {
 
 		// Intern
 		s.addSetting(new SettingObject("out.lastoutput", "Last active Output", null));
+		s.addSetting(new SettingObject("out.lastoutputs", "Additional active Outputs", null));
 		s.addSetting(new SettingObject("out.brightness", null, 100));
 		s.addSetting(new SettingObject("manager.lastactive.command", "Last active effect start command", null));
 
 		// set values
 		core.getOutputManager().setBrightness((int) s.getSettingObject("out.brightness").get());
+		ColorCorrection correction = core.getOutputManager().getColorCorrection();
+		correction.setGamma(s.getSetting(SettingDouble.class, "out.gamma").get());
+		correction.setDithering(s.getSetting(SettingBoolean.class, "out.dithering").get());
+		s.getSetting(SettingDouble.class, "out.gamma").setValueListener(setting -> correction.setGamma(((SettingDouble) setting).get()));
+		s.getSetting(SettingBoolean.class, "out.dithering").setValueListener(setting -> correction.setDithering(((SettingBoolean) setting).get()));
+		core.getOutputManager().setInterpolation(s.getSetting(SettingBoolean.class, "out.interpolation").get());
+		s.getSetting(SettingBoolean.class, "out.interpolation").setValueListener(setting -> core.getOutputManager().setInterpolation(((SettingBoolean) setting).get()));
+		updateTransition();
+		s.getSetting(SettingSelection.class, "out.transition").setValueListener(setting -> updateTransition());
+		s.getSetting(SettingInt.class, "out.transition.duration").setValueListener(setting -> updateTransition());
+		TransitionEngine transitions = core.getOutputManager().getTransitionEngine();
+		transitions.setMaxLoad(s.getSetting(SettingInt.class, "out.transition.maxload").get());
+		s.getSetting(SettingInt.class, "out.transition.maxload").setValueListener(setting -> transitions.setMaxLoad(((SettingInt) setting).get()));
+		core.getOutputManager().setPowerBudget(s.getSetting(SettingInt.class, "out.power.budget").get());
+		s.getSetting(SettingInt.class, "out.power.budget").setValueListener(setting -> core.getOutputManager().setPowerBudget(((SettingInt) setting).get()));
+	}
+
+	private void updateTransition() {
+		String type = s.getSetting(SettingSelection.class, "out.transition").get();
+		int duration = s.getSetting(SettingInt.class, "out.transition.duration").get();
+		try {
+			core.getOutputManager().getTransitionEngine().setDefaultTransition(new Transition(Transition.parseType(type), duration));
+		} catch(IllegalArgumentException e) {
+			Logger.warn("Invalid transition setting: " + e.getMessage());
+		}
 	}
 
 	private void automation() {
@@ -115,6 +163,16 @@ public class SetupHelper {
 					if (outputID != null && core.getDeviceManager().isIdUsed(outputID)) {
 						Device device = core.getDeviceManager().getDevice(outputID);
 						core.getOutputManager().setActiveOutput(device);
+						
+						// restore additional outputs
+						Object additional = s.getSettingObject("out.lastoutputs").get();
+						if(additional instanceof String[]) {
+							for(String id : (String[]) additional) {
+								if(core.getDeviceManager().isIdUsed(id)) {
+									core.getOutputManager().addActiveOutput(core.getDeviceManager().getDevice(id));
+								}
+							}
+						}
 					}
 				}
 
@@ -33,9 +33,13 @@ import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.animation.animations.*;
 import de.lars.remotelightcore.event.events.types.EffectToggleEvent.Action;
 import de.lars.remotelightcore.event.events.types.EffectToggleEvent.AnimationToggleEvent;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
 import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.TransitionEngine;
 import de.lars.remotelightcore.settings.Setting;
 import de.lars.remotelightcore.settings.SettingsManager;
+import de.lars.remotelightcore.utils.FrameScheduler;
 import de.lars.remotelightcore.utils.color.Color;
 import de.lars.remotelightcore.utils.color.PixelColorUtils;
 
@@ -100,15 +104,25 @@ public class AnimationManager extends EffectManager {
 	}
 	
 	public void start(Animation animation) {
+		TransitionEngine transitions = RemoteLightCore.getInstance().getOutputManager().getTransitionEngine();
+		boolean transition = transitions.begin();
 		RemoteLightCore.getInstance().getEffectManagerHelper().stopAllExceptFor(EffectType.Animation);
-		if(activeAnimation != null) {
-			activeAnimation.onDisable();
+		Animation previous = activeAnimation;
+		if(previous != null && (!transition || previous == animation)) {
+			previous.onDisable();
+		}
+		if(!transition) {
+			OutputManager.addToOutput(PixelColorUtils.colorAllPixels(Color.BLACK, RemoteLightCore.getLedNum()));
 		}
-		OutputManager.addToOutput(PixelColorUtils.colorAllPixels(Color.BLACK, RemoteLightCore.getLedNum()));
 		if(animation != null) {
 			animation.onEnable(RemoteLightCore.getLedNum());
 		}
 		activeAnimation = animation;
+		if(transition && previous != null && previous != animation) {
+			// keep rendering the old animation until the transition has finished
+			int previousDelay = previous.isAdjustable() ? delay : previous.getDelay();
+			transitions.setOutgoingEffect(previous::onLoop, previousDelay, previous::onDisable);
+		}
 		this.loop();
 		// trigger event
 		getEventHandler().call(new AnimationToggleEvent(Action.ENABLE, animation));
@@ -142,10 +156,13 @@ public class AnimationManager extends EffectManager {
 				
 				@Override
 				public void run() {
+					FrameScheduler scheduler = new FrameScheduler(delay);
 					while(activeAnimation != null) {
 						try {
 							
+							long renderStart = System.nanoTime();
 							activeAnimation.onLoop();
+							PipelineMetrics.getInstance().record(Stage.RENDER, renderStart);
 							
 						} catch(Exception e) {
 							Logger.error(e, "There was an error executing the animation '" + activeAnimation.getDisplayname() + "'.");
@@ -154,18 +171,13 @@ public class AnimationManager extends EffectManager {
 							break;
 						}
 						
-						if(activeAnimation.isAdjustable()) {
-							try {
-								Thread.sleep(delay);
-							} catch (InterruptedException e) {
-								Logger.error(e, "Animation Thread could not wait for delay! (delay: " + delay + ")");
-							}
-						} else {
-							try {
-								Thread.sleep(activeAnimation.getDelay());
-							} catch (InterruptedException e) {
-								Logger.error(e, "Animation Thread could not wait for delay! (delay: " + activeAnimation.getDelay() + ")");
-							}
+						Animation animation = activeAnimation;
+						int frameDelay = (animation == null || animation.isAdjustable()) ? delay : animation.getDelay();
+						scheduler.setDelay(frameDelay);
+						try {
+							scheduler.waitForNextFrame();
+						} catch (InterruptedException e) {
+							Logger.error(e, "Animation Thread could not wait for delay! (delay: " + frameDelay + ")");
 						}
 					}
 					active = false;
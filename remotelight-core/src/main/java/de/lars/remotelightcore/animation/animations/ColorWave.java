@@ -23,6 +23,7 @@
 package de.lars.remotelightcore.animation.animations;
 
 import de.lars.remotelightcore.animation.Animation;
+import de.lars.remotelightcore.settings.SettingHandle;
 import de.lars.remotelightcore.settings.SettingsManager.SettingCategory;
 import de.lars.remotelightcore.settings.types.SettingBoolean;
 import de.lars.remotelightcore.settings.types.SettingColor;
@@ -38,6 +39,9 @@ public class ColorWave extends Animation {
 	private Color color, oldColor, newColor;
 	private float step = 0.0f;
 	private float fade = 0.0f;
+	private SettingHandle<SettingBoolean> sRandomColor, sWave;
+	private SettingHandle<SettingColor> sColor, sBackground;
+	private SettingHandle<SettingInt> sWavePeriod;
 	
 	public ColorWave() {
 		super("ColorWave");
@@ -54,6 +58,11 @@ public class ColorWave extends Animation {
 	
 	@Override
 	public void onEnable(int pixels) {
+		sRandomColor = getSettingHandle(SettingBoolean.class, "animation.colorwave.randomcolor");
+		sColor = getSettingHandle(SettingColor.class, "animation.colorwave.color");
+		sWave = getSettingHandle(SettingBoolean.class, "animation.colorwave.wave");
+		sWavePeriod = getSettingHandle(SettingInt.class, "animation.colorwave.waveperiod");
+		sBackground = getSettingHandle(SettingColor.class, "animation.colorwave.wavebackground");
 		strip = PixelColorUtils.colorAllPixels(Color.BLACK, pixels);
 		for(int i = 0; i < pixels; i++) {
 			onEffect();
@@ -64,12 +73,8 @@ public class ColorWave extends Animation {
 	
 	@Override
 	public Color[] onEffect() {
-		if(!((SettingBoolean) getSetting("animation.colorwave.randomcolor")).get()) {
-			color = ((SettingColor) getSetting("animation.colorwave.color")).get();
-		}
-		
-		if(!((SettingBoolean) getSetting("animation.colorwave.randomcolor")).get()) {
-			color = ((SettingColor) getSetting("animation.colorwave.color")).get();
+		if(!sRandomColor.getSetting().get()) {
+			color = sColor.getSetting().get();
 		}
 		
 		strip = PixelColorUtils.shiftPixelsRight(strip, 1);
@@ -88,15 +93,15 @@ public class ColorWave extends Animation {
 	}
 	
 	private Color calcWave(Color c) {
-		if(!((SettingBoolean) getSetting("animation.colorwave.wave")).get()) {
+		if(!sWave.getSetting().get()) {
 			return c;
 		}
 		// f(x) = 50 * sin(b * PI * x) + 50
 		// size = b
-		float size = 1.0f / 10.0f * getSetting(SettingInt.class, "animation.colorwave.waveperiod").get();
+		float size = 1.0f / 10.0f * sWavePeriod.getSetting().get();
 		int dim = (int) (50 * Math.sin(size * Math.PI * step) + 50);
 		
-		Color background = getSetting(SettingColor.class, "animation.colorwave.wavebackground").get();
+		Color background = sBackground.getSetting().get();
 		float weight = dim / 100.0f;
 		
 		// sinus period = (2 * PI) / (b * PI) = 2 / b
@@ -35,6 +35,7 @@ public class GradientAnimation extends Animation {
 		if(palette instanceof ColorGradient) {
 			((ColorGradient) palette).setStepSize(sStepSize.get().floatValue());
 			((ColorGradient) palette).setReverseOnEnd(true);
+			((ColorGradient) palette).setBaked(true);
 		}
 		
 		if(strip.length > 1) {
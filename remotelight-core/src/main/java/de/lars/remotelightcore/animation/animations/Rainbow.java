@@ -30,6 +30,7 @@ import de.lars.remotelightcore.settings.types.SettingInt;
 import de.lars.remotelightcore.settings.types.SettingSelection;
 import de.lars.remotelightcore.settings.types.SettingSelection.Model;
 import de.lars.remotelightcore.utils.color.Color;
+import de.lars.remotelightcore.utils.color.ColorMath;
 import de.lars.remotelightcore.utils.color.PixelColorUtils;
 
 public class Rainbow extends Animation {
@@ -93,11 +94,11 @@ public class Rainbow extends Animation {
 		if((step += increment) > 1.0f) {
 			step = 0.0f;
 		}
-		strip[0] = Color.getHSBColor(step, 1.0f, 1.0f);
+		strip[0] = new Color(ColorMath.hsv2rgbSpectrum16((int) (step * 0xFFFF), 255, 255));
 	}
 	
 	private void hsvNoCycleRainbow() {
-		Color color = Color.getHSBColor(step, 1.0f, 1.0f);
+		Color color = new Color(ColorMath.hsv2rgbSpectrum16((int) (step * 0xFFFF), 255, 255));
 		for(int i = 0; i < strip.length; i++) {
 			strip[i] = color;
 		}
@@ -23,12 +23,12 @@
 package de.lars.remotelightcore.animation.animations;
 
 import de.lars.remotelightcore.animation.Animation;
+import de.lars.remotelightcore.effect.PixelKernel;
+import de.lars.remotelightcore.out.PixelBuffer;
 import de.lars.remotelightcore.settings.SettingsManager.SettingCategory;
 import de.lars.remotelightcore.settings.types.SettingBoolean;
 import de.lars.remotelightcore.settings.types.SettingDouble;
-import de.lars.remotelightcore.utils.color.Color;
 import de.lars.remotelightcore.utils.color.ColorUtil;
-import de.lars.remotelightcore.utils.color.PixelColorUtils;
 import de.lars.remotelightcore.utils.color.RainbowWheel;
 import de.lars.remotelightcore.utils.maths.MathHelper;
 import de.lars.remotelightcore.utils.maths.OpenSimplexNoise;
@@ -36,24 +36,30 @@ import de.lars.remotelightcore.utils.maths.OpenSimplexNoise;
 public class RainbowNoise extends Animation {
 	
 	private OpenSimplexNoise noiseBright, noiseColor;
-	private Color[] strip;
 	
+	private final SettingBoolean sBrightnessChange;
+	private final SettingDouble sXIncrement;
+	private final SettingDouble sYIncrement;
+	private final SettingDouble sTimeIncrement;
+	private final PixelKernel kernel = this::renderPixels;
+	
+	/* frame state read by the kernel */
 	private float zoff = 0.0f;
-	private float zincrement = 0.05f;
+	private float xincrement;
+	private float yincrement;
+	private boolean brightnessChange;
 
 	public RainbowNoise() {
 		super("RainbowNoise");
 		// register settings
-		this.addSetting(new SettingBoolean("animation.rainbownoise.brgightnesschange", "Brightness change", SettingCategory.Intern, "Vary the brightness", false));
-		this.addSetting(new SettingDouble("animation.rainbownoise.xincrement", "x-Increment", SettingCategory.Intern, null, 0.02, 0, 5, 0.005));
-		this.addSetting(new SettingDouble("animation.rainbownoise.yincrement", "y-Increment", SettingCategory.Intern, null, 0.005, 0, 5, 0.005));
-		this.addSetting(new SettingDouble("animation.rainbownoise.timeincrement", "Time-Increment", SettingCategory.Intern, null, 0.02, 0, 5, 0.002));
+		sBrightnessChange = this.addSetting(new SettingBoolean("animation.rainbownoise.brgightnesschange", "Brightness change", SettingCategory.Intern, "Vary the brightness", false));
+		sXIncrement = this.addSetting(new SettingDouble("animation.rainbownoise.xincrement", "x-Increment", SettingCategory.Intern, null, 0.02, 0, 5, 0.005));
+		sYIncrement = this.addSetting(new SettingDouble("animation.rainbownoise.yincrement", "y-Increment", SettingCategory.Intern, null, 0.005, 0, 5, 0.005));
+		sTimeIncrement = this.addSetting(new SettingDouble("animation.rainbownoise.timeincrement", "Time-Increment", SettingCategory.Intern, null, 0.02, 0, 5, 0.002));
 	}
 	
 	@Override
 	public void onEnable(int pixels) {
-		// initialize strip color array
-		strip = PixelColorUtils.colorAllPixels(Color.BLACK, pixels);
 		// initialize noise
 		noiseBright = new OpenSimplexNoise();
 		noiseColor = new OpenSimplexNoise();
@@ -61,42 +67,34 @@ public class RainbowNoise extends Animation {
 	}
 	
 	@Override
-	public Color[] onEffect() {
-		// get increment values from settings
-		float xincrement = ((SettingDouble) getSetting("animation.rainbownoise.xincrement")).get().floatValue();
-		float yincrement = ((SettingDouble) getSetting("animation.rainbownoise.yincrement")).get().floatValue();
-		zincrement = ((SettingDouble) getSetting("animation.rainbownoise.timeincrement")).get().floatValue();
-		
-		zoff += zincrement;
-		float xoff = 0.0f;
-		float yoff = 0.0f;
+	public boolean onEffect(PixelBuffer buffer) {
+		// read the settings once per frame
+		xincrement = sXIncrement.get().floatValue();
+		yincrement = sYIncrement.get().floatValue();
+		brightnessChange = sBrightnessChange.get();
+		zoff += sTimeIncrement.get().floatValue();
 		
-		for(int x = 0; x < strip.length; x++) {
-			// increase xoff and yoff
-			xoff += xincrement;
-			yoff += yincrement;
-			
-			// get brightness noise value
-			float nB = (float) noiseBright.eval(xoff, yoff, zoff);
-			int bright = (int) MathHelper.map(nB, -1, 1, 0, 100);
+		renderKernel(kernel, buffer);
+		return true;
+	}
+	
+	private void renderPixels(int from, int to, int[] pixels, int offset) {
+		final int[] rainbow = RainbowWheel.getPackedRainbow();
+		for(int x = from; x < to; x++) {
+			final float xoff = (x + 1) * xincrement;
+			final float yoff = (x + 1) * yincrement;
 			
 			// get hue noise value
 			float nC = (float) noiseColor.eval(xoff, yoff, zoff);
-			int hue = (int) MathHelper.map(nC, -1, 1, 0, RainbowWheel.getRainbow().length-1);
-			
-			Color color = RainbowWheel.getRainbow()[hue];
+			int color = rainbow[(int) MathHelper.map(nC, -1, 1, 0, rainbow.length - 1)];
 			
 			// change brightness of color (if enabled in options)
-			if(((SettingBoolean)getSetting("animation.rainbownoise.brgightnesschange")).get()) {
-				color = ColorUtil.dimColor(color, bright);
+			if(brightnessChange) {
+				float nB = (float) noiseBright.eval(xoff, yoff, zoff);
+				color = ColorUtil.dimColor(color, (int) MathHelper.map(nB, -1, 1, 0, 100));
 			}
-			
-			// set color on position x to new color
-			strip[x] = color;
+			pixels[offset + x] = color;
 		}
-		
-		// show the strip
-		return strip;
 	}
 
 }
@@ -31,6 +31,7 @@ import de.lars.remotelightcore.settings.SettingsManager.SettingCategory;
 import de.lars.remotelightcore.settings.types.SettingBoolean;
 import de.lars.remotelightcore.settings.types.SettingSelection;
 import de.lars.remotelightcore.utils.color.Color;
+import de.lars.remotelightcore.utils.color.ColorMath;
 import de.lars.remotelightcore.utils.color.PixelColorUtils;
 
 public class SortAlgo extends Animation {
@@ -96,10 +97,8 @@ public class SortAlgo extends Animation {
 	 */
 	private void reset() {
 		shuffleCount = 0;
-		float stepSize = 1.0f / strip.length;
 		for(int i = 0; i < strip.length; i++) {
-			float hue = stepSize * i;
-			strip[i] = Color.getHSBColor(hue, 1f, 1f);
+			strip[i] = getColorFromValue(i);
 			values[i] = i;
 		}
 		markedIndexes.clear();
@@ -248,8 +247,8 @@ public class SortAlgo extends Animation {
 	}
 	
 	private Color getColorFromValue(int value) {
-		float hue = 1.0f / strip.length * value;
-		return Color.getHSBColor(hue, 1f, 1f);
+		int hue = (int) (0x10000L * value / strip.length);
+		return new Color(ColorMath.hsv2rgbSpectrum16(hue, 255, 255));
 	}
 	
 	
@@ -25,6 +25,7 @@ package de.lars.remotelightcore.cmd;
 import static de.lars.remotelightcore.cmd.CMD.CLOSE;
 import static de.lars.remotelightcore.cmd.CMD.COLOR;
 import static de.lars.remotelightcore.cmd.CMD.LIST;
+import static de.lars.remotelightcore.cmd.CMD.METRICS;
 import static de.lars.remotelightcore.cmd.CMD.START;
 import static de.lars.remotelightcore.cmd.CMD.STOP;
 
@@ -35,6 +36,7 @@ import de.lars.remotelightcore.EffectManager;
 import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.cmd.exceptions.CommandException;
 import de.lars.remotelightcore.colors.ColorManager;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
 import de.lars.remotelightcore.screencolor.AbstractScreenColorManager;
 import de.lars.remotelightcore.utils.color.Color;
 
@@ -120,6 +122,14 @@ public class CommandParser {
 					throw new CommandException("The given effect manager has no effects or is not supported.");
 				print("All effects of " + args[1] + ": " + String.join(", ", names));
 			}
+		} else if(args[0].equalsIgnoreCase(METRICS.toString())) {
+			PipelineMetrics metrics = remoteLightCore.getPipelineMetrics();
+			if(args.length == 2 && args[1].equalsIgnoreCase("reset")) {
+				metrics.reset();
+				print("Successfully reset all metrics.");
+			} else {
+				print("Pipeline metrics: " + metrics.getSummary());
+			}
 		} else if(args[0].equalsIgnoreCase(CLOSE.toString())) {
 			remoteLightCore.close(true);
 		} else {
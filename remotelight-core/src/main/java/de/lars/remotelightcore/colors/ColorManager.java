@@ -27,6 +27,7 @@ import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.colors.palette.model.AbstractPalette;
 import de.lars.remotelightcore.colors.palette.model.ColorGradient;
 import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.PixelBuffer;
 import de.lars.remotelightcore.utils.color.Color;
 import de.lars.remotelightcore.utils.color.ColorUtil;
 import de.lars.remotelightcore.utils.color.PixelColorUtils;
@@ -60,11 +61,10 @@ public class ColorManager extends EffectManager {
 		}
 		int pixels = RemoteLightCore.getLedNum();
 		float stepSize = 1.0f / pixels;
-		((ColorGradient) gradient).setStepSize(stepSize);
-		((ColorGradient) gradient).resetStepPosition();
-		Color[] strip = new Color[pixels];
+		// sample the baked lookup table instead of interpolating every pixel
+		PixelBuffer strip = new PixelBuffer(pixels);
 		for(int i = 0; i < pixels; i++) {
-			strip[i] = gradient.getNext();
+			strip.set(i, gradient.sample(i * stepSize));
 		}
 		OutputManager.addToOutput(strip);
 	}
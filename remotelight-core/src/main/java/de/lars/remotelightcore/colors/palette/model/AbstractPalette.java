@@ -4,6 +4,13 @@ import de.lars.remotelightcore.utils.color.Color;
 
 public abstract class AbstractPalette {
 	
+	/** number of entries of the baked lookup table */
+	public final static int LUT_SIZE = 1024;
+	
+	private transient volatile LookupTable lookupTable;
+	/** incremented by {@link #invalidateLookupTable()} */
+	private transient volatile int modCount;
+	
 	/**
 	 * Clear the whole color palette
 	 */
@@ -28,5 +35,85 @@ public abstract class AbstractPalette {
 	 * @return			color palette size
 	 */
 	public abstract int size();
+	
+	/**
+	 * Get the color at the specified position from the baked lookup table.
+	 * The table is baked on first use after the palette was edited, so
+	 * sampling does not depend on the number of colors.
+	 * @param position	position in range 0.0...1.0, clamped if outside
+	 * @return			packed 0xRRGGBB color
+	 * @throws IllegalStateException
+	 * 					if the color palette is empty
+	 */
+	public int sample(float position) {
+		int[] lut = getLookupTable();
+		if(position <= 0.0f)
+			return lut[0];
+		if(position >= 1.0f)
+			return lut[LUT_SIZE - 1];
+		return lut[(int) (position * (LUT_SIZE - 1) + 0.5f)];
+	}
+	
+	/**
+	 * Get the baked lookup table with {@link #LUT_SIZE} packed 0xRRGGBB colors
+	 * for evenly spaced positions from 0.0 to 1.0. The returned array must
+	 * not be modified.
+	 * @return			the lookup table
+	 * @throws IllegalStateException
+	 * 					if the color palette is empty
+	 */
+	public int[] getLookupTable() {
+		LookupTable table = lookupTable;
+		if(table != null && table.modCount == modCount)
+			return table.colors;
+		while(true) {
+			// bake again if the palette was edited while baking
+			final int mod = modCount;
+			if(size() == 0)
+				throw new IllegalStateException("Could not bake lookup table. The list is empty!");
+			int[] lut = new int[LUT_SIZE];
+			bakeLookupTable(lut);
+			if(mod == modCount) {
+				lookupTable = new LookupTable(lut, mod);
+				return lut;
+			}
+		}
+	}
+	
+	/**
+	 * Discard the baked lookup table. Called by all methods that edit the
+	 * palette; must be called after editing the color list directly.
+	 */
+	public synchronized void invalidateLookupTable() {
+		modCount++;
+		lookupTable = null;
+	}
+	
+	/**
+	 * Fill the lookup table. By default the colors are not interpolated,
+	 * every color covers an equal part of the table.
+	 * @param lut		the table to fill
+	 */
+	protected void bakeLookupTable(int[] lut) {
+		final int size = size();
+		for(int i = 0; i < lut.length; i++) {
+			lut[i] = getColorAtIndex(i * size / lut.length).getRGB() & 0xFFFFFF;
+		}
+	}
+	
+	/**
+	 * Baked lookup table and the modification count it was baked for.
+	 * A table that was published after a concurrent edit is never used
+	 * because its count does not match.
+	 */
+	private static class LookupTable {
+		final int[] colors;
+		final int modCount;
+		
+		LookupTable(int[] colors, int modCount) {
+			this.colors = colors;
+			this.modCount = modCount;
+		}
+	}
 
 }
@@ -13,5 +13,13 @@ public interface ColorGradient {
 	public float getStepSize();
 	
 	public void resetStepPosition();
+	
+	/**
+	 * Sample the colors returned by {@code getNext()} from the baked lookup
+	 * table instead of interpolating between the gradient colors on every call.
+	 * @param baked			true to use the lookup table
+	 */
+	public void setBaked(boolean baked);
+	public boolean isBaked();
 
 }
@@ -36,6 +36,7 @@ public class ColorPalette extends AbstractPalette implements Iterable<Color> {
 	@Override
 	public void setColorAtIndex(int index, Color color) {
 		listColor.set(index, color);
+		invalidateLookupTable();
 	}
 	
 	/**
@@ -99,6 +100,7 @@ public class ColorPalette extends AbstractPalette implements Iterable<Color> {
 	 */
 	public ColorPalette add(int index, Color color) {
 		listColor.add(index, color);
+		invalidateLookupTable();
 		return this;
 	}
 	
@@ -110,6 +112,7 @@ public class ColorPalette extends AbstractPalette implements Iterable<Color> {
 	public ColorPalette add(Color... colors) {
 		if(colors != null)
 			listColor.addAll(Arrays.asList(colors));
+		invalidateLookupTable();
 		return this;
 	}
 	
@@ -130,6 +133,7 @@ public class ColorPalette extends AbstractPalette implements Iterable<Color> {
 	 */
 	public void remove(Color color) {
 		listColor.remove(color);
+		invalidateLookupTable();
 	}
 	
 	/**
@@ -139,15 +143,18 @@ public class ColorPalette extends AbstractPalette implements Iterable<Color> {
 	@Override
 	public void removeColorAtIndex(int index) {
 		listColor.remove(index);
+		invalidateLookupTable();
 	}
 	
 	@Override
 	public void clear() {
 		listColor.clear();
+		invalidateLookupTable();
 	}
 	
 	/**
 	 * Get the {@link ArrayList} used by this color palette.
+	 * Call {@link #invalidateLookupTable()} after editing the list.
 	 * @return			array list instance
 	 */
 	public List<Color> getList() {
@@ -175,6 +182,7 @@ public class ColorPalette extends AbstractPalette implements Iterable<Color> {
 				if(curIndex - 1 < 0)
 					throw new IllegalStateException("Nothing to remove");
 				listColor.remove(--curIndex);
+				invalidateLookupTable();
 			}
 			
 		};
@@ -12,6 +12,7 @@ public class EvenGradientPalette extends ColorPalette implements ColorGradient {
 	
 	protected float stepSize;
 	protected transient float currentStep;
+	protected transient boolean baked;
 	
 	public EvenGradientPalette(Color... colors) {
 		this(DEFAULT_STEPSIZE, colors);
@@ -32,14 +33,14 @@ public class EvenGradientPalette extends ColorPalette implements ColorGradient {
 		if(listColor.size() == 0)
 			throw new IllegalStateException("Could not return next item. The list is empty!");
 		
-		final float indexStepSize = 1.0f / (listColor.size() - 1);
-		curIndex = findClosestIndex(currentStep, indexStepSize);
-		int targetIndex = curIndex + 1;
-		
-		// step position for fading from current color to target color
-		float regionStep = MathHelper.map(currentStep, curIndex*indexStepSize, targetIndex*indexStepSize, 0.0f, 1.0f);
-		
-		Color c = ColorUtil.fadeToColor(getColorAtIndex(curIndex), getColorAtIndex(targetIndex), regionStep);
+		Color c;
+		if(baked) {
+			c = new Color(sample(currentStep));
+			// keep the color index up to date for skip()
+			curIndex = Math.max(0, Math.min((int) (currentStep * (listColor.size() - 1)), listColor.size() - 2));
+		} else {
+			c = new Color(getColorAt(currentStep));
+		}
 		
 		currentStep += stepSize; // increase step position by stepSize
 		if(currentStep > 1.0f) {
@@ -48,6 +49,34 @@ public class EvenGradientPalette extends ColorPalette implements ColorGradient {
 		return c;
 	}
 	
+	/**
+	 * Interpolate the color at the specified position.
+	 * @param position	position in range 0.0...1.0
+	 * @return			packed 0xRRGGBB color
+	 */
+	protected int getColorAt(float position) {
+		if(listColor.size() == 1)
+			return getColorAtIndex(0).getRGB() & 0xFFFFFF;
+		final float indexStepSize = 1.0f / (listColor.size() - 1);
+		curIndex = findClosestIndex(position, indexStepSize);
+		int targetIndex = curIndex + 1;
+		
+		// step position for fading from current color to target color
+		float regionStep = MathHelper.map(position, curIndex*indexStepSize, targetIndex*indexStepSize, 0.0f, 1.0f);
+		
+		return ColorUtil.fadeToColor(getColorAtIndex(curIndex).getRGB(), getColorAtIndex(targetIndex).getRGB(), regionStep);
+	}
+	
+	@Override
+	protected void bakeLookupTable(int[] lut) {
+		// keep the index of the last getNext() call
+		final int index = curIndex;
+		for(int i = 0; i < lut.length; i++) {
+			lut[i] = getColorAt((float) i / (lut.length - 1));
+		}
+		curIndex = index;
+	}
+	
 	protected int findClosestIndex(float step, float stepSize) {
 		int index = 0;
 		for(int i = 0; i < listColor.size() - 1; i++) {
@@ -68,6 +97,7 @@ public class EvenGradientPalette extends ColorPalette implements ColorGradient {
 	public EvenGradientPalette add(Color... colors) {
 		if(colors != null)
 			listColor.addAll(Arrays.asList(colors));
+		invalidateLookupTable();
 		return this;
 	}
 	
@@ -105,9 +135,20 @@ public class EvenGradientPalette extends ColorPalette implements ColorGradient {
 	public static EvenGradientPalette fromColorPalette(ColorPalette palette, float stepSize) {
 		EvenGradientPalette gp = new EvenGradientPalette(stepSize);
 		gp.listColor = palette.listColor;
+		gp.invalidateLookupTable();
 		return gp;
 	}
 
+	@Override
+	public void setBaked(boolean baked) {
+		this.baked = baked;
+	}
+	
+	@Override
+	public boolean isBaked() {
+		return baked;
+	}
+
 	/**
 	 * Not supported by this palette type!
 	 */
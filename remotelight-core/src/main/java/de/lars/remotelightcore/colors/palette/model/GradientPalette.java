@@ -15,6 +15,7 @@ public class GradientPalette extends AbstractPalette implements ColorGradient {
 	protected transient float currentStep;
 	protected boolean reverseOnEnd;
 	protected transient boolean directionReversed = false;
+	protected transient boolean baked;
 	
 	public GradientPalette(float stepSize) {
 		listColor = new ArrayList<Color>();
@@ -42,12 +43,14 @@ public class GradientPalette extends AbstractPalette implements ColorGradient {
 		int index = findIndexForPosition(pos);
 		listColor.add(index, color);
 		listPosition.add(index, pos);
+		invalidateLookupTable();
 		return index;
 	}
 	
 	@Override
 	public void setColorAtIndex(int index, Color color) {
 		listColor.set(index, color);
+		invalidateLookupTable();
 	}
 	
 	/**
@@ -64,6 +67,7 @@ public class GradientPalette extends AbstractPalette implements ColorGradient {
 		int index = findIndexForPosition(position);
 		listColor.add(index, color);
 		listPosition.add(index, position);
+		invalidateLookupTable();
 		return this;
 	}
 	
@@ -124,6 +128,7 @@ public class GradientPalette extends AbstractPalette implements ColorGradient {
 		if(index > 0) {
 			listColor.remove(index);
 			listPosition.remove(index);
+			invalidateLookupTable();
 		}
 		return this;
 	}
@@ -137,6 +142,7 @@ public class GradientPalette extends AbstractPalette implements ColorGradient {
 	public void removeColorAtIndex(int index) {
 		listColor.remove(index);
 		listPosition.remove(index);
+		invalidateLookupTable();
 	}
 	
 	@Override
@@ -148,6 +154,7 @@ public class GradientPalette extends AbstractPalette implements ColorGradient {
 	public void clear() {
 		listColor.clear();
 		listPosition.clear();
+		invalidateLookupTable();
 	}
 
 	/**
@@ -160,50 +167,73 @@ public class GradientPalette extends AbstractPalette implements ColorGradient {
 		if(listColor.size() == 0)
 			throw new IllegalStateException("Could not return next item. The list is empty!");
 		
+		Color c = new Color(baked ? sample(currentStep) : getColorAt(currentStep));
+		
+		if(reverseOnEnd && directionReversed) {
+			currentStep -= stepSize;
+		} else {
+			currentStep += stepSize;
+		}
+		
+		if(currentStep > 1.0f) {
+			if(reverseOnEnd) {
+				currentStep -= stepSize;
+				directionReversed = !directionReversed;
+			} else {
+				currentStep -= 1.0f;
+			}
+		} else if(currentStep < 0.0f) {
+			currentStep += stepSize;
+			directionReversed = !directionReversed;
+		}
+		
+		return c;
+	}
+	
+	/**
+	 * Interpolate the color at the specified position.
+	 * @param position		position in range 0.0...1.0
+	 * @return				packed 0xRRGGBB color
+	 */
+	protected int getColorAt(float position) {
 		// get nearest start gradient position
 		int startIndex = listPosition.size() - 1;
 		for(; startIndex >= 0; startIndex--) {
-			if(listPosition.get(startIndex) <= currentStep)
+			if(listPosition.get(startIndex) <= position)
 				break;
 		}
+		// wrap around if the position is before the first gradient position
+		if(startIndex < 0)
+			startIndex = listPosition.size() - 1;
 		// get next gradient position
 		int endIndex = startIndex + 1;
 		if(endIndex >= listPosition.size())
 			endIndex = 0;
+		if(startIndex == endIndex)
+			return listColor.get(startIndex).getRGB() & 0xFFFFFF;
 		
 		// offset start position
-		float start = currentStep - listPosition.get(startIndex);
+		float start = position - listPosition.get(startIndex);
 		if(start < 0)
 			start += 1.0f;
 		// offset end position
 		float end = listPosition.get(endIndex) - listPosition.get(startIndex);
 		if(end < 0)
 			end += 1.0f;
+		// positions 1.0 and 0.0 are at the same point of the gradient
+		if(end == 0)
+			return listColor.get(startIndex).getRGB() & 0xFFFFFF;
 		
 		// calculate color fading step
 		float step = start / end;
-		Color c = ColorUtil.fadeToColor(listColor.get(startIndex), listColor.get(endIndex), step);
-		
-		
-		if(reverseOnEnd && directionReversed) {
-			currentStep -= stepSize;
-		} else {
-			currentStep += stepSize;
-		}
-		
-		if(currentStep > 1.0f) {
-			if(reverseOnEnd) {
-				currentStep -= stepSize;
-				directionReversed = !directionReversed;
-			} else {
-				currentStep -= 1.0f;
-			}
-		} else if(currentStep < 0.0f) {
-			currentStep += stepSize;
-			directionReversed = !directionReversed;
+		return ColorUtil.fadeToColor(listColor.get(startIndex).getRGB(), listColor.get(endIndex).getRGB(), step);
+	}
+	
+	@Override
+	protected void bakeLookupTable(int[] lut) {
+		for(int i = 0; i < lut.length; i++) {
+			lut[i] = getColorAt((float) i / (lut.length - 1));
 		}
-		
-		return c;
 	}
 	
 	/**
@@ -240,6 +270,16 @@ public class GradientPalette extends AbstractPalette implements ColorGradient {
 		return listColor.size();
 	}
 
+	@Override
+	public void setBaked(boolean baked) {
+		this.baked = baked;
+	}
+	
+	@Override
+	public boolean isBaked() {
+		return baked;
+	}
+
 	@Override
 	public void setReverseOnEnd(boolean reverse) {
 		this.reverseOnEnd = reverse;
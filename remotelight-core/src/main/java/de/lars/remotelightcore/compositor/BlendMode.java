@@ -0,0 +1,130 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.compositor;
+
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.utils.color.ColorMath;
+
+/**
+ * Combines the pixels of a layer with the pixels of the layers below.
+ * All modes work on packed 0xRRGGBB values.
+ */
+public enum BlendMode {
+	
+	/** the layer covers the layers below */
+	NORMAL {
+		@Override
+		public int blend(int dst, int src) {
+			return src;
+		}
+	},
+	/** add the channels, saturating at 255 */
+	ADD {
+		@Override
+		public int blend(int dst, int src) {
+			return ColorMath.add(dst, src);
+		}
+	},
+	/** multiply the channels, the result is darker */
+	MULTIPLY {
+		@Override
+		public int blend(int dst, int src) {
+			return multiply(dst, src);
+		}
+	},
+	/** inverse multiply of the inverted channels, the result is brighter */
+	SCREEN {
+		@Override
+		public int blend(int dst, int src) {
+			return 0xFFFFFF - multiply(0xFFFFFF - dst, 0xFFFFFF - src);
+		}
+	},
+	/** the brighter value of every channel */
+	MAX {
+		@Override
+		public int blend(int dst, int src) {
+			return Math.max(dst & 0xFF0000, src & 0xFF0000)
+					| Math.max(dst & 0x00FF00, src & 0x00FF00)
+					| Math.max(dst & 0x0000FF, src & 0x0000FF);
+		}
+	},
+	/** the layer is not visible, its brightness is used as mask for the layers below */
+	MASK {
+		@Override
+		public int blend(int dst, int src) {
+			final int mask = Math.max(Math.max(src >>> 16 & 0xFF, src >>> 8 & 0xFF), src & 0xFF) + 1;
+			return ((((dst & 0xFF00FF) * mask) >>> 8) & 0xFF00FF)
+					| ((((dst & 0x00FF00) * mask) >>> 8) & 0x00FF00);
+		}
+	};
+	
+	/**
+	 * Blend two packed colors.
+	 * @param dst	color of the layers below
+	 * @param src	color of the layer
+	 * @return the blended color
+	 */
+	public abstract int blend(int dst, int src);
+	
+	/**
+	 * Blend the source pixels onto the destination pixels.
+	 * @param dst		pixels of the layers below, the result is written into this buffer
+	 * @param dstPos	index of the first destination pixel
+	 * @param src		pixels of the layer
+	 * @param length	number of pixels
+	 * @param opacity	opacity of the layer between 0 and 256
+	 */
+	public void blend(PixelBuffer dst, int dstPos, PixelBuffer src, int length, int opacity) {
+		if(opacity <= 0 || length <= 0)
+			return;
+		final int[] d = dst.array();
+		final int[] s = src.array();
+		final int dOffset = dst.offset() + dstPos;
+		final int sOffset = src.offset();
+		if(opacity >= 256) {
+			for(int i = 0; i < length; i++) {
+				d[dOffset + i] = blend(d[dOffset + i], s[sOffset + i]);
+			}
+		} else {
+			for(int i = 0; i < length; i++) {
+				final int below = d[dOffset + i];
+				d[dOffset + i] = PixelBuffer.lerp(below, blend(below, s[sOffset + i]), opacity);
+			}
+		}
+	}
+	
+	/**
+	 * Multiply every channel ({@code a * b / 255}, rounded).
+	 */
+	static int multiply(int a, int b) {
+		return mul8(a >>> 16 & 0xFF, b >>> 16 & 0xFF) << 16
+				| mul8(a >>> 8 & 0xFF, b >>> 8 & 0xFF) << 8
+				| mul8(a & 0xFF, b & 0xFF);
+	}
+	
+	private static int mul8(int a, int b) {
+		final int v = a * b + 128;
+		return (v + (v >>> 8)) >>> 8;
+	}
+
+}
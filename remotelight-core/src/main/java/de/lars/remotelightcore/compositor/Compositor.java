@@ -0,0 +1,400 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.compositor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.tinylog.Logger;
+
+import de.lars.remotelightcore.EffectManager;
+import de.lars.remotelightcore.EffectManagerHelper.EffectType;
+import de.lars.remotelightcore.RemoteLightCore;
+import de.lars.remotelightcore.effect.AbstractEffect;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
+import de.lars.remotelightcore.musicsync.MusicEffect;
+import de.lars.remotelightcore.musicsync.MusicSyncManager;
+import de.lars.remotelightcore.notification.Notification;
+import de.lars.remotelightcore.notification.NotificationType;
+import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.utils.FrameScheduler;
+
+/**
+ * Renders several effects at once (e.g. a scene as background and a
+ * music effect as overlay) and blends them into one frame.
+ * <p>
+ * Every {@link Layer} has its own blend mode, opacity and pixel range.
+ * The layers are blended from the first (bottom) to the last (top) layer.
+ * Each effect renders at its own delay; in parallel mode the effects of
+ * one frame are rendered on a shared, bounded thread pool. A layer that is
+ * still busy with an older frame keeps its last frame.
+ */
+public class Compositor extends EffectManager {
+	
+	private final static int THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+	private final static int QUEUE_CAPACITY = 256;
+	
+	private static ThreadPoolExecutor executor;
+	
+	private final List<Layer> layers = new CopyOnWriteArrayList<>();
+	/** removed layers that must be disabled by the render thread */
+	private final Queue<Layer> removed = new ConcurrentLinkedQueue<>();
+	private final PixelBuffer frame = new PixelBuffer(0);
+	private volatile boolean parallel = true;
+	private volatile boolean active;
+	private volatile Thread thread;
+	private boolean soundActive;
+	
+	@Override
+	public String getName() {
+		return "Compositor";
+	}
+	
+	@Override
+	public boolean isActive() {
+		return active;
+	}
+	
+	/**
+	 * Add a layer on top of the other layers.
+	 * @param effect	the effect to render
+	 * @param blendMode	how the layer is combined with the layers below
+	 * @return the new layer
+	 */
+	public Layer addLayer(AbstractEffect effect, BlendMode blendMode) {
+		Layer layer = new Layer(effect, blendMode);
+		addLayer(layer);
+		return layer;
+	}
+	
+	/**
+	 * Add a layer on top of the other layers.
+	 * @throws IllegalArgumentException if the effect is already used by another layer
+	 */
+	public void addLayer(Layer layer) {
+		for(Layer l : layers) {
+			if(l.getEffect() == layer.getEffect())
+				throw new IllegalArgumentException("The effect '" + layer.getEffect().getName() + "' is already used by another layer.");
+		}
+		layer.task = new RenderTask(layer);
+		layers.add(layer);
+	}
+	
+	public void removeLayer(Layer layer) {
+		if(layers.remove(layer))
+			removed.add(layer);
+	}
+	
+	public void clearLayers() {
+		for(Layer layer : layers) {
+			removeLayer(layer);
+		}
+	}
+	
+	/**
+	 * 
+	 * @return All layers, the bottom layer first
+	 */
+	public List<Layer> getLayers() {
+		return Collections.unmodifiableList(layers);
+	}
+	
+	public boolean isParallel() {
+		return parallel;
+	}
+	
+	/**
+	 * 
+	 * @param parallel True to render the layers on a thread pool,
+	 * 			false to render them one after another
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * Stop all other effects and start rendering the layers.
+	 */
+	public void start() {
+		RemoteLightCore core = RemoteLightCore.getInstance();
+		core.getOutputManager().getTransitionEngine().begin();
+		core.getEffectManagerHelper().stopAllExceptFor(EffectType.Compositor);
+		if(active)
+			return;
+		soundActive = hasMusicLayer() && core.getMusicSyncManager().startSoundProcessing();
+		active = true;
+		loop();
+	}
+	
+	@Override
+	public void stop() {
+		active = false;
+		Thread t = thread;
+		if(t != null && t != Thread.currentThread()) {
+			try {
+				// the loop must not add another frame after the LEDs are turned off
+				t.join(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if(soundActive) {
+			soundActive = false;
+			RemoteLightCore.getInstance().getMusicSyncManager().stopSoundProcessing();
+		}
+		turnOffLeds();
+	}
+	
+	private void loop() {
+		Thread t = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				OutputManager om = RemoteLightCore.getInstance().getOutputManager();
+				FrameScheduler scheduler = new FrameScheduler(om.getDelay());
+				while(active) {
+					try {
+						long renderStart = System.nanoTime();
+						PixelBuffer out = renderFrame(RemoteLightCore.getLedNum());
+						PipelineMetrics.getInstance().record(Stage.RENDER, renderStart);
+						if(active)
+							OutputManager.addToOutput(out);
+					} catch(Exception e) {
+						Logger.error(e, "There was an error rendering the layers.");
+					}
+					
+					scheduler.setDelay(om.getDelay());
+					try {
+						scheduler.waitForNextFrame();
+					} catch (InterruptedException e) {
+						Logger.error(e, "Compositor Thread could not wait for delay!");
+					}
+				}
+				disableAll();
+				thread = null;
+				Logger.info("Stopped Compositor Thread.");
+			}
+		}, "Compositor loop");
+		thread = t;
+		Logger.info("Starting Compositor Thread.");
+		t.start();
+	}
+	
+	/**
+	 * Render all due layers and blend them into one frame.
+	 * Must only be called by one thread.
+	 * @param pixels	number of pixels of the frame
+	 * @return the frame, only valid until the next call
+	 */
+	public PixelBuffer renderFrame(int pixels) {
+		Layer layer;
+		while((layer = removed.poll()) != null) {
+			disable(layer);
+		}
+		if(soundActive) {
+			RemoteLightCore.getInstance().getMusicSyncManager().processSound();
+		}
+		
+		final long now = System.nanoTime();
+		int due = 0;
+		for(Layer l : layers) {
+			l.due = isDue(l, pixels, now);
+			if(l.due)
+				due++;
+		}
+		
+		if(parallel && due > 1) {
+			renderParallel(due);
+		} else {
+			for(Layer l : layers) {
+				if(l.due)
+					render(l);
+			}
+		}
+		
+		// blend from bottom to top
+		frame.resize(pixels);
+		frame.fill(0);
+		for(Layer l : layers) {
+			if(!l.isVisible() || l.getOpacity() == 0)
+				continue;
+			synchronized (l) {
+				int length = Math.min(l.getPixels(pixels), l.frame.length());
+				l.getBlendMode().blend(frame, l.getStart(), l.frame, length, l.getOpacity() * 256 / 100);
+			}
+		}
+		return frame;
+	}
+	
+	private boolean isDue(Layer layer, int pixels, long now) {
+		if(!layer.isVisible() || layer.busy)
+			return false;
+		if(layer.getEffect() instanceof MusicEffect && !soundActive)
+			return false;
+		layer.targetPixels = layer.getPixels(pixels);
+		return layer.targetPixels > 0 && now >= layer.nextRender;
+	}
+	
+	private void renderParallel(int due) {
+		final CountDownLatch latch = new CountDownLatch(due);
+		for(Layer l : layers) {
+			if(!l.due)
+				continue;
+			l.latch = latch;
+			l.busy = true;
+			try {
+				getExecutor().execute(l.task);
+			} catch(RejectedExecutionException e) {
+				l.task.run();
+			}
+		}
+		try {
+			// do not wait longer than one output frame, a late layer keeps its last frame
+			long deadline = RemoteLightCore.isInitialized() ? RemoteLightCore.getInstance().getOutputManager().getDelay() : 50;
+			latch.await(Math.max(1, deadline), TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Render the next frame of the layer. Called by the render thread
+	 * or a pool thread. While the effect renders,
+	 * {@link RemoteLightCore#getLedNum()} returns the pixel count of the layer.
+	 */
+	void render(Layer layer) {
+		final long start = System.nanoTime();
+		final AbstractEffect effect = layer.getEffect();
+		final int previousLedNum = RemoteLightCore.setThreadLedNum(layer.targetPixels);
+		try {
+			if(layer.enabledPixels != layer.targetPixels) {
+				if(layer.enabledPixels > 0)
+					effect.onDisable();
+				effect.onEnable(layer.targetPixels);
+				layer.enabledPixels = layer.targetPixels;
+			}
+			if(effect instanceof MusicEffect) {
+				RemoteLightCore.getInstance().getMusicSyncManager().updateSoundData((MusicEffect) effect);
+			}
+			if(OutputManager.captureFrames(layer.rendered, layer.renderer)) {
+				synchronized (layer) {
+					layer.frame.copyFrom(layer.rendered);
+				}
+			}
+			layer.nextRender = start + layer.getEffectDelay(getAnimationDelay()) * 1000000L;
+		} catch(Exception e) {
+			Logger.error(e, "There was an error executing the layer '" + effect.getDisplayname() + "', hiding the layer.");
+			// disable the effect so that it is enabled again when the layer is shown again
+			disable(layer);
+			layer.setVisible(false);
+			if(RemoteLightCore.isInitialized()) {
+				RemoteLightCore.getInstance().showNotification(new Notification(NotificationType.ERROR, "Compositor",
+						"The layer '" + effect.getDisplayname() + "' was hidden because of an error: " + e.getClass().getSimpleName(),
+						Notification.LONG));
+			}
+		} finally {
+			RemoteLightCore.setThreadLedNum(previousLedNum);
+		}
+	}
+	
+	private void disable(Layer layer) {
+		if(layer.enabledPixels > 0) {
+			layer.enabledPixels = 0;
+			try {
+				layer.getEffect().onDisable();
+			} catch(Exception e) {
+				Logger.error(e, "Could not disable layer '" + layer.getEffect().getDisplayname() + "'.");
+			}
+		}
+	}
+	
+	private void disableAll() {
+		for(Layer layer : layers) {
+			disable(layer);
+		}
+		Layer layer;
+		while((layer = removed.poll()) != null) {
+			disable(layer);
+		}
+	}
+	
+	private boolean hasMusicLayer() {
+		for(Layer layer : layers) {
+			if(layer.getEffect() instanceof MusicEffect)
+				return true;
+		}
+		return false;
+	}
+	
+	private static int getAnimationDelay() {
+		if(RemoteLightCore.isInitialized() && RemoteLightCore.getInstance().getAnimationManager() != null)
+			return RemoteLightCore.getInstance().getAnimationManager().getDelay();
+		return 0;
+	}
+	
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if(executor == null) {
+			final AtomicInteger counter = new AtomicInteger();
+			executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY), r -> {
+						Thread t = new Thread(r, "Compositor-" + counter.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+	
+	private class RenderTask implements Runnable {
+		
+		final Layer layer;
+		
+		RenderTask(Layer layer) {
+			this.layer = layer;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				render(layer);
+			} finally {
+				layer.busy = false;
+				layer.latch.countDown();
+			}
+		}
+		
+	}
+
+}
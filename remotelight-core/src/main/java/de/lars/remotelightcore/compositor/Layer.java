@@ -0,0 +1,169 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.compositor;
+
+import java.util.concurrent.CountDownLatch;
+
+import de.lars.remotelightcore.animation.Animation;
+import de.lars.remotelightcore.effect.AbstractEffect;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.scene.Scene;
+
+/**
+ * An effect that is rendered by the {@link Compositor} and blended
+ * with the layers below.
+ */
+public class Layer {
+	
+	private final AbstractEffect effect;
+	private volatile BlendMode blendMode;
+	private volatile int opacity = 100;
+	private volatile int start;
+	private volatile int length;
+	private volatile boolean visible = true;
+	
+	/** the effect renders into this buffer */
+	final PixelBuffer rendered = new PixelBuffer(0);
+	/** last complete frame, guarded by this layer */
+	final PixelBuffer frame = new PixelBuffer(0);
+	/** renders one frame of the effect */
+	@SuppressWarnings("deprecation")
+	final Runnable renderer;
+	/** renders the layer on a pool thread */
+	Runnable task;
+	/** pixel count the effect was enabled with */
+	int enabledPixels;
+	/** pixel count for the next frame */
+	int targetPixels;
+	long nextRender;
+	boolean due;
+	volatile boolean busy;
+	volatile CountDownLatch latch;
+	
+	/**
+	 * @param effect	the effect to render
+	 * @param blendMode	how the layer is combined with the layers below
+	 */
+	public Layer(AbstractEffect effect, BlendMode blendMode) {
+		if(effect == null)
+			throw new IllegalArgumentException("Effect must not be null.");
+		this.effect = effect;
+		this.renderer = effect::onLoop;
+		setBlendMode(blendMode);
+	}
+	
+	public AbstractEffect getEffect() {
+		return effect;
+	}
+	
+	public BlendMode getBlendMode() {
+		return blendMode;
+	}
+	
+	public void setBlendMode(BlendMode blendMode) {
+		this.blendMode = blendMode == null ? BlendMode.NORMAL : blendMode;
+	}
+	
+	/**
+	 * 
+	 * @return Opacity between 0 and 100
+	 */
+	public int getOpacity() {
+		return opacity;
+	}
+	
+	/**
+	 * 
+	 * @param opacity Value between 0 (invisible) and 100
+	 */
+	public void setOpacity(int opacity) {
+		this.opacity = Math.max(0, Math.min(100, opacity));
+	}
+	
+	/**
+	 * 
+	 * @return Index of the first pixel of the layer
+	 */
+	public int getStart() {
+		return start;
+	}
+	
+	/**
+	 * 
+	 * @return Number of pixels of the layer or 0 for all pixels after the start
+	 */
+	public int getLength() {
+		return length;
+	}
+	
+	/**
+	 * Set the pixel range the layer covers. The effect is enabled
+	 * with the number of pixels of the range.
+	 * @param start		index of the first pixel
+	 * @param length	number of pixels or 0 for all pixels after the start
+	 */
+	public void setRange(int start, int length) {
+		if(start < 0 || length < 0)
+			throw new IllegalArgumentException("Invalid layer range: " + start + " (" + length + " pixels)");
+		this.start = start;
+		this.length = length;
+	}
+	
+	/**
+	 * 
+	 * @param pixels Number of pixels of the whole frame
+	 * @return Number of pixels the layer covers
+	 */
+	public int getPixels(int pixels) {
+		int available = Math.max(0, pixels - start);
+		return length > 0 ? Math.min(length, available) : available;
+	}
+	
+	public boolean isVisible() {
+		return visible;
+	}
+	
+	public void setVisible(boolean visible) {
+		this.visible = visible;
+	}
+	
+	/**
+	 * 
+	 * @return Delay between two frames of the effect in milliseconds, 0 to render every frame
+	 */
+	int getEffectDelay(int defaultDelay) {
+		if(effect instanceof Animation) {
+			Animation animation = (Animation) effect;
+			return animation.isAdjustable() ? defaultDelay : animation.getDelay();
+		} else if(effect instanceof Scene) {
+			return ((Scene) effect).getDelay();
+		}
+		return 0;
+	}
+	
+	@Override
+	public String toString() {
+		return effect.getName() + " (" + blendMode.name().toLowerCase() + ", " + opacity + "%)";
+	}
+
+}
@@ -25,9 +25,14 @@ package de.lars.remotelightcore.devices;
 import de.lars.remotelightcore.utils.color.Color;
 import java.io.Serializable;
 
+import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
 import de.lars.remotelightcore.out.Output;
 import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.out.PowerLimit;
 
 public abstract class Device extends Output implements Serializable {
 	
@@ -36,6 +41,9 @@ public abstract class Device extends Output implements Serializable {
 	 */
 	private static final long serialVersionUID = -5542594482384646241L;
 	private RgbOrder rgbOrder;
+	private PowerLimit powerLimit;
+	/** reused target of the output patch and the power limit */
+	private transient PixelBuffer patchBuffer;
 	
 	/**
 	 * @param id User defined name for the device
@@ -57,10 +65,90 @@ public abstract class Device extends Output implements Serializable {
 	
 	public abstract void send(Color[] pixels);
 	
+	/**
+	 * Send packed pixel data to the device. The default implementation
+	 * converts the buffer to a color array and calls {@link #send(Color[])}.
+	 * Devices should override this method to encode the packed values directly.
+	 * <p>
+	 * The buffer is only valid during the call. If {@link #isRgbOrderEncoded()}
+	 * returns true, the colors are still in RGB order and the device must
+	 * write the bytes in {@link #getRgbOrder()}.
+	 * @param pixels	patched pixel buffer
+	 */
+	public void send(PixelBuffer pixels) {
+		send(pixels.toColors());
+	}
+	
+	/**
+	 * Devices that encode the pixels to bytes should apply the RGB order
+	 * while encoding and return true, so the output patch does not need
+	 * to reorder every pixel.
+	 * @return	true if {@link #send(PixelBuffer)} applies the RGB order
+	 */
+	protected boolean isRgbOrderEncoded() {
+		return false;
+	}
+	
 	@Override
 	public void onOutput(Color[] pixels) {
-		pixels = getOutputPatch().patchOutput(pixels, getRgbOrder());
-		send(pixels);
+		onOutput(PixelBuffer.fromColors(pixels));
+	}
+	
+	/**
+	 * Send a frame of an active output. Applies the global power budget
+	 * of the output manager in addition to the limit of this device.
+	 */
+	@Override
+	public void onOutput(PixelBuffer pixels) {
+		double globalScale = RemoteLightCore.isInitialized() ? RemoteLightCore.getInstance().getOutputManager().getGlobalPowerScale() : 1.0;
+		onOutput(pixels, globalScale);
+	}
+	
+	/**
+	 * Patch, limit and send a frame. Linked outputs call this method with
+	 * a global scale of 1 for their child devices, because the global
+	 * budget was already applied to the frame of the linked output.
+	 * @param pixels		the pixels
+	 * @param globalScale	max scale allowed by the global power budget
+	 */
+	public void onOutput(PixelBuffer pixels, double globalScale) {
+		long start = System.nanoTime();
+		if(patchBuffer == null)
+			patchBuffer = new PixelBuffer(0);
+		PixelBuffer out = getOutputPatch().patchOutput(pixels, RgbOrder.RGB, patchBuffer);
+		
+		// estimate the current of the physical pixels in RGB order and limit it
+		PowerLimit power = getPowerLimit();
+		power.update(out);
+		out = power.apply(out, patchBuffer, globalScale);
+		
+		RgbOrder order = getRgbOrder();
+		if(!isRgbOrderEncoded() && order != null && order != RgbOrder.RGB) {
+			order.apply(out, patchBuffer);
+			out = patchBuffer;
+		}
+		long patched = System.nanoTime();
+		send(out);
+		recordOutputMetrics(start, patched);
+	}
+	
+	private void recordOutputMetrics(long start, long patched) {
+		long sent = System.nanoTime();
+		PipelineMetrics metrics = PipelineMetrics.getInstance();
+		metrics.getHistogram(Stage.PATCH).record(patched - start);
+		metrics.getHistogram(Stage.SEND).record(sent - patched);
+		metrics.getOutputMetrics(getId()).recordFrame(sent - patched);
+		metrics.getOutputMetrics(getId()).recordPower(getPowerLimit().getEstimatedCurrent(), getPowerLimit().getAppliedScale());
+	}
+	
+	/**
+	 * @return current settings and power budget of this device
+	 */
+	public PowerLimit getPowerLimit() {
+		// backward compatible
+		if(powerLimit == null)
+			powerLimit = new PowerLimit();
+		return powerLimit;
 	}
 	
 	public RgbOrder getRgbOrder() {
@@ -29,8 +29,11 @@ import org.tinylog.Logger;
 import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.devices.ConnectionState;
 import de.lars.remotelightcore.devices.Device;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
 import de.lars.remotelightcore.notification.Notification;
 import de.lars.remotelightcore.notification.NotificationType;
+import de.lars.remotelightcore.out.PixelBuffer;
 
 public class Arduino extends Device {
 	
@@ -40,6 +43,9 @@ public class Arduino extends Device {
 	private static final long serialVersionUID = 7893775235554866836L;
 	private String serialPort;
 	private transient ComPort out;
+	private SerialProtocol protocol;
+	private transient byte[] outputBuffer;
+	private transient DeltaProtocol deltaEncoder;
 
 	public Arduino(String id, String port) {
 		super(id, 0);
@@ -78,14 +84,69 @@ public class Arduino extends Device {
 		}
 	}
 
+	public SerialProtocol getProtocol() {
+		if(protocol == null)
+			protocol = SerialProtocol.GLEDIATOR;
+		return protocol;
+	}
+
+	/**
+	 * Set the protocol that is used to send the pixels.
+	 * The Arduino sketch must support the selected protocol.
+	 * @param protocol	the serial protocol
+	 */
+	public void setProtocol(SerialProtocol protocol) {
+		if(this.protocol != protocol && deltaEncoder != null) {
+			// start with a keyframe when switching back to delta
+			deltaEncoder.reset();
+		}
+		this.protocol = protocol;
+	}
+
 	@Override
 	public void send(Color[] pixels) {
-		byte[] outputBuffer = GlediatorProtocol.doOutput(pixels);
-		out.send(outputBuffer, outputBuffer.length);
+		send(PixelBuffer.fromColors(pixels));
+	}
+	
+	@Override
+	protected boolean isRgbOrderEncoded() {
+		return true;
+	}
+	
+	@Override
+	public void send(PixelBuffer pixels) {
+		long start = System.nanoTime();
+		final RgbOrder order = getRgbOrder() != null ? getRgbOrder() : RgbOrder.RGB;
+		if(getProtocol() == SerialProtocol.DELTA) {
+			// the delta frame is encoded by the writer thread against the last sent frame
+			outputBuffer = DeltaProtocol.toRawFrame(pixels, order, outputBuffer);
+			sendBuffer(outputBuffer, pixels.length() * 3, getDeltaEncoder(), start);
+		} else {
+			outputBuffer = GlediatorProtocol.doOutput(pixels, order, outputBuffer);
+			sendBuffer(outputBuffer, GlediatorProtocol.getFrameLength(pixels.length()), null, start);
+		}
+	}
+	
+	private void sendBuffer(byte[] buffer, int size, SerialWriter.FrameEncoder encoder, long encodeStart) {
+		PipelineMetrics metrics = PipelineMetrics.getInstance();
+		metrics.record(Stage.ENCODE, encodeStart);
+		SerialWriter writer = out.getWriter();
+		if(writer != null)
+			writer.setMetrics(metrics.getOutputMetrics(getId()));
+		// written bytes are reported by the writer
+		out.send(buffer, size, encoder);
+	}
+	
+	private DeltaProtocol getDeltaEncoder() {
+		if(deltaEncoder == null)
+			deltaEncoder = new DeltaProtocol();
+		return deltaEncoder;
 	}
 
 	@Override
 	public ConnectionState connect() {
+		if(deltaEncoder != null)
+			deltaEncoder.reset();
 		return out.openPort(ComPort.getComPortByName(serialPort));
 	}
 
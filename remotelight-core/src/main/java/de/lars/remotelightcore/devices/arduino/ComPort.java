@@ -42,6 +42,7 @@ public class ComPort implements Serializable {
 	
 	private SerialPort port;
 	private OutputStream output;
+	private transient SerialWriter writer;
 	private boolean open;
 	private ConnectionState state;
 	
@@ -98,6 +99,8 @@ public class ComPort implements Serializable {
 			
 			port.setBaudRate(BAUD);
 			output = port.getOutputStream();
+			writer = new SerialWriter(output, port.getSystemPortName());
+			writer.start();
 			
 		} else {
 			Logger.error("Could not open ComPort " + port.getSystemPortName());
@@ -114,6 +117,8 @@ public class ComPort implements Serializable {
 					
 					Logger.info("Closed ComPort: " + port.getSystemPortName());
 					
+					if(writer != null)
+						writer.stop();
 					output.close();
 					port.closePort();
 					open = false;
@@ -127,16 +132,37 @@ public class ComPort implements Serializable {
 		return state;
 	}
 	
+	/**
+	 * Send the data asynchronously. The data is copied, so the buffer
+	 * can be reused right away. If the port is still busy with the previous
+	 * frame, an older frame that was not sent yet is replaced.
+	 * @param outputBuffer	the data to send
+	 * @param size			number of bytes to send
+	 */
 	public void send(byte[] outputBuffer, int size) {
-		if(port.isOpen()) {
-			try {
-				output.write(outputBuffer, 0, size);
-			} catch (IOException e) {
-				Logger.error(e, "Error while sending data to ComPort " + port.getSystemPortName());
-			}
+		send(outputBuffer, size, null);
+	}
+	
+	/**
+	 * Send the data asynchronously and encode it on the writer thread.
+	 * @param outputBuffer	the data to send
+	 * @param size			number of bytes to send
+	 * @param encoder		the encoder or null to send the data as it is
+	 * @see SerialWriter#submit(byte[], int, SerialWriter.FrameEncoder)
+	 */
+	public void send(byte[] outputBuffer, int size, SerialWriter.FrameEncoder encoder) {
+		if(port.isOpen() && writer != null) {
+			writer.submit(outputBuffer, size, encoder);
 		}
 	}
 	
+	/**
+	 * @return the writer of the opened port or null if the port is not open
+	 */
+	public SerialWriter getWriter() {
+		return writer;
+	}
+	
 	public ConnectionState getState() {
 		return state;
 	}
@@ -0,0 +1,248 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.devices.arduino;
+
+import java.util.Arrays;
+
+import de.lars.remotelightcore.out.PixelBuffer;
+
+/**
+ * Compressed serial protocol that sends keyframes and delta frames.
+ * <p>
+ * Frame layout:
+ * <pre>
+ * offset  size  field
+ * 0       2     magic 'R' 'L'
+ * 2       1     frame type: 0 = keyframe, 1 = delta frame
+ * 3       1     sequence number, increased by one with every frame
+ * 4       2     number of pixels (big endian)
+ * 6       2     payload length (big endian)
+ * 8       n     payload (operations)
+ * 8+n     2     Fletcher-16 checksum of the bytes 2 to 8+n (sum2 first)
+ * </pre>
+ * A keyframe starts with all pixels set to black, a delta frame starts
+ * with the pixels of the previous frame. The payload is a list of
+ * operations that are applied from the first pixel on. Each operation starts
+ * with one byte: the upper two bits are the operation, the lower six bits
+ * are the number of pixels minus one (1 to 64 pixels).
+ * <ul>
+ * <li>{@link #OP_SKIP}: keep the next pixels</li>
+ * <li>{@link #OP_LITERAL}: followed by 3 bytes (RGB) for every pixel</li>
+ * <li>{@link #OP_FILL}: followed by 3 bytes (RGB) that are set to all pixels</li>
+ * </ul>
+ * Pixels that are not covered by an operation are kept. A receiver must
+ * drop frames with an invalid checksum and must ignore delta frames whose
+ * sequence number does not follow the previous frame until it receives the
+ * next keyframe.
+ * <p>
+ * The encoder works on raw RGB frames (3 bytes per pixel) and is used as
+ * {@link SerialWriter.FrameEncoder}, so delta frames are always encoded
+ * against the frame that was actually sent last.
+ */
+public class DeltaProtocol implements SerialWriter.FrameEncoder {
+	
+	public final static byte MAGIC_1 = 'R';
+	public final static byte MAGIC_2 = 'L';
+	public final static int TYPE_KEYFRAME = 0;
+	public final static int TYPE_DELTA = 1;
+	public final static int OP_SKIP = 0x00;
+	public final static int OP_LITERAL = 0x40;
+	public final static int OP_FILL = 0x80;
+	public final static int OP_MASK = 0xC0;
+	/** max number of pixels of one operation */
+	public final static int MAX_RUN = 64;
+	public final static int HEADER_LENGTH = 8;
+	public final static int CHECKSUM_LENGTH = 2;
+	/** max number of pixels per frame, additional pixels are not sent */
+	public final static int MAX_PIXELS = 16384;
+	public final static int DEFAULT_KEYFRAME_INTERVAL = 50;
+	
+	private byte[] output = new byte[0];
+	private byte[] previous = new byte[0];
+	private int previousPixels = -1;
+	private int sequence;
+	private int framesSinceKeyframe;
+	private int keyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+	
+	/**
+	 * Set after how many delta frames a keyframe is sent. Keyframes let a
+	 * receiver recover from lost or corrupted frames.
+	 * @param keyframeInterval	number of frames (at least 1)
+	 */
+	public synchronized void setKeyframeInterval(int keyframeInterval) {
+		this.keyframeInterval = Math.max(1, keyframeInterval);
+	}
+	
+	public synchronized int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+	
+	/**
+	 * Send a keyframe next, e.g. after reconnecting.
+	 */
+	public synchronized void reset() {
+		previousPixels = -1;
+	}
+	
+	@Override
+	public synchronized int encode(byte[] frame, int size) {
+		final int pixels = Math.min(size / 3, MAX_PIXELS);
+		final int length = pixels * 3;
+		final boolean keyframe = previousPixels != pixels || framesSinceKeyframe >= keyframeInterval - 1;
+		
+		// an operation never costs more than 4 bytes per pixel
+		int maxLength = HEADER_LENGTH + pixels * 4 + CHECKSUM_LENGTH;
+		if(output.length < maxLength)
+			output = new byte[maxLength];
+		if(previous.length < length)
+			previous = new byte[length];
+		if(keyframe)
+			Arrays.fill(previous, 0, length, (byte) 0);
+		
+		int index = encodePayload(frame, previous, pixels, output, HEADER_LENGTH);
+		int payloadLength = index - HEADER_LENGTH;
+		
+		output[0] = MAGIC_1;
+		output[1] = MAGIC_2;
+		output[2] = (byte) (keyframe ? TYPE_KEYFRAME : TYPE_DELTA);
+		output[3] = (byte) sequence;
+		output[4] = (byte) (pixels >> 8);
+		output[5] = (byte) pixels;
+		output[6] = (byte) (payloadLength >> 8);
+		output[7] = (byte) payloadLength;
+		int checksum = checksum(output, 2, index);
+		output[index++] = (byte) (checksum >> 8);
+		output[index++] = (byte) checksum;
+		
+		System.arraycopy(frame, 0, previous, 0, length);
+		previousPixels = pixels;
+		sequence = (sequence + 1) & 0xFF;
+		framesSinceKeyframe = keyframe ? 0 : framesSinceKeyframe + 1;
+		return index;
+	}
+	
+	@Override
+	public byte[] getOutput() {
+		return output;
+	}
+	
+	/**
+	 * Encode the operations that turn the reference frame into the frame.
+	 * @return index after the last written byte
+	 */
+	private static int encodePayload(byte[] frame, byte[] reference, int pixels, byte[] out, int index) {
+		int skip = 0;
+		int i = 0;
+		while(i < pixels) {
+			if(equals(frame, i, reference, i)) {
+				skip++;
+				i++;
+				continue;
+			}
+			// flush skipped pixels, trailing skips are never written
+			while(skip > 0) {
+				int n = Math.min(skip, MAX_RUN);
+				out[index++] = (byte) (OP_SKIP | (n - 1));
+				skip -= n;
+			}
+			
+			int run = 1;
+			while(i + run < pixels && run < MAX_RUN && equals(frame, i, frame, i + run))
+				run++;
+			if(run >= 2) {
+				out[index++] = (byte) (OP_FILL | (run - 1));
+				index = putPixel(frame, i, out, index);
+				i += run;
+				continue;
+			}
+			
+			// literal until an unchanged pixel or the start of a run
+			int count = 1;
+			while(i + count < pixels && count < MAX_RUN
+					&& !equals(frame, i + count, reference, i + count)
+					&& !(i + count + 1 < pixels && equals(frame, i + count, frame, i + count + 1))) {
+				count++;
+			}
+			out[index++] = (byte) (OP_LITERAL | (count - 1));
+			System.arraycopy(frame, i * 3, out, index, count * 3);
+			index += count * 3;
+			i += count;
+		}
+		return index;
+	}
+	
+	private static boolean equals(byte[] a, int pixelA, byte[] b, int pixelB) {
+		int ia = pixelA * 3, ib = pixelB * 3;
+		return a[ia] == b[ib] && a[ia + 1] == b[ib + 1] && a[ia + 2] == b[ib + 2];
+	}
+	
+	private static int putPixel(byte[] frame, int pixel, byte[] out, int index) {
+		out[index++] = frame[pixel * 3];
+		out[index++] = frame[pixel * 3 + 1];
+		out[index++] = frame[pixel * 3 + 2];
+		return index;
+	}
+	
+	/**
+	 * Fletcher-16 checksum.
+	 * @param data	the data
+	 * @param from	first index (inclusive)
+	 * @param to	last index (exclusive)
+	 * @return checksum with sum2 in the upper and sum1 in the lower byte
+	 */
+	public static int checksum(byte[] data, int from, int to) {
+		int sum1 = 0, sum2 = 0;
+		for(int i = from; i < to; i++) {
+			sum1 = (sum1 + (data[i] & 0xFF)) % 255;
+			sum2 = (sum2 + sum1) % 255;
+		}
+		return (sum2 << 8) | sum1;
+	}
+	
+	/**
+	 * Write the pixels as raw RGB frame (3 bytes per pixel) as it
+	 * is expected by {@link #encode(byte[], int)}.
+	 * @param pixels	the pixels
+	 * @param buffer	buffer to reuse or null
+	 * @return the buffer that contains the raw frame
+	 */
+	public static byte[] toRawFrame(PixelBuffer pixels, byte[] buffer) {
+		return toRawFrame(pixels, RgbOrder.RGB, buffer);
+	}
+	
+	/**
+	 * Write the pixels as raw frame with the channels in the specified RGB order.
+	 * @param pixels	the pixels
+	 * @param order		the RGB order of the device
+	 * @param buffer	buffer to reuse or null
+	 * @return the buffer that contains the raw frame
+	 */
+	public static byte[] toRawFrame(PixelBuffer pixels, RgbOrder order, byte[] buffer) {
+		final int length = pixels.length() * 3;
+		if(buffer == null || buffer.length < length)
+			buffer = new byte[length];
+		order.encode(pixels, buffer, 0);
+		return buffer;
+	}
+
+}
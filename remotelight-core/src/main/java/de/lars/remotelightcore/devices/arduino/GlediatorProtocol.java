@@ -22,6 +22,7 @@
 
 package de.lars.remotelightcore.devices.arduino;
 
+import de.lars.remotelightcore.out.PixelBuffer;
 import de.lars.remotelightcore.utils.color.Color;
 
 public class GlediatorProtocol {
@@ -59,5 +60,68 @@ public class GlediatorProtocol {
 		
 		return outputBuffer;
 	}
+	
+	public static byte[] doOutput(PixelBuffer leds) {
+		return doOutput(leds, null);
+	}
+	
+	/**
+	 * Encode the pixels into the specified buffer. A new buffer is
+	 * allocated if the specified one is null or too small. The encoded
+	 * frame is {@link #getFrameLength(int)} bytes long.
+	 * @param leds			the pixels to encode
+	 * @param outputBuffer	buffer to reuse or null
+	 * @return the buffer that contains the encoded frame
+	 */
+	public static byte[] doOutput(PixelBuffer leds, byte[] outputBuffer) {
+		return doOutput(leds, RgbOrder.RGB, outputBuffer);
+	}
+	
+	/**
+	 * Encode the pixels into the specified buffer and write the
+	 * channels in the specified RGB order.
+	 * @param leds			the pixels to encode
+	 * @param order			the RGB order of the device
+	 * @param outputBuffer	buffer to reuse or null
+	 * @return the buffer that contains the encoded frame
+	 * @see #doOutput(PixelBuffer, byte[])
+	 */
+	public static byte[] doOutput(PixelBuffer leds, RgbOrder order, byte[] outputBuffer) {
+		final int frameLength = getFrameLength(leds.length());
+		if(outputBuffer == null || outputBuffer.length < frameLength) {
+			outputBuffer = new byte[frameLength];
+		}
+		outputBuffer[0] = 1;
+		
+		int[] pixels = leds.array();
+		final int offset = leds.offset();
+		final int shift0 = order.getShift(0);
+		final int shift1 = order.getShift(1);
+		final int shift2 = order.getShift(2);
+		int index = 1;
+		for(int i = 0; i < leds.length(); i++) {
+			int rgb = pixels[offset + i];
+			outputBuffer[index++] = noMagicByte((rgb >> shift0) & 0xFF);
+			outputBuffer[index++] = noMagicByte((rgb >> shift1) & 0xFF);
+			outputBuffer[index++] = noMagicByte((rgb >> shift2) & 0xFF);
+		}
+		return outputBuffer;
+	}
+	
+	/**
+	 * @param pixels	number of pixels
+	 * @return length of an encoded frame in bytes
+	 */
+	public static int getFrameLength(int pixels) {
+		return pixels * 3 + 1;
+	}
+	
+	/**
+	 * The value 1 marks the start of a frame and must not
+	 * be used for color values.
+	 */
+	private static byte noMagicByte(int value) {
+		return (byte) (value == 1 ? 2 : value);
+	}
 
 }
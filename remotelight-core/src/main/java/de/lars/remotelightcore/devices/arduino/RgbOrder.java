@@ -22,8 +22,139 @@
 
 package de.lars.remotelightcore.devices.arduino;
 
+import java.nio.ByteBuffer;
+
+import de.lars.remotelightcore.out.PixelBuffer;
+
+/**
+ * Byte order of the color channels expected by a device. Each order
+ * is a permutation of the packed {@code 0xRRGGBB} bytes: the encoders
+ * write the bytes at {@link #getShift(int)} instead of swapping the
+ * channels of every pixel beforehand.
+ */
 public enum RgbOrder {
 	
-	RGB, RBG, GRB, GBR, BRG, BGR
+	RGB(16, 8, 0),
+	RBG(16, 0, 8),
+	GRB(8, 16, 0),
+	GBR(8, 0, 16),
+	BRG(0, 16, 8),
+	BGR(0, 8, 16);
+	
+	private final int shift0;
+	private final int shift1;
+	private final int shift2;
+	
+	private RgbOrder(int shift0, int shift1, int shift2) {
+		this.shift0 = shift0;
+		this.shift1 = shift1;
+		this.shift2 = shift2;
+	}
+	
+	/**
+	 * Get the right shift to extract the channel that is sent at the
+	 * specified position from a packed {@code 0xRRGGBB} value.
+	 * @param channel	output position (0, 1 or 2)
+	 * @return			right shift of the source channel
+	 */
+	public int getShift(int channel) {
+		switch (channel) {
+		case 0:
+			return shift0;
+		case 1:
+			return shift1;
+		case 2:
+			return shift2;
+		default:
+			throw new IllegalArgumentException("Invalid channel: " + channel);
+		}
+	}
+	
+	/**
+	 * Reorder the channels of a packed color.
+	 * @param rgb	packed {@code 0xRRGGBB} value
+	 * @return		packed value with the channels in this order
+	 */
+	public int apply(int rgb) {
+		return (((rgb >> shift0) & 0xFF) << 16) | (((rgb >> shift1) & 0xFF) << 8) | ((rgb >> shift2) & 0xFF);
+	}
+	
+	/**
+	 * Reorder the channels of all pixels.
+	 * @param pixels	the pixels in RGB order
+	 * @param target	buffer the reordered pixels are written to, may be the input
+	 */
+	public void apply(PixelBuffer pixels, PixelBuffer target) {
+		final int length = pixels.length();
+		target.resize(length);
+		final int[] in = pixels.array();
+		final int[] out = target.array();
+		final int inOffset = pixels.offset();
+		final int outOffset = target.offset();
+		for(int i = 0; i < length; i++) {
+			out[outOffset + i] = apply(in[inOffset + i]);
+		}
+	}
+	
+	/**
+	 * Write the channels of all pixels in this order to a byte array.
+	 * @param pixels	the pixels in RGB order
+	 * @param dest		destination array, must have room for 3 bytes per pixel
+	 * @param offset	index of the first byte
+	 * @return			index after the last written byte
+	 */
+	public int encode(PixelBuffer pixels, byte[] dest, int offset) {
+		final int[] data = pixels.array();
+		final int dataOffset = pixels.offset();
+		final int length = pixels.length();
+		int index = offset;
+		for(int i = 0; i < length; i++) {
+			int rgb = data[dataOffset + i];
+			dest[index++] = (byte) (rgb >> shift0);
+			dest[index++] = (byte) (rgb >> shift1);
+			dest[index++] = (byte) (rgb >> shift2);
+		}
+		return index;
+	}
+	
+	/**
+	 * Write the channels of all pixels in this order to consecutive packets,
+	 * e.g. DMX universes. Every packet takes {@code packetLength} bytes
+	 * starting at {@code dataOffset}, so a pixel may be split across two
+	 * packets. Uses absolute puts, the buffer positions are not changed.
+	 * @param pixels		the pixels in RGB order
+	 * @param packets		the packets, must have room for 3 bytes per pixel in total
+	 * @param dataOffset	index of the first data byte in every packet (header length)
+	 * @param packetLength	number of data bytes per packet
+	 */
+	public void encode(PixelBuffer pixels, ByteBuffer[] packets, int dataOffset, int packetLength) {
+		final int[] data = pixels.array();
+		final int offset = pixels.offset();
+		final int length = pixels.length();
+		if(length == 0)
+			return;
+		int packet = 0;
+		ByteBuffer buffer = packets[0];
+		int position = 0;
+		for(int i = 0; i < length; i++) {
+			int rgb = data[offset + i];
+			if(position + 3 <= packetLength) {
+				// fast path, the whole pixel fits into the current packet
+				buffer.put(dataOffset + position, (byte) (rgb >> shift0));
+				buffer.put(dataOffset + position + 1, (byte) (rgb >> shift1));
+				buffer.put(dataOffset + position + 2, (byte) (rgb >> shift2));
+				position += 3;
+				continue;
+			}
+			for(int c = 0; c < 3; c++) {
+				if(position >= packetLength) {
+					// current packet is full; use next packet
+					buffer = packets[++packet];
+					position = 0;
+				}
+				buffer.put(dataOffset + position++, (byte) (rgb >> getShift(c)));
+			}
+		}
+	}
 
 }
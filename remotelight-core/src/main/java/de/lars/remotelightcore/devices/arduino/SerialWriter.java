@@ -0,0 +1,258 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.devices.arduino;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.tinylog.Logger;
+
+import de.lars.remotelightcore.metrics.LatencyHistogram;
+import de.lars.remotelightcore.metrics.OutputMetrics;
+
+/**
+ * Writes frames to a serial output stream on a dedicated thread.
+ * <p>
+ * The writer has a single-slot mailbox: {@link #submit(byte[], int)} copies
+ * the frame into the mailbox and returns immediately. If the port is still
+ * busy writing the previous frame, a pending frame that was not written yet
+ * is replaced by the new one (latest frame wins), so frames never queue up
+ * behind a slow port.
+ * <p>
+ * Protocols that depend on the previously sent frame can pass a
+ * {@link FrameEncoder} with the frame. The encoder is called on the writer
+ * thread right before writing, so it only ever sees frames that are
+ * actually sent.
+ */
+public class SerialWriter implements Runnable {
+	
+	private final OutputStream output;
+	private final String name;
+	private final Object lock = new Object();
+	
+	private byte[] pending = new byte[0];
+	private int pendingSize;
+	private boolean hasPending;
+	private FrameEncoder pendingEncoder;
+	private byte[] writing = new byte[0];
+	
+	private volatile boolean running;
+	private Thread thread;
+	
+	private final AtomicLong framesWritten = new AtomicLong();
+	private final AtomicLong framesCoalesced = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+	private final LatencyHistogram writeTime = new LatencyHistogram();
+	private volatile OutputMetrics metrics;
+	
+	/**
+	 * @param output	the stream to write to
+	 * @param name		name of the port (used for the thread name and log messages)
+	 */
+	public SerialWriter(OutputStream output, String name) {
+		this.output = output;
+		this.name = name;
+	}
+	
+	/**
+	 * Additionally report coalesced frames, write times and the number
+	 * of written bytes to the metrics of an output.
+	 * @param metrics	output metrics or null
+	 */
+	public void setMetrics(OutputMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	public synchronized void start() {
+		if(running)
+			return;
+		running = true;
+		thread = new Thread(this, "Serial writer " + name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stop the writer thread. A pending frame is discarded.
+	 * The output stream is not closed.
+	 */
+	public synchronized void stop() {
+		if(!running)
+			return;
+		running = false;
+		synchronized (lock) {
+			hasPending = false;
+			lock.notifyAll();
+		}
+		try {
+			thread.join(500);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+	
+	public boolean isRunning() {
+		return running;
+	}
+	
+	/**
+	 * Hand a frame to the writer thread. The data is copied, so the
+	 * caller can reuse the array right away.
+	 * @param data	the frame data
+	 * @param size	number of bytes to write
+	 */
+	public void submit(byte[] data, int size) {
+		submit(data, size, null);
+	}
+	
+	/**
+	 * Hand a frame to the writer thread that is encoded by the specified
+	 * encoder before it is written. The data is copied, so the caller
+	 * can reuse the array right away.
+	 * @param data		the frame data
+	 * @param size		number of bytes of the frame
+	 * @param encoder	the encoder or null to write the data as it is
+	 */
+	public void submit(byte[] data, int size, FrameEncoder encoder) {
+		synchronized (lock) {
+			if(hasPending) {
+				// the previous frame was not written yet, replace it
+				framesCoalesced.incrementAndGet();
+				OutputMetrics m = metrics;
+				if(m != null)
+					m.addCoalescedFrame();
+			}
+			if(pending.length < size) {
+				pending = new byte[size];
+			}
+			System.arraycopy(data, 0, pending, 0, size);
+			pendingSize = size;
+			pendingEncoder = encoder;
+			hasPending = true;
+			lock.notifyAll();
+		}
+	}
+	
+	@Override
+	public void run() {
+		while(running) {
+			int size;
+			FrameEncoder encoder;
+			synchronized (lock) {
+				while(!hasPending && running) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						running = false;
+					}
+				}
+				if(!running)
+					break;
+				// swap buffers, the next frame can be submitted while writing
+				byte[] tmp = writing;
+				writing = pending;
+				pending = tmp;
+				size = pendingSize;
+				encoder = pendingEncoder;
+				hasPending = false;
+			}
+			
+			byte[] data = writing;
+			if(encoder != null) {
+				size = encoder.encode(writing, size);
+				data = encoder.getOutput();
+			}
+			
+			long start = System.nanoTime();
+			try {
+				output.write(data, 0, size);
+				output.flush();
+				long duration = System.nanoTime() - start;
+				writeTime.record(duration);
+				OutputMetrics m = metrics;
+				if(m != null) {
+					m.recordWriteTime(duration);
+					m.addBytesSent(size);
+				}
+				framesWritten.incrementAndGet();
+				bytesWritten.addAndGet(size);
+			} catch (IOException e) {
+				if(running)
+					Logger.error(e, "Error while sending data to ComPort " + name);
+			}
+		}
+	}
+	
+	/**
+	 * @return number of frames that were written to the port
+	 */
+	public long getFramesWritten() {
+		return framesWritten.get();
+	}
+	
+	/**
+	 * @return number of frames that were replaced by a newer frame before they could be written
+	 */
+	public long getFramesCoalesced() {
+		return framesCoalesced.get();
+	}
+	
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+	
+	/**
+	 * @return histogram of the time it took to write a frame
+	 */
+	public LatencyHistogram getWriteTime() {
+		return writeTime;
+	}
+	
+	public void resetCounters() {
+		framesWritten.set(0);
+		framesCoalesced.set(0);
+		bytesWritten.set(0);
+		writeTime.reset();
+	}
+	
+	/**
+	 * Encodes frames on the writer thread.
+	 */
+	public interface FrameEncoder {
+		/**
+		 * Encode a frame into the output buffer.
+		 * @param frame	the frame data
+		 * @param size	number of bytes of the frame
+		 * @return number of encoded bytes in {@link #getOutput()}
+		 */
+		int encode(byte[] frame, int size);
+		
+		/**
+		 * @return buffer that contains the last encoded frame
+		 */
+		byte[] getOutput();
+	}
+
+}
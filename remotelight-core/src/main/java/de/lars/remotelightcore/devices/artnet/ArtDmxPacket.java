@@ -0,0 +1,124 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.devices.artnet;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Preallocated ArtDmx packet for a single universe.
+ * The header is written once, only the sequence number and
+ * the DMX data are updated per frame.
+ */
+public class ArtDmxPacket {
+	
+	/** Art-Net packet ID "Art-Net" followed by 0x00 */
+	static final byte[] ID = {'A', 'r', 't', '-', 'N', 'e', 't', 0x00};
+	public static final int OP_DMX = 0x5000;
+	public static final int PROTOCOL_VERSION = 14;
+	/** size of the ArtDmx packet header in bytes */
+	public static final int HEADER_LENGTH = 18;
+	public static final int MAX_DATA_LENGTH = 512;
+	
+	private static final int SEQUENCE_OFFSET = 12;
+	
+	private final ByteBuffer buffer;
+	private final int portAddress;
+	private final int slots;
+	
+	/**
+	 * Create a new ArtDmx packet.
+	 * @param portAddress	15 bit Port-Address (net, sub-net and universe)
+	 * @param slots			number of DMX channels (1 to {@link #MAX_DATA_LENGTH}),
+	 * 						odd lengths are padded with a zero byte
+	 */
+	public ArtDmxPacket(int portAddress, int slots) {
+		if(slots < 1 || slots > MAX_DATA_LENGTH)
+			throw new IllegalArgumentException("Invalid DMX data length: " + slots + " (max " + MAX_DATA_LENGTH + ")");
+		this.portAddress = portAddress & 0x7FFF;
+		this.slots = slots;
+		final int dataLength = slots + (slots & 1); // must be even
+		buffer = ByteBuffer.allocateDirect(HEADER_LENGTH + dataLength).order(ByteOrder.BIG_ENDIAN);
+		
+		buffer.put(ID);											// ID (8 bytes)
+		buffer.put((byte) (OP_DMX & 0xFF));						// OpCode (2 bytes, low byte first)
+		buffer.put((byte) (OP_DMX >> 8));
+		buffer.putShort((short) PROTOCOL_VERSION);				// Protocol version (2 bytes)
+		buffer.put((byte) 0);									// Sequence (1 byte)
+		buffer.put((byte) 0);									// Physical (1 byte)
+		buffer.put((byte) (this.portAddress & 0xFF));			// SubUni (1 byte) sub-net and universe
+		buffer.put((byte) (this.portAddress >> 8));				// Net (1 byte)
+		buffer.putShort((short) dataLength);					// Length (2 bytes)
+	}
+	
+	public int getPortAddress() {
+		return portAddress;
+	}
+	
+	public int getSlots() {
+		return slots;
+	}
+	
+	/**
+	 * @return total packet length in bytes
+	 */
+	public int getLength() {
+		return buffer.capacity();
+	}
+	
+	/**
+	 * @param sequence	sequence number (1-255) or 0 to disable sequencing
+	 */
+	public void setSequenceNumber(int sequence) {
+		buffer.put(SEQUENCE_OFFSET, (byte) sequence);
+	}
+	
+	public void setSlot(int slot, byte value) {
+		buffer.put(HEADER_LENGTH + slot, value);
+	}
+	
+	public byte getSlot(int slot) {
+		return buffer.get(HEADER_LENGTH + slot);
+	}
+	
+	/**
+	 * Rewind the packet buffer so the whole packet can be written to a channel.
+	 * @return	the packet buffer
+	 */
+	public ByteBuffer getBuffer() {
+		buffer.clear();
+		return buffer;
+	}
+	
+	/**
+	 * Create the 15 bit Port-Address from the sub-net and universe.
+	 * Universes above 15 continue on the next sub-net.
+	 * @param subnet		sub-net (0-15)
+	 * @param universe		universe
+	 * @return				the Port-Address
+	 */
+	public static int toPortAddress(int subnet, int universe) {
+		return ((subnet << 4) + universe) & 0x7FFF;
+	}
+	
+}
@@ -0,0 +1,59 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.devices.artnet;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * ArtSync packet. Nodes that received an ArtSync hold back the
+ * ArtDmx data until the next ArtSync arrives, so all universes
+ * of a frame are output at the same time.
+ */
+public class ArtSyncPacket {
+	
+	public static final int OP_SYNC = 0x5200;
+	public static final int LENGTH = 14;
+	
+	private final ByteBuffer buffer;
+	
+	public ArtSyncPacket() {
+		buffer = ByteBuffer.allocateDirect(LENGTH).order(ByteOrder.BIG_ENDIAN);
+		buffer.put(ArtDmxPacket.ID);								// ID (8 bytes)
+		buffer.put((byte) (OP_SYNC & 0xFF));						// OpCode (2 bytes, low byte first)
+		buffer.put((byte) (OP_SYNC >> 8));
+		buffer.putShort((short) ArtDmxPacket.PROTOCOL_VERSION);	// Protocol version (2 bytes)
+		buffer.put((byte) 0);										// Aux1 (1 byte)
+		buffer.put((byte) 0);										// Aux2 (1 byte)
+	}
+	
+	/**
+	 * Rewind the packet buffer so the whole packet can be written to a channel.
+	 * @return	the packet buffer
+	 */
+	public ByteBuffer getBuffer() {
+		buffer.clear();
+		return buffer;
+	}
+	
+}
@@ -22,30 +22,52 @@
 
 package de.lars.remotelightcore.devices.artnet;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
 import org.tinylog.Logger;
 
-import ch.bildspur.artnet.ArtNetClient;
-import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.devices.ConnectionState;
 import de.lars.remotelightcore.devices.Device;
-import de.lars.remotelightcore.settings.types.SettingInt;
+import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
+import de.lars.remotelightcore.out.PixelBuffer;
 import de.lars.remotelightcore.utils.color.Color;
 
 public class Artnet extends Device {
 	private static final long serialVersionUID = 620972378928905059L;
 	
-	public static final int MAX_UNIVERSE_SIZE = 512;
+	/* Art-Net Port is 6454 */
+	public static final int PORT = 6454;
+	public static final int MAX_UNIVERSE_SIZE = ArtDmxPacket.MAX_DATA_LENGTH;
+	public static final String BROADCAST_ADDRESS = "255.255.255.255";
 	
-	private transient ArtNetClient artnet;
+	private transient DatagramChannel channel;
+	/** one preallocated packet per universe */
+	private transient ArtDmxPacket[] packets;
+	/** buffers of the packets, the pixels are encoded into them */
+	private transient ByteBuffer[] packetBuffers;
+	private transient ArtSyncPacket syncPacket;
+	private transient InetSocketAddress target;
+	private transient int packetsDataLength;
+	private transient int packetsUniverseSize;
+	private transient int packetsPortAddress;
+	private transient int sequenceNumber;
 	private boolean broadcast;
 	private String address;
+	/** destination port, {@link #PORT} by default */
+	private int port = PORT;
 	private int subnet;
 	private int startUniverse;
 	private int universeSize = MAX_UNIVERSE_SIZE;
 	
 	public Artnet(String id) {
 		super(id, 0);
-		this.artnet = new ArtNetClient();
 	}
 	
 	public void setBroadcast(boolean broadcast) {
@@ -64,6 +86,17 @@ public class Artnet extends Device {
 		return address;
 	}
 	
+	/**
+	 * Set the destination port. Nodes usually listen on {@link #PORT}.
+	 */
+	public void setPort(int port) {
+		this.port = port;
+	}
+	
+	public int getPort() {
+		return port;
+	}
+	
 	public void setSubnet(int subnet) {
 		this.subnet = subnet;
 	}
@@ -84,104 +117,151 @@ public class Artnet extends Device {
 		return universeSize;
 	}
 
+	/**
+	 * @param universeSize	number of DMX channels per universe, clamped
+	 * 						to 3...{@link #MAX_UNIVERSE_SIZE}
+	 */
 	public void setUniverseSize(int universeSize) {
-		this.universeSize = universeSize;
+		this.universeSize = Math.max(3, Math.min(MAX_UNIVERSE_SIZE, universeSize));
 	}
 
 	@Override
 	public ConnectionState connect() {
-		artnet.start();
-		
-		// Output is laggy if output delay > 45
-		if(((SettingInt) RemoteLightCore.getInstance().getSettingsManager().getSettingFromId("out.delay")).get() > 45) {
-			((SettingInt) RemoteLightCore.getInstance().getSettingsManager().getSettingFromId("out.delay")).setValue(45);
-			Logger.info("Set output delay to 45 ms for Artnet to work fine.");
+		onLoad();
+		if(!broadcast && (address == null || address.trim().isEmpty())) {
+			Logger.error("Could not initialize Art-Net client! No unicast address specified.");
+			return ConnectionState.FAILED;
 		}
-		
-		if(artnet.isRunning()) {
+		try {
+			InetAddress inetAddress = InetAddress.getByName(broadcast ? BROADCAST_ADDRESS : address.trim());
+			target = new InetSocketAddress(inetAddress, port);
+			channel = DatagramChannel.open();
+			channel.setOption(StandardSocketOptions.SO_BROADCAST, true);
+			channel.bind(null);
+			packets = new ArtDmxPacket[0];
+			syncPacket = new ArtSyncPacket();
 			return ConnectionState.CONNECTED;
+		} catch (IOException e) {
+			closeChannel();
+			Logger.error(e, "Could not initialize Art-Net client!");
 		}
 		return ConnectionState.FAILED;
 	}
 
 	@Override
 	public ConnectionState disconnect() {
-		artnet.stop();
-		if(artnet.isRunning()) {
-			return ConnectionState.CONNECTED;
-		}
+		closeChannel();
 		return ConnectionState.DISCONNECTED;
 	}
+	
+	private void closeChannel() {
+		if(channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				Logger.error(e, "Could not close Art-Net channel.");
+			}
+		}
+		channel = null;
+	}
 
 	@Override
 	public ConnectionState getConnectionState() {
-		if(artnet.isRunning()) {
-			return ConnectionState.CONNECTED;
-		}
-		return ConnectionState.DISCONNECTED;
+		return (channel != null) ? ConnectionState.CONNECTED : ConnectionState.DISCONNECTED;
 	}
 
 	@Override
 	public void onLoad() {
-		if(artnet == null) {
-			artnet = new ArtNetClient();
-		}
 		if(universeSize == 0) {
 			universeSize = MAX_UNIVERSE_SIZE;
 		}
 		if(universeSize < 3) {
 			universeSize = 3;
 		}
+		if(universeSize > MAX_UNIVERSE_SIZE) {
+			universeSize = MAX_UNIVERSE_SIZE;
+		}
+		if(port <= 0) {
+			port = PORT;
+		}
 	}
 
 	@Override
 	public void send(Color[] pixels) {
-		final int dataLength = pixels.length * 3;
-		final int MAX_LENGTH = universeSize; // maximal dmx data length
-		
-		int arrayLength = dataLength > MAX_LENGTH ? MAX_LENGTH : dataLength;
-		byte[] dmxData = new byte[arrayLength];
-		int currUniverse = startUniverse;
-		int offset = 0;
-		
-		// loop over each pixel
-		for(int i = 0; i < pixels.length; i++) {
-			byte[] rgbData = {(byte) pixels[i].getRed(), (byte) pixels[i].getGreen(), (byte) pixels[i].getBlue()};
-			
-			// loop over RGB data array
-			for(int d = 0; d < rgbData.length; d++) {
-				// check if max length of universe is reached
-				if(offset >= MAX_LENGTH) {
-					// current universe is full; output universe and use next universe
-					sendDmxData(currUniverse, dmxData);
-					
-					// use next universe
-					currUniverse++;
-					// reset offset
-					offset = 0;
-					
-					// create new buffer
-					int usedUniverses = currUniverse - startUniverse;
-					int remainingDataLength = dataLength - usedUniverses * MAX_LENGTH;
-					int size = remainingDataLength > MAX_LENGTH ? MAX_LENGTH : remainingDataLength;
-					dmxData = new byte[size];
-				}
-				
-				// add to output data buffer
-				dmxData[offset] = rgbData[d];
-				// increment offset
-				offset++;
+		send(PixelBuffer.fromColors(pixels));
+	}
+	
+	@Override
+	protected boolean isRgbOrderEncoded() {
+		return true;
+	}
+	
+	@Override
+	public void send(PixelBuffer pixels) {
+		long encodeStart = System.nanoTime();
+		final int length = pixels.length();
+		if(!preparePackets(length))
+			return;
+		// write the channels in the configured RGB order
+		final RgbOrder order = getRgbOrder() != null ? getRgbOrder() : RgbOrder.RGB;
+		order.encode(pixels, packetBuffers, ArtDmxPacket.HEADER_LENGTH, universeSize);
+		PipelineMetrics.getInstance().record(Stage.ENCODE, encodeStart);
+		sendPackets();
+	}
+	
+	/**
+	 * Make sure there is a packet for every universe.
+	 * Packets are only reallocated when the pixel count or the universe
+	 * configuration changes.
+	 * @param pixels	number of pixels
+	 * @return			false if there is nothing to send
+	 */
+	private boolean preparePackets(int pixels) {
+		if(channel == null)
+			return false;
+		final int dataLength = pixels * 3;
+		final int universes = (dataLength + universeSize - 1) / universeSize;
+		final int portAddress = ArtDmxPacket.toPortAddress(subnet, startUniverse);
+		if(packets == null || packets.length != universes || packetsDataLength != dataLength
+				|| packetsUniverseSize != universeSize || packetsPortAddress != portAddress) {
+			ArtDmxPacket[] newPackets = new ArtDmxPacket[universes];
+			ByteBuffer[] newBuffers = new ByteBuffer[universes];
+			for(int u = 0; u < universes; u++) {
+				int slots = Math.min(universeSize, dataLength - u * universeSize);
+				newPackets[u] = new ArtDmxPacket(portAddress + u, slots);
+				newBuffers[u] = newPackets[u].getBuffer();
 			}
+			packets = newPackets;
+			packetBuffers = newBuffers;
+			packetsDataLength = dataLength;
+			packetsUniverseSize = universeSize;
+			packetsPortAddress = portAddress;
+		}
+		return packets.length > 0;
+	}
+	
+	private void sendPackets() {
+		// sequence numbers 1-255, 0 disables sequencing on the receiver
+		if(++sequenceNumber > 255)
+			sequenceNumber = 1;
+		for(ArtDmxPacket packet : packets) {
+			packet.setSequenceNumber(sequenceNumber);
+			sendPacket(packet.getBuffer());
 		}
-		// output universe
-		sendDmxData(currUniverse, dmxData);
+		// all universes of the frame were sent, tell the nodes to output them
+		sendPacket(syncPacket.getBuffer());
 	}
 	
-	private void sendDmxData(int universe, byte[] dmxData) {
-		if(broadcast) {
-			artnet.broadcastDmx(subnet, universe, dmxData);
-		} else {
-			artnet.unicastDmx(address.trim(), subnet, universe, dmxData);
+	private void sendPacket(ByteBuffer packet) {
+		DatagramChannel ch = channel;
+		if(ch == null)
+			return;
+		try {
+			int bytes = ch.send(packet, target);
+			PipelineMetrics.getInstance().addBytesSent(getId(), bytes);
+		} catch (IOException e) {
+			Logger.error(e, "Could not send Art-Net data.");
+			disconnect();
 		}
 	}
 	
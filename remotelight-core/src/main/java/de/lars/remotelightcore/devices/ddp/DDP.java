@@ -0,0 +1,225 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.devices.ddp;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import org.tinylog.Logger;
+
+import de.lars.remotelightcore.devices.ConnectionState;
+import de.lars.remotelightcore.devices.Device;
+import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.utils.color.Color;
+
+/**
+ * Output device for pixel controllers that support DDP (Distributed Display
+ * Protocol), e.g. WLED or ESPixelStick. A frame is split into packets of up
+ * to {@link DdpPacket#MAX_DATA_LENGTH} bytes, the last packet has the push
+ * flag set so the controller displays the whole frame at once.
+ */
+public class DDP extends Device {
+	private static final long serialVersionUID = -2735306475806498163L;
+	
+	/* DDP port is 4048 */
+	public static final int PORT = 4048;
+	
+	private String address;
+	/** destination port, {@link #PORT} by default */
+	private int port = PORT;
+	
+	private transient DatagramChannel channel;
+	/** preallocated packets of the current frame layout */
+	private transient DdpPacket[] packets;
+	/** buffers of the packets, the pixels are encoded into them */
+	private transient ByteBuffer[] packetBuffers;
+	private transient InetSocketAddress target;
+	private transient int packetsDataLength;
+	private transient int sequenceNumber;
+	private transient long droppedPackets;
+	
+	public DDP(String id) {
+		super(id, 0);
+	}
+	
+	public void setAddress(String address) {
+		this.address = address;
+	}
+	
+	public String getAddress() {
+		return address;
+	}
+	
+	/**
+	 * Set the destination port. Controllers usually listen on {@link #PORT}.
+	 */
+	public void setPort(int port) {
+		this.port = port;
+	}
+	
+	public int getPort() {
+		return port;
+	}
+	
+	/**
+	 * @return number of packets that were dropped because the socket buffer was full
+	 */
+	public long getDroppedPackets() {
+		return droppedPackets;
+	}
+
+	@Override
+	public ConnectionState connect() {
+		onLoad();
+		if(address == null || address.trim().isEmpty()) {
+			Logger.error("Could not initialize DDP client! No address specified.");
+			return ConnectionState.FAILED;
+		}
+		try {
+			target = new InetSocketAddress(InetAddress.getByName(address.trim()), port);
+			channel = DatagramChannel.open();
+			channel.configureBlocking(false);
+			channel.bind(null);
+			packets = new DdpPacket[0];
+			packetsDataLength = 0;
+			return ConnectionState.CONNECTED;
+		} catch (IOException e) {
+			closeChannel();
+			Logger.error(e, "Could not initialize DDP client!");
+		}
+		return ConnectionState.FAILED;
+	}
+
+	@Override
+	public ConnectionState disconnect() {
+		closeChannel();
+		return ConnectionState.DISCONNECTED;
+	}
+	
+	private void closeChannel() {
+		if(channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				Logger.error(e, "Could not close DDP channel.");
+			}
+		}
+		channel = null;
+	}
+
+	@Override
+	public ConnectionState getConnectionState() {
+		return (channel != null) ? ConnectionState.CONNECTED : ConnectionState.DISCONNECTED;
+	}
+
+	@Override
+	public void onLoad() {
+		if(port <= 0) {
+			port = PORT;
+		}
+	}
+
+	@Override
+	public void send(Color[] pixels) {
+		send(PixelBuffer.fromColors(pixels));
+	}
+	
+	@Override
+	protected boolean isRgbOrderEncoded() {
+		return true;
+	}
+	
+	@Override
+	public void send(PixelBuffer pixels) {
+		long encodeStart = System.nanoTime();
+		final int length = pixels.length();
+		if(!preparePackets(length))
+			return;
+		// write the channels in the configured RGB order
+		final RgbOrder order = getRgbOrder() != null ? getRgbOrder() : RgbOrder.RGB;
+		order.encode(pixels, packetBuffers, DdpPacket.HEADER_LENGTH, DdpPacket.MAX_DATA_LENGTH);
+		PipelineMetrics.getInstance().record(Stage.ENCODE, encodeStart);
+		sendPackets();
+	}
+	
+	/**
+	 * Make sure the packets match the frame length.
+	 * Packets are only reallocated when the pixel count changes.
+	 * @param pixels	number of pixels
+	 * @return			false if there is nothing to send
+	 */
+	private boolean preparePackets(int pixels) {
+		if(channel == null)
+			return false;
+		final int dataLength = pixels * 3;
+		if(packets == null || packetsDataLength != dataLength) {
+			final int count = (dataLength + DdpPacket.MAX_DATA_LENGTH - 1) / DdpPacket.MAX_DATA_LENGTH;
+			DdpPacket[] newPackets = new DdpPacket[count];
+			ByteBuffer[] newBuffers = new ByteBuffer[count];
+			for(int p = 0; p < count; p++) {
+				int offset = p * DdpPacket.MAX_DATA_LENGTH;
+				int length = Math.min(DdpPacket.MAX_DATA_LENGTH, dataLength - offset);
+				newPackets[p] = new DdpPacket(offset, length, p == count - 1);
+				newBuffers[p] = newPackets[p].getBuffer();
+			}
+			packets = newPackets;
+			packetBuffers = newBuffers;
+			packetsDataLength = dataLength;
+		}
+		return packets.length > 0;
+	}
+	
+	private void sendPackets() {
+		// sequence numbers 1-15, 0 means not used
+		if(++sequenceNumber > 15)
+			sequenceNumber = 1;
+		for(DdpPacket packet : packets) {
+			packet.setSequenceNumber(sequenceNumber);
+			sendPacket(packet.getBuffer());
+		}
+	}
+	
+	private void sendPacket(ByteBuffer packet) {
+		DatagramChannel ch = channel;
+		if(ch == null)
+			return;
+		try {
+			int bytes = ch.send(packet, target);
+			if(bytes == 0) {
+				// non-blocking channel: socket buffer is full
+				droppedPackets++;
+			}
+			PipelineMetrics.getInstance().addBytesSent(getId(), bytes);
+		} catch (IOException e) {
+			Logger.error(e, "Could not send DDP data.");
+			disconnect();
+		}
+	}
+
+}
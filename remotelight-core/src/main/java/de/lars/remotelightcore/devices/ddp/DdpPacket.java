@@ -0,0 +1,122 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.devices.ddp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Preallocated DDP (Distributed Display Protocol) data packet.
+ * The header is written once, only the sequence number and
+ * the pixel data are updated per frame.
+ * <pre>
+ * byte 0     flags: version (bits 7-6), push (bit 0)
+ * byte 1     sequence number (bits 3-0, 1-15, 0 = not used)
+ * byte 2     data type (RGB, 8 bit per element)
+ * byte 3     destination ID (1 = default output device)
+ * byte 4-7   data offset in bytes (big endian)
+ * byte 8-9   data length in bytes (big endian)
+ * byte 10-   pixel data
+ * </pre>
+ */
+public class DdpPacket {
+	
+	public static final int HEADER_LENGTH = 10;
+	/** max data length per packet, a multiple of 3 so pixels are never split */
+	public static final int MAX_DATA_LENGTH = 1440;
+	public static final int FLAG_VERSION_1 = 0x40;
+	public static final int FLAG_PUSH = 0x01;
+	/** data type RGB (001) with 8 bit per element (011) */
+	public static final int TYPE_RGB24 = 0x0B;
+	public static final int ID_DEFAULT = 1;
+	
+	private static final int SEQUENCE_OFFSET = 1;
+	
+	private final ByteBuffer buffer;
+	private final int dataOffset;
+	private final int dataLength;
+	
+	/**
+	 * Create a new DDP data packet.
+	 * @param dataOffset	offset of the data in the frame in bytes
+	 * @param dataLength	number of data bytes (1 to {@link #MAX_DATA_LENGTH})
+	 * @param push			true if the receiver should display the frame after this packet
+	 */
+	public DdpPacket(int dataOffset, int dataLength, boolean push) {
+		if(dataLength < 1 || dataLength > MAX_DATA_LENGTH)
+			throw new IllegalArgumentException("Invalid DDP data length: " + dataLength + " (max " + MAX_DATA_LENGTH + ")");
+		this.dataOffset = dataOffset;
+		this.dataLength = dataLength;
+		buffer = ByteBuffer.allocateDirect(HEADER_LENGTH + dataLength).order(ByteOrder.BIG_ENDIAN);
+		
+		buffer.put((byte) (FLAG_VERSION_1 | (push ? FLAG_PUSH : 0)));	// Flags (1 byte)
+		buffer.put((byte) 0);											// Sequence number (1 byte)
+		buffer.put((byte) TYPE_RGB24);									// Data type (1 byte)
+		buffer.put((byte) ID_DEFAULT);									// Destination ID (1 byte)
+		buffer.putInt(dataOffset);										// Data offset (4 bytes)
+		buffer.putShort((short) dataLength);							// Data length (2 bytes)
+	}
+	
+	public int getDataOffset() {
+		return dataOffset;
+	}
+	
+	public int getDataLength() {
+		return dataLength;
+	}
+	
+	public boolean isPush() {
+		return (buffer.get(0) & FLAG_PUSH) != 0;
+	}
+	
+	/**
+	 * @param sequence	sequence number (1-15)
+	 */
+	public void setSequenceNumber(int sequence) {
+		buffer.put(SEQUENCE_OFFSET, (byte) (sequence & 0x0F));
+	}
+	
+	/**
+	 * Set a single data byte.
+	 * @param index		index of the data byte in this packet starting at 0
+	 * @param value		the value
+	 */
+	public void setData(int index, byte value) {
+		buffer.put(HEADER_LENGTH + index, value);
+	}
+	
+	public byte getData(int index) {
+		return buffer.get(HEADER_LENGTH + index);
+	}
+	
+	/**
+	 * Rewind the packet buffer so the whole packet can be written to a channel.
+	 * The returned buffer must not be modified.
+	 * @return	the packet buffer
+	 */
+	public ByteBuffer getBuffer() {
+		buffer.clear();
+		return buffer;
+	}
+
+}
@@ -1,17 +1,21 @@
 package de.lars.remotelightcore.devices.e131;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.SocketException;
+import java.net.StandardSocketOptions;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 
 import org.tinylog.Logger;
 
 import de.lars.remotelightcore.devices.ConnectionState;
 import de.lars.remotelightcore.devices.Device;
+import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
+import de.lars.remotelightcore.out.PixelBuffer;
 import de.lars.remotelightcore.utils.color.Color;
 
 public class E131 extends Device {
@@ -25,12 +29,25 @@ public class E131 extends Device {
 	private transient int sequenceNumber;
 	private int startUniverse;
 	private int universeSize = E131Packet.DATA_LENGTH;
+	/** universe for synchronization packets, 0 disables synchronization */
+	private int syncUniverse;
 	
+	/** destination port, {@link #PORT} by default */
+	private int port = PORT;
 	private String unicastIP;
 	private InetAddress address;
 	private boolean multicast;
-	private transient DatagramSocket dSocket;
-	private transient E131Packet e131Packet;
+	private transient DatagramChannel channel;
+	/** one preallocated packet per universe */
+	private transient E131Packet[] packets;
+	/** buffers of the packets, the pixels are encoded into them */
+	private transient ByteBuffer[] packetBuffers;
+	private transient InetSocketAddress[] targets;
+	private transient E131SyncPacket syncPacket;
+	private transient InetSocketAddress syncTarget;
+	private transient int syncSequenceNumber;
+	private transient int packetsDataLength;
+	private transient int packetsUniverseSize;
 
 	public E131(String id) {
 		super(id, 0);
@@ -52,6 +69,17 @@ public class E131 extends Device {
 		return unicastIP;
 	}
 	
+	/**
+	 * Set the destination port. Receivers usually listen on {@link #PORT}.
+	 */
+	public void setPort(int port) {
+		this.port = port;
+	}
+	
+	public int getPort() {
+		return port;
+	}
+	
 	public void setStartUniverse(int startUniverse) {
 		this.startUniverse = startUniverse;
 	}
@@ -60,6 +88,23 @@ public class E131 extends Device {
 		return startUniverse;
 	}
 	
+	/**
+	 * Set the synchronization universe. If enabled, a synchronization packet
+	 * is sent after all universes of a frame, so receivers show them at once.
+	 * @param syncUniverse	universe (1-63999) or 0 to disable synchronization
+	 */
+	public void setSyncUniverse(int syncUniverse) {
+		this.syncUniverse = syncUniverse;
+	}
+	
+	public int getSyncUniverse() {
+		return syncUniverse;
+	}
+	
+	public boolean isSyncEnabled() {
+		return syncUniverse > 0;
+	}
+	
 	public int getUniverseSize() {
 		return universeSize;
 	}
@@ -71,115 +116,181 @@ public class E131 extends Device {
 	protected void initializeSocket() {
 		try {
 			address = getAddress();
-			dSocket = new DatagramSocket(null);
-			dSocket.setReuseAddress(true);
-			dSocket.setBroadcast(true);
-			dSocket.bind(new InetSocketAddress((InetAddress) null, PORT));
-		} catch (UnknownHostException | SocketException e) {
-			dSocket = null;
+			channel = DatagramChannel.open();
+			channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			channel.setOption(StandardSocketOptions.SO_BROADCAST, true);
+			channel.bind(new InetSocketAddress((InetAddress) null, PORT));
+			packets = new E131Packet[0];
+			syncPacket = null;
+		} catch (IOException e) {
+			closeChannel();
 			Logger.error(e, "Could not initialize E1.31 client!");
 		}
 	}
 	
 	protected InetAddress getAddress() throws UnknownHostException {
+		return getAddress(startUniverse);
+	}
+	
+	protected InetAddress getAddress(int universe) throws UnknownHostException {
 		if(!multicast) {
 			return InetAddress.getByName(unicastIP);
 		}
 		// multicast address must be 239.255.UHB.ULB (UHB = universe high byte, ULB = universe low byte)
-		byte[] addressBytes = {(byte) 239, (byte) 255, (byte) (startUniverse >> 8), (byte) (startUniverse % 255)};
+		byte[] addressBytes = {(byte) 239, (byte) 255, (byte) (universe >> 8), (byte) (universe & 0xFF)};
 		return InetAddress.getByAddress(addressBytes);
 	}
 	
 	@Override
 	public void onLoad() {
-		e131Packet = new E131Packet();
 		if(universeSize == 0) {
 			universeSize = E131Packet.DATA_LENGTH;
 		}
 		if(universeSize < MIN_UNIVERSE_SIZE) {
 			universeSize = MIN_UNIVERSE_SIZE;
 		}
+		if(port <= 0) {
+			port = PORT;
+		}
 	}
 
 	@Override
 	public ConnectionState connect() {
-		if(e131Packet == null) onLoad();
+		onLoad();
 		initializeSocket();
-		return (dSocket != null) ? ConnectionState.CONNECTED : ConnectionState.FAILED;
+		return (channel != null) ? ConnectionState.CONNECTED : ConnectionState.FAILED;
 	}
 
 	@Override
 	public ConnectionState disconnect() {
-		dSocket.close();
-		dSocket = null;
+		closeChannel();
 		return ConnectionState.DISCONNECTED;
 	}
+	
+	private void closeChannel() {
+		if(channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				Logger.error(e, "Could not close E1.31 channel.");
+			}
+		}
+		channel = null;
+	}
 
 	@Override
 	public ConnectionState getConnectionState() {
-		return (dSocket != null) ? ConnectionState.CONNECTED : ConnectionState.DISCONNECTED;
+		return (channel != null) ? ConnectionState.CONNECTED : ConnectionState.DISCONNECTED;
 	}
 
 	@Override
 	public void send(Color[] pixels) {
-		final int dataLength = pixels.length * 3;
-		final int MAX_LENGTH = universeSize; // maximal dmx data length
-		
-		int arrayLength = dataLength > MAX_LENGTH ? MAX_LENGTH : dataLength;
-		byte[] dmxData = new byte[arrayLength];
-		int currUniverse = startUniverse;
-		int offset = 0;
-		
-		// loop over each pixel
-		for(int i = 0; i < pixels.length; i++) {
-			byte[] rgbData = {(byte) pixels[i].getRed(), (byte) pixels[i].getGreen(), (byte) pixels[i].getBlue()};
-			
-			// loop over RGB data array
-			for(int d = 0; d < rgbData.length; d++) {
-				// check if max length of universe is reached
-				if(offset >= MAX_LENGTH) {
-					// current universe is full; output universe and use next universe
-					sendDmxData(currUniverse, dmxData);
-					
-					// use next universe
-					currUniverse++;
-					// reset offset
-					offset = 0;
-					
-					// create new buffer
-					int usedUniverses = currUniverse - startUniverse;
-					int remainingDataLength = dataLength - usedUniverses * MAX_LENGTH;
-					int size = remainingDataLength > MAX_LENGTH ? MAX_LENGTH : remainingDataLength;
-					dmxData = new byte[size];
+		send(PixelBuffer.fromColors(pixels));
+	}
+	
+	@Override
+	protected boolean isRgbOrderEncoded() {
+		return true;
+	}
+	
+	@Override
+	public void send(PixelBuffer pixels) {
+		long encodeStart = System.nanoTime();
+		final int length = pixels.length();
+		if(!preparePackets(length))
+			return;
+		// write the channels in the configured RGB order
+		final RgbOrder order = getRgbOrder() != null ? getRgbOrder() : RgbOrder.RGB;
+		order.encode(pixels, packetBuffers, E131Packet.HEADER_LENGTH, universeSize);
+		PipelineMetrics.getInstance().record(Stage.ENCODE, encodeStart);
+		sendPackets();
+	}
+	
+	/**
+	 * Make sure there is a packet for every universe.
+	 * Packets are only reallocated when the pixel count or the universe
+	 * configuration changes.
+	 * @param pixels	number of pixels
+	 * @return			false if the packets could not be created
+	 */
+	private boolean preparePackets(int pixels) {
+		final int dataLength = pixels * 3;
+		final int universes = (dataLength + universeSize - 1) / universeSize;
+		if(packets == null || packets.length != universes || packetsDataLength != dataLength
+				|| packetsUniverseSize != universeSize || packets.length > 0 && packets[0].getUniverse() != startUniverse) {
+			try {
+				E131Packet[] newPackets = new E131Packet[universes];
+				ByteBuffer[] newBuffers = new ByteBuffer[universes];
+				InetSocketAddress[] newTargets = new InetSocketAddress[universes];
+				for(int u = 0; u < universes; u++) {
+					int slots = Math.min(universeSize, dataLength - u * universeSize);
+					newPackets[u] = new E131Packet(startUniverse + u, slots);
+					newBuffers[u] = newPackets[u].getBuffer();
+					newTargets[u] = new InetSocketAddress(multicast ? getAddress(startUniverse + u) : address, port);
 				}
-				
-				// add to output data buffer
-				dmxData[offset] = rgbData[d];
-				// increment offset
-				offset++;
+				packets = newPackets;
+				packetBuffers = newBuffers;
+				targets = newTargets;
+				packetsDataLength = dataLength;
+				packetsUniverseSize = universeSize;
+			} catch (UnknownHostException e) {
+				Logger.error(e, "Could not resolve E1.31 target address.");
+				return false;
 			}
 		}
-		// output universe
-		sendDmxData(currUniverse, dmxData);
+		if(!prepareSyncPacket())
+			return false;
+		return packets.length > 0;
 	}
 	
-	protected void sendDmxData(int universe, byte[] colorData) {
-		byte[] packetData;
-		synchronized (e131Packet) {
-			packetData = e131Packet.createPacket(universe, sequenceNumber, colorData);
+	private boolean prepareSyncPacket() {
+		int sync = isSyncEnabled() ? syncUniverse : 0;
+		if(sync > 0 && (syncPacket == null || syncPacket.getSyncUniverse() != sync)) {
+			try {
+				syncTarget = new InetSocketAddress(multicast ? getAddress(sync) : address, port);
+				syncPacket = new E131SyncPacket(sync);
+			} catch (UnknownHostException e) {
+				Logger.error(e, "Could not resolve E1.31 synchronization address.");
+				return false;
+			}
+		} else if(sync == 0) {
+			syncPacket = null;
+		}
+		for(E131Packet packet : packets) {
+			if(packet.getSyncAddress() != sync)
+				packet.setSyncAddress(sync);
+		}
+		return true;
+	}
+	
+	protected void sendPackets() {
+		for(int u = 0; u < packets.length; u++) {
+			E131Packet packet = packets[u];
+			packet.setSequenceNumber(sequenceNumber);
+			sendPacket(packet.getBuffer(), targets[u]);
 		}
 		incrementSequenceNumber();
 		
-		if(getConnectionState() == ConnectionState.CONNECTED) {
-			// construct new DatagramPacket
-			DatagramPacket dPacket = new DatagramPacket(packetData, packetData.length, address, PORT);
-			// send the packet
-			try {
-				dSocket.send(dPacket);
-			} catch (IOException e) {
-				Logger.error(e, "Could not send E1.31 data.");
-				disconnect();
-			}
+		E131SyncPacket sync = syncPacket;
+		if(sync != null) {
+			// all universes of the frame were sent, tell the receivers to show them
+			sync.setSequenceNumber(syncSequenceNumber);
+			sendPacket(sync.getBuffer(), syncTarget);
+			if(++syncSequenceNumber > 255)
+				syncSequenceNumber = 0;
+		}
+	}
+	
+	protected void sendPacket(ByteBuffer packet, InetSocketAddress target) {
+		DatagramChannel ch = channel;
+		if(ch == null)
+			return;
+		try {
+			int bytes = ch.send(packet, target);
+			PipelineMetrics.getInstance().addBytesSent(getId(), bytes);
+		} catch (IOException e) {
+			Logger.error(e, "Could not send E1.31 data.");
+			disconnect();
 		}
 	}
 	
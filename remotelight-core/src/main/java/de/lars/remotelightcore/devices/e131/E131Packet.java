@@ -5,129 +5,145 @@ import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
+/**
+ * Preallocated E1.31 data packet for a single universe.
+ * The static root, framing and DMP layer headers are written once,
+ * only the sequence number and the DMX slots are updated per frame.
+ */
 public class E131Packet {
-	
+
 	/** max E1.31 packet length */
 	public final static int LENGTH = 638;
 	/** max DMX data length */
 	public final static int DATA_LENGTH = 512;
+	/** length of all headers including the DMX start code */
+	public final static int HEADER_LENGTH = 126;
 	/** Sender's unique ID generated using current user name */
 	public final static UUID CLIENT_UUID = UUID.nameUUIDFromBytes(new String("RemoteLight_" + System.getProperty("user.name")).getBytes(StandardCharsets.UTF_8));
-	
-	private ByteBuffer buffer;
-	
-	public byte[] createPacket(int universe, int sequenceId, byte[] colorData) {
-		if(colorData.length > DATA_LENGTH)
-			throw new IllegalStateException("Maximum DMX data length exceeded: " + colorData.length + " (max " + DATA_LENGTH + ")");
-		
-		/*
-		 * Create packet layer instances
-		 */
-		DmpLayer dmpLayer = new DmpLayer();
-		FramingLayer framingLayer = new FramingLayer(universe, sequenceId);
-		RootLayer rootLayer = new RootLayer();
-		
-		/*
-		 * Update Packet lengths
-		 */
-		int slots = colorData.length;
-		
-		// Device Management Protocol Layer
-		dmpLayer.slotsNumber = 1 + slots;
-		dmpLayer.length = 10 + 1 + slots;
-		// Framing Layer
-		framingLayer.length = 77 + dmpLayer.length;
-		// Root Layer
-		rootLayer.length = 22 + framingLayer.length;
-		
-		final int bufferLength = framingLayer.length + 38;
-		if(buffer == null || bufferLength != buffer.capacity()) {
-			buffer = ByteBuffer
-					.allocate(bufferLength)
-					.order(ByteOrder.BIG_ENDIAN);
-		} else {
-			buffer.clear();
-		}
-		
-		/*
-		 * Assemble Layers (put data in buffer)
-		 */
-		rootLayer.putData();
-		framingLayer.putData();
-		dmpLayer.putData(colorData);
-		
+
+	/* octet offsets of the dynamic fields */
+	private final static int SYNC_ADDRESS_OFFSET = 109;
+	private final static int SEQUENCE_OFFSET = 111;
+
+	private final ByteBuffer buffer;
+	private final int universe;
+	private final int slots;
+
+	/**
+	 * Create a new packet and write the static headers.
+	 * @param universe	the universe number
+	 * @param slots		number of DMX slots (1 to {@link #DATA_LENGTH})
+	 */
+	public E131Packet(int universe, int slots) {
+		if(slots < 1 || slots > DATA_LENGTH)
+			throw new IllegalArgumentException("Invalid DMX data length: " + slots + " (max " + DATA_LENGTH + ")");
+		this.universe = universe;
+		this.slots = slots;
+		buffer = ByteBuffer.allocateDirect(HEADER_LENGTH + slots).order(ByteOrder.BIG_ENDIAN);
+
 		/*
-		 * Clone byte array and Return packet
+		 * Assemble Layers (put headers in buffer)
 		 */
-		return buffer.array().clone();
+		final int dmpLength = 10 + 1 + slots;
+		final int framingLength = 77 + dmpLength;
+		final int rootLength = 22 + framingLength;
+		putRootLayer(rootLength);
+		putFramingLayer(framingLength);
+		putDmpLayer(dmpLength);
+	}
+
+	public int getUniverse() {
+		return universe;
+	}
+
+	public int getSlots() {
+		return slots;
+	}
+
+	/**
+	 * @return total packet length in bytes
+	 */
+	public int getLength() {
+		return buffer.capacity();
 	}
-	
-	
-	class RootLayer {
-		
-		int length = LENGTH - 16; // 22 + frameLayer length (22 + 600 for full payload)
-		
-		void putData() {
-			buffer.putShort((short) 0x0010);			// Preamble Size (2 bytes)
-			buffer.putShort((short) 0x0000);			// Post-amble Size (2 bytes)
-														// ACN Packet Identifier (12 bytes)
-			final byte[] ACN_PID = {0x41, 0x53, 0x43, 0x2d, 0x45, 0x31, 0x2e, 0x31, 0x37, 0x00, 0x00, 0x00};
-			buffer.put(ACN_PID);
-			
-			buffer.putShort((short) (0x7000 | length));	// Flags & Length (2 bytes) (low 12 bits = PDU length, high 4 bits = 0x7)
-			buffer.putInt(0x00000004);					// Vector (4 bytes)
-														// CID (16 bytes = 8 bytes + 8 bytes)
-			buffer.putLong(CLIENT_UUID.getMostSignificantBits());
-			buffer.putLong(CLIENT_UUID.getLeastSignificantBits());
-		}
-		
+
+	/**
+	 * Set the universe on which synchronization packets are sent.
+	 * @param syncUniverse	the synchronization universe or 0 to disable synchronization
+	 */
+	public void setSyncAddress(int syncUniverse) {
+		buffer.putShort(SYNC_ADDRESS_OFFSET, (short) syncUniverse);
 	}
-	
-	class FramingLayer {
-		
-		int length = LENGTH - 38; // frameLayer length + dmpLayer length (600 for full payload)
-		int universe;
-		int sequenceId;
-		
-		public FramingLayer(int universe, int sequenceId) {
-			this.universe = universe;
-			this.sequenceId = sequenceId;
-		}
-		
-		void putData() {
-			buffer.putShort((short) (0x7000 | length));	// Flags & Length (2 bytes) (low 12 bits = PDU length, high 4 bits = 0x7)
-			buffer.putInt(0x00000002);					// Vector (4 bytes)
-														// Source Name (64 bytes) [UTF-8]
-			final byte[] SOURCE_NAME = new String("RemoteLight").getBytes(StandardCharsets.UTF_8); // 11 bytes
-			buffer.put(SOURCE_NAME);
-			buffer.position(108); // set position to octet 108
-			
-			buffer.put((byte) 100);						// Priority (1 byte) [0-200]
-			buffer.putShort((short) 0);					// Synchronization Address (2 bytes)
-			buffer.put((byte) sequenceId);				// Sequence Number (1 byte)
-			buffer.put((byte) 0);						// Options Flags (1 byte)
-			buffer.putShort((short) universe);			// Universe Number (2 bytes)
-		}
-		
+
+	public int getSyncAddress() {
+		return buffer.getShort(SYNC_ADDRESS_OFFSET) & 0xFFFF;
 	}
-	
-	class DmpLayer {
-		
-		int length = LENGTH - 115; // dmpLayer length (523 for full payload)
-		int slotsNumber = 0x0201;
-		
-		void putData(byte[] colorData) {
-			buffer.putShort((short) (0x7000 | length));	// Flags & Length (2 bytes) (low 12 bits = PDU length, high 4 bits = 0x7)
-			buffer.put((byte) 0x02);					// Vector (1 byte)
-			buffer.put((byte) 0xa1);					// Address Type & Data Type (1 byte)
-			buffer.putShort((short) 0x0000);			// First Property Address (2 bytes)
-			buffer.putShort((short) 0x0001);			// Address Increment (2 bytes)
-			buffer.putShort((short) slotsNumber);		// Property value count (2 bytes)
-			buffer.put((byte) 0x00);					// DMX512-A START Code (1-512 bytes)
-			// put color data into the buffer (should be starting at position 126)
-			buffer.put(colorData);
-		}
-		
+
+	public void setSequenceNumber(int sequenceId) {
+		buffer.put(SEQUENCE_OFFSET, (byte) sequenceId);
+	}
+
+	/**
+	 * Set the value of a single DMX slot.
+	 * @param slot		slot index starting at 0
+	 * @param value		the value (0-255)
+	 */
+	public void setSlot(int slot, byte value) {
+		buffer.put(HEADER_LENGTH + slot, value);
+	}
+
+	public byte getSlot(int slot) {
+		return buffer.get(HEADER_LENGTH + slot);
+	}
+
+	/**
+	 * Rewind the packet buffer so the whole packet can be written to a channel.
+	 * The returned buffer must not be modified.
+	 * @return	the packet buffer
+	 */
+	public ByteBuffer getBuffer() {
+		buffer.clear();
+		return buffer;
+	}
+
+	private void putRootLayer(int length) {
+		buffer.putShort((short) 0x0010);			// Preamble Size (2 bytes)
+		buffer.putShort((short) 0x0000);			// Post-amble Size (2 bytes)
+													// ACN Packet Identifier (12 bytes)
+		final byte[] ACN_PID = {0x41, 0x53, 0x43, 0x2d, 0x45, 0x31, 0x2e, 0x31, 0x37, 0x00, 0x00, 0x00};
+		buffer.put(ACN_PID);
+
+		buffer.putShort((short) (0x7000 | length));	// Flags & Length (2 bytes) (low 12 bits = PDU length, high 4 bits = 0x7)
+		buffer.putInt(0x00000004);					// Vector (4 bytes)
+													// CID (16 bytes = 8 bytes + 8 bytes)
+		buffer.putLong(CLIENT_UUID.getMostSignificantBits());
+		buffer.putLong(CLIENT_UUID.getLeastSignificantBits());
+	}
+
+	private void putFramingLayer(int length) {
+		buffer.putShort((short) (0x7000 | length));	// Flags & Length (2 bytes) (low 12 bits = PDU length, high 4 bits = 0x7)
+		buffer.putInt(0x00000002);					// Vector (4 bytes)
+													// Source Name (64 bytes) [UTF-8]
+		final byte[] SOURCE_NAME = new String("RemoteLight").getBytes(StandardCharsets.UTF_8); // 11 bytes
+		buffer.put(SOURCE_NAME);
+		buffer.position(108); // set position to octet 108
+
+		buffer.put((byte) 100);						// Priority (1 byte) [0-200]
+		buffer.putShort((short) 0);					// Synchronization Address (2 bytes)
+		buffer.put((byte) 0);						// Sequence Number (1 byte)
+		buffer.put((byte) 0);						// Options Flags (1 byte)
+		buffer.putShort((short) universe);			// Universe Number (2 bytes)
+	}
+
+	private void putDmpLayer(int length) {
+		buffer.putShort((short) (0x7000 | length));	// Flags & Length (2 bytes) (low 12 bits = PDU length, high 4 bits = 0x7)
+		buffer.put((byte) 0x02);					// Vector (1 byte)
+		buffer.put((byte) 0xa1);					// Address Type & Data Type (1 byte)
+		buffer.putShort((short) 0x0000);			// First Property Address (2 bytes)
+		buffer.putShort((short) 0x0001);			// Address Increment (2 bytes)
+		buffer.putShort((short) (1 + slots));		// Property value count (2 bytes)
+		buffer.put((byte) 0x00);					// DMX512-A START Code (1-512 bytes)
+		// color data starts at position 126
 	}
 
 }
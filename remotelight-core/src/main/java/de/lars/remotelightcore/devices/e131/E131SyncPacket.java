@@ -0,0 +1,65 @@
+package de.lars.remotelightcore.devices.e131;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Preallocated E1.31 universe synchronization packet (E1.31-2016, section 6.3).
+ * Receivers hold back all data packets that carry the same synchronization
+ * address until this packet arrives, so every universe of a frame is shown
+ * at the same time.
+ */
+public class E131SyncPacket {
+
+	/** E1.31 synchronization packet length */
+	public final static int LENGTH = 49;
+	public final static int VECTOR_ROOT_E131_EXTENDED = 0x00000008;
+	public final static int VECTOR_E131_EXTENDED_SYNCHRONIZATION = 0x00000001;
+
+	private final static int SEQUENCE_OFFSET = 44;
+
+	private final ByteBuffer buffer;
+	private final int syncUniverse;
+
+	public E131SyncPacket(int syncUniverse) {
+		this.syncUniverse = syncUniverse;
+		buffer = ByteBuffer.allocateDirect(LENGTH).order(ByteOrder.BIG_ENDIAN);
+
+		// Root Layer
+		buffer.putShort((short) 0x0010);			// Preamble Size (2 bytes)
+		buffer.putShort((short) 0x0000);			// Post-amble Size (2 bytes)
+													// ACN Packet Identifier (12 bytes)
+		final byte[] ACN_PID = {0x41, 0x53, 0x43, 0x2d, 0x45, 0x31, 0x2e, 0x31, 0x37, 0x00, 0x00, 0x00};
+		buffer.put(ACN_PID);
+		buffer.putShort((short) (0x7000 | (LENGTH - 16)));	// Flags & Length (2 bytes)
+		buffer.putInt(VECTOR_ROOT_E131_EXTENDED);	// Vector (4 bytes)
+													// CID (16 bytes)
+		buffer.putLong(E131Packet.CLIENT_UUID.getMostSignificantBits());
+		buffer.putLong(E131Packet.CLIENT_UUID.getLeastSignificantBits());
+
+		// Synchronization Framing Layer
+		buffer.putShort((short) (0x7000 | (LENGTH - 38)));	// Flags & Length (2 bytes)
+		buffer.putInt(VECTOR_E131_EXTENDED_SYNCHRONIZATION);	// Vector (4 bytes)
+		buffer.put((byte) 0);						// Sequence Number (1 byte)
+		buffer.putShort((short) syncUniverse);		// Synchronization Address (2 bytes)
+		buffer.putShort((short) 0);					// Reserved (2 bytes)
+	}
+
+	public int getSyncUniverse() {
+		return syncUniverse;
+	}
+
+	public void setSequenceNumber(int sequenceId) {
+		buffer.put(SEQUENCE_OFFSET, (byte) sequenceId);
+	}
+
+	/**
+	 * Rewind the packet buffer so the whole packet can be written to a channel.
+	 * @return	the packet buffer
+	 */
+	public ByteBuffer getBuffer() {
+		buffer.clear();
+		return buffer;
+	}
+
+}
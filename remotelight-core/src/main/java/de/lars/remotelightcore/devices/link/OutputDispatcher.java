@@ -0,0 +1,211 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.devices.link;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.tinylog.Logger;
+
+import de.lars.remotelightcore.RemoteLightCore;
+import de.lars.remotelightcore.devices.Device;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+/**
+ * Sends frames to the child devices of a link device (e.g. Chain or MultiOutput).
+ * <p>
+ * In sequential mode every child is called one after another on the calling thread.
+ * In parallel mode the children are called on a shared, bounded thread pool and
+ * the caller waits until all children are done or the frame deadline has passed.
+ * A child that is still busy with an older frame skips the new frame instead of
+ * queuing it, so one slow device does not delay the other devices.
+ * Deadline misses and skipped frames are reported per child in the
+ * {@link PipelineMetrics}.
+ */
+public class OutputDispatcher {
+	
+	/** deadline used if no output delay is available */
+	public final static long DEFAULT_DEADLINE_MS = 50;
+	private final static int THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+	private final static int QUEUE_CAPACITY = 256;
+	
+	private static ThreadPoolExecutor executor;
+	
+	/**
+	 * Returns the frame for the child device at the specified index.
+	 * The returned buffer only needs to be valid until the next call.
+	 */
+	public interface FrameFunction {
+		PixelBuffer getFrame(int index, Device device);
+	}
+	
+	private final List<ChildTask> tasks = new ArrayList<>();
+	private boolean parallel;
+	private long deadlineMs;
+	
+	public boolean isParallel() {
+		return parallel;
+	}
+	
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * @return	the frame deadline in milliseconds or 0 to use the output delay
+	 */
+	public long getDeadline() {
+		return deadlineMs;
+	}
+	
+	/**
+	 * Set the maximum time to wait for the child devices in parallel mode.
+	 * @param deadlineMs	deadline in milliseconds or 0 to use the output delay
+	 */
+	public void setDeadline(long deadlineMs) {
+		this.deadlineMs = deadlineMs;
+	}
+	
+	/**
+	 * Send a frame to all child devices.
+	 * @param devices	the child devices
+	 * @param frames	provides the frame for every child device
+	 */
+	public void dispatch(List<Device> devices, FrameFunction frames) {
+		final int size = devices.size();
+		if(!parallel || size < 2) {
+			for(int i = 0; i < size; i++) {
+				Device d = devices.get(i);
+				d.onOutput(frames.getFrame(i, d), 1.0);
+			}
+			return;
+		}
+		
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getEffectiveDeadline());
+		final CountDownLatch latch = new CountDownLatch(size);
+		for(int i = 0; i < size; i++) {
+			Device d = devices.get(i);
+			ChildTask task = getTask(i, d);
+			if(task == null) {
+				// child is still busy with an older frame
+				PipelineMetrics.getInstance().getOutputMetrics(d.getId()).addSkippedFrame();
+				latch.countDown();
+				continue;
+			}
+			// copy the frame, a late child must not read a buffer that is reused by the caller
+			task.frame.copyFrom(frames.getFrame(i, d));
+			task.latch = latch;
+			task.busy = true;
+			try {
+				getExecutor().execute(task);
+			} catch(RejectedExecutionException e) {
+				task.run();
+			}
+		}
+		
+		try {
+			long remaining = deadline - System.nanoTime();
+			if(!latch.await(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+				for(int i = 0; i < size; i++) {
+					ChildTask task = tasks.get(i);
+					if(task.busy && task.latch == latch) {
+						PipelineMetrics.getInstance().getOutputMetrics(task.device.getId()).addDeadlineMiss();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Get the reusable task of the child at the specified index.
+	 * @return	the task or null if the child is still busy
+	 */
+	private ChildTask getTask(int index, Device device) {
+		while(tasks.size() <= index) {
+			tasks.add(new ChildTask());
+		}
+		ChildTask task = tasks.get(index);
+		if(task.busy) {
+			if(task.device == device)
+				return null;
+			// device list changed while the old device is still busy
+			task = new ChildTask();
+			tasks.set(index, task);
+		}
+		task.device = device;
+		return task;
+	}
+	
+	private long getEffectiveDeadline() {
+		if(deadlineMs > 0)
+			return deadlineMs;
+		if(RemoteLightCore.isInitialized() && RemoteLightCore.getInstance().getOutputManager() != null)
+			return Math.max(1, RemoteLightCore.getInstance().getOutputManager().getDelay());
+		return DEFAULT_DEADLINE_MS;
+	}
+	
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if(executor == null) {
+			final AtomicInteger counter = new AtomicInteger();
+			executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY), r -> {
+						Thread t = new Thread(r, "Output dispatcher-" + counter.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+	
+	private static class ChildTask implements Runnable {
+		
+		final PixelBuffer frame = new PixelBuffer(0);
+		volatile Device device;
+		volatile CountDownLatch latch;
+		volatile boolean busy;
+		
+		@Override
+		public void run() {
+			try {
+				device.onOutput(frame, 1.0);
+			} catch(Exception e) {
+				Logger.error(e, "Could not send frame to " + device.getId());
+			} finally {
+				busy = false;
+				latch.countDown();
+			}
+		}
+		
+	}
+
+}
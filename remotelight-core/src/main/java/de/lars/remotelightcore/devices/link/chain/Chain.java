@@ -24,7 +24,6 @@ package de.lars.remotelightcore.devices.link.chain;
 
 import de.lars.remotelightcore.utils.color.Color;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -33,14 +32,19 @@ import org.tinylog.Logger;
 import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.devices.ConnectionState;
 import de.lars.remotelightcore.devices.Device;
+import de.lars.remotelightcore.devices.link.OutputDispatcher;
 import de.lars.remotelightcore.notification.Notification;
 import de.lars.remotelightcore.notification.NotificationType;
+import de.lars.remotelightcore.out.PixelBuffer;
 
 public class Chain extends Device {
 	private static final long serialVersionUID = 5415005609912021244L;
 	
 	private transient List<Device> devices;
 	private ArrayList<String> deviceIds;
+	private boolean parallel;
+	private transient OutputDispatcher dispatcher;
+	private transient int[] offsets;
 
 	public Chain(String id) {
 		super(id, 0);
@@ -61,6 +65,27 @@ public class Chain extends Device {
 		updatePixelNum();
 	}
 	
+	/**
+	 * Send the frames to the devices in parallel instead of one after another.
+	 * @param parallel	true to enable the parallel dispatch mode
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+		getDispatcher().setParallel(parallel);
+	}
+	
+	public boolean isParallel() {
+		return parallel;
+	}
+	
+	public OutputDispatcher getDispatcher() {
+		if(dispatcher == null) {
+			dispatcher = new OutputDispatcher();
+			dispatcher.setParallel(parallel);
+		}
+		return dispatcher;
+	}
+	
 	public void removeDevice(Device d) {
 		devices.remove(d);
 		deviceIds.remove(d.getId());
@@ -141,15 +166,24 @@ public class Chain extends Device {
 
 	@Override
 	public void send(Color[] pixels) {
-		if(pixels.length >= super.getPixels()) {
+		send(PixelBuffer.fromColors(pixels));
+	}
+	
+	@Override
+	public void send(PixelBuffer pixels) {
+		if(pixels.length() >= super.getPixels()) {
+			if(offsets == null || offsets.length < devices.size()) {
+				offsets = new int[devices.size()];
+			}
 			int index = 0;
-			for(Device d : devices) {
-				Color[] subArray = Arrays.copyOfRange(pixels, index, index + d.getPixels());
-				d.onOutput(subArray);
-				index += d.getPixels();
+			for(int i = 0; i < devices.size(); i++) {
+				offsets[i] = index;
+				index += devices.get(i).getPixels();
 			}
+			// pass each device its range as a view, no pixels are copied
+			getDispatcher().dispatch(devices, (i, d) -> pixels.view(offsets[i], d.getPixels()));
 		} else {
-			Logger.error("Wrong output packet lenght! Expected " + super.getPixels() + ", got " + pixels.length);
+			Logger.error("Wrong output packet lenght! Expected " + super.getPixels() + ", got " + pixels.length());
 		}
 	}
 
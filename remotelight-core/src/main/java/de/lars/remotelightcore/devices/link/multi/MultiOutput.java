@@ -24,7 +24,6 @@ package de.lars.remotelightcore.devices.link.multi;
 
 import de.lars.remotelightcore.utils.color.Color;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -33,9 +32,10 @@ import org.tinylog.Logger;
 import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.devices.ConnectionState;
 import de.lars.remotelightcore.devices.Device;
+import de.lars.remotelightcore.devices.link.OutputDispatcher;
 import de.lars.remotelightcore.notification.Notification;
 import de.lars.remotelightcore.notification.NotificationType;
-import de.lars.remotelightcore.utils.color.PixelColorUtils;
+import de.lars.remotelightcore.out.PixelBuffer;
 
 public class MultiOutput extends Device {
 	private static final long serialVersionUID = 5961337662461972542L;
@@ -43,6 +43,10 @@ public class MultiOutput extends Device {
 	private transient List<Device> devices;
 	private List<String> deviceIds;
 	private DividingMethod processingMethod;
+	private boolean parallel;
+	private transient OutputDispatcher dispatcher;
+	/** reused buffer for devices with more pixels than the multi output */
+	private transient PixelBuffer paddedBuffer;
 
 	public MultiOutput(String id) {
 		super(id, 0);
@@ -73,6 +77,27 @@ public class MultiOutput extends Device {
 		return processingMethod;
 	}
 	
+	/**
+	 * Send the frames to the devices in parallel instead of one after another.
+	 * @param parallel	true to enable the parallel dispatch mode
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+		getDispatcher().setParallel(parallel);
+	}
+	
+	public boolean isParallel() {
+		return parallel;
+	}
+	
+	public OutputDispatcher getDispatcher() {
+		if(dispatcher == null) {
+			dispatcher = new OutputDispatcher();
+			dispatcher.setParallel(parallel);
+		}
+		return dispatcher;
+	}
+	
 	public void removeDevice(Device d) {
 		devices.remove(d);
 		deviceIds.remove(d.getId());
@@ -177,39 +202,54 @@ public class MultiOutput extends Device {
 
 	@Override
 	public void send(Color[] pixels) {
-		if(pixels.length >= super.getPixels()) {
-			if(pixels.length != super.getPixels())
-				pixels = Arrays.copyOfRange(pixels, 0, super.getPixels());
-			
-			for(Device d : devices) {
-				d.onOutput(processPixels(d, pixels));
-			}
+		send(PixelBuffer.fromColors(pixels));
+	}
+	
+	@Override
+	public void send(PixelBuffer pixels) {
+		if(pixels.length() >= super.getPixels()) {
+			getDispatcher().dispatch(devices, (i, d) -> processPixels(d, pixels));
 		} else {
-			Logger.error("Wrong output packet lenght! Expected " + super.getPixels() + ", got " + pixels.length);
+			Logger.error("Wrong output packet lenght! Expected " + super.getPixels() + ", got " + pixels.length());
 		}
 	}
 	
 	
-	private Color[] processPixels(Device d, Color[] pixels) {
-		if(processingMethod == DividingMethod.CUT_OVERHANGING && d.getPixels() < pixels.length) {
-			return Arrays.copyOfRange(pixels, 0, d.getPixels());
-		} else if(processingMethod == DividingMethod.CUT_OVERHANGING_CENTER && d.getPixels() < pixels.length) {
-			int diff = pixels.length - d.getPixels();
-			int from = diff / 2;
-			return Arrays.copyOfRange(pixels, from, pixels.length - (diff - from));
+	/**
+	 * Returns the frame for the specified device. Overhanging pixels are
+	 * cut off using a view of the input buffer; black overhanging pixels
+	 * are added in a reused buffer that is valid until the next call.
+	 */
+	private PixelBuffer processPixels(Device d, PixelBuffer pixels) {
+		final int length = super.getPixels();
+		final int devicePixels = d.getPixels();
+		if(processingMethod == DividingMethod.CUT_OVERHANGING && devicePixels < length) {
+			return pixels.view(0, devicePixels);
+		} else if(processingMethod == DividingMethod.CUT_OVERHANGING_CENTER && devicePixels < length) {
+			return pixels.view((length - devicePixels) / 2, devicePixels);
 			
-		} else if(processingMethod == DividingMethod.BLACK_OVERHANGING && d.getPixels() > pixels.length) {
-			Color[] newArr = PixelColorUtils.colorAllPixels(Color.BLACK, d.getPixels());
-			System.arraycopy(pixels, 0, newArr, 0, pixels.length);
-			return newArr;
-		} else if(processingMethod == DividingMethod.BLACK_OVERHANGING_CENTER && d.getPixels() > pixels.length) {
-			int diff = d.getPixels() - pixels.length;
-			Color[] newArr = PixelColorUtils.colorAllPixels(Color.BLACK, d.getPixels());
-			System.arraycopy(pixels, 0, newArr, diff / 2, pixels.length);
-			return newArr;
+		} else if(processingMethod == DividingMethod.BLACK_OVERHANGING && devicePixels > length) {
+			PixelBuffer out = getPaddedBuffer(devicePixels);
+			pixels.copyTo(0, out, 0, length);
+			return out;
+		} else if(processingMethod == DividingMethod.BLACK_OVERHANGING_CENTER && devicePixels > length) {
+			PixelBuffer out = getPaddedBuffer(devicePixels);
+			pixels.copyTo(0, out, (devicePixels - length) / 2, length);
+			return out;
 			
+		} else if(pixels.length() != length) {
+			return pixels.view(0, length);
 		}
 		return pixels;
 	}
+	
+	private PixelBuffer getPaddedBuffer(int length) {
+		if(paddedBuffer == null) {
+			paddedBuffer = new PixelBuffer(length);
+		}
+		paddedBuffer.resize(length);
+		paddedBuffer.fill(0);
+		return paddedBuffer;
+	}
 
 }
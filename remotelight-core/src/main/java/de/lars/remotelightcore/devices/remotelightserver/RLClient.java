@@ -23,15 +23,21 @@
 package de.lars.remotelightcore.devices.remotelightserver;
 
 import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 
 import org.tinylog.Logger;
 
 import de.lars.remotelightcore.devices.ConnectionState;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
+import de.lars.remotelightcore.out.PixelBuffer;
 import de.lars.remotelightcore.utils.color.Color;
 
 public class RLClient implements Serializable {
@@ -41,11 +47,18 @@ public class RLClient implements Serializable {
 	 */
 	private static final long serialVersionUID = 1077693134503577060L;
 	public final static int PORT = 20002;
+	/** time to wait for the binary greeting of the server in milliseconds */
+	public final static int NEGOTIATION_TIMEOUT = 500;
 	private String hostname;
+	private int port = PORT;
 	private boolean connected;
 	private InetSocketAddress address;
 	private Socket socket;
 	private PrintWriter out;
+	private BufferedOutputStream stream;
+	private boolean binary;
+	private int sequence;
+	private byte[] frameBuffer;
 	private ConnectionState state = ConnectionState.DISCONNECTED;
 	
 	public RLClient(String hostname) {
@@ -57,12 +70,16 @@ public class RLClient implements Serializable {
 		if(!connected) {
 			try {
 				connected = true;
-				address = new InetSocketAddress(hostname, PORT);
+				address = new InetSocketAddress(hostname, port);
 				socket = new Socket();
 				Logger.info("[Client] Connecting to " + address.toString());
 				
 				socket.connect(address, 5000);
-				out = new PrintWriter(new BufferedOutputStream(socket.getOutputStream()));
+				stream = new BufferedOutputStream(socket.getOutputStream());
+				out = new PrintWriter(stream);
+				binary = negotiate();
+				sequence = 0;
+				Logger.info("[Client] Connected to " + hostname + " using " + (binary ? "binary" : "JSON") + " frames");
 				
 				state = ConnectionState.CONNECTED;
 				return state;
@@ -80,6 +97,28 @@ public class RLClient implements Serializable {
 		return state;
 	}
 	
+	/**
+	 * Wait for the greeting of a server that supports binary frames.
+	 * Older servers do not send anything, in this case JSON is used.
+	 * @return true if the server supports binary frames
+	 */
+	private boolean negotiate() throws IOException {
+		socket.setSoTimeout(NEGOTIATION_TIMEOUT);
+		try {
+			InputStream in = socket.getInputStream();
+			StringBuilder line = new StringBuilder();
+			int b;
+			while((b = in.read()) >= 0 && b != '\n' && line.length() < 64) {
+				line.append((char) b);
+			}
+			return RLProtocol.GREETING.equals(line.toString().trim());
+		} catch (SocketTimeoutException e) {
+			return false;
+		} finally {
+			socket.setSoTimeout(0);
+		}
+	}
+	
 	public ConnectionState disconnect() {
 		connected = false;
 		state = ConnectionState.DISCONNECTED;
@@ -109,20 +148,76 @@ public class RLClient implements Serializable {
 		return hostname;
 	}
 	
-	public void send(Color[] pixels) {
+	public void setPort(int port) {
+		this.port = port;
+	}
+	
+	public int getPort() {
+		return port;
+	}
+	
+	/**
+	 * @return true if the server supports binary frames
+	 */
+	public boolean isBinary() {
+		return binary;
+	}
+	
+	/**
+	 * Send the pixels to the server.
+	 * @param pixels	the pixels to send
+	 * @return			the number of characters that were sent
+	 */
+	public int send(Color[] pixels) {
+		if(connected && binary) {
+			return send(PixelBuffer.fromColors(pixels));
+		}
 		if(connected) {
 			try {
+				long encodeStart = System.nanoTime();
 				String json = serializeToJSON(pixels);
+				PipelineMetrics.getInstance().record(Stage.ENCODE, encodeStart);
 				out.println(json);
 				if(out.checkError()) {
 					// Server is disconnected
 					disconnect();
+					return 0;
 				}
+				return json.length() + 1;
 			} catch (Exception e) {
 				Logger.error(e, "Could not send color array to server!");
 				this.disconnect();
 			}
 		}
+		return 0;
+	}
+	
+	/**
+	 * Send the pixels to the server. Uses binary frames if the server
+	 * supports them, JSON otherwise.
+	 * @param pixels	the pixels to send
+	 * @return			the number of bytes that were sent
+	 */
+	public int send(PixelBuffer pixels) {
+		if(connected && !binary) {
+			return send(pixels.toColors());
+		}
+		if(connected) {
+			try {
+				long encodeStart = System.nanoTime();
+				frameBuffer = RLProtocol.encodeFrame(pixels, sequence++, frameBuffer);
+				PipelineMetrics.getInstance().record(Stage.ENCODE, encodeStart);
+				int length = RLProtocol.getFrameLength(pixels.length());
+				stream.write(frameBuffer, 0, length);
+				stream.flush();
+				return length;
+			} catch (IOException e) {
+				// Server is disconnected
+				Logger.info("(" + hostname + ") Connection lost: " + e.getMessage());
+				disconnect();
+			}
+		}
+		return 0;
 	}
 	
 	public String serializeToJSON(Color[] pixels) {
@@ -0,0 +1,172 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.devices.remotelightserver;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+/**
+ * Reads frames on the server side of a RemoteLightServer connection.
+ * Accepts binary frames ({@link RLProtocol}) and JSON lines.
+ */
+public class RLFrameReader {
+	
+	private final InputStream input;
+	private byte[] buffer = new byte[1024];
+	private int[] pixels = new int[0];
+	private boolean binary;
+	private int sequence;
+	private long missedFrames;
+	private boolean first = true;
+	
+	/**
+	 * @param input	the input stream, should be buffered
+	 */
+	public RLFrameReader(InputStream input) {
+		this.input = input;
+	}
+	
+	/**
+	 * Read the next frame. The returned array is reused for the next frame.
+	 * @return packed RGB values of the frame
+	 * @throws EOFException if the stream ended
+	 * @throws IOException if the data is invalid or could not be read
+	 */
+	public int[] read() throws IOException {
+		int b = input.read();
+		// skip empty lines
+		while(b == '\n' || b == '\r')
+			b = input.read();
+		if(b < 0)
+			throw new EOFException();
+		
+		if(b == (RLProtocol.MAGIC_1 & 0xFF)) {
+			readBinary();
+		} else {
+			readJson(b);
+		}
+		return pixels;
+	}
+	
+	private void readBinary() throws IOException {
+		readFully(buffer, 1, 3);
+		if(buffer[1] != RLProtocol.MAGIC_2)
+			throw new IOException("Invalid frame header");
+		int headerLength = buffer[2] & 0xFF;
+		if(headerLength < RLProtocol.HEADER_LENGTH)
+			throw new IOException("Invalid header length: " + headerLength);
+		readFully(buffer, 4, headerLength - 4);
+		int seq = RLProtocol.getInt(buffer, 4);
+		int payload = RLProtocol.getInt(buffer, 8);
+		if(payload < 0 || payload % 3 != 0 || payload > RLProtocol.MAX_PIXELS * 3)
+			throw new IOException("Invalid payload length: " + payload);
+		
+		if(!first && seq != sequence + 1)
+			missedFrames += seq - sequence - 1;
+		first = false;
+		sequence = seq;
+		binary = true;
+		
+		if(buffer.length < payload)
+			buffer = new byte[payload];
+		readFully(buffer, 0, payload);
+		int count = payload / 3;
+		if(pixels.length != count)
+			pixels = new int[count];
+		for(int i = 0, index = 0; i < count; i++, index += 3) {
+			pixels[i] = ((buffer[index] & 0xFF) << 16) | ((buffer[index + 1] & 0xFF) << 8) | (buffer[index + 2] & 0xFF);
+		}
+	}
+	
+	private void readJson(int b) throws IOException {
+		int length = 0;
+		while(b >= 0 && b != '\n') {
+			if(length == buffer.length) {
+				if(length >= RLProtocol.MAX_JSON_LINE_LENGTH)
+					throw new IOException("JSON frame exceeds " + RLProtocol.MAX_JSON_LINE_LENGTH + " bytes");
+				byte[] tmp = new byte[Math.min(buffer.length * 2, RLProtocol.MAX_JSON_LINE_LENGTH)];
+				System.arraycopy(buffer, 0, tmp, 0, length);
+				buffer = tmp;
+			}
+			buffer[length++] = (byte) b;
+			b = input.read();
+		}
+		String line = new String(buffer, 0, length, StandardCharsets.UTF_8);
+		binary = false;
+		
+		JsonElement element;
+		try {
+			element = JsonParser.parseString(line);
+		} catch (RuntimeException e) {
+			throw new IOException("Invalid JSON frame", e);
+		}
+		if(!element.isJsonArray())
+			throw new IOException("Invalid JSON frame");
+		JsonArray array = element.getAsJsonArray();
+		if(array.size() > RLProtocol.MAX_PIXELS)
+			throw new IOException("Too many pixels: " + array.size());
+		if(pixels.length != array.size())
+			pixels = new int[array.size()];
+		for(int i = 0; i < pixels.length; i++) {
+			pixels[i] = array.get(i).getAsJsonObject().get("value").getAsInt() & 0xFFFFFF;
+		}
+	}
+	
+	private void readFully(byte[] b, int off, int len) throws IOException {
+		while(len > 0) {
+			int n = input.read(b, off, len);
+			if(n < 0)
+				throw new EOFException();
+			off += n;
+			len -= n;
+		}
+	}
+	
+	/**
+	 * @return true if the last frame was a binary frame
+	 */
+	public boolean isBinary() {
+		return binary;
+	}
+	
+	/**
+	 * @return sequence of the last binary frame
+	 */
+	public int getSequence() {
+		return sequence;
+	}
+	
+	/**
+	 * @return number of frames that were skipped according to the frame sequence
+	 */
+	public long getMissedFrames() {
+		return missedFrames;
+	}
+
+}
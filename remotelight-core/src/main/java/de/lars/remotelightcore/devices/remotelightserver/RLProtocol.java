@@ -0,0 +1,121 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.devices.remotelightserver;
+
+import java.nio.charset.StandardCharsets;
+
+import de.lars.remotelightcore.out.PixelBuffer;
+
+/**
+ * Binary framing for RemoteLightServer connections.
+ * <p>
+ * Negotiation: a server that supports binary frames sends the
+ * {@link #GREETING} line right after accepting a connection. A client that
+ * receives the greeting sends binary frames, otherwise it falls back to one
+ * JSON array per line. Because a binary frame never starts with {@code '['},
+ * a server can accept both formats on the same socket.
+ * <p>
+ * Frame layout:
+ * <pre>
+ * offset  size  field
+ * 0       2     magic 'R' 'B'
+ * 2       1     header length (12 for version 1)
+ * 3       1     version
+ * 4       4     frame sequence (big endian)
+ * 8       4     payload length in bytes (big endian)
+ * 12      n     payload: 3 bytes (RGB) for every pixel
+ * </pre>
+ * Frames are limited to {@link #MAX_PIXELS} pixels.
+ * Receivers must skip header bytes they do not know (header length &gt; 12).
+ */
+public class RLProtocol {
+	
+	public final static String GREETING = "RLSERVER BINARY/1";
+	public final static byte MAGIC_1 = 'R';
+	public final static byte MAGIC_2 = 'B';
+	public final static int VERSION = 1;
+	public final static int HEADER_LENGTH = 12;
+	/** maximum number of pixels of a frame */
+	public final static int MAX_PIXELS = 16384;
+	/** maximum length of a JSON frame line ({@code {"value":-16777216,"falpha":0.0},} per pixel) */
+	public final static int MAX_JSON_LINE_LENGTH = MAX_PIXELS * 40;
+	
+	/**
+	 * @return the greeting line including the line break
+	 */
+	public static byte[] getGreeting() {
+		return (GREETING + "\n").getBytes(StandardCharsets.US_ASCII);
+	}
+	
+	/**
+	 * @param pixels	number of pixels
+	 * @return length of a binary frame in bytes
+	 */
+	public static int getFrameLength(int pixels) {
+		return HEADER_LENGTH + pixels * 3;
+	}
+	
+	/**
+	 * Encode the pixels into a binary frame. A new buffer is allocated
+	 * if the specified one is null or too small.
+	 * @param pixels	the pixels
+	 * @param sequence	frame sequence
+	 * @param buffer	buffer to reuse or null
+	 * @return the buffer that contains the frame
+	 */
+	public static byte[] encodeFrame(PixelBuffer pixels, int sequence, byte[] buffer) {
+		final int payload = pixels.length() * 3;
+		if(buffer == null || buffer.length < HEADER_LENGTH + payload)
+			buffer = new byte[HEADER_LENGTH + payload];
+		buffer[0] = MAGIC_1;
+		buffer[1] = MAGIC_2;
+		buffer[2] = HEADER_LENGTH;
+		buffer[3] = VERSION;
+		putInt(buffer, 4, sequence);
+		putInt(buffer, 8, payload);
+		
+		int[] array = pixels.array();
+		final int offset = pixels.offset();
+		int index = HEADER_LENGTH;
+		for(int i = 0; i < pixels.length(); i++) {
+			int rgb = array[offset + i];
+			buffer[index++] = (byte) (rgb >> 16);
+			buffer[index++] = (byte) (rgb >> 8);
+			buffer[index++] = (byte) rgb;
+		}
+		return buffer;
+	}
+	
+	private static void putInt(byte[] buffer, int index, int value) {
+		buffer[index] = (byte) (value >> 24);
+		buffer[index + 1] = (byte) (value >> 16);
+		buffer[index + 2] = (byte) (value >> 8);
+		buffer[index + 3] = (byte) value;
+	}
+	
+	static int getInt(byte[] buffer, int index) {
+		return ((buffer[index] & 0xFF) << 24) | ((buffer[index + 1] & 0xFF) << 16)
+				| ((buffer[index + 2] & 0xFF) << 8) | (buffer[index + 3] & 0xFF);
+	}
+
+}
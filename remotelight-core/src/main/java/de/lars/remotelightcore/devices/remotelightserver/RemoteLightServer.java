@@ -26,6 +26,8 @@ import de.lars.remotelightcore.utils.color.Color;
 
 import de.lars.remotelightcore.devices.ConnectionState;
 import de.lars.remotelightcore.devices.Device;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.out.PixelBuffer;
 
 public class RemoteLightServer extends Device {
 	
@@ -57,7 +59,14 @@ public class RemoteLightServer extends Device {
 
 	@Override
 	public void send(Color[] pixels) {
-		client.send(pixels);
+		int bytes = client.send(pixels);
+		PipelineMetrics.getInstance().addBytesSent(getId(), bytes);
+	}
+	
+	@Override
+	public void send(PixelBuffer pixels) {
+		int bytes = client.send(pixels);
+		PipelineMetrics.getInstance().addBytesSent(getId(), bytes);
 	}
 
 	@Override
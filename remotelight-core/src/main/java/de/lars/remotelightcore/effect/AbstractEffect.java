@@ -2,6 +2,7 @@ package de.lars.remotelightcore.effect;
 
 import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.PixelBuffer;
 import de.lars.remotelightcore.utils.color.Color;
 
 public abstract class AbstractEffect {
@@ -9,6 +10,8 @@ public abstract class AbstractEffect {
 	private String name;
 	private String displayname;
 	private int pixel;
+	/** reused frame of {@link #onLoop()} */
+	private PixelBuffer loopFrame;
 	
 	public AbstractEffect(String name) {
 		this.name = name;
@@ -51,13 +54,17 @@ public abstract class AbstractEffect {
 	public void onDisable() {}
 	
 	/**
-	 * @deprecated will be replaced by {@link #onEffect()}
+	 * Called by the effect loops for every frame. Renders the frame into
+	 * a reused pixel buffer with {@link #onEffect(PixelBuffer)} and adds
+	 * it to the output.
+	 * @deprecated override {@link #onEffect(PixelBuffer)} instead
 	 */
 	@Deprecated
 	public void onLoop() {
-		Color[] strip = onEffect();
-		if(strip != null)
-			OutputManager.addToOutput(strip);
+		if(loopFrame == null)
+			loopFrame = new PixelBuffer(0);
+		if(onEffect(loopFrame))
+			OutputManager.addToOutput(loopFrame);
 	}
 	
 	public void onEnable(int pixel) {
@@ -68,5 +75,38 @@ public abstract class AbstractEffect {
 	public Color[] onEffect() {
 		return null;
 	}
+	
+	/**
+	 * Render the next frame into the specified pixel buffer.
+	 * The default implementation calls {@link #onEffect()} and copies
+	 * the color array into the buffer, so existing effects keep working.
+	 * 
+	 * @param buffer	the buffer to render into, it will be resized
+	 * 					to the number of pixels if required
+	 * @return			true if a frame was rendered, false otherwise
+	 */
+	public boolean onEffect(PixelBuffer buffer) {
+		Color[] strip = onEffect();
+		if(strip == null)
+			return false;
+		buffer.copyFrom(strip);
+		return true;
+	}
+	
+	/**
+	 * Render one frame with a per-pixel kernel into the specified buffer,
+	 * usually the buffer passed to {@link #onEffect(PixelBuffer)}.
+	 * Frames with many pixels are split into chunks that are rendered in
+	 * parallel (see {@link KernelExecutor}), so the kernel must only read
+	 * the state of the effect and write the pixels of its range.
+	 * Settings should be read once before calling this method.
+	 * 
+	 * @param kernel	computes the packed colors of a range of pixels
+	 * @param buffer	the buffer to render into, it is resized to the number of pixels
+	 */
+	protected void renderKernel(PixelKernel kernel, PixelBuffer buffer) {
+		buffer.resize(getPixel());
+		KernelExecutor.render(kernel, buffer);
+	}
 
 }
@@ -27,6 +27,7 @@ import java.util.List;
 
 import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.settings.Setting;
+import de.lars.remotelightcore.settings.SettingHandle;
 
 public abstract class Effect extends AbstractEffect {
 	
@@ -62,6 +63,20 @@ public abstract class Effect extends AbstractEffect {
 		return RemoteLightCore.getInstance().getSettingsManager().getSetting(type, id);
 	}
 	
+	/**
+	 * Get a handle to a setting from setting manager. Store the handle
+	 * (e.g. in {@code onEnable}) and read it in the effect loop instead
+	 * of looking up the setting every frame.
+	 * 
+	 * @param <T>	the setting type
+	 * @param type	the setting subclass
+	 * @param id	the setting id
+	 * @return		the handle for the setting
+	 */
+	public <T extends Setting> SettingHandle<T> getSettingHandle(Class<T> type, String id) {
+		return RemoteLightCore.getInstance().getSettingsManager().getHandle(type, id);
+	}
+	
 	/**
 	 * Get a setting from setting manager
 	 * 
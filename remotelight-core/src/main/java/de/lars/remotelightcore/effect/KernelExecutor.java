@@ -0,0 +1,126 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.effect;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+import de.lars.remotelightcore.out.PixelBuffer;
+
+/**
+ * Runs a {@link PixelKernel} over all pixels of a frame. Large frames are
+ * split into chunks that are rendered in parallel on a shared ForkJoin
+ * pool, small frames are rendered on the calling thread.
+ */
+public class KernelExecutor {
+	
+	/** min number of pixels of a chunk, smaller frames are not split */
+	public final static int MIN_CHUNK = 256;
+	/** number of chunks per thread, allows work stealing if the pixels differ in cost */
+	private final static int CHUNKS_PER_THREAD = 4;
+	
+	private static volatile int parallelism = Runtime.getRuntime().availableProcessors();
+	private static ForkJoinPool pool;
+	
+	/**
+	 * Set the number of threads that render a frame.
+	 * @param threads number of threads, 1 to render on the calling thread only
+	 */
+	public static synchronized void setParallelism(int threads) {
+		threads = Math.max(1, threads);
+		if(threads == parallelism)
+			return;
+		parallelism = threads;
+		if(pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+	
+	public static int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * Render all pixels of the buffer.
+	 * @param kernel	computes the pixel colors
+	 * @param buffer	the destination buffer
+	 */
+	public static void render(PixelKernel kernel, PixelBuffer buffer) {
+		final int length = buffer.length();
+		final int threads = parallelism;
+		if(threads <= 1 || length < MIN_CHUNK * 2) {
+			kernel.render(0, length, buffer.array(), buffer.offset());
+			return;
+		}
+		final int chunk = Math.max(MIN_CHUNK, length / (threads * CHUNKS_PER_THREAD));
+		getPool().invoke(new KernelTask(kernel, buffer.array(), buffer.offset(), 0, length, chunk));
+	}
+	
+	private static synchronized ForkJoinPool getPool() {
+		if(pool == null) {
+			ForkJoinWorkerThreadFactory factory = p -> {
+				ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+				t.setName("Render kernel-" + t.getPoolIndex());
+				t.setDaemon(true);
+				return t;
+			};
+			pool = new ForkJoinPool(parallelism, factory, null, false);
+		}
+		return pool;
+	}
+	
+	private static class KernelTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final PixelKernel kernel;
+		private final int[] pixels;
+		private final int offset;
+		private final int from;
+		private final int to;
+		private final int chunk;
+		
+		KernelTask(PixelKernel kernel, int[] pixels, int offset, int from, int to, int chunk) {
+			this.kernel = kernel;
+			this.pixels = pixels;
+			this.offset = offset;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from <= chunk) {
+				kernel.render(from, to, pixels, offset);
+				return;
+			}
+			final int mid = (from + to) >>> 1;
+			invokeAll(new KernelTask(kernel, pixels, offset, from, mid, chunk),
+					new KernelTask(kernel, pixels, offset, mid, to, chunk));
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.effect;
+
+/**
+ * Computes the colors of a range of pixels for {@link KernelExecutor}.
+ * <p>
+ * A kernel may be called concurrently for different ranges of the same
+ * frame. It must only write the pixels of its range and must not change
+ * any state that is shared between the ranges.
+ */
+@FunctionalInterface
+public interface PixelKernel {
+	
+	/**
+	 * Render the pixels {@code from} (inclusive) to {@code to} (exclusive).
+	 * @param from		index of the first pixel
+	 * @param to		index after the last pixel
+	 * @param pixels	packed 0xRRGGBB destination array, pixel {@code i} is
+	 * 					stored at {@code pixels[offset + i]}
+	 * @param offset	offset of the first pixel in the array
+	 */
+	void render(int from, int to, int[] pixels, int offset);
+
+}
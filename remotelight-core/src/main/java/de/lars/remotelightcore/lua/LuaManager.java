@@ -55,11 +55,14 @@ import de.lars.remotelightcore.event.events.types.EffectToggleEvent.LuaScriptTog
 import de.lars.remotelightcore.lua.utils.LedStrip;
 import de.lars.remotelightcore.lua.utils.LuaColor;
 import de.lars.remotelightcore.lua.utils.LuaSettings;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
 import de.lars.remotelightcore.out.OutputManager;
 import de.lars.remotelightcore.settings.SettingsManager;
 import de.lars.remotelightcore.settings.SettingsManager.SettingCategory;
 import de.lars.remotelightcore.settings.types.SettingBoolean;
 import de.lars.remotelightcore.settings.types.SettingInt;
+import de.lars.remotelightcore.utils.FrameScheduler;
 import de.lars.remotelightcore.utils.color.Color;
 import de.lars.remotelightcore.utils.color.PixelColorUtils;
 import de.lars.remotelightcore.utils.maths.TimeUtil;
@@ -125,6 +128,9 @@ public class LuaManager extends EffectManager {
 	 * @param luaFilePath Path to the lua file
 	 */
 	public void runLuaScript(String luaFilePath) {
+		// begin the transition on the calling thread, so it uses the transition
+		// that was selected for this script before it is reset
+		RemoteLightCore.getInstance().getOutputManager().getTransitionEngine().begin();
 		new Thread(new Runnable() {
 			@Override
 			public void run() {
@@ -132,10 +138,14 @@ public class LuaManager extends EffectManager {
 				executeScript(luaFilePath);
 				
 				// lua animation loop
+				FrameScheduler scheduler = new FrameScheduler(delay);
 				while(activeScript != null && activeScript.isActive()) {
+					long renderStart = System.nanoTime();
 					activeScript.onLoop();
+					PipelineMetrics.getInstance().record(Stage.RENDER, renderStart);
+					scheduler.setDelay(delay);
 					try {
-						Thread.sleep(delay);
+						scheduler.waitForNextFrame();
 					} catch (InterruptedException e) {
 						Logger.error(e);
 					}
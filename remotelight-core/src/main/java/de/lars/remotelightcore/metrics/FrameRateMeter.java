@@ -0,0 +1,78 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.metrics;
+
+/**
+ * Measures the frame rate of a loop using an exponentially
+ * smoothed average of the frame intervals.
+ */
+public class FrameRateMeter {
+	
+	/** smoothing factor of the measured frame rate */
+	private final static double SMOOTHING = 0.1;
+	/** a meter that did not tick for this time reports 0 fps */
+	private final static long IDLE_NANOS = 2_000_000_000L;
+	
+	private volatile double frameRate;
+	private volatile long lastTick;
+	
+	/**
+	 * Mark the start of a new frame.
+	 */
+	public void tick() {
+		tick(System.nanoTime());
+	}
+	
+	/**
+	 * Mark the start of a new frame.
+	 * @param now	current time from {@link System#nanoTime()}
+	 */
+	public void tick(long now) {
+		long last = lastTick;
+		lastTick = now;
+		if(last == 0)
+			return;
+		long interval = now - last;
+		if(interval <= 0)
+			return;
+		double fps = 1_000_000_000D / interval;
+		double current = frameRate;
+		frameRate = current == 0 || interval > IDLE_NANOS ? fps : current + SMOOTHING * (fps - current);
+	}
+	
+	/**
+	 * @return	the measured frame rate or 0 if the meter is idle
+	 */
+	public double getFrameRate() {
+		long last = lastTick;
+		if(last == 0 || System.nanoTime() - last > IDLE_NANOS)
+			return 0;
+		return frameRate;
+	}
+	
+	public void reset() {
+		frameRate = 0;
+		lastTick = 0;
+	}
+
+}
@@ -0,0 +1,161 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram for nanosecond latencies using log-linear buckets
+ * (similar to HdrHistogram). Every power of two is divided into 16
+ * sub-buckets, which keeps the relative error below ~6% over the whole
+ * {@code long} range with a fixed amount of memory.
+ * Recording a value does not allocate.
+ */
+public class LatencyHistogram {
+	
+	private final static int SUB_BITS = 5;
+	private final static int SUB_COUNT = 1 << SUB_BITS;		// values below are stored exactly
+	private final static int HALF_COUNT = SUB_COUNT / 2;	// sub-buckets per power of two
+	private final static int BUCKETS = SUB_COUNT + (63 - SUB_BITS + 1) * HALF_COUNT;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong totalSum = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Record a latency value.
+	 * @param nanos		the value in nanoseconds, negative values are ignored
+	 */
+	public void record(long nanos) {
+		if(nanos < 0)
+			return;
+		counts.incrementAndGet(indexOf(nanos));
+		totalCount.incrementAndGet();
+		totalSum.addAndGet(nanos);
+		long current;
+		while(nanos < (current = min.get()) && !min.compareAndSet(current, nanos));
+		while(nanos > (current = max.get()) && !max.compareAndSet(current, nanos));
+	}
+	
+	/**
+	 * Record the time elapsed since the specified start time.
+	 * @param startNanos	start time from {@link System#nanoTime()}
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+	
+	static int indexOf(long value) {
+		if(value < SUB_COUNT)
+			return (int) value;
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exp - SUB_BITS + 1;
+		int mantissa = (int) (value >>> shift);	// in range [HALF_COUNT, SUB_COUNT)
+		return SUB_COUNT + (exp - SUB_BITS) * HALF_COUNT + (mantissa - HALF_COUNT);
+	}
+	
+	/**
+	 * @return the median value of all values in the bucket
+	 */
+	static long valueOf(int index) {
+		if(index < SUB_COUNT)
+			return index;
+		int k = index - SUB_COUNT;
+		int exp = k / HALF_COUNT + SUB_BITS;
+		int shift = exp - SUB_BITS + 1;
+		long mantissa = k % HALF_COUNT + HALF_COUNT;
+		long lower = mantissa << shift;
+		return lower + ((1L << shift) >> 1);
+	}
+	
+	public long getCount() {
+		return totalCount.get();
+	}
+	
+	public long getMin() {
+		long value = min.get();
+		return value == Long.MAX_VALUE ? 0 : value;
+	}
+	
+	public long getMax() {
+		return max.get();
+	}
+	
+	public double getMean() {
+		long count = totalCount.get();
+		return count == 0 ? 0 : (double) totalSum.get() / count;
+	}
+	
+	/**
+	 * Get the value at the specified percentile.
+	 * @param percentile	percentile between 0 and 100
+	 * @return				the (approximated) value in nanoseconds
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long count = totalCount.get();
+		if(count == 0)
+			return 0;
+		long target = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100.0 * count));
+		if(target >= count)
+			return getMax();
+		long sum = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			sum += counts.get(i);
+			if(sum >= target) {
+				return Math.min(Math.max(valueOf(i), getMin()), getMax());
+			}
+		}
+		return getMax();
+	}
+	
+	public void reset() {
+		for(int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		totalCount.set(0);
+		totalSum.set(0);
+		min.set(Long.MAX_VALUE);
+		max.set(0);
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%s p50=%s p90=%s p99=%s max=%s",
+				getCount(), format((long) getMean()), format(getValueAtPercentile(50)),
+				format(getValueAtPercentile(90)), format(getValueAtPercentile(99)), format(getMax()));
+	}
+	
+	/**
+	 * Format nanoseconds as microseconds or milliseconds.
+	 */
+	public static String format(long nanos) {
+		if(nanos < TimeUnit.MILLISECONDS.toNanos(1))
+			return String.format("%.1fus", nanos / 1000.0);
+		return String.format("%.2fms", nanos / 1_000_000.0);
+	}
+
+}
@@ -0,0 +1,190 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of a single output/device.
+ */
+public class OutputMetrics {
+	
+	private final String outputId;
+	private final AtomicLong frames = new AtomicLong();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong deadlineMisses = new AtomicLong();
+	private final AtomicLong skippedFrames = new AtomicLong();
+	private final AtomicLong coalescedFrames = new AtomicLong();
+	private final AtomicLong limitedFrames = new AtomicLong();
+	private volatile double estimatedCurrent;
+	private volatile double powerScale = 1.0;
+	private final LatencyHistogram sendLatency = new LatencyHistogram();
+	private final LatencyHistogram writeTime = new LatencyHistogram();
+	private final FrameRateMeter frameRate = new FrameRateMeter();
+	
+	public OutputMetrics(String outputId) {
+		this.outputId = outputId;
+	}
+	
+	public String getOutputId() {
+		return outputId;
+	}
+	
+	/**
+	 * Record a frame that was sent to the output.
+	 * @param sendNanos		time it took to send the frame
+	 */
+	public void recordFrame(long sendNanos) {
+		frames.incrementAndGet();
+		sendLatency.record(sendNanos);
+		frameRate.tick();
+	}
+	
+	public void addBytesSent(long bytes) {
+		bytesSent.addAndGet(bytes);
+	}
+	
+	/**
+	 * Record that the output did not finish sending a frame before the deadline.
+	 */
+	public void addDeadlineMiss() {
+		deadlineMisses.incrementAndGet();
+	}
+	
+	/**
+	 * Record that a frame was not sent because the output was still busy.
+	 */
+	public void addSkippedFrame() {
+		skippedFrames.incrementAndGet();
+	}
+	
+	/**
+	 * Record that a pending frame was replaced by a newer one before
+	 * an asynchronous writer could send it.
+	 */
+	public void addCoalescedFrame() {
+		coalescedFrames.incrementAndGet();
+	}
+	
+	/**
+	 * Record the time an asynchronous writer needed to write a frame
+	 * (e.g. the time on the wire of a serial port).
+	 * @param nanos		write time in nanoseconds
+	 */
+	public void recordWriteTime(long nanos) {
+		writeTime.record(nanos);
+	}
+	
+	/**
+	 * Record the estimated current and the scale the power limit applied.
+	 * @param milliamps		estimated current before limiting
+	 * @param scale			applied scale (1 = not limited)
+	 */
+	public void recordPower(double milliamps, double scale) {
+		estimatedCurrent = milliamps;
+		powerScale = scale;
+		if(scale < 1.0)
+			limitedFrames.incrementAndGet();
+	}
+	
+	public double getEstimatedCurrent() {
+		return estimatedCurrent;
+	}
+	
+	public double getPowerScale() {
+		return powerScale;
+	}
+	
+	public long getLimitedFrames() {
+		return limitedFrames.get();
+	}
+	
+	public long getDeadlineMisses() {
+		return deadlineMisses.get();
+	}
+	
+	public long getSkippedFrames() {
+		return skippedFrames.get();
+	}
+	
+	public long getCoalescedFrames() {
+		return coalescedFrames.get();
+	}
+	
+	public LatencyHistogram getWriteTime() {
+		return writeTime;
+	}
+	
+	public long getFrames() {
+		return frames.get();
+	}
+	
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+	
+	public LatencyHistogram getSendLatency() {
+		return sendLatency;
+	}
+	
+	public double getFrameRate() {
+		return frameRate.getFrameRate();
+	}
+	
+	public void reset() {
+		frames.set(0);
+		bytesSent.set(0);
+		deadlineMisses.set(0);
+		skippedFrames.set(0);
+		coalescedFrames.set(0);
+		limitedFrames.set(0);
+		sendLatency.reset();
+		writeTime.reset();
+		frameRate.reset();
+	}
+	
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("frames", getFrames());
+		map.put("fps", PipelineMetrics.round(getFrameRate()));
+		map.put("bytes_sent", getBytesSent());
+		map.put("deadline_misses", getDeadlineMisses());
+		map.put("skipped_frames", getSkippedFrames());
+		map.put("send", PipelineMetrics.histogramToMap(sendLatency));
+		if(writeTime.getCount() > 0 || getCoalescedFrames() > 0) {
+			map.put("coalesced_frames", getCoalescedFrames());
+			map.put("write", PipelineMetrics.histogramToMap(writeTime));
+		}
+		if(getEstimatedCurrent() > 0) {
+			Map<String, Object> power = new LinkedHashMap<>();
+			power.put("estimated_ma", PipelineMetrics.round(getEstimatedCurrent()));
+			power.put("limit", PipelineMetrics.round(getPowerScale()));
+			power.put("limited_frames", getLimitedFrames());
+			map.put("power", power);
+		}
+		return map;
+	}
+
+}
@@ -0,0 +1,240 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.metrics;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.OutputWorker;
+
+/**
+ * Collects timing metrics of the render to output pipeline:
+ * <ol>
+ * <li>{@link Stage#RENDER} rendering a frame in the effect loop (includes handing the frame to the output)</li>
+ * <li>{@link Stage#BRIGHTNESS} applying the brightness in the {@link OutputManager}</li>
+ * <li>{@link Stage#PATCH} applying the output patch</li>
+ * <li>{@link Stage#ENCODE} encoding the frame into the device protocol</li>
+ * <li>{@link Stage#SEND} sending the frame to the device (includes encoding)</li>
+ * </ol>
+ * Additionally the frame rates, dropped frames and bytes sent per output
+ * are tracked. Recording does not allocate, except for the first frame
+ * of a new output.
+ */
+public class PipelineMetrics {
+	
+	public enum Stage {
+		RENDER, BRIGHTNESS, PATCH, ENCODE, SEND
+	}
+	
+	private static PipelineMetrics instance;
+	
+	private final Map<Stage, LatencyHistogram> stages;
+	private final Map<String, OutputMetrics> outputs;
+	private final FrameRateMeter renderRate;
+	private volatile OutputManager outputManager;
+	
+	public PipelineMetrics() {
+		stages = new EnumMap<>(Stage.class);
+		for(Stage stage : Stage.values()) {
+			stages.put(stage, new LatencyHistogram());
+		}
+		outputs = new ConcurrentHashMap<>();
+		renderRate = new FrameRateMeter();
+	}
+	
+	public static synchronized PipelineMetrics getInstance() {
+		if(instance == null) {
+			instance = new PipelineMetrics();
+		}
+		return instance;
+	}
+	
+	/**
+	 * Set the output manager used to report the output frame
+	 * rate and dropped frames.
+	 */
+	public void setOutputManager(OutputManager outputManager) {
+		this.outputManager = outputManager;
+	}
+	
+	public LatencyHistogram getHistogram(Stage stage) {
+		return stages.get(stage);
+	}
+	
+	/**
+	 * Record the time elapsed since the start time for the specified stage.
+	 * @param stage			pipeline stage
+	 * @param startNanos	start time from {@link System#nanoTime()}
+	 */
+	public void record(Stage stage, long startNanos) {
+		stages.get(stage).recordSince(startNanos);
+	}
+	
+	/**
+	 * Mark a new frame that was added to the output.
+	 */
+	public void markRenderFrame() {
+		renderRate.tick();
+	}
+	
+	public double getRenderFrameRate() {
+		return renderRate.getFrameRate();
+	}
+	
+	/**
+	 * Get the metrics of the specified output.
+	 * @param outputId	the id of the output
+	 * @return			the existing or new output metrics
+	 */
+	public OutputMetrics getOutputMetrics(String outputId) {
+		OutputMetrics metrics = outputs.get(outputId);
+		if(metrics == null) {
+			metrics = outputs.computeIfAbsent(outputId, OutputMetrics::new);
+		}
+		return metrics;
+	}
+	
+	public Map<String, OutputMetrics> getAllOutputMetrics() {
+		return outputs;
+	}
+	
+	/**
+	 * Add the number of bytes that were sent to the specified output.
+	 * @param outputId	the id of the output
+	 * @param bytes		number of bytes
+	 */
+	public void addBytesSent(String outputId, long bytes) {
+		getOutputMetrics(outputId).addBytesSent(bytes);
+	}
+	
+	/**
+	 * Reset all metrics.
+	 */
+	public void reset() {
+		stages.values().forEach(LatencyHistogram::reset);
+		outputs.clear();
+		renderRate.reset();
+	}
+	
+	/**
+	 * Create a snapshot of all metrics. Latencies are in nanoseconds.
+	 * @return	map that can be serialized to JSON
+	 */
+	public Map<String, Object> snapshot() {
+		Map<String, Object> root = new LinkedHashMap<>();
+		root.put("render_fps", round(getRenderFrameRate()));
+		OutputManager om = outputManager;
+		if(om != null) {
+			root.put("output_fps", round(om.getOutputFrameRate()));
+			root.put("frame_sequence", om.getFrameSequence());
+			root.put("dropped_frames", om.getDroppedFrames());
+			root.put("duplicated_frames", om.getDuplicatedFrames());
+			root.put("skipped_frames", om.getOutputSkippedFrames());
+			
+			Map<String, Object> activeMap = new LinkedHashMap<>();
+			for(OutputWorker worker : om.getOutputWorkers()) {
+				Map<String, Object> workerMap = new LinkedHashMap<>();
+				workerMap.put("fps", round(worker.getFrameRate()));
+				workerMap.put("target_fps", round(worker.getTargetFrameRate()));
+				workerMap.put("dropped_frames", worker.getDroppedFrames());
+				workerMap.put("duplicated_frames", worker.getDuplicatedFrames());
+				workerMap.put("skipped_frames", worker.getSkippedFrames());
+				activeMap.put(worker.getOutput().getId(), workerMap);
+			}
+			root.put("active_outputs", activeMap);
+			
+			Map<String, Object> powerMap = new LinkedHashMap<>();
+			powerMap.put("budget_ma", om.getPowerBudget());
+			powerMap.put("estimated_ma", round(om.getEstimatedCurrent()));
+			powerMap.put("limit", round(om.getGlobalPowerScale()));
+			root.put("power", powerMap);
+		}
+		
+		Map<String, Object> stageMap = new LinkedHashMap<>();
+		for(Stage stage : Stage.values()) {
+			stageMap.put(stage.name().toLowerCase(), histogramToMap(stages.get(stage)));
+		}
+		root.put("stages", stageMap);
+		
+		Map<String, Object> outputMap = new LinkedHashMap<>();
+		for(OutputMetrics metrics : outputs.values()) {
+			outputMap.put(metrics.getOutputId(), metrics.toMap());
+		}
+		root.put("outputs", outputMap);
+		return root;
+	}
+	
+	/**
+	 * @return	human readable summary of all metrics
+	 */
+	public String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("render %.1f fps", getRenderFrameRate()));
+		OutputManager om = outputManager;
+		if(om != null) {
+			sb.append(String.format(", output %.1f fps, dropped %d, duplicated %d, skipped %d",
+					om.getOutputFrameRate(), om.getDroppedFrames(), om.getDuplicatedFrames(), om.getOutputSkippedFrames()));
+			for(OutputWorker worker : om.getOutputWorkers()) {
+				sb.append(System.lineSeparator());
+				sb.append(String.format("  loop '%s': %.1f/%.1f fps, dropped %d, duplicated %d, skipped %d", worker.getOutput().getId(),
+						worker.getFrameRate(), worker.getTargetFrameRate(), worker.getDroppedFrames(),
+						worker.getDuplicatedFrames(), worker.getSkippedFrames()));
+			}
+		}
+		for(Stage stage : Stage.values()) {
+			sb.append(System.lineSeparator());
+			sb.append(String.format("  %-10s %s", stage.name().toLowerCase(), stages.get(stage)));
+		}
+		for(OutputMetrics metrics : outputs.values()) {
+			sb.append(System.lineSeparator());
+			sb.append(String.format("  output '%s': %d frames, %.1f fps, %d bytes, send %s", metrics.getOutputId(),
+					metrics.getFrames(), metrics.getFrameRate(), metrics.getBytesSent(), metrics.getSendLatency()));
+			if(metrics.getDeadlineMisses() > 0 || metrics.getSkippedFrames() > 0) {
+				sb.append(String.format(", %d deadline misses, %d skipped", metrics.getDeadlineMisses(), metrics.getSkippedFrames()));
+			}
+			if(metrics.getLimitedFrames() > 0) {
+				sb.append(String.format(", power %.0f mA limited to %.0f %%", metrics.getEstimatedCurrent(), metrics.getPowerScale() * 100));
+			}
+		}
+		return sb.toString();
+	}
+	
+	static Map<String, Object> histogramToMap(LatencyHistogram histogram) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("count", histogram.getCount());
+		map.put("mean", (long) histogram.getMean());
+		map.put("p50", histogram.getValueAtPercentile(50));
+		map.put("p90", histogram.getValueAtPercentile(90));
+		map.put("p99", histogram.getValueAtPercentile(99));
+		map.put("max", histogram.getMax());
+		return map;
+	}
+	
+	static double round(double value) {
+		return Math.round(value * 100) / 100.0;
+	}
+
+}
@@ -35,6 +35,8 @@ import de.lars.remotelightcore.EffectManagerHelper.EffectType;
 import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.event.events.types.EffectToggleEvent.Action;
 import de.lars.remotelightcore.event.events.types.EffectToggleEvent.MusicSyncToggleEvent;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
 import de.lars.remotelightcore.musicsync.modes.*;
 import de.lars.remotelightcore.musicsync.sound.Shared;
 import de.lars.remotelightcore.musicsync.sound.SoundProcessing;
@@ -46,6 +48,7 @@ import de.lars.remotelightcore.out.OutputManager;
 import de.lars.remotelightcore.settings.Setting;
 import de.lars.remotelightcore.settings.SettingsManager;
 import de.lars.remotelightcore.settings.types.SettingObject;
+import de.lars.remotelightcore.utils.FrameScheduler;
 import de.lars.remotelightcore.utils.color.Color;
 import de.lars.remotelightcore.utils.color.PixelColorUtils;
 
@@ -277,39 +280,99 @@ public class MusicSyncManager extends EffectManager {
 	
 	public void start(MusicEffect effect) {
 		RemoteLightCore core = RemoteLightCore.getInstance();
+		// music effects depend on the sound input, the last frame of the old effect is faded out
+		boolean transition = core.getOutputManager().getTransitionEngine().begin();
 		core.getEffectManagerHelper().stopAllExceptFor(EffectType.MusicSync);
 		
+		if(!startSoundProcessing()) {
+			if(transition)
+				cancelTransition();
+			return;
+		}
+		if(activeEffect != null) {
+			activeEffect.onDisable();
+			if(!transition)
+				OutputManager.addToOutput(PixelColorUtils.colorAllPixels(Color.BLACK, RemoteLightCore.getLedNum()));
+		}
+		if(effect != null) {
+			effect.setSoundProcessor(soundProcessor);
+			effect.onEnable(RemoteLightCore.getLedNum());
+		} else {
+			soundProcessor.stop();
+		}
+		activeEffect = effect;
+		this.loop();
+		// trigger event
+		getEventHandler().call(new MusicSyncToggleEvent(Action.ENABLE, effect));
+	}
+	
+	/**
+	 * Start the sound input if it is not running. Shows a notification
+	 * if no sound input is configured.
+	 * @return True if the sound input is running
+	 */
+	public boolean startSoundProcessing() {
+		RemoteLightCore core = RemoteLightCore.getInstance();
 		if(soundProcessor == null) {
 			soundProcessor = new SoundProcessing(this);
 		}
 		if(!soundProcessor.isMixerSet() && !soundProcessor.isNativeSoundEnabled()) {
 			core.showNotification(new Notification(NotificationType.WARN, "MusicSync", "Please select a sound input first."));
-			return;
+			return false;
 		}
 		if(!soundProcessor.isConfigured()) {
 			core.showNotification(new Notification(NotificationType.WARN, "MusicSync", "The sound input is not configured."));
-			return;
+			return false;
 		}
 		if(soundProcessor.isNativeSoundEnabled()) {
 			configureSoundProcessorForNativeSound(nativeSoundDevice);
 		}
-		if(activeEffect != null) {
-			activeEffect.onDisable();
-			OutputManager.addToOutput(PixelColorUtils.colorAllPixels(Color.BLACK, RemoteLightCore.getLedNum()));
-		}
 		if(!soundProcessor.isActive()) {
 			soundProcessor.start();
 		}
-		if(effect != null) {
-			effect.setSoundProcessor(soundProcessor);
-			effect.onEnable(RemoteLightCore.getLedNum());
-		} else {
+		return true;
+	}
+	
+	/**
+	 * Stop the sound input if no music effect is active.
+	 */
+	public void stopSoundProcessing() {
+		if(activeEffect == null && soundProcessor != null)
 			soundProcessor.stop();
-		}
-		activeEffect = effect;
-		this.loop();
-		// trigger event
-		getEventHandler().call(new MusicSyncToggleEvent(Action.ENABLE, effect));
+	}
+	
+	/**
+	 * Analyze the latest sound data. Called once per frame
+	 * before {@link #updateSoundData(MusicEffect)}.
+	 */
+	public void processSound() {
+		musicUtils.process(pitch, volume, pitchTime, sensitivity, soundProcessor);
+		volume = musicUtils.getVolume();
+	}
+	
+	/**
+	 * Pass the analyzed sound data to the effect.
+	 * @param effect the music effect to update
+	 */
+	public void updateSoundData(MusicEffect effect) {
+		effect.setBump(musicUtils.isBump());
+		effect.setVolume(volume);
+		effect.setPitch(pitch);
+		effect.setPitchTime(pitchTime);
+		effect.setSoundProcessor(soundProcessor);
+		effect.setSensitivity(sensitivity);
+		effect.setAdjustment(adjustment);
+		effect.setMaxSpl(musicUtils.getMaxSpl());
+		effect.setMinSpl(musicUtils.getMinSpl());
+		effect.setSpl(musicUtils.getSpl());
+	}
+	
+	/**
+	 * The effect could not be started, the old effect is already stopped.
+	 */
+	private void cancelTransition() {
+		RemoteLightCore.getInstance().getOutputManager().getTransitionEngine().cancel();
+		turnOffLeds();
 	}
 	
 	@Override
@@ -333,23 +396,16 @@ public class MusicSyncManager extends EffectManager {
 				
 				@Override
 				public void run() {
+					FrameScheduler scheduler = new FrameScheduler(delay);
 					while(activeEffect != null) {
-						musicUtils.process(pitch, volume, pitchTime, sensitivity, soundProcessor);
-						volume = musicUtils.getVolume();
-						activeEffect.setBump(musicUtils.isBump());
-						activeEffect.setVolume(volume);
-						activeEffect.setPitch(pitch);
-						activeEffect.setPitchTime(pitchTime);
-						activeEffect.setSoundProcessor(soundProcessor);
-						activeEffect.setSensitivity(sensitivity);
-						activeEffect.setAdjustment(adjustment);
-						activeEffect.setMaxSpl(musicUtils.getMaxSpl());
-						activeEffect.setMinSpl(musicUtils.getMinSpl());
-						activeEffect.setSpl(musicUtils.getSpl());
+						processSound();
+						updateSoundData(activeEffect);
 						
 						try {
 							
+						long renderStart = System.nanoTime();
 						activeEffect.onLoop();
+						PipelineMetrics.getInstance().record(Stage.RENDER, renderStart);
 						
 						} catch(Exception e) {
 							Logger.error(e, "There was an error executing the MusicEffect '" + activeEffect.getDisplayname() + "'.");
@@ -358,8 +414,9 @@ public class MusicSyncManager extends EffectManager {
 							break;
 						}
 						
+						scheduler.setDelay(delay);
 						try {
-							Thread.sleep(delay);
+							scheduler.waitForNextFrame();
 						} catch (InterruptedException e) {
 							e.printStackTrace();
 						}
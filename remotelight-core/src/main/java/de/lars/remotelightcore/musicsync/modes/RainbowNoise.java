@@ -22,13 +22,10 @@
 
 package de.lars.remotelightcore.musicsync.modes;
 
-import de.lars.remotelightcore.utils.color.Color;
-
-import de.lars.remotelightcore.RemoteLightCore;
+import de.lars.remotelightcore.effect.PixelKernel;
 import de.lars.remotelightcore.musicsync.MusicEffect;
-import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.PixelBuffer;
 import de.lars.remotelightcore.utils.color.ColorUtil;
-import de.lars.remotelightcore.utils.color.PixelColorUtils;
 import de.lars.remotelightcore.utils.color.RainbowWheel;
 import de.lars.remotelightcore.utils.maths.MathHelper;
 import de.lars.remotelightcore.utils.maths.OpenSimplexNoise;
@@ -36,7 +33,7 @@ import de.lars.remotelightcore.utils.maths.OpenSimplexNoise;
 public class RainbowNoise extends MusicEffect {
 	
 	private OpenSimplexNoise noise;
-	private Color[] strip;
+	private final PixelKernel kernel = this::renderPixels;
 	
 	private float zoff = 0.0f;
 	private float zincrement = 0.01f;
@@ -46,6 +43,8 @@ public class RainbowNoise extends MusicEffect {
 	private final int defaultBrightness = 80;
 	private boolean brightnessTrigger = false;
 	private float brightnessTime = 1f;
+	/** multiplier of the current frame, read by the kernel */
+	private float multiplier;
 	
 	public RainbowNoise() {
 		super("RainbowNoise");
@@ -54,18 +53,13 @@ public class RainbowNoise extends MusicEffect {
 	@Override
 	public void onEnable() {
 		noise = new OpenSimplexNoise();
-		strip = PixelColorUtils.colorAllPixels(Color.BLACK, RemoteLightCore.getLedNum());
 		zoff = 0.0f;
 		brightnessTime = 1f;
 		super.onEnable();
 	}
 	
 	@Override
-	public void onLoop() {
-		// reset x and y offset
-		float xoff = 0.0f;
-		float yoff = 0.0f;
-		
+	public boolean onEffect(PixelBuffer buffer) {
 		// get volume and peak info
 		double vol = getSpl();
 		boolean peak = isBump();
@@ -82,6 +76,7 @@ public class RainbowNoise extends MusicEffect {
 			zoff += 0.1f;
 			multiplier += 0.05f;
 		}
+		this.multiplier = multiplier;
 		
 		if(!brightnessTrigger)
 			brightnessTrigger = peak;
@@ -94,31 +89,31 @@ public class RainbowNoise extends MusicEffect {
 			brightnessTrigger = false;
 		}
 		
-		for(int i = 0; i < strip.length; i++) {
-			xoff += xincrement * multiplier;
-			yoff += yincrement * multiplier;
+		renderKernel(kernel, buffer);
+		return true;
+	}
+	
+	private void renderPixels(int from, int to, int[] pixels, int offset) {
+		final int[] rainbow = RainbowWheel.getPackedRainbow();
+		final double halfStrip = getPixel() / 2;
+		for(int i = from; i < to; i++) {
+			final float xoff = (i + 1) * xincrement * multiplier;
+			final float yoff = (i + 1) * yincrement * multiplier;
 			
 			// get noise value for hue
 			float noiseHue = (float) noise.eval(xoff, yoff, zoff);
-			int hue = (int) MathHelper.map(noiseHue, -1, 1, 0, RainbowWheel.getRainbow().length - 1);
-			
-			Color color = RainbowWheel.getRainbow()[hue];
+			int color = rainbow[(int) MathHelper.map(noiseHue, -1, 1, 0, rainbow.length - 1)];
 			int bright = defaultBrightness;
 			
 			if(brightnessTrigger) {
-				double halfStrip = strip.length / 2;
 				double a = -brightnessTime;
 				int brightness = (int) (a * Math.pow((i - halfStrip), 2) + (100 - defaultBrightness));
 				if(brightness > 0) {
 					bright += brightness;
 				}
 			}
-			color = ColorUtil.dimColor(color, bright);
-			strip[i] = color;
+			pixels[offset + i] = ColorUtil.dimColor(color, bright);
 		}
-		
-		OutputManager.addToOutput(strip);
-		super.onLoop();
 	}
 
 }
@@ -0,0 +1,233 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.out;
+
+/**
+ * Output stage that applies brightness and gamma correction using
+ * precomputed per channel lookup tables and optional temporal dithering.
+ * <p>
+ * The tables map every 8 bit channel value to a 8.8 fixed point value, so
+ * dim colors keep their fractional part. {@link #apply(PixelBuffer, PixelBuffer)}
+ * rounds the result and is used when a frame is published.
+ * <p>
+ * Temporal dithering has to run at the frame rate of every output, so it
+ * is done by a {@link Dither} per output loop. The fractional part is
+ * accumulated per pixel and channel and carried over to the next output
+ * frame, so a value of 1.5 alternates between 1 and 2 and low brightness
+ * levels look smooth instead of banded. When dithering is enabled, frames
+ * are published without correction and the dither applies the tables, as
+ * the fractional part is lost after rounding.
+ * <p>
+ * The tables are rebuilt when a setting changes and swapped atomically,
+ * so settings can be changed from any thread. Both stages are
+ * stateless or owned by one thread and do not allocate unless the
+ * number of pixels changes.
+ */
+public class ColorCorrection {
+	
+	/** number of entries per channel */
+	private final static int LUT_SIZE = 256;
+	
+	/** lookup tables for red, green and blue (8.8 fixed point) */
+	private volatile int[] lut;
+	private volatile boolean dithering;
+	private double gammaRed = 1.0, gammaGreen = 1.0, gammaBlue = 1.0;
+	private int brightness = 100;
+	
+	public ColorCorrection() {
+		rebuild();
+	}
+	
+	/**
+	 * @param brightness	brightness between 0 and 100
+	 */
+	public synchronized void setBrightness(int brightness) {
+		brightness = Math.max(0, Math.min(100, brightness));
+		if(this.brightness != brightness) {
+			this.brightness = brightness;
+			rebuild();
+		}
+	}
+	
+	public int getBrightness() {
+		return brightness;
+	}
+	
+	/**
+	 * Set the same gamma for all channels.
+	 * @param gamma		gamma value, 1 for linear output
+	 */
+	public void setGamma(double gamma) {
+		setGamma(gamma, gamma, gamma);
+	}
+	
+	/**
+	 * Set the gamma per channel, e.g. to compensate LEDs with
+	 * different response curves.
+	 */
+	public synchronized void setGamma(double red, double green, double blue) {
+		if(red <= 0 || green <= 0 || blue <= 0)
+			throw new IllegalArgumentException("Gamma must be greater than 0.");
+		if(red != gammaRed || green != gammaGreen || blue != gammaBlue) {
+			gammaRed = red;
+			gammaGreen = green;
+			gammaBlue = blue;
+			rebuild();
+		}
+	}
+	
+	/**
+	 * @return	the gamma of the red channel, which is the gamma of all
+	 * 			channels if it was set with {@link #setGamma(double)}
+	 */
+	public double getGamma() {
+		return gammaRed;
+	}
+	
+	public double getGammaRed() {
+		return gammaRed;
+	}
+	
+	public double getGammaGreen() {
+		return gammaGreen;
+	}
+	
+	public double getGammaBlue() {
+		return gammaBlue;
+	}
+	
+	/**
+	 * @param dithering		true to dither the frames in the output loops
+	 */
+	public void setDithering(boolean dithering) {
+		this.dithering = dithering;
+	}
+	
+	public boolean isDithering() {
+		return dithering;
+	}
+	
+	/**
+	 * Get the corrected 8.8 fixed point value of a channel.
+	 * @param channel	0 = red, 1 = green, 2 = blue
+	 * @param value		channel value (0-255)
+	 * @return			corrected value multiplied by 256
+	 */
+	public int getCorrectedValue(int channel, int value) {
+		return lut[channel * LUT_SIZE + value];
+	}
+	
+	private void rebuild() {
+		int[] table = new int[LUT_SIZE * 3];
+		fillChannel(table, 0, gammaRed);
+		fillChannel(table, 1, gammaGreen);
+		fillChannel(table, 2, gammaBlue);
+		lut = table;
+	}
+	
+	private void fillChannel(int[] table, int channel, double gamma) {
+		final double scale = 255.0 * 256.0 * brightness / 100.0;
+		for(int i = 0; i < LUT_SIZE; i++) {
+			double value = gamma == 1.0 ? i / 255.0 : Math.pow(i / 255.0, gamma);
+			table[channel * LUT_SIZE + i] = (int) Math.round(value * scale);
+		}
+	}
+	
+	/**
+	 * Apply brightness and gamma, rounded to 8 bit. Does not dither.
+	 * @param src	source pixels
+	 * @param dest	destination buffer, may be the source buffer
+	 * @return		the destination buffer
+	 */
+	public PixelBuffer apply(PixelBuffer src, PixelBuffer dest) {
+		final int length = src.length();
+		dest.resize(length);
+		final int[] table = lut;
+		final int[] in = src.array();
+		final int[] out = dest.array();
+		final int inOffset = src.offset();
+		final int outOffset = dest.offset();
+		for(int i = 0; i < length; i++) {
+			int rgb = in[inOffset + i];
+			int r = (table[(rgb >> 16) & 0xFF] + 0x80) >> 8;
+			int g = (table[LUT_SIZE + ((rgb >> 8) & 0xFF)] + 0x80) >> 8;
+			int b = (table[2 * LUT_SIZE + (rgb & 0xFF)] + 0x80) >> 8;
+			out[outOffset + i] = (r << 16) | (g << 8) | b;
+		}
+		return dest;
+	}
+	
+	/**
+	 * @return a new dither stage with its own error buffer
+	 */
+	public Dither newDither() {
+		return new Dither();
+	}
+	
+	/**
+	 * Temporal dithering stage of one output loop. Applies brightness and
+	 * gamma to uncorrected frames and carries the fractional part over to
+	 * the next frame of the same output. Must only be used by one thread.
+	 */
+	public class Dither {
+		
+		/** fractional error of every pixel, 8 bits per channel packed as 0xRRGGBB */
+		private int[] error = new int[0];
+		
+		private Dither() {
+		}
+		
+		/**
+		 * Apply brightness, gamma and dithering.
+		 * @param src	uncorrected source pixels
+		 * @param dest	destination buffer, may be the source buffer
+		 * @return		the destination buffer
+		 */
+		public PixelBuffer apply(PixelBuffer src, PixelBuffer dest) {
+			final int length = src.length();
+			dest.resize(length);
+			final int[] table = lut;
+			final int[] in = src.array();
+			final int[] out = dest.array();
+			final int inOffset = src.offset();
+			final int outOffset = dest.offset();
+			
+			if(error.length != length)
+				error = new int[length];
+			final int[] err = error;
+			for(int i = 0; i < length; i++) {
+				int rgb = in[inOffset + i];
+				int e = err[i];
+				// add the error of the last frame, the integer part is sent and the fraction is kept
+				int r = table[(rgb >> 16) & 0xFF] + ((e >> 16) & 0xFF);
+				int g = table[LUT_SIZE + ((rgb >> 8) & 0xFF)] + ((e >> 8) & 0xFF);
+				int b = table[2 * LUT_SIZE + (rgb & 0xFF)] + (e & 0xFF);
+				err[i] = ((r & 0xFF) << 16) | ((g & 0xFF) << 8) | (b & 0xFF);
+				out[outOffset + i] = ((r >> 8) << 16) | ((g >> 8) << 8) | (b >> 8);
+			}
+			return dest;
+		}
+		
+	}
+
+}
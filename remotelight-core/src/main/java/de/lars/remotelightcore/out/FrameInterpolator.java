@@ -0,0 +1,140 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.out;
+
+/**
+ * Cross-fades between the last two rendered frames based on the output clock,
+ * so effects with a slow tick rate look smooth on fast outputs.
+ * <p>
+ * When a new frame arrives, the previous frame is shown and the output
+ * fades to the new frame over the measured interval between the frames.
+ * This adds a latency of one effect frame. If the output is not
+ * noticeably faster than the effect, frames are passed through unchanged.
+ * <p>
+ * Must only be used by one thread. No memory is allocated unless the
+ * number of pixels changes.
+ */
+public class FrameInterpolator {
+	
+	/** min ratio between frame interval and output interval for interpolation */
+	private final static double MIN_RATIO = 1.5;
+	/** an interval longer than this factor times the average is treated as a pause */
+	private final static int PAUSE_FACTOR = 4;
+	
+	private PixelBuffer previous = new PixelBuffer(0);
+	private PixelBuffer current = new PixelBuffer(0);
+	private final PixelBuffer output = new PixelBuffer(0);
+	private long lastSequence = -1;
+	/** output clock time the current frame arrived */
+	private long frameTime;
+	/** smoothed interval between two frames in nanoseconds */
+	private long frameInterval;
+	/** false if the current frame should be shown without fading from the previous one */
+	private boolean fading;
+	
+	/**
+	 * Get the frame to output at the specified time.
+	 * @param frame				the newest rendered frame
+	 * @param sequence			sequence number of the frame
+	 * @param now				current time of the output clock in nanoseconds
+	 * @param outputInterval	interval between two output frames in nanoseconds
+	 * @return	the interpolated frame or the input frame if no interpolation is needed,
+	 * 			only valid until the next call
+	 */
+	public PixelBuffer next(PixelBuffer frame, long sequence, long now, long outputInterval) {
+		if(sequence != lastSequence) {
+			onNewFrame(frame, sequence, now);
+		}
+		if(!fading || frameInterval < outputInterval * MIN_RATIO
+				|| previous.length() != current.length()) {
+			return frame;
+		}
+		
+		long elapsed = now - frameTime;
+		if(elapsed >= frameInterval)
+			return frame;
+		final int alpha = (int) (Math.max(0, elapsed) * 256 / frameInterval);
+		return interpolate(previous, current, alpha, output);
+	}
+	
+	private void onNewFrame(PixelBuffer frame, long sequence, long now) {
+		fading = false;
+		if(lastSequence >= 0) {
+			long interval = now - frameTime;
+			if(frameInterval <= 0 || interval > frameInterval * PAUSE_FACTOR) {
+				// first interval or the effect was paused, do not fade from the old frame
+				frameInterval = interval;
+			} else {
+				frameInterval = (frameInterval * 3 + interval) / 4;
+				fading = true;
+			}
+		}
+		// the current frame becomes the previous frame
+		PixelBuffer tmp = previous;
+		previous = current;
+		current = tmp;
+		current.copyFrom(frame);
+		frameTime = now;
+		lastSequence = sequence;
+	}
+	
+	/**
+	 * @return measured interval between two rendered frames in nanoseconds
+	 */
+	public long getFrameInterval() {
+		return frameInterval;
+	}
+	
+	/**
+	 * Forget the previous frames, e.g. after the effect was changed.
+	 */
+	public void reset() {
+		lastSequence = -1;
+		frameInterval = 0;
+		fading = false;
+	}
+	
+	/**
+	 * Interpolate all pixels of two frames.
+	 * @param from		start frame
+	 * @param to		end frame with the same length
+	 * @param alpha		position between 0 ({@code from}) and 256 ({@code to})
+	 * @param dest		destination buffer
+	 * @return			the destination buffer
+	 */
+	public static PixelBuffer interpolate(PixelBuffer from, PixelBuffer to, int alpha, PixelBuffer dest) {
+		final int length = to.length();
+		dest.resize(length);
+		final int[] a = from.array();
+		final int[] b = to.array();
+		final int[] out = dest.array();
+		final int aOffset = from.offset();
+		final int bOffset = to.offset();
+		final int outOffset = dest.offset();
+		for(int i = 0; i < length; i++) {
+			out[outOffset + i] = PixelBuffer.lerp(a[aOffset + i], b[bOffset + i], alpha);
+		}
+		return dest;
+	}
+
+}
@@ -37,6 +37,8 @@ public abstract class Output implements Serializable {
 	private String id;
 	private int pixels;
 	private OutputPatch outputPatch;
+	/** target frame rate of this output, 0 to use the global output delay */
+	private int frameRate;
 	
 	public Output(String id, int pixels) {
 		this.id = id;
@@ -68,6 +70,23 @@ public abstract class Output implements Serializable {
 		return outputPatch;
 	}
 	
+	/**
+	 * @return target frame rate of this output or 0 if the global output delay is used
+	 */
+	public int getFrameRate() {
+		return frameRate;
+	}
+	
+	/**
+	 * Set the frame rate this output is driven at. Every active
+	 * output runs in its own loop, so outputs with different frame
+	 * rates do not slow each other down.
+	 * @param frameRate		frames per second or 0 to use the global output delay
+	 */
+	public void setFrameRate(int frameRate) {
+		this.frameRate = Math.max(0, frameRate);
+	}
+	
 	public void onActivate() {
 	}
 	
@@ -78,5 +97,15 @@ public abstract class Output implements Serializable {
 
 	public void onOutput(Color[] pixels) {
 	}
+	
+	/**
+	 * Output packed pixel data. By default the buffer is converted to a
+	 * color array and passed to {@link #onOutput(Color[])}. Subclasses
+	 * should override this method to avoid the conversion.
+	 * @param pixels	packed pixel buffer
+	 */
+	public void onOutput(PixelBuffer pixels) {
+		onOutput(pixels.toColors());
+	}
 
 }
@@ -22,13 +22,22 @@
 
 package de.lars.remotelightcore.out;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.tinylog.Logger;
 
 import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.devices.ConnectionState;
+import de.lars.remotelightcore.devices.Device;
 import de.lars.remotelightcore.event.events.types.ConnectionEvent;
 import de.lars.remotelightcore.event.events.types.ConnectionEvent.Action;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
 import de.lars.remotelightcore.out.OutputActionListener.OutputActionType;
+import de.lars.remotelightcore.settings.SettingHandle;
 import de.lars.remotelightcore.settings.SettingsManager;
 import de.lars.remotelightcore.settings.types.SettingBoolean;
 import de.lars.remotelightcore.settings.types.SettingInt;
@@ -36,24 +45,52 @@ import de.lars.remotelightcore.utils.OutputUtil;
 import de.lars.remotelightcore.utils.color.Color;
 import de.lars.remotelightcore.utils.color.PixelColorUtils;
 
+/**
+ * Drives the active outputs. Every active output runs in its own
+ * {@link OutputWorker} loop with its own frame rate; all of them are
+ * fed from the same rendered frame.
+ * <p>
+ * The first activated output is the primary output, its pixel count
+ * determines the number of pixels the effects render
+ * (see {@link RemoteLightCore#getLedNum()}).
+ */
 public class OutputManager {
 	
 	/** minimum amount of pixels to prevent errors in some effects */
 	public static final int MIN_PIXELS = 2;
+	/** frames added by a thread inside {@link #captureFrames(PixelBuffer, Runnable)} */
+	private static final ThreadLocal<FrameCapture> CAPTURE = ThreadLocal.withInitial(FrameCapture::new);
 	
 	private RemoteLightCore core;
 	private SettingsManager sm;
 	private volatile Output activeOutput;
+	private final List<OutputWorker> workers = new CopyOnWriteArrayList<>();
 	private OutputActionListener actionListener;
-	private Color[] outputPixels;
+	/** effect threads may add frames concurrently */
+	private final Object writeLock = new Object();
+	/** last frame with brightness applied, used to initialize newly activated outputs */
+	private final PixelBuffer frame = new PixelBuffer(0);
+	/** true if the frame is not corrected yet, because the output loops dither it */
+	private boolean frameUncorrected;
+	private volatile long frameSequence;
+	private final PixelBuffer lastBuffer = new PixelBuffer(0);
 	private Color[] lastPixels;
 	private int delay = 50;
-	private int brightness = 100;
-	private boolean active;
+	private final SettingHandle<SettingInt> delaySetting;
+	private final PipelineMetrics metrics = PipelineMetrics.getInstance();
+	/** brightness and gamma stage, applied under the write lock, dithering is done by the workers */
+	private final ColorCorrection colorCorrection = new ColorCorrection();
+	/** blends the old and the new effect when the effect is changed */
+	private final TransitionEngine transitionEngine = new TransitionEngine(this, writeLock);
+	/** max current of all active outputs in milliamps, 0 for no limit */
+	private volatile int powerBudget;
+	private volatile boolean interpolation;
+	private volatile boolean active;
 	
 	public OutputManager() {
 		core = RemoteLightCore.getInstance();
 		sm = core.getSettingsManager();
+		delaySetting = sm.getHandle(SettingInt.class, "out.delay");
 		active = false;
 	}
 	
@@ -67,25 +104,100 @@ public class OutputManager {
 		}
 	}
 
+	/**
+	 * 
+	 * @return The primary active output or null
+	 */
 	public synchronized Output getActiveOutput() {
 		return activeOutput;
 	}
-
-	public synchronized void setActiveOutput(Output activeOutput) {
-		this.setEnabled(false);
-		if(this.activeOutput != null && !(this.activeOutput.getId().equals(activeOutput.getId()))) {
-			
-			deactivate(this.activeOutput);
+	
+	/**
+	 * 
+	 * @return All active outputs, the primary output first
+	 */
+	public List<Output> getActiveOutputs() {
+		List<Output> outputs = new ArrayList<>();
+		for(OutputWorker worker : workers) {
+			outputs.add(worker.getOutput());
 		}
-		if(outputPixels == null) {
-			outputPixels = PixelColorUtils.colorAllPixels(Color.BLACK, activeOutput.getPixels());
-			lastPixels = PixelColorUtils.colorAllPixels(Color.BLACK, activeOutput.getPixels());
+		return outputs;
+	}
+	
+	/**
+	 * 
+	 * @return The workers of all active outputs
+	 */
+	public List<OutputWorker> getOutputWorkers() {
+		return Collections.unmodifiableList(workers);
+	}
+	
+	/**
+	 * 
+	 * @return The worker of the output or null if the output is not active
+	 */
+	public OutputWorker getOutputWorker(Output output) {
+		for(OutputWorker worker : workers) {
+			if(worker.getOutput() == output || worker.getOutput().getId().equals(output.getId())) {
+				return worker;
+			}
 		}
+		return null;
+	}
+	
+	/**
+	 * 
+	 * @return True if the output is active
+	 */
+	public boolean isActive(Output output) {
+		return getOutputWorker(output) != null;
+	}
 
-		activate(activeOutput);
+	/**
+	 * Deactivates all other outputs and activates the output as primary output.
+	 * If the output is already active, it is reconnected.
+	 * @param activeOutput The output to activate
+	 * @see #addActiveOutput(Output)
+	 */
+	public synchronized void setActiveOutput(Output activeOutput) {
+		this.setEnabled(false);
 		this.activeOutput = activeOutput;
+		addActiveOutput(activeOutput);
 		fireOutputAction(activeOutput, OutputActionType.ACTIVE_OUTPUT_CHANGED);
-		this.loop();
+	}
+	
+	/**
+	 * Activates the output in addition to the already active outputs.
+	 * The output runs in its own loop at its own frame rate
+	 * (see {@link Output#setFrameRate(int)}).
+	 * @param output The output to activate
+	 */
+	public synchronized void addActiveOutput(Output output) {
+		if(isActive(output)) {
+			return;
+		}
+		activate(output);
+		if(output.getState() != ConnectionState.CONNECTED) {
+			// do not start a worker that would deactivate the output right away
+			Logger.warn("Could not connect output " + output.getId() + ", output loop not started.");
+			fireOutputAction(output, OutputActionType.DISCONNECTED);
+			return;
+		}
+		OutputWorker worker = new OutputWorker(output, this);
+		synchronized (writeLock) {
+			if(frameSequence == 0) {
+				lastPixels = PixelColorUtils.colorAllPixels(Color.BLACK, output.getPixels());
+				frame.copyFrom(lastPixels);
+			}
+			// start with the last frame
+			worker.publish(frame, frameUncorrected);
+			workers.add(worker);
+		}
+		if(activeOutput == null) {
+			activeOutput = output;
+		}
+		active = true;
+		worker.start();
 	}
 	
 	/**
@@ -97,22 +209,44 @@ public class OutputManager {
 			output.onActivate();
 			core.getEventHandler().call(new ConnectionEvent(output, Action.ACTIVATE));
 		}
-		fireOutputAction(activeOutput, OutputActionType.ACTIVATED);
+		fireOutputAction(output, OutputActionType.ACTIVATED);
 	}
 	
 	/**
-	 * Disconnects the device if connected
+	 * Stops the loop of the output and disconnects the device if connected
 	 */
 	public synchronized void deactivate(Output output) {
 		Logger.info("Deactivate output: " + output.getId() + String.format(" (%s)", OutputUtil.getOutputTypeAsString(output)));
+		OutputWorker worker = getOutputWorker(output);
+		if(worker != null) {
+			workers.remove(worker);
+			worker.stop();
+		}
 		if(output.getState() == ConnectionState.CONNECTED) {
 			output.onDeactivate();
 			core.getEventHandler().call(new ConnectionEvent(output, Action.DEACTIVATE));
 		}
 		if(activeOutput != null && (output == activeOutput || output.getId().equals(activeOutput.getId()))) {
-			activeOutput = null;
+			// the next active output becomes the primary output
+			activeOutput = workers.isEmpty() ? null : workers.get(0).getOutput();
+		}
+		if(workers.isEmpty()) {
+			active = false;
+		}
+		fireOutputAction(output, OutputActionType.DEACTIVATED);
+	}
+	
+	/**
+	 * Called by a worker that stopped because its output is no longer connected.
+	 */
+	synchronized void onWorkerDisconnected(OutputWorker worker) {
+		Output output = worker.getOutput();
+		if(!workers.contains(worker)) {
+			// already deactivated or replaced by a new worker
+			return;
 		}
-		fireOutputAction(activeOutput, OutputActionType.DEACTIVATED);
+		deactivate(output);
+		fireOutputAction(output, OutputActionType.DISCONNECTED);
 	}
 	
 	/**
@@ -125,25 +259,128 @@ public class OutputManager {
 	
 	/**
 	 * 
-	 * @return Delay of the output loop
+	 * @return Delay of the output loop, used by all outputs without their own frame rate
 	 */
 	public int getDelay() {
-		if(((SettingInt) sm.getSettingFromId("out.delay")) != null) {
-			delay = ((SettingInt) sm.getSettingFromId("out.delay")).get();
+		SettingInt setting = delaySetting.getSetting();
+		if(setting != null) {
+			delay = setting.get();
 		}
 		return delay;
 	}
 	
+	/**
+	 * 
+	 * @return Measured frame rate of the primary output loop or 0 if not running
+	 */
+	public double getOutputFrameRate() {
+		Output output = activeOutput;
+		OutputWorker worker = output != null ? getOutputWorker(output) : null;
+		return (worker != null && active) ? worker.getFrameRate() : 0;
+	}
+	
+	/**
+	 * 
+	 * @return Number of frames the output loops skipped because they fell behind
+	 */
+	public long getOutputSkippedFrames() {
+		long skipped = 0;
+		for(OutputWorker worker : workers) {
+			skipped += worker.getSkippedFrames();
+		}
+		return skipped;
+	}
+	
 	/**
 	 * 
 	 * @param brightness Value between 0 and 100
 	 */
 	public void setBrightness(int brightness) {
-		this.brightness = brightness;
+		colorCorrection.setBrightness(brightness);
 	}
 	
 	public int getBrightness() {
-		return brightness;
+		return colorCorrection.getBrightness();
+	}
+	
+	/**
+	 * Enable cross-fading between the last two rendered frames on outputs
+	 * that run faster than the effect.
+	 * @param interpolation True to enable frame interpolation
+	 */
+	public void setInterpolation(boolean interpolation) {
+		this.interpolation = interpolation;
+	}
+	
+	public boolean isInterpolation() {
+		return interpolation;
+	}
+	
+	/**
+	 * Set the max current of all active outputs. Every device estimates its
+	 * current from its {@link PowerLimit} and the frames are scaled down when
+	 * the sum exceeds the budget.
+	 * @param milliamps Max current in milliamps, 0 for no limit
+	 */
+	public void setPowerBudget(int milliamps) {
+		powerBudget = Math.max(0, milliamps);
+	}
+	
+	public int getPowerBudget() {
+		return powerBudget;
+	}
+	
+	/**
+	 * 
+	 * @return Estimated current of the last frame of all active devices in milliamps (before limiting)
+	 */
+	public double getEstimatedCurrent() {
+		double current = 0;
+		for(OutputWorker worker : workers) {
+			if(worker.getOutput() instanceof Device)
+				current += ((Device) worker.getOutput()).getPowerLimit().getEstimatedCurrent();
+		}
+		return current;
+	}
+	
+	/**
+	 * 
+	 * @return Idle current of the last frame of all active devices in milliamps
+	 */
+	public double getEstimatedIdleCurrent() {
+		double current = 0;
+		for(OutputWorker worker : workers) {
+			if(worker.getOutput() instanceof Device)
+				current += ((Device) worker.getOutput()).getPowerLimit().getEstimatedIdleCurrent();
+		}
+		return current;
+	}
+	
+	/**
+	 * Only applied by the active (top-level) devices, the child devices
+	 * of linked outputs only apply their own limit.
+	 * @return Scale that limits the estimated current of all active devices to the power budget
+	 */
+	public double getGlobalPowerScale() {
+		if(powerBudget <= 0)
+			return 1.0;
+		return PowerLimit.getScale(powerBudget, getEstimatedCurrent(), getEstimatedIdleCurrent());
+	}
+	
+	/**
+	 * 
+	 * @return Brightness, gamma and dithering settings of the output
+	 */
+	public ColorCorrection getColorCorrection() {
+		return colorCorrection;
+	}
+	
+	/**
+	 * 
+	 * @return Engine for transitions between effects
+	 */
+	public TransitionEngine getTransitionEngine() {
+		return transitionEngine;
 	}
 	
 	/**
@@ -151,18 +388,24 @@ public class OutputManager {
 	 * @return Color array that was last sent
 	 */
 	public Color[] getLastColors() {
+		if(lastPixels == null) {
+			// last frame was added as pixel buffer
+			lastPixels = lastBuffer.toColors();
+		}
 		return lastPixels;
 	}
 	
 	/**
 	 * 
-	 * Toggle output loop
+	 * Toggle output loop. Disabling deactivates all active outputs.
 	 */
 	public void setEnabled(boolean enabled) {
 		active = enabled;
-		if(!active && activeOutput != null) {
-			deactivate(activeOutput);
-		}		
+		if(!active) {
+			for(OutputWorker worker : workers) {
+				deactivate(worker.getOutput());
+			}
+		}
 	}
 	
 	/**
@@ -176,11 +419,21 @@ public class OutputManager {
 	public void close() {
 		if(activeOutput != null) {
 			if(sm.getSetting(SettingBoolean.class, "out.effects.disableleds").get()) {
-				activeOutput.onOutput(PixelColorUtils.colorAllPixels(Color.BLACK, RemoteLightCore.getLedNum()));
+				for(OutputWorker worker : workers) {
+					Output output = worker.getOutput();
+					output.onOutput(PixelColorUtils.colorAllPixels(Color.BLACK, OutputWorker.getPixelCount(output)));
+				}
 			}
 			
-			//save last output before closing
+			//save last outputs before closing
 			sm.getSettingObject("out.lastoutput").setValue(activeOutput.getId());
+			List<String> additional = new ArrayList<>();
+			for(Output output : getActiveOutputs()) {
+				if(output != activeOutput)
+					additional.add(output.getId());
+			}
+			if(sm.getSettingObject("out.lastoutputs") != null)
+				sm.getSettingObject("out.lastoutputs").setValue(additional.toArray(new String[additional.size()]));
 		}
 		setEnabled(false);
 		//save brightness
@@ -192,78 +445,163 @@ public class OutputManager {
 	 * @param pixels Color array which length must be equal the number of LEDs
 	 */
 	public static void addToOutput(Color[] pixels) {
+		FrameCapture capture = CAPTURE.get();
+		if(capture.target != null) {
+			capture.target.copyFrom(pixels);
+			capture.captured = true;
+			return;
+		}
 		RemoteLightCore.getInstance().getOutputManager().setOutputPixels(pixels);
 	}
 	
+	/**
+	 * 
+	 * @param pixels Pixel buffer which length must be equal the number of LEDs.
+	 * 				 The buffer is copied and can be reused by the caller.
+	 */
+	public static void addToOutput(PixelBuffer pixels) {
+		FrameCapture capture = CAPTURE.get();
+		if(capture.target != null) {
+			capture.target.copyFrom(pixels);
+			capture.captured = true;
+			return;
+		}
+		RemoteLightCore.getInstance().getOutputManager().setOutputPixels(pixels);
+	}
+	
+	/**
+	 * Render effects without publishing their frames, e.g. to blend
+	 * several effects. All frames the renderer adds to the output on the
+	 * calling thread are copied into the target buffer instead.
+	 * @param target	buffer for the frames of the renderer
+	 * @param renderer	renders one or more frames
+	 * @return True if the renderer added at least one frame
+	 */
+	public static boolean captureFrames(PixelBuffer target, Runnable renderer) {
+		FrameCapture capture = CAPTURE.get();
+		PixelBuffer previousTarget = capture.target;
+		boolean previousCaptured = capture.captured;
+		capture.target = target;
+		capture.captured = false;
+		try {
+			renderer.run();
+			return capture.captured;
+		} finally {
+			capture.target = previousTarget;
+			capture.captured = previousCaptured;
+		}
+	}
+	
 	private void setOutputPixels(Color[] pixels) {
-		lastPixels = pixels;
-		outputPixels = this.changeBrightness(pixels, getBrightness());
+		synchronized (writeLock) {
+			lastPixels = pixels;
+			if(transitionEngine.offerIncoming(pixels))
+				return;
+			long start = System.nanoTime();
+			frame.copyFrom(pixels);
+			correctFrame(frame);
+			metrics.record(Stage.BRIGHTNESS, start);
+			publishFrame();
+		}
 	}
 	
-	private Color[] getOutputPixels() {
-		Color[] out = outputPixels;
-		return out;
+	private void setOutputPixels(PixelBuffer pixels) {
+		synchronized (writeLock) {
+			lastBuffer.copyFrom(pixels);
+			lastPixels = null;
+			if(transitionEngine.offerIncoming(pixels))
+				return;
+			long start = System.nanoTime();
+			correctFrame(pixels);
+			metrics.record(Stage.BRIGHTNESS, start);
+			publishFrame();
+		}
 	}
 	
-	private void loop() {
-		if(!active) {
-			active = true;
-			new Thread(new Runnable() {
-				
-				@Override
-				public void run() {
-					Logger.info("Started output loop.");
-					
-					while(active) {
-						if((outputPixels != null) && (activeOutput != null) && (activeOutput.getState() == ConnectionState.CONNECTED)) {
-							
-							Color[] out = getOutputPixels();
-							activeOutput.onOutput(out);
-							
-							try {
-								Thread.sleep(getDelay());
-							} catch (InterruptedException e) {
-								Logger.error(e);
-							}
-						} else if(activeOutput != null && activeOutput.getState() != ConnectionState.CONNECTED) {
-							Logger.info("Output not connected, deactivate Output!");
-							setEnabled(false);
-							fireOutputAction(activeOutput, OutputActionType.DISCONNECTED);
-						} else {
-							Logger.info("Invalid output data, disable Output loop!");
-							setEnabled(false);
-						}
-					}
-					Logger.info("Stopped output loop.");
-				}
-			}, "Output loop").start();
+	/**
+	 * Publish a frame of a transition. The caller must hold the write lock.
+	 */
+	void publishTransitionFrame(PixelBuffer pixels) {
+		long start = System.nanoTime();
+		correctFrame(pixels);
+		metrics.record(Stage.BRIGHTNESS, start);
+		publishFrame();
+	}
+	
+	/**
+	 * Write the corrected pixels to the frame. With dithering, the pixels
+	 * are copied unchanged and every output loop corrects and dithers
+	 * them at its own frame rate. The caller must hold the write lock.
+	 */
+	private void correctFrame(PixelBuffer pixels) {
+		frameUncorrected = colorCorrection.isDithering();
+		if(!frameUncorrected) {
+			colorCorrection.apply(pixels, frame);
+		} else if(pixels != frame) {
+			frame.copyFrom(pixels);
+		}
+	}
+	
+	/**
+	 * Copy the last frame the effects added (without brightness).
+	 * The caller must hold the write lock.
+	 */
+	void copyLastFrame(PixelBuffer dest) {
+		if(lastPixels != null) {
+			dest.copyFrom(lastPixels);
+		} else {
+			dest.copyFrom(lastBuffer);
+		}
+	}
+	
+	/**
+	 * Hand the frame to all output loops. Every loop has its own
+	 * triple buffer, a slow output only drops its own frames.
+	 */
+	private void publishFrame() {
+		for(OutputWorker worker : workers) {
+			worker.publish(frame, frameUncorrected);
 		}
+		frameSequence++;
+		metrics.markRenderFrame();
+	}
+	
+	/**
+	 * 
+	 * @return Sequence number of the last frame that was added to the output
+	 */
+	public long getFrameSequence() {
+		return frameSequence;
 	}
 	
 	/**
 	 * 
-	 * @param colors Color array
-	 * @param value Dim value between 0 and 100
-	 */
-	private Color[] changeBrightness(Color[] color, int value) {
-		Color[] colors = new Color[color.length];
-		if(value < 0) {
-			value = 0;
-		} else if(value > 100) {
-			value = 100;
+	 * @return Number of frames that were replaced by a newer frame before the output loops could send them
+	 */
+	public long getDroppedFrames() {
+		long dropped = 0;
+		for(OutputWorker worker : workers) {
+			dropped += worker.getDroppedFrames();
 		}
-		for(int i = 0; i < colors.length; i++) {
-			int r = color[i].getRed();
-			int g = color[i].getGreen();
-			int b = color[i].getBlue();
-			
-			r = r * value / 100;
-			g = g * value / 100;
-			b = b * value / 100;
-			
-			colors[i] = new Color(r, g, b);
+		return dropped;
+	}
+	
+	/**
+	 * 
+	 * @return Number of times the output loops sent the same frame again because no new frame was available
+	 */
+	public long getDuplicatedFrames() {
+		long duplicated = 0;
+		for(OutputWorker worker : workers) {
+			duplicated += worker.getDuplicatedFrames();
 		}
-		return colors;
+		return duplicated;
+	}
+
+	
+	private static class FrameCapture {
+		PixelBuffer target;
+		boolean captured;
 	}
 
 }
@@ -0,0 +1,222 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.out;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.tinylog.Logger;
+
+import de.lars.remotelightcore.devices.ConnectionState;
+import de.lars.remotelightcore.utils.FrameScheduler;
+
+/**
+ * Drives a single active output on its own thread and at its own frame rate.
+ * <p>
+ * The {@link OutputManager} publishes every rendered frame to all workers.
+ * Each worker has its own {@link TripleBuffer}, so a slow output only drops
+ * frames for itself (latest frame wins) and never blocks the render thread
+ * or the other outputs.
+ */
+public class OutputWorker implements Runnable {
+	
+	private final Output output;
+	private final OutputManager manager;
+	private final TripleBuffer frameBuffer = new TripleBuffer();
+	private final FrameScheduler scheduler;
+	private final FrameInterpolator interpolator = new FrameInterpolator();
+	/** flag of frames that still need brightness, gamma and dithering */
+	private final static int UNCORRECTED = 1;
+	private final ColorCorrection.Dither dither;
+	private final PixelBuffer ditherBuffer = new PixelBuffer(0);
+	private volatile boolean running;
+	private volatile Thread thread;
+	/** released when the loop no longer uses the output */
+	private volatile CountDownLatch stopped = new CountDownLatch(0);
+	
+	OutputWorker(Output output, OutputManager manager) {
+		this.output = output;
+		this.manager = manager;
+		scheduler = new FrameScheduler(manager.getDelay());
+		dither = manager.getColorCorrection().newDither();
+	}
+	
+	public Output getOutput() {
+		return output;
+	}
+	
+	synchronized void start() {
+		if(running)
+			return;
+		running = true;
+		scheduler.reset();
+		stopped = new CountDownLatch(1);
+		thread = new Thread(this, "Output loop " + output.getId());
+		thread.start();
+	}
+	
+	/**
+	 * Stop the worker. Cancels the frame wait and, unless called from the
+	 * worker thread itself, waits until the frame that is currently being
+	 * sent is finished, so the output can be deactivated safely afterwards.
+	 */
+	void stop() {
+		Thread t;
+		CountDownLatch latch;
+		synchronized (this) {
+			running = false;
+			t = thread;
+			thread = null;
+			latch = stopped;
+		}
+		if(t != null && t != Thread.currentThread()) {
+			// wake up from the frame wait, do not interrupt
+			// (interrupting would close NIO channels of the output)
+			scheduler.cancel();
+			LockSupport.unpark(t);
+			try {
+				if(!latch.await(5, TimeUnit.SECONDS))
+					Logger.warn("Output " + output.getId() + " did not finish its frame within 5 seconds.");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	public boolean isRunning() {
+		return running;
+	}
+	
+	/**
+	 * Copy the frame into the buffer of this worker. Only called by the
+	 * output manager while holding its write lock.
+	 * @param frame			brightness adjusted frame
+	 * @param uncorrected	true if the worker has to apply brightness,
+	 * 						gamma and dithering to the frame
+	 */
+	void publish(PixelBuffer frame, boolean uncorrected) {
+		PixelBuffer out = frameBuffer.getWriteBuffer();
+		out.copyFrom(frame);
+		// outputs with a different number of pixels get a cropped or padded frame
+		int pixels = getPixelCount(output);
+		if(pixels > 0 && pixels != out.length())
+			out.resize(pixels);
+		frameBuffer.publish(uncorrected ? UNCORRECTED : 0);
+	}
+	
+	/**
+	 * @return the number of pixels the output expects (including clones and mapping)
+	 */
+	static int getPixelCount(Output output) {
+		if(output.getOutputPatch().isResizing())
+			return output.getOutputPatch().getPatchedPixelNumber();
+		return output.getPixels();
+	}
+	
+	@Override
+	public void run() {
+		Logger.info("Started output loop for " + output.getId() + ".");
+		final CountDownLatch latch = stopped;
+		boolean disconnected = false;
+		while(running) {
+			if(output.getState() != ConnectionState.CONNECTED) {
+				disconnected = true;
+				break;
+			}
+			if(frameBuffer.getWriteSequence() != 0) {
+				PixelBuffer out = frameBuffer.acquire();
+				boolean uncorrected = (frameBuffer.getReadFlags() & UNCORRECTED) != 0;
+				if(manager.isInterpolation()) {
+					// fade between the last two rendered frames at the rate of this output
+					out = interpolator.next(out, frameBuffer.getReadSequence(), System.nanoTime(), scheduler.getPeriodNanos());
+				}
+				if(uncorrected) {
+					// dither every output frame, also when the same frame is sent again
+					out = dither.apply(out, ditherBuffer);
+				}
+				output.onOutput(out);
+			}
+			
+			updateFrameRate();
+			try {
+				scheduler.waitForNextFrame();
+			} catch (InterruptedException e) {
+				Logger.error(e);
+			}
+		}
+		latch.countDown();
+		Logger.info("Stopped output loop for " + output.getId() + ".");
+		if(disconnected && running) {
+			// deactivate after releasing the output, a concurrent stop() waits for the latch
+			Logger.info("Output " + output.getId() + " not connected, deactivate Output!");
+			running = false;
+			manager.onWorkerDisconnected(this);
+		}
+	}
+	
+	private void updateFrameRate() {
+		int fps = output.getFrameRate();
+		if(fps > 0) {
+			scheduler.setFrameRate(fps);
+		} else {
+			scheduler.setDelay(manager.getDelay());
+		}
+	}
+	
+	/**
+	 * @return measured frame rate of this output
+	 */
+	public double getFrameRate() {
+		return running ? scheduler.getFrameRate() : 0;
+	}
+	
+	/**
+	 * @return target frame rate of this output
+	 */
+	public double getTargetFrameRate() {
+		return scheduler.getTargetFrameRate();
+	}
+	
+	/**
+	 * @return number of frames the loop skipped because it fell behind
+	 */
+	public long getSkippedFrames() {
+		return scheduler.getSkippedFrames();
+	}
+	
+	/**
+	 * @return number of frames that were replaced by a newer frame before they could be sent
+	 */
+	public long getDroppedFrames() {
+		return frameBuffer.getDroppedFrames();
+	}
+	
+	/**
+	 * @return number of times the same frame was sent again because no new frame was available
+	 */
+	public long getDuplicatedFrames() {
+		return frameBuffer.getDuplicatedFrames();
+	}
+
+}
@@ -0,0 +1,345 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.out;
+
+import java.util.Arrays;
+
+import de.lars.remotelightcore.utils.color.Color;
+import de.lars.remotelightcore.utils.color.ColorMath;
+
+/**
+ * Frame buffer which stores the pixel colors as packed RGB integers
+ * ({@code 0xRRGGBB}) in a primitive array. Unlike a {@code Color[]} it
+ * can be reused from frame to frame without allocating new objects.
+ */
+public class PixelBuffer {
+	
+	private int[] pixels;
+	private int offset;
+	private int length;
+	/** true if this buffer shares the array of another buffer */
+	private boolean view;
+	
+	/**
+	 * Create a new black pixel buffer.
+	 * @param length	the number of pixels
+	 */
+	public PixelBuffer(int length) {
+		this.pixels = new int[length];
+		this.length = length;
+	}
+	
+	/**
+	 * Create a new pixel buffer backed by the specified array.
+	 * The array is not copied.
+	 * @param packed	packed RGB values ({@code 0xRRGGBB})
+	 */
+	public PixelBuffer(int[] packed) {
+		this.pixels = packed;
+		this.length = packed.length;
+	}
+	
+	private PixelBuffer(int[] pixels, int offset, int length) {
+		this.pixels = pixels;
+		this.offset = offset;
+		this.length = length;
+		this.view = true;
+	}
+	
+	/**
+	 * Create a new pixel buffer from the specified color array.
+	 * @param colors	the colors to copy
+	 * @return			a new pixel buffer with the same length
+	 */
+	public static PixelBuffer fromColors(Color[] colors) {
+		PixelBuffer buffer = new PixelBuffer(colors.length);
+		buffer.copyFrom(colors);
+		return buffer;
+	}
+	
+	/**
+	 * Pack the specified RGB values into a single integer.
+	 * @param r		red value (0-255)
+	 * @param g		green value (0-255)
+	 * @param b		blue value (0-255)
+	 * @return		packed RGB value ({@code 0xRRGGBB})
+	 */
+	public static int pack(int r, int g, int b) {
+		return ((r & 0xFF) << 16) | ((g & 0xFF) << 8) | (b & 0xFF);
+	}
+	
+	public static int red(int rgb) {
+		return (rgb >> 16) & 0xFF;
+	}
+	
+	public static int green(int rgb) {
+		return (rgb >> 8) & 0xFF;
+	}
+	
+	public static int blue(int rgb) {
+		return rgb & 0xFF;
+	}
+	
+	/**
+	 * Linear interpolation between two packed colors. Red and blue are
+	 * interpolated together in one multiplication (fixed point, 8 bit fraction).
+	 * @param from		packed start color
+	 * @param to		packed end color
+	 * @param alpha		position between 0 ({@code from}) and 256 ({@code to})
+	 * @return			the interpolated packed color
+	 */
+	public static int lerp(int from, int to, int alpha) {
+		return ColorMath.lerp(from, to, alpha);
+	}
+	
+	/**
+	 * @return the number of pixels
+	 */
+	public int length() {
+		return length;
+	}
+	
+	/**
+	 * Change the number of pixels. The backing array is only
+	 * reallocated if it is too small. Newly added pixels are black.
+	 * @param length	the new number of pixels
+	 */
+	public void resize(int length) {
+		if(length > this.length) {
+			if(view) {
+				// a view must not write into the shared array, detach it
+				int[] detached = new int[length];
+				System.arraycopy(pixels, offset, detached, 0, this.length);
+				pixels = detached;
+				offset = 0;
+				view = false;
+			} else {
+				if(length > pixels.length)
+					pixels = Arrays.copyOf(pixels, length);
+				// clear stale pixels between the old length and the old array length
+				Arrays.fill(pixels, this.length, length, 0);
+			}
+		}
+		this.length = length;
+	}
+	
+	/**
+	 * Create a view of a range of this buffer. The view shares the
+	 * backing array, so changes are visible in both buffers and no
+	 * pixels are copied. Resizing the view beyond its length detaches
+	 * it from this buffer.
+	 * @param from		start index of the range
+	 * @param length	number of pixels
+	 * @return			a view of the specified range
+	 */
+	public PixelBuffer view(int from, int length) {
+		if(from < 0 || length < 0 || from + length > this.length)
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + (from + length) + ") out of bounds for length " + this.length);
+		return new PixelBuffer(pixels, offset + from, length);
+	}
+	
+	/**
+	 * Get the backing array. The pixels of this buffer are stored at
+	 * the indices {@link #offset()} to {@code offset() + length() - 1}.
+	 * @return	the packed RGB array
+	 */
+	public int[] array() {
+		return pixels;
+	}
+	
+	/**
+	 * @return the index of the first pixel in the backing array
+	 * @see #array()
+	 */
+	public int offset() {
+		return offset;
+	}
+	
+	/**
+	 * @param index		pixel index
+	 * @return			packed RGB value ({@code 0xRRGGBB})
+	 */
+	public int get(int index) {
+		return pixels[offset + index];
+	}
+	
+	public int getRed(int index) {
+		return red(pixels[offset + index]);
+	}
+	
+	public int getGreen(int index) {
+		return green(pixels[offset + index]);
+	}
+	
+	public int getBlue(int index) {
+		return blue(pixels[offset + index]);
+	}
+	
+	/**
+	 * @param index		pixel index
+	 * @param rgb		packed RGB value ({@code 0xRRGGBB})
+	 */
+	public void set(int index, int rgb) {
+		pixels[offset + index] = rgb & 0xFFFFFF;
+	}
+	
+	public void set(int index, int r, int g, int b) {
+		pixels[offset + index] = pack(r, g, b);
+	}
+	
+	public void set(int index, Color color) {
+		pixels[offset + index] = color.getRGB() & 0xFFFFFF;
+	}
+	
+	/**
+	 * Set all pixels to the specified color.
+	 * @param rgb	packed RGB value ({@code 0xRRGGBB})
+	 */
+	public void fill(int rgb) {
+		Arrays.fill(pixels, offset, offset + length, rgb & 0xFFFFFF);
+	}
+	
+	/**
+	 * Fill the pixels with a rainbow using the FastLED rainbow hue mapping.
+	 * Hues are 16 bit, 65536 is one full turn of the color wheel.
+	 * @param startHue	hue of the first pixel
+	 * @param deltaHue	hue increment per pixel
+	 */
+	public void fillRainbow(int startHue, int deltaHue) {
+		int hue = startHue;
+		for(int i = offset; i < offset + length; i++) {
+			pixels[i] = ColorMath.hsv2rgbRainbow(hue >>> 8, 255, 255);
+			hue = (hue + deltaHue) & 0xFFFF;
+		}
+	}
+	
+	/**
+	 * Scale all pixels by {@code scale}/256.
+	 * @param scale		scale 0...255
+	 */
+	public void nscale8(int scale) {
+		for(int i = offset; i < offset + length; i++) {
+			pixels[i] = ColorMath.nscale8(pixels[i], scale);
+		}
+	}
+	
+	/**
+	 * Dim all pixels towards black.
+	 * @param amount	amount to dim 0 (unchanged) ... 255 (black)
+	 */
+	public void fadeToBlackBy(int amount) {
+		nscale8(255 - amount);
+	}
+	
+	/**
+	 * Copy the colors into this buffer. The buffer is resized
+	 * to the length of the color array.
+	 * @param colors	the colors to copy
+	 */
+	public void copyFrom(Color[] colors) {
+		resize(colors.length);
+		for(int i = 0; i < colors.length; i++) {
+			pixels[offset + i] = colors[i].getRGB() & 0xFFFFFF;
+		}
+	}
+	
+	/**
+	 * Copy the pixels of the source buffer into this buffer. The
+	 * buffer is resized to the length of the source buffer.
+	 * @param src	the source buffer
+	 */
+	public void copyFrom(PixelBuffer src) {
+		resize(src.length);
+		System.arraycopy(src.pixels, src.offset, pixels, offset, src.length);
+	}
+	
+	/**
+	 * Copy a range of pixels into the destination buffer.
+	 * @param srcPos	start index in this buffer
+	 * @param dest		destination buffer
+	 * @param destPos	start index in the destination buffer
+	 * @param length	number of pixels to copy
+	 */
+	public void copyTo(int srcPos, PixelBuffer dest, int destPos, int length) {
+		System.arraycopy(pixels, offset + srcPos, dest.pixels, dest.offset + destPos, length);
+	}
+	
+	/**
+	 * @return a copy of this buffer
+	 */
+	public PixelBuffer copy() {
+		return new PixelBuffer(Arrays.copyOfRange(pixels, offset, offset + length));
+	}
+	
+	/**
+	 * Convert this buffer to a new color array.
+	 * @return	color array with the same length
+	 */
+	public Color[] toColors() {
+		return toColors(null);
+	}
+	
+	/**
+	 * Convert this buffer to a color array. If the destination array has
+	 * the same length it is reused and only the colors that have changed
+	 * are replaced.
+	 * @param dest	the array to reuse or {@code null}
+	 * @return		the destination array or a new array
+	 */
+	public Color[] toColors(Color[] dest) {
+		if(dest == null || dest.length != length) {
+			dest = new Color[length];
+		}
+		for(int i = 0; i < length; i++) {
+			int rgb = pixels[offset + i];
+			Color c = dest[i];
+			if(c == null || (c.getRGB() & 0xFFFFFF) != rgb) {
+				dest[i] = new Color(rgb);
+			}
+		}
+		return dest;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if(!(obj instanceof PixelBuffer))
+			return false;
+		PixelBuffer other = (PixelBuffer) obj;
+		if(other.length != length)
+			return false;
+		for(int i = 0; i < length; i++) {
+			if(other.pixels[other.offset + i] != pixels[offset + i])
+				return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for(int i = 0; i < length; i++)
+			hash = 31 * hash + pixels[offset + i];
+		return hash;
+	}
+
+}
@@ -0,0 +1,219 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.out;
+
+import java.io.Serializable;
+
+/**
+ * Estimates the current draw of an output and scales the frame down
+ * when it exceeds the power budget.
+ * <p>
+ * The estimate is calculated in a single pass over the packed frame from
+ * the current of every color channel at full brightness and the idle
+ * current of every LED. When the estimate exceeds the budget, the frame is
+ * scaled immediately, so the power supply is never overloaded. When the
+ * estimate drops again, the scale is released smoothly over a few frames
+ * to avoid visible pumping.
+ */
+public class PowerLimit implements Serializable {
+	
+	private static final long serialVersionUID = -1306722283818958361L;
+	/** fraction of the difference to the target scale that is released per frame */
+	private final static double RELEASE = 0.1;
+	
+	/** current of a channel at full brightness in milliamps */
+	private double redMilliamps = 20;
+	private double greenMilliamps = 20;
+	private double blueMilliamps = 20;
+	/** current of a LED that is off in milliamps */
+	private double idleMilliamps = 1;
+	/** max current in milliamps, 0 for no limit */
+	private int budget;
+	
+	private transient double scale = 1.0;
+	private transient volatile double estimatedCurrent;
+	private transient volatile double estimatedIdleCurrent;
+	private transient volatile double appliedScale = 1.0;
+	
+	/**
+	 * Set the current of every color channel at full brightness.
+	 * A WS2812 LED draws about 20 mA per channel.
+	 */
+	public void setChannelCurrent(double red, double green, double blue) {
+		if(red < 0 || green < 0 || blue < 0)
+			throw new IllegalArgumentException("Current must not be negative.");
+		redMilliamps = red;
+		greenMilliamps = green;
+		blueMilliamps = blue;
+	}
+	
+	public double getRedCurrent() {
+		return redMilliamps;
+	}
+	
+	public double getGreenCurrent() {
+		return greenMilliamps;
+	}
+	
+	public double getBlueCurrent() {
+		return blueMilliamps;
+	}
+	
+	/**
+	 * @param milliamps		current of a LED that is off
+	 */
+	public void setIdleCurrent(double milliamps) {
+		if(milliamps < 0)
+			throw new IllegalArgumentException("Current must not be negative.");
+		idleMilliamps = milliamps;
+	}
+	
+	public double getIdleCurrent() {
+		return idleMilliamps;
+	}
+	
+	/**
+	 * @param milliamps		max current of the output, 0 for no limit
+	 */
+	public void setBudget(int milliamps) {
+		budget = Math.max(0, milliamps);
+	}
+	
+	/**
+	 * @return max current of the output, 0 for no limit
+	 */
+	public int getBudget() {
+		return budget;
+	}
+	
+	/**
+	 * @return estimated current of the last frame before limiting in milliamps
+	 */
+	public double getEstimatedCurrent() {
+		return estimatedCurrent;
+	}
+	
+	/**
+	 * @return idle current of all LEDs of the last frame in milliamps,
+	 * 			this part of the estimate can not be reduced by scaling
+	 */
+	public double getEstimatedIdleCurrent() {
+		return estimatedIdleCurrent;
+	}
+	
+	/**
+	 * @return scale that was applied to the last frame (1 = not limited)
+	 */
+	public double getAppliedScale() {
+		return appliedScale;
+	}
+	
+	/**
+	 * Estimate the current draw of the pixels.
+	 * @param pixels	the pixels
+	 * @return			estimated current in milliamps
+	 */
+	public double estimate(PixelBuffer pixels) {
+		final int[] data = pixels.array();
+		final int offset = pixels.offset();
+		final int length = pixels.length();
+		long red = 0, green = 0, blue = 0;
+		for(int i = 0; i < length; i++) {
+			int rgb = data[offset + i];
+			red += (rgb >> 16) & 0xFF;
+			green += (rgb >> 8) & 0xFF;
+			blue += rgb & 0xFF;
+		}
+		return (red * redMilliamps + green * greenMilliamps + blue * blueMilliamps) / 255.0
+				+ length * idleMilliamps;
+	}
+	
+	/**
+	 * Estimate the current of the frame. The estimate is used by the next
+	 * call of {@link #apply(PixelBuffer, PixelBuffer, double)}.
+	 * The pixels must be in RGB order, otherwise the channel currents
+	 * are applied to the wrong channels.
+	 * @param pixels	the pixels
+	 * @return			estimated current in milliamps
+	 */
+	public double update(PixelBuffer pixels) {
+		final double current = estimate(pixels);
+		estimatedIdleCurrent = pixels.length() * idleMilliamps;
+		estimatedCurrent = current;
+		return current;
+	}
+	
+	/**
+	 * Scale the frame down if the last estimate exceeds the budget of this
+	 * output or the specified global limit. Must only be called by one
+	 * thread at a time, after {@link #update(PixelBuffer)}.
+	 * @param pixels		the pixels, not modified
+	 * @param target		buffer the scaled pixels are written to, may be the input
+	 * @param globalScale	max scale allowed by a global budget (1 = no limit)
+	 * @return				the input if the frame is not scaled, otherwise the target
+	 */
+	public PixelBuffer apply(PixelBuffer pixels, PixelBuffer target, double globalScale) {
+		double limit = Math.min(1.0, globalScale);
+		limit = Math.min(limit, getScale(budget, estimatedCurrent, estimatedIdleCurrent));
+		// attack immediately, release smoothly
+		if(limit < scale)
+			scale = limit;
+		else
+			scale = Math.min(limit, scale + (limit - scale) * RELEASE + 0.001);
+		appliedScale = scale;
+		
+		if(scale >= 1.0)
+			return pixels;
+		
+		final int factor = (int) (scale * 256);
+		final int length = pixels.length();
+		target.resize(length);
+		final int[] in = pixels.array();
+		final int[] out = target.array();
+		final int inOffset = pixels.offset();
+		final int outOffset = target.offset();
+		for(int i = 0; i < length; i++) {
+			int rgb = in[inOffset + i];
+			int r = (((rgb >> 16) & 0xFF) * factor) >> 8;
+			int g = (((rgb >> 8) & 0xFF) * factor) >> 8;
+			int b = ((rgb & 0xFF) * factor) >> 8;
+			out[outOffset + i] = (r << 16) | (g << 8) | b;
+		}
+		return target;
+	}
+	
+	/**
+	 * Scale that limits the current to a budget. Only the current above
+	 * the idle current is scaled, the idle current can not be reduced.
+	 * @param budget	max current in milliamps, 0 for no limit
+	 * @param current	estimated current including the idle current
+	 * @param idle		idle current of all LEDs
+	 * @return			scale between 0 and 1
+	 */
+	public static double getScale(int budget, double current, double idle) {
+		if(budget <= 0 || current <= budget)
+			return 1.0;
+		return Math.max(0, budget - idle) / Math.max(current - idle, 1e-9);
+	}
+
+}
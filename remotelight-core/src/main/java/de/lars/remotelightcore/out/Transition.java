@@ -0,0 +1,104 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.out;
+
+import java.util.Locale;
+
+/**
+ * Describes how the output changes from one effect to the next.
+ * Instances are immutable.
+ */
+public class Transition {
+	
+	public enum Type {
+		/** switch immediately */
+		NONE,
+		/** fade all pixels from the old to the new effect */
+		CROSSFADE,
+		/** the new effect moves in from the first pixel */
+		WIPE,
+		/** the pixels switch to the new effect in random order */
+		DISSOLVE
+	}
+	
+	/** max duration in milliseconds */
+	public final static int MAX_DURATION = 60000;
+	/** switch immediately without transition */
+	public final static Transition NONE = new Transition(Type.NONE, 0);
+	
+	private final Type type;
+	private final int duration;
+	
+	/**
+	 * @param type		the transition type
+	 * @param duration	duration in milliseconds (0 to {@link #MAX_DURATION})
+	 */
+	public Transition(Type type, int duration) {
+		if(type == null)
+			throw new IllegalArgumentException("Transition type must not be null.");
+		if(duration < 0 || duration > MAX_DURATION)
+			throw new IllegalArgumentException("Invalid transition duration: " + duration + " (0 to " + MAX_DURATION + " ms)");
+		this.type = type;
+		this.duration = duration;
+	}
+	
+	public Type getType() {
+		return type;
+	}
+	
+	/**
+	 * @return duration in milliseconds
+	 */
+	public int getDuration() {
+		return duration;
+	}
+	
+	/**
+	 * @return true if the effects should be switched immediately
+	 */
+	public boolean isNone() {
+		return type == Type.NONE || duration == 0;
+	}
+	
+	/**
+	 * Get the transition type by name (case insensitive).
+	 * @param name	name of the type, e.g. {@code crossfade}
+	 * @return the type
+	 * @throws IllegalArgumentException if there is no type with this name
+	 */
+	public static Type parseType(String name) {
+		if(name == null)
+			throw new IllegalArgumentException("Transition type must not be null.");
+		try {
+			return Type.valueOf(name.trim().toUpperCase(Locale.ROOT));
+		} catch(IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid transition type '" + name + "'.");
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return type.name().toLowerCase(Locale.ROOT) + " (" + duration + " ms)";
+	}
+
+}
@@ -0,0 +1,434 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.out;
+
+import java.util.Random;
+
+import org.tinylog.Logger;
+
+import de.lars.remotelightcore.utils.FrameScheduler;
+import de.lars.remotelightcore.utils.color.Color;
+
+/**
+ * Blends the output of the old effect into the new effect when the
+ * effect is changed, instead of turning the strip off in between.
+ * <p>
+ * A transition starts with the last frame of the old effect. If the old
+ * effect can keep rendering (see {@link #setOutgoingEffect(Runnable, int, Runnable)}),
+ * it is rendered on the transition thread and its frames are captured
+ * (see {@link OutputManager#captureFrames(PixelBuffer, Runnable)}),
+ * otherwise its last frame is faded out. All other frames are frames of
+ * the new effect. The transition thread blends both at the output
+ * rate and hands the result to the outputs.
+ * <p>
+ * The outgoing effect may only use {@link #setMaxLoad(int) a share} of one
+ * CPU core, if it renders slower its frame rate is reduced. The buffers are
+ * reused between transitions.
+ */
+public class TransitionEngine {
+	
+	/** default max CPU load of the outgoing effect in percent of one core */
+	public final static int DEFAULT_MAX_LOAD = 50;
+	/** width of the soft edge of the wipe transition in pixels */
+	private final static int WIPE_EDGE = 4;
+	/** number of progress steps a pixel fades during the dissolve transition */
+	private final static int DISSOLVE_FADE = 32;
+	
+	private final OutputManager manager;
+	/** the write lock of the output manager, guards all buffers */
+	private final Object lock;
+	private final Random random = new Random();
+	
+	private volatile Transition defaultTransition = Transition.NONE;
+	private volatile Transition nextTransition;
+	private volatile int maxLoad = DEFAULT_MAX_LOAD;
+	
+	private final PixelBuffer outgoing = new PixelBuffer(0);
+	private final PixelBuffer incoming = new PixelBuffer(0);
+	private final PixelBuffer output = new PixelBuffer(0);
+	/** frame of the old effect, only used by the transition thread */
+	private final PixelBuffer rendered = new PixelBuffer(0);
+	private int[] thresholds = new int[0];
+	private boolean hasIncoming;
+	private Transition transition;
+	private long startTime;
+	private Runnable outgoingRenderer;
+	private int outgoingDelay;
+	private Runnable outgoingCleanup;
+	private volatile TransitionThread thread;
+	
+	TransitionEngine(OutputManager manager, Object lock) {
+		this.manager = manager;
+		this.lock = lock;
+	}
+	
+	/**
+	 * Set the transition that is used when the effect is changed.
+	 * @param transition	the transition or {@link Transition#NONE}
+	 */
+	public void setDefaultTransition(Transition transition) {
+		defaultTransition = transition == null ? Transition.NONE : transition;
+	}
+	
+	public Transition getDefaultTransition() {
+		return defaultTransition;
+	}
+	
+	/**
+	 * Use a different transition for the next effect change only.
+	 * @param transition	the transition or null to use the default transition
+	 */
+	public void setNextTransition(Transition transition) {
+		nextTransition = transition;
+	}
+	
+	/**
+	 * Limit the CPU time of the outgoing effect during a transition.
+	 * @param percent	max share of one CPU core in percent (1 to 100)
+	 */
+	public void setMaxLoad(int percent) {
+		maxLoad = Math.max(1, Math.min(100, percent));
+	}
+	
+	public int getMaxLoad() {
+		return maxLoad;
+	}
+	
+	/**
+	 * 
+	 * @return True if a transition is running
+	 */
+	public boolean isRunning() {
+		return thread != null;
+	}
+	
+	/**
+	 * 
+	 * @return The running transition or null
+	 */
+	public Transition getTransition() {
+		synchronized (lock) {
+			return thread != null ? transition : null;
+		}
+	}
+	
+	/**
+	 * Start a transition from the current frame. Must be called before
+	 * the old effect is stopped. A running transition is replaced, its
+	 * current frame becomes the start frame.
+	 * @return True if a transition was started, false if the effects
+	 * 			should be switched immediately
+	 */
+	public boolean begin() {
+		Transition t = nextTransition != null ? nextTransition : defaultTransition;
+		nextTransition = null;
+		TransitionThread previous;
+		TransitionThread next = null;
+		Runnable cleanup;
+		synchronized (lock) {
+			previous = thread;
+			cleanup = outgoingCleanup;
+			outgoingRenderer = null;
+			outgoingCleanup = null;
+			thread = null;
+			
+			if(!t.isNone()) {
+				if(previous != null) {
+					// continue from the current blended frame
+					outgoing.copyFrom(output);
+				} else {
+					manager.copyLastFrame(outgoing);
+				}
+				if(outgoing.length() > 0) {
+					transition = t;
+					hasIncoming = false;
+					startTime = System.nanoTime();
+					if(t.getType() == Transition.Type.DISSOLVE) {
+						shuffleThresholds(outgoing.length());
+					}
+					next = new TransitionThread();
+					thread = next;
+				}
+			}
+		}
+		stopThread(previous, cleanup);
+		if(next != null) {
+			Logger.debug("Starting transition " + t + ".");
+			next.start();
+		}
+		return next != null;
+	}
+	
+	/**
+	 * Keep rendering the old effect during the transition. The renderer is
+	 * called on the transition thread, the frames it adds to the output are
+	 * used as frames of the old effect.
+	 * @param renderer	renders one frame of the old effect
+	 * @param delay		delay between two frames of the old effect in milliseconds
+	 * @param cleanup	called once the transition has finished or was cancelled,
+	 * 					e.g. to disable the old effect (may be null)
+	 */
+	public void setOutgoingEffect(Runnable renderer, int delay, Runnable cleanup) {
+		synchronized (lock) {
+			if(thread != null) {
+				outgoingRenderer = renderer;
+				outgoingDelay = delay;
+				outgoingCleanup = cleanup;
+				return;
+			}
+		}
+		// no transition running
+		if(cleanup != null)
+			cleanup.run();
+	}
+	
+	/**
+	 * Stop the running transition without publishing another frame.
+	 */
+	public void cancel() {
+		TransitionThread previous;
+		Runnable cleanup;
+		synchronized (lock) {
+			previous = thread;
+			cleanup = outgoingCleanup;
+			outgoingRenderer = null;
+			outgoingCleanup = null;
+			thread = null;
+		}
+		stopThread(previous, cleanup);
+	}
+	
+	private void stopThread(TransitionThread previous, Runnable cleanup) {
+		if(previous != null && previous != Thread.currentThread()) {
+			previous.interrupt();
+			try {
+				// the old effect must not render while it is disabled
+				previous.join(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if(cleanup != null)
+			cleanup.run();
+	}
+	
+	/**
+	 * Called by the output manager with the write lock held.
+	 * @return True if a transition is running and the frame was stored as frame of the new effect
+	 */
+	boolean offerIncoming(PixelBuffer pixels) {
+		if(thread == null)
+			return false;
+		incoming.copyFrom(pixels);
+		hasIncoming = true;
+		return true;
+	}
+	
+	/**
+	 * Called by the output manager with the write lock held.
+	 * @return True if a transition is running and the frame was stored as frame of the new effect
+	 */
+	boolean offerIncoming(Color[] pixels) {
+		if(thread == null)
+			return false;
+		incoming.copyFrom(pixels);
+		hasIncoming = true;
+		return true;
+	}
+	
+	/**
+	 * Blend and publish the next frame.
+	 * @return True if the transition has finished
+	 */
+	private boolean step(long now) {
+		final long duration = transition.getDuration() * 1000000L;
+		final long elapsed = now - startTime;
+		if(elapsed >= duration) {
+			thread = null;
+			if(hasIncoming)
+				manager.publishTransitionFrame(incoming);
+			return true;
+		}
+		final int progress = (int) (Math.max(0, elapsed) * 256 / duration);
+		blend(transition.getType(), outgoing, hasIncoming ? incoming : outgoing, progress, thresholds, output);
+		manager.publishTransitionFrame(output);
+		return false;
+	}
+	
+	private void shuffleThresholds(int length) {
+		if(thresholds.length != length)
+			thresholds = new int[length];
+		for(int i = 0; i < length; i++) {
+			thresholds[i] = random.nextInt(256 - DISSOLVE_FADE);
+		}
+	}
+	
+	/**
+	 * Blend two frames.
+	 * @param type			the transition type
+	 * @param from			frame of the old effect
+	 * @param to			frame of the new effect
+	 * @param progress		position between 0 ({@code from}) and 256 ({@code to})
+	 * @param thresholds	random values between 0 and 224 for every pixel, only used for {@link Transition.Type#DISSOLVE}
+	 * @param dest			destination buffer
+	 * @return				the destination buffer
+	 */
+	public static PixelBuffer blend(Transition.Type type, PixelBuffer from, PixelBuffer to, int progress, int[] thresholds, PixelBuffer dest) {
+		if(from.length() != to.length() || type == Transition.Type.NONE || progress >= 256) {
+			dest.copyFrom(to);
+			return dest;
+		}
+		switch (type) {
+		case WIPE:
+			return wipe(from, to, progress, dest);
+		case DISSOLVE:
+			return dissolve(from, to, progress, thresholds, dest);
+		default:
+			return FrameInterpolator.interpolate(from, to, progress, dest);
+		}
+	}
+	
+	private static PixelBuffer wipe(PixelBuffer from, PixelBuffer to, int progress, PixelBuffer dest) {
+		final int length = to.length();
+		dest.resize(length);
+		final int[] a = from.array();
+		final int[] b = to.array();
+		final int[] out = dest.array();
+		final int aOffset = from.offset();
+		final int bOffset = to.offset();
+		final int outOffset = dest.offset();
+		// position of the soft edge in 1/256 pixels
+		final long position = (long) progress * (length + WIPE_EDGE);
+		for(int i = 0; i < length; i++) {
+			long alpha = (position - i * 256L) / WIPE_EDGE;
+			if(alpha <= 0) {
+				out[outOffset + i] = a[aOffset + i];
+			} else if(alpha >= 256) {
+				out[outOffset + i] = b[bOffset + i];
+			} else {
+				out[outOffset + i] = PixelBuffer.lerp(a[aOffset + i], b[bOffset + i], (int) alpha);
+			}
+		}
+		return dest;
+	}
+	
+	private static PixelBuffer dissolve(PixelBuffer from, PixelBuffer to, int progress, int[] thresholds, PixelBuffer dest) {
+		final int length = to.length();
+		dest.resize(length);
+		final int[] a = from.array();
+		final int[] b = to.array();
+		final int[] out = dest.array();
+		final int aOffset = from.offset();
+		final int bOffset = to.offset();
+		final int outOffset = dest.offset();
+		for(int i = 0; i < length; i++) {
+			int alpha = i < thresholds.length ? (progress - thresholds[i]) * (256 / DISSOLVE_FADE) : progress;
+			if(alpha <= 0) {
+				out[outOffset + i] = a[aOffset + i];
+			} else if(alpha >= 256) {
+				out[outOffset + i] = b[bOffset + i];
+			} else {
+				out[outOffset + i] = PixelBuffer.lerp(a[aOffset + i], b[bOffset + i], alpha);
+			}
+		}
+		return dest;
+	}
+	
+	/**
+	 * Renders the old effect and publishes the blended frames until the transition has finished.
+	 */
+	private class TransitionThread extends Thread {
+		
+		TransitionThread() {
+			super("Transition");
+			setDaemon(true);
+		}
+		
+		@Override
+		public void run() {
+			FrameScheduler scheduler = new FrameScheduler(manager.getDelay());
+			long nextRender = -1;
+			while(thread == this) {
+				Runnable renderer;
+				synchronized (lock) {
+					renderer = outgoingRenderer;
+				}
+				long now = System.nanoTime();
+				if(renderer != null && nextRender < 0) {
+					// the start frame is already captured, render the old effect after its delay
+					nextRender = now + outgoingDelayNanos();
+				} else if(renderer != null && now >= nextRender) {
+					try {
+						if(OutputManager.captureFrames(rendered, renderer)) {
+							synchronized (lock) {
+								if(thread == this)
+									outgoing.copyFrom(rendered);
+							}
+						}
+					} catch(Exception e) {
+						Logger.error(e, "The old effect failed during the transition, using its last frame.");
+						synchronized (lock) {
+							if(outgoingRenderer == renderer)
+								outgoingRenderer = null;
+						}
+					}
+					// limit the CPU load of the old effect
+					long renderTime = System.nanoTime() - now;
+					nextRender = now + Math.max(outgoingDelayNanos(), renderTime * 100 / maxLoad);
+				}
+				
+				Runnable cleanup = null;
+				synchronized (lock) {
+					if(thread != this)
+						break;
+					if(step(System.nanoTime())) {
+						cleanup = outgoingCleanup;
+						outgoingRenderer = null;
+						outgoingCleanup = null;
+					}
+				}
+				if(thread != this) {
+					// finished
+					if(cleanup != null)
+						cleanup.run();
+					break;
+				}
+				
+				scheduler.setDelay(manager.getDelay());
+				try {
+					scheduler.waitForNextFrame();
+				} catch (InterruptedException e) {
+					// cancelled or replaced
+				}
+			}
+		}
+		
+		private long outgoingDelayNanos() {
+			synchronized (lock) {
+				return outgoingDelay * 1000000L;
+			}
+		}
+		
+	}
+
+}
@@ -0,0 +1,168 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.out;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free triple buffer for handing frames from the render thread to
+ * the output thread. The writer always renders into its own buffer and
+ * swaps it with the spare buffer when the frame is complete. The reader
+ * swaps its buffer with the spare buffer if a newer frame is available.
+ * Neither side ever sees a partially written frame and no buffer is
+ * allocated after the first frames.
+ * <p>
+ * There must only be one writer thread and one reader thread at a time.
+ */
+public class TripleBuffer {
+	
+	/** flag set in {@link #spare} when the spare buffer contains an unread frame */
+	private final static int FRESH = 0b100;
+	private final static int INDEX_MASK = 0b011;
+	
+	private final PixelBuffer[] buffers;
+	private final long[] sequences;
+	/** flags the writer attached to every buffer */
+	private final int[] flags;
+	/** index of the spare buffer and fresh flag */
+	private final AtomicInteger spare;
+	private int writeIndex;
+	private int readIndex;
+	private volatile long writeSequence;
+	
+	private final AtomicLong droppedFrames = new AtomicLong();
+	private final AtomicLong duplicatedFrames = new AtomicLong();
+	
+	public TripleBuffer() {
+		buffers = new PixelBuffer[] {new PixelBuffer(0), new PixelBuffer(0), new PixelBuffer(0)};
+		sequences = new long[3];
+		flags = new int[3];
+		writeIndex = 0;
+		spare = new AtomicInteger(1);
+		readIndex = 2;
+	}
+	
+	/**
+	 * Get the buffer the writer should render the next frame into.
+	 * The content of the buffer is undefined.
+	 * @return	the current write buffer
+	 */
+	public PixelBuffer getWriteBuffer() {
+		return buffers[writeIndex];
+	}
+	
+	/**
+	 * Publish the write buffer as the newest complete frame.
+	 * If the previous frame was not read by the reader, it is
+	 * counted as dropped.
+	 * @return	the sequence number of the published frame
+	 */
+	public long publish() {
+		return publish(0);
+	}
+	
+	/**
+	 * Publish the write buffer with flags that describe the frame.
+	 * The reader gets the flags from {@link #getReadFlags()}.
+	 * @param flags	flags of the frame
+	 * @return	the sequence number of the published frame
+	 * @see #publish()
+	 */
+	public long publish(int flags) {
+		this.flags[writeIndex] = flags;
+		sequences[writeIndex] = ++writeSequence;
+		int old = spare.getAndSet(writeIndex | FRESH);
+		writeIndex = old & INDEX_MASK;
+		if((old & FRESH) != 0) {
+			droppedFrames.incrementAndGet();
+		}
+		return writeSequence;
+	}
+	
+	/**
+	 * Get the newest complete frame. If no new frame was published since
+	 * the last call, the previous frame is returned again and counted
+	 * as duplicated.
+	 * @return	the newest frame
+	 */
+	public PixelBuffer acquire() {
+		if((spare.get() & FRESH) == 0) {
+			if(sequences[readIndex] != 0)
+				duplicatedFrames.incrementAndGet();
+			return buffers[readIndex];
+		}
+		int old = spare.getAndSet(readIndex);
+		readIndex = old & INDEX_MASK;
+		return buffers[readIndex];
+	}
+	
+	/**
+	 * @return	true if a frame was published that was not yet acquired
+	 */
+	public boolean hasNewFrame() {
+		return (spare.get() & FRESH) != 0;
+	}
+	
+	/**
+	 * @return	the sequence number of the frame returned by the last
+	 * 			call of {@link #acquire()}, 0 if no frame was acquired yet
+	 */
+	public long getReadSequence() {
+		return sequences[readIndex];
+	}
+	
+	/**
+	 * @return	the flags of the frame returned by the last call of {@link #acquire()}
+	 */
+	public int getReadFlags() {
+		return flags[readIndex];
+	}
+	
+	/**
+	 * @return	the sequence number of the last published frame
+	 */
+	public long getWriteSequence() {
+		return writeSequence;
+	}
+	
+	/**
+	 * @return	number of frames that were overwritten before the reader acquired them
+	 */
+	public long getDroppedFrames() {
+		return droppedFrames.get();
+	}
+	
+	/**
+	 * @return	number of times the reader acquired the same frame again
+	 */
+	public long getDuplicatedFrames() {
+		return duplicatedFrames.get();
+	}
+	
+	public void resetCounters() {
+		droppedFrames.set(0);
+		duplicatedFrames.set(0);
+	}
+
+}
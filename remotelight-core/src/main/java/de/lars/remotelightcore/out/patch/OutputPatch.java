@@ -24,11 +24,20 @@ package de.lars.remotelightcore.out.patch;
 
 import de.lars.remotelightcore.utils.color.Color;
 import java.io.Serializable;
+import java.util.Arrays;
 
 import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.out.PixelBuffer;
 import de.lars.remotelightcore.utils.color.ColorUtil;
-import de.lars.remotelightcore.utils.color.PixelColorUtils;
 
+/**
+ * Map, shift, clone and mirror the pixels of an output.
+ * <p>
+ * The optional {@link PixelMapping} is applied first and defines the wiring
+ * of the physical pixels. The patch is compiled into a source index map which is rebuilt only when
+ * the configuration or the input length changes, so patching a frame is a
+ * single gather loop.
+ */
 public class OutputPatch implements Serializable {
 	
 	/**
@@ -39,6 +48,9 @@ public class OutputPatch implements Serializable {
 	private int shift;		// shift all colors to left or right
 	private int clone;		// number of times the strip is cloned
 	private boolean cloneMirrored;
+	private PixelMapping mapping;
+	/** compiled patch, null if it needs to be rebuilt */
+	private transient volatile IndexMap indexMap;
 
 	
 	public OutputPatch(int pixel) {
@@ -48,6 +60,7 @@ public class OutputPatch implements Serializable {
 	
 	public void setPixelNumber(int pixel) {
 		this.pixel = pixel;
+		indexMap = null;
 	}
 	
 	
@@ -58,6 +71,7 @@ public class OutputPatch implements Serializable {
 
 	public void setShift(int shift) {
 		this.shift = shift;
+		indexMap = null;
 	}
 
 
@@ -68,6 +82,7 @@ public class OutputPatch implements Serializable {
 
 	public void setClone(int clone) {
 		this.clone = clone;
+		indexMap = null;
 	}
 	
 	
@@ -78,53 +93,174 @@ public class OutputPatch implements Serializable {
 	
 	public void setCloneMirrored(boolean cloneMirrored) {
 		this.cloneMirrored = cloneMirrored;
+		indexMap = null;
+	}
+	
+	
+	public PixelMapping getMapping() {
+		return mapping;
+	}
+	
+	
+	/**
+	 * Set the mapping from the rendered frame to the physical pixels.
+	 * If a mapping is set, the frame size is defined by the mapping.
+	 * @param mapping	the pixel mapping or null to disable it
+	 */
+	public void setMapping(PixelMapping mapping) {
+		this.mapping = mapping;
+		indexMap = null;
+	}
+	
+	
+	/**
+	 * @return true if the output expects a different number of
+	 * 			pixels than it has (clone or mapping enabled)
+	 */
+	public boolean isResizing() {
+		return clone > 0 || mapping != null;
 	}
 	
 	
+	/**
+	 * @return the number of pixels the rendered frame should have
+	 */
 	public int getPatchedPixelNumber() {
+		if(mapping != null)
+			return mapping.getSourceLength();
 		return (int) Math.round(pixel * 1.0D / (clone + 1));
 	}
 	
-	public Color[] patchOutput(Color[] input, RgbOrder rgbOrder) {
-		input = rgbOrder(input, rgbOrder);
-		input = shift(input);
-		input = clone(input);
-		// mirror function if mirror is enabled but clone is 0
-		if(clone <= 0 && cloneMirrored)
-			input = mirror(input);
-		return input;
+	
+	/**
+	 * Get the source index map for the specified input length.
+	 * Entry {@code i} is the input index of output pixel {@code i},
+	 * or -1 if the output pixel is black.
+	 * @param inputLength	number of input pixels
+	 * @return				the source index of every output pixel
+	 */
+	public int[] getIndexMap(int inputLength) {
+		return getCompiled(inputLength).source.clone();
+	}
+	
+	
+	/**
+	 * @param inputLength	number of input pixels
+	 * @return				true if the patch does not change the input
+	 */
+	public boolean isIdentity(int inputLength) {
+		return getCompiled(inputLength).identity;
 	}
 	
 	
-	private Color[] rgbOrder(Color[] input, RgbOrder rgbOrder) {
-		Color[] out = new Color[input.length];
+	public Color[] patchOutput(Color[] input, RgbOrder rgbOrder) {
+		final int[] source = getCompiled(input.length).source;
+		Color[] out = new Color[source.length];
 		for(int i = 0; i < out.length; i++) {
-			out[i] = ColorUtil.matchRgbOrder(input[i], rgbOrder);
+			int index = source[i];
+			out[i] = index < 0 ? Color.BLACK : ColorUtil.matchRgbOrder(input[index], rgbOrder);
 		}
 		return out;
 	}
 	
 	
+	public PixelBuffer patchOutput(PixelBuffer input, RgbOrder rgbOrder) {
+		return patchOutput(input, rgbOrder, null);
+	}
+	
+	
 	/**
-	 * shift colors of strip x times
-	 * @param input Color array
+	 * Patch the input in a single pass. If the patch and the RGB order do not
+	 * change the input, the input itself is returned. Otherwise the pixels are
+	 * gathered into the reuse buffer, which is allocated if it is null.
+	 * @param input		the input pixels, not modified
+	 * @param rgbOrder	the RGB order to apply, or {@link RgbOrder#RGB} if the
+	 * 					order is applied while encoding
+	 * @param reuse		buffer to write the patched pixels to or null,
+	 * 					must not share its array with the input
+	 * @return			the patched pixels
 	 */
-	private Color[] shift(Color[] input) {
-		if(shift != 0 && Math.abs(shift) < input.length && input.length > 1) {
-			Color[] tmp = new Color[input.length];
-			
-			int index;
-			if(shift > 0)
-				index = shift;
-			else
-				index = input.length + shift;
-			
-			for(int i = 0; i < input.length; i++) {
-				tmp[index] = input[i];
-				if(++index >= input.length) {
-					index = 0;
-				}
+	public PixelBuffer patchOutput(PixelBuffer input, RgbOrder rgbOrder, PixelBuffer reuse) {
+		final IndexMap map = getCompiled(input.length());
+		final boolean reorder = rgbOrder != null && rgbOrder != RgbOrder.RGB;
+		if(map.identity && !reorder)
+			return input;
+		
+		final int[] source = map.source;
+		if(reuse == null)
+			reuse = new PixelBuffer(source.length);
+		else
+			reuse.resize(source.length);
+		final int[] in = input.array();
+		final int inOffset = input.offset();
+		final int[] out = reuse.array();
+		final int outOffset = reuse.offset();
+		
+		if(reorder) {
+			for(int i = 0; i < source.length; i++) {
+				int index = source[i];
+				out[outOffset + i] = index < 0 ? 0 : rgbOrder.apply(in[inOffset + index]);
 			}
+		} else {
+			for(int i = 0; i < source.length; i++) {
+				int index = source[i];
+				out[outOffset + i] = index < 0 ? 0 : in[inOffset + index];
+			}
+		}
+		return reuse;
+	}
+	
+	
+	private IndexMap getCompiled(int inputLength) {
+		IndexMap map = indexMap;
+		if(map == null || map.inputLength != inputLength) {
+			map = compile(inputLength);
+			indexMap = map;
+		}
+		return map;
+	}
+	
+	
+	/**
+	 * Build the source index map by applying shift, clone and mirror
+	 * to the pixel mapping or the identity map.
+	 */
+	private IndexMap compile(int length) {
+		int[] source;
+		final PixelMapping mapping = this.mapping;
+		if(mapping != null) {
+			source = mapping.getIndexMap(length);
+		} else {
+			source = new int[length];
+			for(int i = 0; i < length; i++)
+				source[i] = i;
+		}
+		
+		source = shift(source);
+		source = clone(source);
+		// mirror function if mirror is enabled but clone is 0
+		if(clone <= 0 && cloneMirrored)
+			source = mirror(source);
+		
+		boolean identity = source.length == length;
+		for(int i = 0; identity && i < length; i++)
+			identity = source[i] == i;
+		return new IndexMap(length, source, identity);
+	}
+	
+	
+	/**
+	 * shift colors of strip x times
+	 * @param input source indices
+	 */
+	private int[] shift(int[] input) {
+		final int length = input.length;
+		if(shift != 0 && Math.abs(shift) < length && length > 1) {
+			int[] tmp = new int[length];
+			int index = shift > 0 ? shift : length + shift;
+			// copy the two wrapped parts
+			System.arraycopy(input, 0, tmp, index, length - index);
+			System.arraycopy(input, length - index, tmp, 0, index);
 			return tmp;
 		}
 		return input;
@@ -133,12 +269,14 @@ public class OutputPatch implements Serializable {
 	
 	/**
 	 * Clone / mirror the strip x times
-	 * @param input Color array
+	 * @param input source indices
 	 */
-	private Color[] clone(Color[] input) {
-		if(clone != 0 && input.length >= getPatchedPixelNumber()) {
+	private int[] clone(int[] input) {
+		final int length = input.length;
+		if(clone != 0 && length >= getPatchedPixelNumber()) {
 			
-			Color[] tmp = PixelColorUtils.colorAllPixels(Color.BLACK, pixel);
+			int[] tmp = new int[pixel];
+			Arrays.fill(tmp, -1);
 			int counterClone = 0;	// counts the number of clones
 			int indexInput = 0;
 			byte summand = 1;
@@ -148,10 +286,10 @@ public class OutputPatch implements Serializable {
 				
 				indexInput += summand;		// +1 or -1 if mirrored
 				
-				if(indexInput >= input.length || indexInput < 0) {
+				if(indexInput >= length || indexInput < 0) {
 					if(++counterClone <= clone) {
 						if(cloneMirrored && summand == 1) {
-							indexInput = input.length - 1;
+							indexInput = length - 1;
 							summand = -1;
 						} else {
 							indexInput = 0;
@@ -168,21 +306,39 @@ public class OutputPatch implements Serializable {
 		return input;
 	}
 	
+	
 	/**
 	 * Mirror strip
 	 * <p>use only if clone is not enabled
-	 * @param input Color array
-	 * @return mirrored color array
+	 * @param input source indices
+	 * @return mirrored source indices
 	 */
-	private Color[] mirror(Color[] input) {
-		if(input != null && input.length > 1) {
-			Color[] tmp = PixelColorUtils.colorAllPixels(Color.BLACK, input.length);
-			for(int i = input.length - 1; i >= 0; i--) {
-				tmp[i] = input[input.length - 1 - i];
+	private int[] mirror(int[] input) {
+		final int length = input.length;
+		if(length > 1) {
+			int[] tmp = new int[length];
+			for(int i = 0; i < length; i++) {
+				tmp[i] = input[length - 1 - i];
 			}
 			return tmp;
 		}
 		return input;
 	}
+	
+	
+	/**
+	 * Immutable compiled patch for one input length.
+	 */
+	private static class IndexMap {
+		final int inputLength;
+		final int[] source;
+		final boolean identity;
+		
+		IndexMap(int inputLength, int[] source, boolean identity) {
+			this.inputLength = inputLength;
+			this.source = source;
+			this.identity = identity;
+		}
+	}
 
 }
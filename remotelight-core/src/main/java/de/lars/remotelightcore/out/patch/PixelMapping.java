@@ -0,0 +1,278 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.out.patch;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Maps the pixels of the rendered frame to the physical pixels of an output.
+ * <p>
+ * The mapping is defined by a list of segments separated by commas or line
+ * breaks. Every segment appends physical pixels in wiring order:
+ * <ul>
+ * <li>{@code 12} one pixel showing frame pixel 12</li>
+ * <li>{@code 0-49} a run of frame pixels, reversed if the start is greater
+ * than the end (e.g. {@code 99-50})</li>
+ * <li>{@code gap 3} dead or hidden pixels that stay black</li>
+ * <li>{@code grid 16x8 from 100 serpentine} a 2D panel showing the row-major
+ * frame pixels starting at {@code from}; optional flags are {@code serpentine}
+ * (every second line is wired backwards), {@code vertical} (wired in columns),
+ * {@code flipx} and {@code flipy} (first pixel on the right / bottom)</li>
+ * </ul>
+ * The definition is compiled into a lookup table once, so applying the
+ * mapping is part of the single gather pass of the {@link OutputPatch}.
+ */
+public class PixelMapping implements Serializable {
+	
+	private static final long serialVersionUID = 4829011570533421739L;
+	/** max number of physical pixels */
+	public final static int MAX_LENGTH = 1 << 20;
+	
+	private final String definition;
+	/** compiled table, built lazily after deserialization */
+	private transient volatile int[] table;
+	private transient int sourceLength;
+	
+	/**
+	 * Create and compile a mapping.
+	 * @param definition	the mapping definition
+	 * @throws IllegalArgumentException if the definition is invalid
+	 */
+	public PixelMapping(String definition) {
+		this.definition = definition == null ? "" : definition.trim();
+		compile();
+	}
+	
+	/**
+	 * @param definition	the mapping definition or an empty string
+	 * @return	the compiled mapping or null if the definition is empty
+	 * @throws IllegalArgumentException if the definition is invalid
+	 */
+	public static PixelMapping parse(String definition) {
+		if(definition == null || definition.trim().isEmpty())
+			return null;
+		return new PixelMapping(definition);
+	}
+	
+	public String getDefinition() {
+		return definition != null ? definition : "";
+	}
+	
+	/**
+	 * @return the number of physical pixels defined by this mapping
+	 */
+	public int getLength() {
+		return getTable().length;
+	}
+	
+	/**
+	 * @return the number of frame pixels used by this mapping
+	 * 			(highest mapped frame pixel + 1)
+	 */
+	public int getSourceLength() {
+		getTable();
+		return sourceLength;
+	}
+	
+	/**
+	 * Get the frame pixel of every physical pixel.
+	 * @return	frame pixel indices, -1 for black pixels
+	 */
+	public int[] toIndexMap() {
+		return getTable().clone();
+	}
+	
+	/**
+	 * Compile the mapping for the specified frame length. Physical pixels that
+	 * refer to a frame pixel outside of the frame are black.
+	 * @param inputLength	number of frame pixels
+	 * @return				frame pixel indices, -1 for black pixels
+	 */
+	int[] getIndexMap(int inputLength) {
+		int[] source = toIndexMap();
+		for(int i = 0; i < source.length; i++) {
+			if(source[i] >= inputLength)
+				source[i] = -1;
+		}
+		return source;
+	}
+	
+	private int[] getTable() {
+		int[] t = table;
+		if(t == null) {
+			compile();
+			t = table;
+		}
+		return t;
+	}
+	
+	private synchronized void compile() {
+		if(table != null)
+			return;
+		List<int[]> segments = new ArrayList<int[]>();
+		int length = 0;
+		for(String segment : getDefinition().split("[,;\\n]")) {
+			segment = segment.trim().toLowerCase(Locale.ROOT);
+			if(segment.isEmpty())
+				continue;
+			int[] indices;
+			try {
+				indices = parseSegment(segment);
+			} catch(NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid mapping segment '" + segment + "': " + e.getMessage());
+			}
+			length += indices.length;
+			if(length > MAX_LENGTH)
+				throw new IllegalArgumentException("Mapping exceeds " + MAX_LENGTH + " pixels.");
+			segments.add(indices);
+		}
+		
+		int[] t = new int[length];
+		int index = 0;
+		int max = -1;
+		for(int[] indices : segments) {
+			System.arraycopy(indices, 0, t, index, indices.length);
+			index += indices.length;
+			for(int i : indices)
+				max = Math.max(max, i);
+		}
+		sourceLength = max + 1;
+		table = t;
+	}
+	
+	private static int[] parseSegment(String segment) {
+		String[] words = segment.split("\\s+");
+		if(words[0].equals("gap")) {
+			if(words.length != 2)
+				throw new IllegalArgumentException("Invalid mapping segment '" + segment + "', expected 'gap <count>'.");
+			int count = parseCount(words[1], segment);
+			int[] indices = new int[count];
+			for(int i = 0; i < count; i++)
+				indices[i] = -1;
+			return indices;
+		}
+		if(words[0].equals("grid"))
+			return parseGrid(words, segment);
+		if(words.length != 1)
+			throw new IllegalArgumentException("Invalid mapping segment '" + segment + "'.");
+		
+		int separator = segment.indexOf('-', 1);
+		if(separator < 0)
+			return new int[] {parseIndex(segment, segment)};
+		int from = parseIndex(segment.substring(0, separator), segment);
+		int to = parseIndex(segment.substring(separator + 1), segment);
+		int step = from <= to ? 1 : -1;
+		int[] indices = new int[Math.abs(to - from) + 1];
+		for(int i = 0; i < indices.length; i++)
+			indices[i] = from + i * step;
+		return indices;
+	}
+	
+	private static int[] parseGrid(String[] words, String segment) {
+		if(words.length < 2)
+			throw new IllegalArgumentException("Invalid mapping segment '" + segment + "', expected 'grid <width>x<height>'.");
+		String[] size = words[1].split("x");
+		if(size.length != 2)
+			throw new IllegalArgumentException("Invalid grid size '" + words[1] + "', expected <width>x<height>.");
+		final int width = parseCount(size[0], segment);
+		final int height = parseCount(size[1], segment);
+		if((long) width * height > MAX_LENGTH)
+			throw new IllegalArgumentException("Grid '" + segment + "' exceeds " + MAX_LENGTH + " pixels.");
+		
+		int from = 0;
+		boolean serpentine = false, vertical = false, flipX = false, flipY = false;
+		for(int i = 2; i < words.length; i++) {
+			switch (words[i]) {
+			case "from":
+				if(++i >= words.length)
+					throw new IllegalArgumentException("Missing start pixel in '" + segment + "'.");
+				from = parseIndex(words[i], segment);
+				break;
+			case "serpentine":
+				serpentine = true;
+				break;
+			case "vertical":
+				vertical = true;
+				break;
+			case "flipx":
+				flipX = true;
+				break;
+			case "flipy":
+				flipY = true;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown grid option '" + words[i] + "' in '" + segment + "'.");
+			}
+		}
+		
+		final int lineLength = vertical ? height : width;
+		int[] indices = new int[width * height];
+		for(int i = 0; i < indices.length; i++) {
+			int line = i / lineLength;
+			int pos = i % lineLength;
+			if(serpentine && (line & 1) == 1)
+				pos = lineLength - 1 - pos;
+			int x = vertical ? line : pos;
+			int y = vertical ? pos : line;
+			if(flipX)
+				x = width - 1 - x;
+			if(flipY)
+				y = height - 1 - y;
+			indices[i] = from + y * width + x;
+		}
+		return indices;
+	}
+	
+	private static int parseIndex(String value, String segment) {
+		int index = Integer.parseInt(value.trim());
+		if(index < 0 || index >= MAX_LENGTH)
+			throw new IllegalArgumentException("Invalid pixel " + index + " in '" + segment + "'.");
+		return index;
+	}
+	
+	private static int parseCount(String value, String segment) {
+		int count = Integer.parseInt(value.trim());
+		if(count < 1 || count > MAX_LENGTH)
+			throw new IllegalArgumentException("Invalid count " + count + " in '" + segment + "'.");
+		return count;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof PixelMapping && ((PixelMapping) obj).getDefinition().equals(getDefinition());
+	}
+	
+	@Override
+	public int hashCode() {
+		return getDefinition().hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		return getDefinition();
+	}
+
+}
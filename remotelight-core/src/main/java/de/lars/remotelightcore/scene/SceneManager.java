@@ -32,7 +32,10 @@ import de.lars.remotelightcore.EffectManagerHelper.EffectType;
 import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.event.events.types.EffectToggleEvent.Action;
 import de.lars.remotelightcore.event.events.types.EffectToggleEvent.SceneToggleEvent;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics.Stage;
 import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.TransitionEngine;
 import de.lars.remotelightcore.scene.scenes.Fire;
 import de.lars.remotelightcore.scene.scenes.Jungle;
 import de.lars.remotelightcore.scene.scenes.NorthernLights;
@@ -40,6 +43,7 @@ import de.lars.remotelightcore.scene.scenes.Ocean;
 import de.lars.remotelightcore.scene.scenes.SnowSparkle;
 import de.lars.remotelightcore.scene.scenes.Space;
 import de.lars.remotelightcore.scene.scenes.Sunset;
+import de.lars.remotelightcore.utils.FrameScheduler;
 import de.lars.remotelightcore.utils.color.Color;
 import de.lars.remotelightcore.utils.color.PixelColorUtils;
 
@@ -73,15 +77,24 @@ public class SceneManager extends EffectManager {
 	}
 	
 	public void start(Scene scene) {
+		TransitionEngine transitions = RemoteLightCore.getInstance().getOutputManager().getTransitionEngine();
+		boolean transition = transitions.begin();
 		RemoteLightCore.getInstance().getEffectManagerHelper().stopAllExceptFor(EffectType.Scene);
-		if(activeScene != null) {
-			activeScene.onDisable();
+		Scene previous = activeScene;
+		if(previous != null && (!transition || previous == scene)) {
+			previous.onDisable();
+		}
+		if(previous != null && !transition) {
 			OutputManager.addToOutput(PixelColorUtils.colorAllPixels(Color.BLACK, RemoteLightCore.getLedNum()));
 		}
 		if(scene != null) {
 			scene.onEnable(RemoteLightCore.getLedNum());
 		}
 		activeScene = scene;
+		if(transition && previous != null && previous != scene) {
+			// keep rendering the old scene until the transition has finished
+			transitions.setOutgoingEffect(previous::onLoop, previous.getDelay(), previous::onDisable);
+		}
 		this.loop();
 		// trigger event
 		getEventHandler().call(new SceneToggleEvent(Action.ENABLE, scene));
@@ -107,9 +120,12 @@ public class SceneManager extends EffectManager {
 				
 				@Override
 				public void run() {
+					FrameScheduler scheduler = new FrameScheduler(activeScene != null ? activeScene.getDelay() : 0);
 					while(activeScene != null) {
 						try {
+						long renderStart = System.nanoTime();
 						activeScene.onLoop();
+						PipelineMetrics.getInstance().record(Stage.RENDER, renderStart);
 						
 						} catch(Exception e) {
 							Logger.error(e, "There was an error executing the scene '" + activeScene.getDisplayname() + "'.");
@@ -118,10 +134,12 @@ public class SceneManager extends EffectManager {
 							break;
 						}
 						
-						int delay = activeScene.getDelay();
+						Scene scene = activeScene;
+						int delay = scene != null ? scene.getDelay() : 0;
+						scheduler.setDelay(delay);
 						
 						try {
-							Thread.sleep(delay);
+							scheduler.waitForNextFrame();
 						} catch (InterruptedException e) {
 							Logger.error("Scene Thread could not wait for delay! (delay: " + delay + ")");
 							e.printStackTrace();
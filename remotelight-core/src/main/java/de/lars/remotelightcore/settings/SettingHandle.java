@@ -0,0 +1,112 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.settings;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cached reference to a registered setting. Handles are created by
+ * {@link SettingsManager#getHandle(Class, String)} and kept up to date by
+ * the manager when the setting is registered, replaced, removed or loaded,
+ * so reading the setting does not need a lookup.
+ * 
+ * @param <T>	the setting type
+ */
+public class SettingHandle<T extends Setting> {
+	
+	private final String id;
+	private final Class<T> type;
+	private final List<SettingValueListener> listeners;
+	private final SettingValueListener forwarder = this::fireChangeEvent;
+	private volatile T setting;
+	
+	SettingHandle(Class<T> type, String id) {
+		this.type = type;
+		this.id = id;
+		this.listeners = new CopyOnWriteArrayList<SettingValueListener>();
+	}
+	
+	public String getId() {
+		return id;
+	}
+	
+	public Class<T> getType() {
+		return type;
+	}
+	
+	/**
+	 * Get the setting this handle points to
+	 * @return	the setting or {@code null} if no setting of the handle type
+	 * 			is registered with the id
+	 */
+	public T getSetting() {
+		return setting;
+	}
+	
+	/**
+	 * @return	true if a setting of the handle type is registered with the id
+	 */
+	public boolean isPresent() {
+		return setting != null;
+	}
+	
+	/**
+	 * Add a listener that is called when the setting value changes.
+	 * The listener stays registered if the setting instance is replaced
+	 * and is also called with the new instance in that case.
+	 * @param listener	the listener to add
+	 */
+	public void addValueListener(SettingValueListener listener) {
+		listeners.add(listener);
+	}
+	
+	public void removeValueListener(SettingValueListener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Point the handle to the currently registered setting.
+	 * @param s		the registered setting or {@code null}
+	 */
+	void bind(Setting s) {
+		T next = type.isInstance(s) ? type.cast(s) : null;
+		T previous = setting;
+		if(next == previous)
+			return;
+		if(previous != null)
+			previous.removeValueListener(forwarder);
+		setting = next;
+		if(next != null) {
+			next.setValueListener(forwarder);
+			fireChangeEvent(next);
+		}
+	}
+	
+	private void fireChangeEvent(Setting s) {
+		for(SettingValueListener l : listeners) {
+			l.onSettingValueChanged(s);
+		}
+	}
+
+}
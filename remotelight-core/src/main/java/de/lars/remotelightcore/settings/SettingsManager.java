@@ -25,6 +25,9 @@ package de.lars.remotelightcore.settings;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.tinylog.Logger;
 
@@ -44,10 +47,15 @@ public class SettingsManager {
 	}
 	
 	private List<Setting> settings;
+	/** settings by id, kept in sync with the settings list */
+	private final Map<String, Setting> index;
+	private final Map<String, List<SettingHandle<?>>> handles;
 	private FileStorage fileStorage;
 	
 	public SettingsManager(FileStorage fileStorage) {
 		this.settings = new ArrayList<Setting>();
+		this.index = new ConcurrentHashMap<String, Setting>();
+		this.handles = new ConcurrentHashMap<String, List<SettingHandle<?>>>();
 		this.fileStorage = fileStorage;
 	}
 	
@@ -78,6 +86,32 @@ public class SettingsManager {
 		return null;
 	}
 	
+	/**
+	 * Get a handle to a setting. The handle always points to the currently
+	 * registered setting, so it can be stored (e.g. when an effect is enabled)
+	 * and read every frame without a lookup. Handles are also created for
+	 * settings that are not registered yet.
+	 * 
+	 * @param <T>	the setting type
+	 * @param type	the setting subclass
+	 * @param id	the setting id
+	 * @return		the handle for the setting id and type
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Setting> SettingHandle<T> getHandle(Class<T> type, String id) {
+		List<SettingHandle<?>> list = handles.computeIfAbsent(id, k -> new CopyOnWriteArrayList<SettingHandle<?>>());
+		synchronized(list) {
+			for(SettingHandle<?> h : list) {
+				if(h.getType() == type)
+					return (SettingHandle<T>) h;
+			}
+			SettingHandle<T> handle = new SettingHandle<T>(type, id);
+			handle.bind(index.get(id));
+			list.add(handle);
+			return handle;
+		}
+	}
+	
 	/**
 	 * 
 	 * @return A list with all settings from defined category
@@ -93,16 +127,13 @@ public class SettingsManager {
 	}
 	
 	public Setting getSettingFromId(String id) {
-		for(Setting s : settings) {
-			if(s.getId().equals(id)) {
-				return s;
-			}
-		}
-		return null;
+		if(id == null)
+			return null;
+		return index.get(id);
 	}
 	
 	public SettingObject getSettingObject(String id) {
-		return getSettingFromType(new SettingObject(id, null, null));
+		return (SettingObject) getSettingFromId(id);
 	}
 	
 	/**
@@ -151,6 +182,7 @@ public class SettingsManager {
 		}
 		Logger.info("Registered Setting '" + setting.getId() + "'.");
 		settings.add(setting);
+		indexSetting(setting);
 		return setting;
 	}
 	
@@ -162,6 +194,8 @@ public class SettingsManager {
 			for(int i = 0; i < settings.size(); i++) {
 				if(settings.get(i).getId().equals(id)) {
 					settings.remove(i);
+					index.remove(id);
+					bindHandles(id, null);
 					Logger.info("Removed Setting '" + id + "'.");
 					break;
 				}
@@ -174,6 +208,7 @@ public class SettingsManager {
 	 */
 	public void deleteSettings() {
 		settings = new ArrayList<Setting>();
+		rebuildIndex();
 	}
 	
 	public void updateSetting(Setting oldSetting, Setting newSetting) {
@@ -183,6 +218,7 @@ public class SettingsManager {
 			int oldIndex = settings.indexOf(oldSetting);
 			if(oldIndex != -1) {
 				settings.set(oldIndex, newSetting);
+				indexSetting(newSetting);
 				Logger.info("Updated setting " + oldSetting.getId() +
 						". Old type: " + oldSetting.getClass().getSimpleName() +
 						" New type: " + newSetting.getClass().getSimpleName());
@@ -241,6 +277,35 @@ public class SettingsManager {
 		Logger.info("Updated Setting '" + oldSetting.getId() + "'. New selection values: " + String.join(", ", newSetting.getValues()) + "; selected: " + oldSetting.getSelected());
 	}
 	
+	private void indexSetting(Setting setting) {
+		index.put(setting.getId(), setting);
+		bindHandles(setting.getId(), setting);
+	}
+	
+	/**
+	 * Rebuild the id index after the settings list was replaced
+	 * and point all handles to the new setting instances.
+	 */
+	private void rebuildIndex() {
+		index.clear();
+		for(Setting s : settings) {
+			if(s != null && s.getId() != null)
+				index.putIfAbsent(s.getId(), s);
+		}
+		for(String id : handles.keySet()) {
+			bindHandles(id, index.get(id));
+		}
+	}
+	
+	private void bindHandles(String id, Setting setting) {
+		List<SettingHandle<?>> list = handles.get(id);
+		if(list != null) {
+			for(SettingHandle<?> h : list) {
+				h.bind(setting);
+			}
+		}
+	}
+	
 	/**
 	 * Stores the settings in the data file
 	 * @param key DataStorage Key
@@ -258,6 +323,7 @@ public class SettingsManager {
 	public void load(String key) {
 		if(fileStorage.get(key) != null && fileStorage.get(key) instanceof List<?>) {
 			settings = (List<Setting>) fileStorage.get(key);
+			rebuildIndex();
 			Logger.info("Loaded " + settings.size() + " settings from data file.");
 		} else {
 			Logger.warn("Invalid or empty data! Could not load settings from data file.");
@@ -0,0 +1,254 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import de.lars.remotelightcore.metrics.FrameRateMeter;
+
+/**
+ * Runs a loop against fixed frame deadlines using {@link System#nanoTime()}.
+ * <p>
+ * Unlike {@code Thread.sleep(delay)} after each frame, the time spent
+ * rendering and sending the frame is subtracted from the wait time, so
+ * the loop does not drift with load. Short overruns are compensated by
+ * starting the next frame immediately. If the loop falls behind by one
+ * or more full periods, the missed frames are skipped instead of being
+ * rendered in a burst.
+ * <p>
+ * Every loop uses its own scheduler, so effects and outputs can run
+ * at different rates.
+ * <pre>
+ * FrameScheduler scheduler = new FrameScheduler(delay);
+ * while(running) {
+ *     renderFrame();
+ *     scheduler.waitForNextFrame();
+ * }
+ * </pre>
+ */
+public class FrameScheduler {
+	
+	/** upper limit for the optional spin window */
+	public final static long MAX_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+	
+	private volatile long periodNanos;
+	/** remaining time that is spent yielding instead of parking, disabled by default */
+	private volatile long spinNanos;
+	private long nextDeadline;
+	private boolean started;
+	private volatile boolean cancelled;
+	
+	private final FrameRateMeter frameRate = new FrameRateMeter();
+	private volatile long frames;
+	private volatile long skippedFrames;
+	private volatile long overruns;
+	
+	/**
+	 * @param delay		frame period in milliseconds
+	 */
+	public FrameScheduler(int delay) {
+		setDelay(delay);
+	}
+	
+	/**
+	 * Create a new scheduler with the specified frame rate.
+	 * @param fps	frames per second
+	 * @return		a new frame scheduler
+	 */
+	public static FrameScheduler ofFrameRate(double fps) {
+		FrameScheduler scheduler = new FrameScheduler(0);
+		scheduler.setFrameRate(fps);
+		return scheduler;
+	}
+	
+	/**
+	 * Set the frame period in milliseconds.
+	 * Takes effect from the next frame on.
+	 * @param delay		frame period in milliseconds
+	 */
+	public void setDelay(int delay) {
+		setPeriodNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay)));
+	}
+	
+	/**
+	 * Set the target frame rate.
+	 * Takes effect from the next frame on.
+	 * @param fps	frames per second
+	 */
+	public void setFrameRate(double fps) {
+		setPeriodNanos(fps > 0 ? (long) (1_000_000_000L / fps) : 0);
+	}
+	
+	/**
+	 * Set the frame period in nanoseconds.
+	 * A period of 0 does not wait but only yields the thread.
+	 * @param periodNanos	frame period in nanoseconds
+	 */
+	public void setPeriodNanos(long periodNanos) {
+		this.periodNanos = Math.max(0, periodNanos);
+	}
+	
+	public long getPeriodNanos() {
+		return periodNanos;
+	}
+	
+	/**
+	 * Set the time before each deadline that is spent yielding instead of
+	 * parking. This improves the accuracy on systems with a coarse timer
+	 * but costs CPU time on every frame, so it is disabled by default.
+	 * @param spinNanos	spin window in nanoseconds, limited to {@link #MAX_SPIN_NANOS}
+	 */
+	public void setSpinNanos(long spinNanos) {
+		this.spinNanos = Math.max(0, Math.min(spinNanos, MAX_SPIN_NANOS));
+	}
+	
+	public long getSpinNanos() {
+		return spinNanos;
+	}
+	
+	/**
+	 * Restart the schedule from the current time.
+	 * The next frame is due one period from now.
+	 * Also clears a previous {@link #cancel()}.
+	 */
+	public void reset() {
+		started = false;
+		cancelled = false;
+	}
+	
+	/**
+	 * Cancel the current and all following waits until {@link #reset()}
+	 * is called. The waiting thread only notices the cancellation when it
+	 * wakes up, so the caller should unpark it afterwards.
+	 * <pre>
+	 * scheduler.cancel();
+	 * LockSupport.unpark(loopThread);
+	 * </pre>
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	/**
+	 * Wait until the deadline of the next frame.
+	 * If the deadline has already passed or the scheduler was cancelled,
+	 * the method returns immediately.
+	 * 
+	 * @return		the number of frames that were skipped because the
+	 * 				loop fell behind by one or more periods
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 */
+	public int waitForNextFrame() throws InterruptedException {
+		final long period = periodNanos;
+		long now = System.nanoTime();
+		if(!started) {
+			started = true;
+			nextDeadline = now;
+			frameRate.tick(now);
+		}
+		nextDeadline += period;
+		
+		int skipped = 0;
+		long remaining = nextDeadline - now;
+		if(period <= 0) {
+			nextDeadline = now;
+			Thread.yield();
+		} else if(remaining > 0) {
+			waitNanos(nextDeadline);
+		} else {
+			overruns++;
+			long behind = -remaining;
+			if(behind >= period) {
+				// fell behind by at least one full frame, skip the missed deadlines
+				long missed = behind / period;
+				skipped = (int) Math.min(missed, Integer.MAX_VALUE);
+				skippedFrames += missed;
+				nextDeadline += missed * period;
+			}
+			// otherwise start immediately and catch up with the next deadline
+		}
+		
+		if(Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		
+		frameRate.tick();
+		frames++;
+		return skipped;
+	}
+	
+	private void waitNanos(long deadline) {
+		final long spin = spinNanos;
+		long remaining;
+		while((remaining = deadline - System.nanoTime()) > spin) {
+			if(cancelled || Thread.currentThread().isInterrupted())
+				return;
+			LockSupport.parkNanos(remaining - spin);
+		}
+		while(!cancelled && deadline - System.nanoTime() > 0) {
+			Thread.yield();
+		}
+	}
+	
+	/**
+	 * @return	the measured frame rate (exponentially smoothed)
+	 */
+	public double getFrameRate() {
+		return frameRate.getFrameRate();
+	}
+	
+	/**
+	 * @return	the target frame rate or 0 if the period is 0
+	 */
+	public double getTargetFrameRate() {
+		long period = periodNanos;
+		return period > 0 ? 1_000_000_000D / period : 0;
+	}
+	
+	/**
+	 * @return	number of frames since creation
+	 */
+	public long getFrames() {
+		return frames;
+	}
+	
+	/**
+	 * @return	number of frames that were skipped because the loop fell behind
+	 */
+	public long getSkippedFrames() {
+		return skippedFrames;
+	}
+	
+	/**
+	 * @return	number of frames that finished after their deadline
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+
+}
@@ -26,6 +26,7 @@ import de.lars.remotelightcore.devices.ConnectionState;
 import de.lars.remotelightcore.devices.Device;
 import de.lars.remotelightcore.devices.arduino.Arduino;
 import de.lars.remotelightcore.devices.artnet.Artnet;
+import de.lars.remotelightcore.devices.ddp.DDP;
 import de.lars.remotelightcore.devices.e131.E131;
 import de.lars.remotelightcore.devices.link.chain.Chain;
 import de.lars.remotelightcore.devices.link.multi.MultiOutput;
@@ -48,6 +49,9 @@ public class OutputUtil {
 		if(o instanceof E131) {
 			return "E131";
 		}
+		if(o instanceof DDP) {
+			return "DDP";
+		}
 		if(o instanceof VirtualOutput) {
 			return "VirtualOutput";
 		}
@@ -70,6 +74,8 @@ public class OutputUtil {
 			return Artnet.class;
 		case "E131":
 			return E131.class;
+		case "DDP":
+			return DDP.class;
 		case "VirtualOutput":
 			return VirtualOutput.class;
 		case "Chain":
@@ -94,6 +100,9 @@ public class OutputUtil {
 		if(d instanceof E131) {
 			return ((E131)d).isMulticastMode() ? "Multicast" : ((E131)d).getUnicastAddress();
 		}
+		if(d instanceof DDP) {
+			return ((DDP)d).getAddress();
+		}
 		return "No connection info";
 	}
 	
@@ -0,0 +1,320 @@
+/*-
+ * >===license-start
+ * RemoteLight
+ * ===
+ * Copyright (C) 2019 - 2020 Lars O.
+ * ===
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * <===license-end
+ */
+
+package de.lars.remotelightcore.utils.color;
+
+/**
+ * Allocation-free integer color math on 8 bit channels and packed
+ * 0xRRGGBB colors, modeled after the FastLED library. Packed functions
+ * process red and blue together in one multiplication where possible.
+ */
+public final class ColorMath {
+	
+	private ColorMath() {}
+	
+	/*======================*
+	 *  8 bit channel math  *
+	 *======================*/
+	
+	/**
+	 * Scale a value by {@code scale}/256. A scale of 255 returns
+	 * the value unchanged.
+	 * @param value		value 0...255
+	 * @param scale		scale 0...255
+	 * @return			the scaled value
+	 */
+	public static int scale8(int value, int scale) {
+		return (value * (scale + 1)) >> 8;
+	}
+	
+	/**
+	 * Scale a value like {@link #scale8(int, int)}, but never scale
+	 * a non-zero value to zero.
+	 * @param value		value 0...255
+	 * @param scale		scale 0...255
+	 * @return			the scaled value
+	 */
+	public static int scale8Video(int value, int scale) {
+		return ((value * scale) >> 8) + (value != 0 && scale != 0 ? 1 : 0);
+	}
+	
+	/**
+	 * @return			{@code a + b}, saturated at 255
+	 */
+	public static int qadd8(int a, int b) {
+		return Math.min(a + b, 255);
+	}
+	
+	/**
+	 * @return			{@code a - b}, saturated at 0
+	 */
+	public static int qsub8(int a, int b) {
+		return Math.max(a - b, 0);
+	}
+	
+	/**
+	 * Blend two values. An amount of 0 returns {@code a},
+	 * 255 returns {@code b}.
+	 * @param a			first value 0...255
+	 * @param b			second value 0...255
+	 * @param amount	amount of {@code b} 0...255
+	 * @return			the blended value
+	 */
+	public static int blend8(int a, int b, int amount) {
+		return (a * (256 - amount) + b * (amount + 1)) >> 8;
+	}
+	
+	/**
+	 * Linear interpolation between two values with an 8 bit fraction.
+	 * @param a			start value 0...255
+	 * @param b			end value 0...255
+	 * @param fraction	position between 0 ({@code a}) and 255 (almost {@code b})
+	 * @return			the interpolated value
+	 */
+	public static int lerp8(int a, int b, int fraction) {
+		if(b > a)
+			return a + scale8(b - a, fraction);
+		return a - scale8(a - b, fraction);
+	}
+	
+	/*======================*
+	 *  packed color math   *
+	 *======================*/
+	
+	/**
+	 * Scale all channels of a packed color by {@code scale}/256.
+	 * @param rgb		packed 0xRRGGBB color
+	 * @param scale		scale 0...255
+	 * @return			the scaled packed color
+	 */
+	public static int nscale8(int rgb, int scale) {
+		final int s = scale + 1;
+		return ((((rgb & 0xFF00FF) * s) >>> 8) & 0xFF00FF)
+				| ((((rgb & 0x00FF00) * s) >>> 8) & 0x00FF00);
+	}
+	
+	/**
+	 * Scale all channels of a packed color like {@link #scale8Video(int, int)}.
+	 * @param rgb		packed 0xRRGGBB color
+	 * @param scale		scale 0...255
+	 * @return			the scaled packed color
+	 */
+	public static int nscale8Video(int rgb, int scale) {
+		return (scale8Video(rgb >> 16 & 0xFF, scale) << 16)
+				| (scale8Video(rgb >> 8 & 0xFF, scale) << 8)
+				| scale8Video(rgb & 0xFF, scale);
+	}
+	
+	/**
+	 * Dim a packed color towards black.
+	 * @param rgb		packed 0xRRGGBB color
+	 * @param amount	amount to dim 0 (unchanged) ... 255 (black)
+	 * @return			the dimmed packed color
+	 */
+	public static int fadeToBlackBy(int rgb, int amount) {
+		return nscale8(rgb, 255 - amount);
+	}
+	
+	/**
+	 * Add two packed colors, every channel saturates at 255.
+	 * @return			the packed sum
+	 */
+	public static int add(int a, int b) {
+		// high bit of every channel is set if the sum of the channel overflows
+		final int carry = ((a & b) + (((a ^ b) >>> 1) & 0x7F7F7F)) & 0x808080;
+		return ((a + b) - (carry << 1)) | ((carry >>> 7) * 0xFF);
+	}
+	
+	/**
+	 * Subtract a packed color from another, every channel saturates at 0.
+	 * @return			the packed difference {@code a - b}
+	 */
+	public static int subtract(int a, int b) {
+		return (qsub8(a >> 16 & 0xFF, b >> 16 & 0xFF) << 16)
+				| (qsub8(a >> 8 & 0xFF, b >> 8 & 0xFF) << 8)
+				| qsub8(a & 0xFF, b & 0xFF);
+	}
+	
+	/**
+	 * Blend two packed colors like {@link #blend8(int, int, int)}.
+	 * @param a			first packed color
+	 * @param b			second packed color
+	 * @param amount	amount of {@code b} 0...255
+	 * @return			the blended packed color
+	 */
+	public static int blend(int a, int b, int amount) {
+		final int inverse = 256 - amount;
+		final int s = amount + 1;
+		final int rb = (((a & 0xFF00FF) * inverse + (b & 0xFF00FF) * s) >>> 8) & 0xFF00FF;
+		final int g = (((a & 0x00FF00) * inverse + (b & 0x00FF00) * s) >>> 8) & 0x00FF00;
+		return rb | g;
+	}
+	
+	/**
+	 * Linear interpolation between two packed colors (fixed point, 8 bit fraction).
+	 * @param from		packed start color
+	 * @param to		packed end color
+	 * @param alpha		position between 0 ({@code from}) and 256 ({@code to})
+	 * @return			the interpolated packed color
+	 */
+	public static int lerp(int from, int to, int alpha) {
+		final int inverse = 256 - alpha;
+		final int rb = (((from & 0xFF00FF) * inverse + (to & 0xFF00FF) * alpha) >>> 8) & 0xFF00FF;
+		final int g = (((from & 0x00FF00) * inverse + (to & 0x00FF00) * alpha) >>> 8) & 0x00FF00;
+		return rb | g;
+	}
+	
+	/*======================*
+	 *         HSV          *
+	 *======================*/
+	
+	/**
+	 * Convert HSV to a packed color with the FastLED rainbow hue mapping,
+	 * which gives yellow and orange a wider hue range than the spectrum
+	 * and keeps the brightness of all hues similar.
+	 * @param hue		hue 0...255
+	 * @param sat		saturation 0...255
+	 * @param val		value 0...255
+	 * @return			packed 0xRRGGBB color
+	 */
+	public static int hsv2rgbRainbow(int hue, int sat, int val) {
+		hue &= 0xFF;
+		final int offset8 = (hue & 0x1F) << 3;
+		final int third = scale8(offset8, 85);
+		int r, g, b;
+		switch(hue >> 5) {
+		case 0: // red -> orange
+			r = 255 - third; g = third; b = 0;
+			break;
+		case 1: // orange -> yellow
+			r = 171; g = 85 + third; b = 0;
+			break;
+		case 2: // yellow -> green
+			r = 171 - scale8(offset8, 170); g = 170 + third; b = 0;
+			break;
+		case 3: // green -> aqua
+			r = 0; g = 255 - third; b = third;
+			break;
+		case 4: // aqua -> blue
+			final int twothirds = scale8(offset8, 170);
+			r = 0; g = 171 - twothirds; b = 85 + twothirds;
+			break;
+		case 5: // blue -> purple
+			r = third; g = 0; b = 255 - third;
+			break;
+		case 6: // purple -> pink
+			r = 85 + third; g = 0; b = 171 - third;
+			break;
+		default: // pink -> red
+			r = 170 + third; g = 0; b = 85 - third;
+			break;
+		}
+		
+		if(sat != 255) {
+			if(sat == 0) {
+				r = g = b = 255;
+			} else {
+				int desat = 255 - sat;
+				desat = scale8Video(desat, desat);
+				final int satscale = 255 - desat;
+				r = scale8(r, satscale) + desat;
+				g = scale8(g, satscale) + desat;
+				b = scale8(b, satscale) + desat;
+			}
+		}
+		
+		if(val != 255) {
+			val = scale8Video(val, val);
+			if(val == 0)
+				return 0;
+			r = scale8(r, val);
+			g = scale8(g, val);
+			b = scale8(b, val);
+		}
+		return (r << 16) | (g << 8) | b;
+	}
+	
+	/**
+	 * Convert HSV with an even hue distribution to a packed color,
+	 * the integer counterpart of {@link Color#getHSBColor(float, float, float)}.
+	 * @param hue		hue 0...255
+	 * @param sat		saturation 0...255
+	 * @param val		value 0...255
+	 * @return			packed 0xRRGGBB color
+	 */
+	public static int hsv2rgbSpectrum(int hue, int sat, int val) {
+		return hsv2rgbSpectrum16((hue & 0xFF) << 8, sat, val);
+	}
+	
+	/**
+	 * Convert HSV with a 16 bit hue to a packed color. Use this instead of
+	 * {@link #hsv2rgbSpectrum(int, int, int)} if more than 256 different
+	 * hues are needed.
+	 * @param hue		hue 0...65535
+	 * @param sat		saturation 0...255
+	 * @param val		value 0...255
+	 * @return			packed 0xRRGGBB color
+	 */
+	public static int hsv2rgbSpectrum16(int hue, int sat, int val) {
+		final int h6 = (hue & 0xFFFF) * 6;
+		final int sector = h6 >> 16;
+		final int remainder = (h6 >> 8) & 0xFF;
+		final int p = scale8(val, 255 - sat);
+		final int q = scale8(val, 255 - scale8(sat, remainder));
+		final int t = scale8(val, 255 - scale8(sat, 255 - remainder));
+		switch(sector) {
+		case 0:  return (val << 16) | (t << 8) | p;
+		case 1:  return (q << 16) | (val << 8) | p;
+		case 2:  return (p << 16) | (val << 8) | t;
+		case 3:  return (p << 16) | (q << 8) | val;
+		case 4:  return (t << 16) | (p << 8) | val;
+		default: return (val << 16) | (p << 8) | q;
+		}
+	}
+	
+	/**
+	 * Convert a packed color to HSV with an even hue distribution
+	 * (see {@link #hsv2rgbSpectrum(int, int, int)}).
+	 * @param rgb		packed 0xRRGGBB color
+	 * @return			packed 0xHHSSVV color (hue, saturation and value 0...255)
+	 */
+	public static int rgb2hsv(int rgb) {
+		final int r = rgb >> 16 & 0xFF;
+		final int g = rgb >> 8 & 0xFF;
+		final int b = rgb & 0xFF;
+		final int max = Math.max(r, Math.max(g, b));
+		final int delta = max - Math.min(r, Math.min(g, b));
+		if(delta == 0)
+			return max;
+		final int sat = 255 * delta / max;
+		int hue;
+		if(max == r) {
+			hue = 43 * (g - b) / delta;
+		} else if(max == g) {
+			hue = 85 + 43 * (b - r) / delta;
+		} else {
+			hue = 171 + 43 * (r - g) / delta;
+		}
+		return ((hue & 0xFF) << 16) | (sat << 8) | max;
+	}
+
+}
@@ -47,6 +47,23 @@ public class ColorUtil {
 		return new Color(r, g, b);
 	}
 	
+	/**
+	 * @param rgb Packed 0xRRGGBB color to dim
+	 * @param value Dim value between 0 and 100 (smaller = darker)
+	 * @return the dimmed packed color
+	 */
+	public static int dimColor(int rgb, int value) {
+		if(value < 0) {
+			value = 0;
+		} else if(value > 100) {
+			value = 100;
+		}
+		int r = (rgb >> 16 & 0xFF) * value / 100;
+		int g = (rgb >> 8 & 0xFF) * value / 100;
+		int b = (rgb & 0xFF) * value / 100;
+		return (r << 16) | (g << 8) | b;
+	}
+	
 	/**
 	 * @param color Input color
 	 * @param subtract Value between 0 and 255
@@ -132,6 +149,28 @@ public class ColorUtil {
 		return new Color(red, green, blue);
 	}
 	
+	/**
+	 * Fade from one to another packed color, rounds like {@link #fadeToColor(Color, Color, float)}
+	 * @param oldRgb old packed 0xRRGGBB color
+	 * @param newRgb new packed 0xRRGGBB color
+	 * @param step step between 0.0f and 1.0f
+	 * @return the faded packed color for step x
+	 */
+	public static int fadeToColor(int oldRgb, int newRgb, float step) {
+		float inverseStep = 1 - step;
+		int red = fadeChannel(oldRgb >> 16 & 0xFF, newRgb >> 16 & 0xFF, step, inverseStep);
+		int green = fadeChannel(oldRgb >> 8 & 0xFF, newRgb >> 8 & 0xFF, step, inverseStep);
+		int blue = fadeChannel(oldRgb & 0xFF, newRgb & 0xFF, step, inverseStep);
+		return (red << 16) | (green << 8) | blue;
+	}
+	
+	private static int fadeChannel(int oldValue, int newValue, float step, float inverseStep) {
+		float value = (newValue * step + oldValue * inverseStep) / 255;
+		if(value >= 1) value = 1;
+		if(value <= 0) value = 0;
+		return (int) (value*255+0.5);
+	}
+	
 	
 	/**
 	 * Mix two colors
@@ -199,6 +238,17 @@ public class ColorUtil {
 	}
 	
 	
+	/**
+	 * Swap the RGB order of a packed RGB value
+	 * @param rgb Input color ({@code 0xRRGGBB})
+	 * @param order RGB order
+	 * @return packed color with swapped RGB order
+	 */
+	public static int matchRgbOrder(int rgb, RgbOrder order) {
+		return order.apply(rgb);
+	}
+	
+	
 	/**
 	 * Convert audio tones to the visible spectrum of light
 	 * <br> Source:
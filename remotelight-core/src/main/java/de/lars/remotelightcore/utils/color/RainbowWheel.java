@@ -23,7 +23,7 @@
 package de.lars.remotelightcore.utils.color;
 
 import de.lars.remotelightcore.utils.color.Color;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /*
  * adapted from https://stackoverflow.com/a/52498075
@@ -35,11 +35,13 @@ public class RainbowWheel {
 	 */
 	private final static int SIZE = 360;
 	private static Color[] rainbow = new Color[SIZE];
+	private static int[] packedRainbow = new int[SIZE];
 	
 	public static void init() {
 		double jump = 1.0 / (SIZE * 1.0);
 		for(int i = 0; i < SIZE; i++) {
 			rainbow[i] = Color.getHSBColor((float) (jump * i), 1.0f, 1.0f);
+			packedRainbow[i] = rainbow[i].getRGB() & 0xFFFFFF;
 		}
 	}
 	
@@ -51,13 +53,22 @@ public class RainbowWheel {
 		return rainbow;
 	}
 
+	/**
+	 * 
+	 * @return packed 0xRRGGBB colors from 0 to 360(excluded),
+	 * 			must not be modified
+	 */
+	public static int[] getPackedRainbow() {
+		return packedRainbow;
+	}
+
 	/**
 	 * 
 	 * @return A random color from the rainbow array
 	 */
 	public static Color getRandomColor() {
-		float random = new Random().nextFloat();
-		return Color.getHSBColor(random, 1.0f, 1.0f);
+		int hue = ThreadLocalRandom.current().nextInt(0x10000);
+		return new Color(ColorMath.hsv2rgbSpectrum16(hue, 255, 255));
 	}
 	
 }
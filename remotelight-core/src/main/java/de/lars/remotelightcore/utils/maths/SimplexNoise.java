@@ -354,6 +354,158 @@ public class SimplexNoise {  // Simplex noise in 2D, 3D and 4D
     return 27.0 * (n0 + n1 + n2 + n3 + n4);
   }
 
+  // Batch evaluation. Points are sampled along a line (or a grid of lines)
+  // with a constant step and written to dest as floats, which gives the same
+  // values as calling noise() for every point. The gradient indices of the
+  // current simplex cell are only hashed again when the line enters a new cell,
+  // so sampling with small steps mostly skips the permutation lookups.
+
+  // 2D simplex noise for count points starting at (xin,yin)
+  public static void noiseLine(double xin, double yin, double stepX, double stepY,
+                               float[] dest, int offset, int count) {
+    int ci = 0, cj = 0;
+    int g00 = 0, g10 = 0, g01 = 0, g11 = 0; // gradient indices of the cell corners
+    for(int n=0; n<count; n++) {
+      double x = xin + n*stepX;
+      double y = yin + n*stepY;
+      double s = (x+y)*F2;
+      int i = fastfloor(x+s);
+      int j = fastfloor(y+s);
+      if(n == 0 || i != ci || j != cj) {
+        ci = i;
+        cj = j;
+        int ii = i & 255;
+        int jj = j & 255;
+        g00 = permMod12[ii+perm[jj]];
+        g10 = permMod12[ii+1+perm[jj]];
+        g01 = permMod12[ii+perm[jj+1]];
+        g11 = permMod12[ii+1+perm[jj+1]];
+      }
+      double t = (i+j)*G2;
+      double x0 = x-(i-t);
+      double y0 = y-(j-t);
+      int i1, j1, gi1;
+      if(x0>y0) {i1=1; j1=0; gi1=g10;}
+      else {i1=0; j1=1; gi1=g01;}
+      double x1 = x0 - i1 + G2;
+      double y1 = y0 - j1 + G2;
+      double x2 = x0 - 1.0 + 2.0 * G2;
+      double y2 = y0 - 1.0 + 2.0 * G2;
+      double n0 = 0.0, n1 = 0.0, n2 = 0.0;
+      double t0 = 0.5 - x0*x0-y0*y0;
+      if(t0>=0) {
+        t0 *= t0;
+        n0 = t0 * t0 * dot(grad3[g00], x0, y0);
+      }
+      double t1 = 0.5 - x1*x1-y1*y1;
+      if(t1>=0) {
+        t1 *= t1;
+        n1 = t1 * t1 * dot(grad3[gi1], x1, y1);
+      }
+      double t2 = 0.5 - x2*x2-y2*y2;
+      if(t2>=0) {
+        t2 *= t2;
+        n2 = t2 * t2 * dot(grad3[g11], x2, y2);
+      }
+      dest[offset+n] = (float) (70.0 * (n0 + n1 + n2));
+    }
+  }
+
+  // 2D simplex noise for a row-major grid of width*height points starting at (xin,yin)
+  public static void noiseGrid(double xin, double yin, double stepX, double stepY,
+                               int width, int height, float[] dest, int offset) {
+    for(int row=0; row<height; row++)
+      noiseLine(xin, yin + row*stepY, stepX, 0.0, dest, offset + row*width, width);
+  }
+
+  // 3D simplex noise for count points starting at (xin,yin,zin)
+  public static void noiseLine(double xin, double yin, double zin, double stepX, double stepY, double stepZ,
+                               float[] dest, int offset, int count) {
+    int ci = 0, cj = 0, ck = 0;
+    // gradient indices of the cell corners
+    int g000 = 0, g100 = 0, g010 = 0, g001 = 0, g110 = 0, g101 = 0, g011 = 0, g111 = 0;
+    for(int n=0; n<count; n++) {
+      double x = xin + n*stepX;
+      double y = yin + n*stepY;
+      double z = zin + n*stepZ;
+      double s = (x+y+z)*F3;
+      int i = fastfloor(x+s);
+      int j = fastfloor(y+s);
+      int k = fastfloor(z+s);
+      if(n == 0 || i != ci || j != cj || k != ck) {
+        ci = i;
+        cj = j;
+        ck = k;
+        int ii = i & 255;
+        int jj = j & 255;
+        int kk = k & 255;
+        g000 = permMod12[ii+perm[jj+perm[kk]]];
+        g100 = permMod12[ii+1+perm[jj+perm[kk]]];
+        g010 = permMod12[ii+perm[jj+1+perm[kk]]];
+        g001 = permMod12[ii+perm[jj+perm[kk+1]]];
+        g110 = permMod12[ii+1+perm[jj+1+perm[kk]]];
+        g101 = permMod12[ii+1+perm[jj+perm[kk+1]]];
+        g011 = permMod12[ii+perm[jj+1+perm[kk+1]]];
+        g111 = permMod12[ii+1+perm[jj+1+perm[kk+1]]];
+      }
+      double t = (i+j+k)*G3;
+      double x0 = x-(i-t);
+      double y0 = y-(j-t);
+      double z0 = z-(k-t);
+      int i1, j1, k1, gi1;
+      int i2, j2, k2, gi2;
+      if(x0>=y0) {
+        if(y0>=z0)
+          { i1=1; j1=0; k1=0; gi1=g100; i2=1; j2=1; k2=0; gi2=g110; } // X Y Z order
+          else if(x0>=z0) { i1=1; j1=0; k1=0; gi1=g100; i2=1; j2=0; k2=1; gi2=g101; } // X Z Y order
+          else { i1=0; j1=0; k1=1; gi1=g001; i2=1; j2=0; k2=1; gi2=g101; } // Z X Y order
+        }
+      else { // x0<y0
+        if(y0<z0) { i1=0; j1=0; k1=1; gi1=g001; i2=0; j2=1; k2=1; gi2=g011; } // Z Y X order
+        else if(x0<z0) { i1=0; j1=1; k1=0; gi1=g010; i2=0; j2=1; k2=1; gi2=g011; } // Y Z X order
+        else { i1=0; j1=1; k1=0; gi1=g010; i2=1; j2=1; k2=0; gi2=g110; } // Y X Z order
+      }
+      double x1 = x0 - i1 + G3;
+      double y1 = y0 - j1 + G3;
+      double z1 = z0 - k1 + G3;
+      double x2 = x0 - i2 + 2.0*G3;
+      double y2 = y0 - j2 + 2.0*G3;
+      double z2 = z0 - k2 + 2.0*G3;
+      double x3 = x0 - 1.0 + 3.0*G3;
+      double y3 = y0 - 1.0 + 3.0*G3;
+      double z3 = z0 - 1.0 + 3.0*G3;
+      double n0 = 0.0, n1 = 0.0, n2 = 0.0, n3 = 0.0;
+      double t0 = 0.6 - x0*x0 - y0*y0 - z0*z0;
+      if(t0>=0) {
+        t0 *= t0;
+        n0 = t0 * t0 * dot(grad3[g000], x0, y0, z0);
+      }
+      double t1 = 0.6 - x1*x1 - y1*y1 - z1*z1;
+      if(t1>=0) {
+        t1 *= t1;
+        n1 = t1 * t1 * dot(grad3[gi1], x1, y1, z1);
+      }
+      double t2 = 0.6 - x2*x2 - y2*y2 - z2*z2;
+      if(t2>=0) {
+        t2 *= t2;
+        n2 = t2 * t2 * dot(grad3[gi2], x2, y2, z2);
+      }
+      double t3 = 0.6 - x3*x3 - y3*y3 - z3*z3;
+      if(t3>=0) {
+        t3 *= t3;
+        n3 = t3 * t3 * dot(grad3[g111], x3, y3, z3);
+      }
+      dest[offset+n] = (float) (32.0*(n0 + n1 + n2 + n3));
+    }
+  }
+
+  // 3D simplex noise for a row-major grid of width*height points in the plane z=zin
+  public static void noiseGrid(double xin, double yin, double zin, double stepX, double stepY,
+                               int width, int height, float[] dest, int offset) {
+    for(int row=0; row<height; row++)
+      noiseLine(xin, yin + row*stepY, zin, stepX, 0.0, 0.0, dest, offset + row*width, width);
+  }
+
   // Inner class to speed upp gradient computations
   // (In Java, array access is a lot slower than member access)
   private static class Grad
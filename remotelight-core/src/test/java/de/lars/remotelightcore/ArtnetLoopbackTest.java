@@ -0,0 +1,109 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.devices.ConnectionState;
+import de.lars.remotelightcore.devices.artnet.ArtDmxPacket;
+import de.lars.remotelightcore.devices.artnet.ArtSyncPacket;
+import de.lars.remotelightcore.devices.artnet.Artnet;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+public class ArtnetLoopbackTest {
+	
+	@DisplayName("Art-Net universe size is clamped")
+	@Test
+	public void universeSizeTest() {
+		Artnet artnet = new Artnet("universe");
+		artnet.setUniverseSize(1000);
+		assertEquals(Artnet.MAX_UNIVERSE_SIZE, artnet.getUniverseSize());
+		artnet.setUniverseSize(1);
+		assertEquals(3, artnet.getUniverseSize());
+		artnet.setUniverseSize(510);
+		assertEquals(510, artnet.getUniverseSize());
+	}
+	
+	@DisplayName("Art-Net multi-universe frame with ArtSync loopback test")
+	@Test
+	public void syncTest() throws IOException {
+		final int pixels = 401;		// 1203 channels -> 510 + 510 + 183 (padded to 184)
+		
+		try(DatagramSocket receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			receiver.setSoTimeout(2000);
+			
+			Artnet artnet = new Artnet("loopback");
+			artnet.setUnicastAddress("127.0.0.1");
+			artnet.setPort(receiver.getLocalPort());
+			artnet.setSubnet(1);
+			artnet.setStartUniverse(14);
+			artnet.setUniverseSize(510);
+			assertEquals(ConnectionState.CONNECTED, artnet.connect());
+			
+			try {
+				PixelBuffer frame = new PixelBuffer(pixels);
+				for(int f = 1; f <= 3; f++) {
+					for(int i = 0; i < pixels; i++) {
+						frame.set(i, i & 0xFF, f, (i * 7) & 0xFF);
+					}
+					artnet.send(frame);
+					
+					List<ByteBuffer> universes = new ArrayList<>();
+					ByteBuffer packet;
+					// every universe of the frame must arrive before the ArtSync
+					while(getOpCode(packet = receive(receiver)) != ArtSyncPacket.OP_SYNC) {
+						assertEquals(ArtDmxPacket.OP_DMX, getOpCode(packet));
+						universes.add(packet);
+					}
+					assertEquals(ArtSyncPacket.LENGTH, packet.limit());
+					System.out.println("Frame " + f + ": received " + universes.size() + " universes before ArtSync");
+					
+					assertEquals(3, universes.size());
+					byte[] channels = new byte[pixels * 3];
+					int offset = 0;
+					for(int u = 0; u < universes.size(); u++) {
+						ByteBuffer data = universes.get(u);
+						assertEquals(f, data.get(12));										// sequence
+						int portAddress = (data.get(14) & 0xFF) | ((data.get(15) & 0x7F) << 8);
+						assertEquals((1 << 4) + 14 + u, portAddress);						// continues on next sub-net
+						int length = data.getShort(16);
+						assertEquals(0, length % 2);
+						assertEquals(length, data.limit() - ArtDmxPacket.HEADER_LENGTH);
+						int slots = Math.min(510, channels.length - offset);
+						for(int s = 0; s < slots; s++) {
+							channels[offset++] = data.get(ArtDmxPacket.HEADER_LENGTH + s);
+						}
+					}
+					for(int i = 0; i < pixels; i++) {
+						assertEquals((byte) frame.getRed(i), channels[i * 3]);
+						assertEquals((byte) frame.getGreen(i), channels[i * 3 + 1]);
+						assertEquals((byte) frame.getBlue(i), channels[i * 3 + 2]);
+					}
+				}
+			} finally {
+				artnet.disconnect();
+			}
+		}
+	}
+	
+	private ByteBuffer receive(DatagramSocket socket) throws IOException {
+		byte[] buffer = new byte[ArtDmxPacket.HEADER_LENGTH + ArtDmxPacket.MAX_DATA_LENGTH];
+		DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+		socket.receive(packet);
+		return ByteBuffer.wrap(packet.getData(), 0, packet.getLength()).slice();
+	}
+	
+	private int getOpCode(ByteBuffer packet) {
+		return (packet.get(8) & 0xFF) | ((packet.get(9) & 0xFF) << 8);
+	}
+
+}
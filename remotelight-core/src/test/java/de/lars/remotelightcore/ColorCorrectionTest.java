@@ -0,0 +1,81 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.out.ColorCorrection;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+public class ColorCorrectionTest {
+	
+	@DisplayName("Linear brightness and gamma table test")
+	@Test
+	public void tableTest() {
+		ColorCorrection correction = new ColorCorrection();
+		PixelBuffer pixels = new PixelBuffer(new int[] {0x000000, 0x010203, 0x7F8081, 0xFFFFFF});
+		PixelBuffer out = correction.apply(pixels, new PixelBuffer(0));
+		assertEquals(pixels, out);
+		
+		correction.setBrightness(50);
+		correction.apply(pixels, out);
+		assertEquals(0x010102, out.get(1)); // 0.5, 1.0, 1.5 rounded half up
+		assertEquals(0x808080, out.get(3));
+		
+		correction.setBrightness(100);
+		correction.setGamma(2.2);
+		int last = -1;
+		for(int i = 0; i < 256; i++) {
+			int value = correction.getCorrectedValue(0, i);
+			assertTrue(value >= last, "Gamma table must be monotonic");
+			last = value;
+		}
+		assertEquals(255 * 256, correction.getCorrectedValue(2, 255));
+		assertEquals(0, correction.getCorrectedValue(1, 0));
+		
+		correction.setGamma(2.2, 2.5, 2.8);
+		assertEquals(2.2, correction.getGammaRed());
+		assertEquals(2.5, correction.getGammaGreen());
+		assertEquals(2.8, correction.getGammaBlue());
+	}
+	
+	@DisplayName("Temporal dithering keeps dim colors test")
+	@Test
+	public void ditheringTest() {
+		ColorCorrection correction = new ColorCorrection();
+		correction.setBrightness(10);
+		ColorCorrection.Dither dither = correction.newDither();
+		
+		// 0.4, 1.5 and 25.5 at 10 % brightness
+		PixelBuffer pixels = new PixelBuffer(new int[] {PixelBuffer.pack(4, 15, 255)});
+		PixelBuffer out = new PixelBuffer(1);
+		final int frames = 100;
+		int sumR = 0, sumG = 0, sumB = 0;
+		for(int i = 0; i < frames; i++) {
+			assertSame(out, dither.apply(pixels, out));
+			sumR += out.getRed(0);
+			sumG += out.getGreen(0);
+			sumB += out.getBlue(0);
+		}
+		System.out.println(String.format("Average over %d frames: %.2f %.2f %.2f", frames,
+				sumR * 1.0 / frames, sumG * 1.0 / frames, sumB * 1.0 / frames));
+		// without dithering the red channel would be rounded to 0
+		assertEquals(40, sumR, 1);
+		assertEquals(150, sumG, 1);
+		assertEquals(2550, sumB, 1);
+		
+		correction.apply(pixels, out);
+		assertEquals(0, out.getRed(0));
+		
+		// every dither has its own error buffer
+		ColorCorrection.Dither other = correction.newDither();
+		PixelBuffer otherOut = new PixelBuffer(1);
+		dither.apply(pixels, out);
+		other.apply(pixels, otherOut);
+		assertEquals(1, otherOut.getGreen(0), "a new dither must start without error");
+	}
+
+}
@@ -0,0 +1,123 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.utils.color.Color;
+import de.lars.remotelightcore.utils.color.ColorMath;
+
+public class ColorMathTest {
+	
+	@DisplayName("8 bit math keeps the limits")
+	@Test
+	public void scalarTest() {
+		for(int v = 0; v < 256; v++) {
+			assertEquals(v, ColorMath.scale8(v, 255));
+			assertEquals(0, ColorMath.scale8(v, 0));
+			assertEquals(v, ColorMath.blend8(v, 255 - v, 0));
+			assertEquals(255 - v, ColorMath.blend8(v, 255 - v, 255));
+			assertEquals(v, ColorMath.lerp8(v, 255 - v, 0));
+			if(v > 0)
+				assertTrue(ColorMath.scale8Video(v, 1) > 0);
+		}
+		assertEquals(255, ColorMath.qadd8(200, 100));
+		assertEquals(0, ColorMath.qsub8(100, 200));
+	}
+	
+	@DisplayName("Packed math matches the channel math")
+	@Test
+	public void packedTest() {
+		final int[] colors = {0x000000, 0xFFFFFF, 0xFF0000, 0x00FF00, 0x0000FF, 0x123456, 0xFEDCBA, 0x80FF01};
+		for(int a : colors) {
+			for(int b : colors) {
+				for(int amount : new int[] {0, 1, 77, 128, 254, 255}) {
+					assertEquals(packChannels(a, b, amount, "blend"), ColorMath.blend(a, b, amount));
+					assertEquals(packChannels(a, a, amount, "scale"), ColorMath.nscale8(a, amount));
+				}
+				assertEquals(packChannels(a, b, 0, "add"), ColorMath.add(a, b));
+				assertEquals(packChannels(a, b, 0, "sub"), ColorMath.subtract(a, b));
+			}
+		}
+		assertEquals(0x000000, ColorMath.fadeToBlackBy(0xFFFFFF, 255));
+		assertEquals(0x7F7F7F, ColorMath.lerp(0x000000, 0xFFFFFF, 128));
+	}
+	
+	private int packChannels(int a, int b, int amount, String op) {
+		int result = 0;
+		for(int shift = 16; shift >= 0; shift -= 8) {
+			int ca = a >> shift & 0xFF;
+			int cb = b >> shift & 0xFF;
+			int c;
+			switch(op) {
+			case "blend": c = ColorMath.blend8(ca, cb, amount); break;
+			case "scale": c = ColorMath.scale8(ca, amount); break;
+			case "add": c = ColorMath.qadd8(ca, cb); break;
+			default: c = ColorMath.qsub8(ca, cb); break;
+			}
+			result |= c << shift;
+		}
+		return result;
+	}
+	
+	@DisplayName("Spectrum HSV matches the float HSB conversion")
+	@Test
+	public void spectrumTest() {
+		int maxDiff = 0;
+		for(int hue = 0; hue < 0x10000; hue += 97) {
+			for(int sat : new int[] {0, 100, 255}) {
+				for(int val : new int[] {0, 60, 255}) {
+					int expected = Color.getHSBColor(hue / 65536.0f, sat / 255.0f, val / 255.0f).getRGB();
+					int actual = ColorMath.hsv2rgbSpectrum16(hue, sat, val);
+					maxDiff = Math.max(maxDiff, maxChannelDiff(expected, actual));
+					// round trip through the 8 bit hue
+					if(sat == 255 && val == 255) {
+						int hsv = ColorMath.rgb2hsv(actual);
+						int back = ColorMath.hsv2rgbSpectrum(hsv >> 16, hsv >> 8 & 0xFF, hsv & 0xFF);
+						assertTrue(maxChannelDiff(actual, back) <= 8);
+					}
+				}
+			}
+		}
+		System.out.println("Spectrum HSV max channel difference: " + maxDiff);
+		assertTrue(maxDiff <= 2);
+		assertEquals(0x00FFFF, ColorMath.rgb2hsv(0xFF0000));
+		assertEquals(0x55FFFF, ColorMath.rgb2hsv(0x00FF00));
+		assertEquals(0xABFFFF, ColorMath.rgb2hsv(0x0000FF));
+		assertEquals(0x000080, ColorMath.rgb2hsv(0x808080));
+	}
+	
+	@DisplayName("Rainbow HSV has the FastLED key colors")
+	@Test
+	public void rainbowTest() {
+		assertEquals(0xFF0000, ColorMath.hsv2rgbRainbow(0, 255, 255));
+		assertEquals(0xABAA00, ColorMath.hsv2rgbRainbow(64, 255, 255));
+		assertEquals(0x00FF00, ColorMath.hsv2rgbRainbow(96, 255, 255));
+		assertEquals(0x0000FF, ColorMath.hsv2rgbRainbow(160, 255, 255));
+		assertEquals(0xFFFFFF, ColorMath.hsv2rgbRainbow(42, 0, 255));
+		assertEquals(0x000000, ColorMath.hsv2rgbRainbow(42, 255, 0));
+		for(int hue = 0; hue < 256; hue++) {
+			int rgb = ColorMath.hsv2rgbRainbow(hue, 200, 180);
+			assertEquals(rgb & 0xFFFFFF, rgb);
+		}
+		
+		PixelBuffer buffer = new PixelBuffer(20).view(4, 8);
+		buffer.fillRainbow(0, 0x2000);
+		for(int i = 0; i < 8; i++)
+			assertEquals(ColorMath.hsv2rgbRainbow(i * 32, 255, 255), buffer.get(i));
+		buffer.fadeToBlackBy(255);
+		for(int i = 0; i < 8; i++)
+			assertEquals(0, buffer.get(i));
+	}
+	
+	private int maxChannelDiff(int a, int b) {
+		int diff = 0;
+		for(int shift = 16; shift >= 0; shift -= 8)
+			diff = Math.max(diff, Math.abs((a >> shift & 0xFF) - (b >> shift & 0xFF)));
+		return diff;
+	}
+
+}
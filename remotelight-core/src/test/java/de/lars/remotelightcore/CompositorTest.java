@@ -0,0 +1,204 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.animation.Animation;
+import de.lars.remotelightcore.compositor.BlendMode;
+import de.lars.remotelightcore.compositor.Compositor;
+import de.lars.remotelightcore.compositor.Layer;
+import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.utils.color.Color;
+
+public class CompositorTest {
+	
+	@DisplayName("Packed blend modes match per channel math")
+	@Test
+	public void blendModeTest() {
+		Random random = new Random(42);
+		for(int n = 0; n < 10000; n++) {
+			int dst = random.nextInt(0x1000000);
+			int src = random.nextInt(0x1000000);
+			for(int shift = 0; shift <= 16; shift += 8) {
+				int d = dst >> shift & 0xFF;
+				int s = src >> shift & 0xFF;
+				assertEquals(Math.min(255, d + s), BlendMode.ADD.blend(dst, src) >> shift & 0xFF);
+				assertEquals(Math.round(d * s / 255f), BlendMode.MULTIPLY.blend(dst, src) >> shift & 0xFF);
+				assertEquals(255 - Math.round((255 - d) * (255 - s) / 255f), BlendMode.SCREEN.blend(dst, src) >> shift & 0xFF);
+				assertEquals(Math.max(d, s), BlendMode.MAX.blend(dst, src) >> shift & 0xFF);
+			}
+			assertEquals(src, BlendMode.NORMAL.blend(dst, src));
+		}
+		// mask with the brightness of the layer
+		assertEquals(0x123456, BlendMode.MASK.blend(0x123456, 0x00FF00));
+		assertEquals(0, BlendMode.MASK.blend(0x123456, 0));
+		assertEquals(0x091A2B, BlendMode.MASK.blend(0x123456, 0x00007F));
+	}
+	
+	@DisplayName("Layers with opacity and pixel range")
+	@Test
+	public void layerTest() {
+		Compositor compositor = new Compositor();
+		compositor.setParallel(false);
+		Layer background = compositor.addLayer(new FillAnimation("_background", 0x400000), BlendMode.NORMAL);
+		Layer overlay = compositor.addLayer(new FillAnimation("_overlay", 0x0000FF), BlendMode.ADD);
+		overlay.setRange(10, 5);
+		
+		PixelBuffer frame = compositor.renderFrame(20);
+		assertEquals(20, frame.length());
+		assertEquals(0x400000, frame.get(0));
+		assertEquals(0x400000, frame.get(9));
+		assertEquals(0x4000FF, frame.get(10));
+		assertEquals(0x4000FF, frame.get(14));
+		assertEquals(0x400000, frame.get(15));
+		// the effect is enabled with the pixel count of the range
+		assertEquals(5, ((FillAnimation) overlay.getEffect()).pixels);
+		
+		overlay.setOpacity(50);
+		frame = compositor.renderFrame(20);
+		assertEquals(0x40007F, frame.get(12));
+		
+		background.setVisible(false);
+		frame = compositor.renderFrame(20);
+		assertEquals(0, frame.get(0));
+		
+		// an effect can only be used by one layer
+		assertThrows(IllegalArgumentException.class, () -> compositor.addLayer(background.getEffect(), BlendMode.MAX));
+		compositor.removeLayer(overlay);
+		compositor.renderFrame(20);
+		assertEquals(1, ((FillAnimation) overlay.getEffect()).disabled);
+	}
+	
+	@DisplayName("Parallel rendering produces the same frame")
+	@Test
+	public void parallelTest() {
+		Compositor sequential = new Compositor();
+		sequential.setParallel(false);
+		Compositor parallel = new Compositor();
+		parallel.setParallel(true);
+		BlendMode[] modes = BlendMode.values();
+		for(int i = 0; i < 6; i++) {
+			int color = 0x102030 * (i + 1) & 0xFFFFFF;
+			sequential.addLayer(new FillAnimation("_layer" + i, color), modes[i % modes.length]).setOpacity(50 + i * 10);
+			parallel.addLayer(new FillAnimation("_layer" + i, color), modes[i % modes.length]).setOpacity(50 + i * 10);
+		}
+		for(int n = 0; n < 10; n++) {
+			assertEquals(sequential.renderFrame(100).copy(), parallel.renderFrame(100).copy());
+		}
+	}
+	
+	@DisplayName("Effects see the pixel count of their layer")
+	@Test
+	public void ledNumTest() {
+		Compositor compositor = new Compositor();
+		compositor.setParallel(false);
+		LedNumAnimation animation = new LedNumAnimation();
+		Layer layer = compositor.addLayer(animation, BlendMode.NORMAL);
+		layer.setRange(10, 5);
+		
+		PixelBuffer frame = compositor.renderFrame(20);
+		assertEquals(0, frame.get(9));
+		assertEquals(0x00FF00, frame.get(10));
+		assertEquals(0x00FF00, frame.get(14));
+		assertEquals(0, frame.get(15));
+		assertEquals(5, animation.ledNum);
+		
+		// a failing layer is hidden and enabled again when it is shown again
+		animation.fail = true;
+		compositor.renderFrame(20);
+		assertFalse(layer.isVisible());
+		animation.fail = false;
+		layer.setVisible(true);
+		frame = compositor.renderFrame(20);
+		assertEquals(0x00FF00, frame.get(12));
+		assertEquals(2, animation.enabled);
+	}
+	
+	@DisplayName("Color array effects render through the pixel buffer")
+	@Test
+	public void colorArrayTest() {
+		Animation animation = new Animation("_colorArray", 0) {
+			@Override
+			public Color[] onEffect() {
+				Color[] strip = new Color[getPixel()];
+				Arrays.fill(strip, Color.BLUE);
+				return strip;
+			}
+		};
+		Compositor compositor = new Compositor();
+		compositor.setParallel(false);
+		compositor.addLayer(animation, BlendMode.NORMAL).setRange(5, 10);
+		PixelBuffer frame = compositor.renderFrame(20);
+		assertEquals(0, frame.get(4));
+		assertEquals(0x0000FF, frame.get(5));
+		assertEquals(0x0000FF, frame.get(14));
+		assertEquals(0, frame.get(15));
+	}
+	
+	private static class LedNumAnimation extends Animation {
+		final PixelBuffer buffer = new PixelBuffer(0);
+		volatile boolean fail;
+		int ledNum;
+		int enabled;
+		
+		LedNumAnimation() {
+			super("_ledNum", 0);
+		}
+		
+		@Override
+		public void onEnable(int pixel) {
+			enabled++;
+			super.onEnable(pixel);
+		}
+		
+		@Override
+		public void onLoop() {
+			if(fail) {
+				throw new IllegalStateException("test");
+			}
+			ledNum = RemoteLightCore.getLedNum();
+			buffer.resize(ledNum);
+			buffer.fill(0x00FF00);
+			OutputManager.addToOutput(buffer);
+		}
+	}
+	
+	private static class FillAnimation extends Animation {
+		final int color;
+		final PixelBuffer buffer = new PixelBuffer(0);
+		int pixels;
+		int disabled;
+		
+		FillAnimation(String name, int color) {
+			super(name, 0);
+			this.color = color;
+		}
+		
+		@Override
+		public void onEnable(int pixel) {
+			pixels = pixel;
+			super.onEnable(pixel);
+		}
+		
+		@Override
+		public void onDisable() {
+			disabled++;
+		}
+		
+		@Override
+		public void onLoop() {
+			buffer.resize(pixels);
+			buffer.fill(color);
+			OutputManager.addToOutput(buffer);
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import de.lars.remotelightcore.devices.ConnectionState;
+import de.lars.remotelightcore.devices.Device;
+import de.lars.remotelightcore.devices.ddp.DDP;
+import de.lars.remotelightcore.devices.ddp.DdpPacket;
+import de.lars.remotelightcore.io.FileStorage;
+import de.lars.remotelightcore.io.jsondeserializer.DeviceDeserializer;
+import de.lars.remotelightcore.io.jsonserializer.DeviceSerializer;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+public class DDPLoopbackTest {
+	
+	@DisplayName("DDP multi-packet frame loopback test")
+	@Test
+	public void frameTest() throws IOException {
+		final int pixels = 1000;	// 3000 bytes -> 1440 + 1440 + 120
+		
+		try(DatagramSocket receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			receiver.setSoTimeout(2000);
+			
+			DDP ddp = new DDP("loopback");
+			ddp.setAddress("127.0.0.1");
+			ddp.setPort(receiver.getLocalPort());
+			assertEquals(ConnectionState.CONNECTED, ddp.connect());
+			
+			try {
+				PixelBuffer frame = new PixelBuffer(pixels);
+				for(int f = 1; f <= 3; f++) {
+					for(int i = 0; i < pixels; i++) {
+						frame.set(i, i & 0xFF, f, (i * 7) & 0xFF);
+					}
+					ddp.send(frame);
+					
+					List<byte[]> packets = new ArrayList<>();
+					byte[] packet;
+					// receive until the packet with the push flag
+					do {
+						packet = receive(receiver);
+						packets.add(packet);
+					} while((packet[0] & DdpPacket.FLAG_PUSH) == 0);
+					System.out.println("Frame " + f + ": received " + packets.size() + " packets");
+					
+					assertEquals(3, packets.size());
+					byte[] data = new byte[pixels * 3];
+					int expectedOffset = 0;
+					for(byte[] p : packets) {
+						assertEquals(DdpPacket.FLAG_VERSION_1, p[0] & 0xC0);
+						assertEquals(f, p[1] & 0x0F);
+						assertEquals(DdpPacket.TYPE_RGB24, p[2]);
+						assertEquals(DdpPacket.ID_DEFAULT, p[3]);
+						int offset = ((p[4] & 0xFF) << 24) | ((p[5] & 0xFF) << 16) | ((p[6] & 0xFF) << 8) | (p[7] & 0xFF);
+						int length = ((p[8] & 0xFF) << 8) | (p[9] & 0xFF);
+						assertEquals(expectedOffset, offset);
+						assertEquals(p.length - DdpPacket.HEADER_LENGTH, length);
+						assertTrue(length <= DdpPacket.MAX_DATA_LENGTH);
+						System.arraycopy(p, DdpPacket.HEADER_LENGTH, data, offset, length);
+						expectedOffset += length;
+					}
+					assertEquals(pixels * 3, expectedOffset);
+					
+					byte[] expected = new byte[pixels * 3];
+					for(int i = 0; i < pixels; i++) {
+						expected[i * 3] = (byte) (i & 0xFF);
+						expected[i * 3 + 1] = (byte) f;
+						expected[i * 3 + 2] = (byte) ((i * 7) & 0xFF);
+					}
+					assertArrayEquals(expected, data);
+				}
+			} finally {
+				ddp.disconnect();
+			}
+		}
+	}
+	
+	@DisplayName("DDP device serialization test")
+	@Test
+	public void serializationTest() {
+		Gson gson = new GsonBuilder()
+				.registerTypeAdapter(FileStorage.TYPE_DEVICES_LIST, new DeviceSerializer())
+				.registerTypeAdapter(FileStorage.TYPE_DEVICES_LIST, new DeviceDeserializer())
+				.create();
+		DDP ddp = new DDP("wled");
+		ddp.setAddress("192.168.1.50");
+		ddp.setPixels(150);
+		List<Device> devices = new ArrayList<>();
+		devices.add(ddp);
+		
+		String json = gson.toJson(devices, FileStorage.TYPE_DEVICES_LIST);
+		List<Device> loaded = gson.fromJson(json, FileStorage.TYPE_DEVICES_LIST);
+		assertEquals(1, loaded.size());
+		assertTrue(loaded.get(0) instanceof DDP);
+		DDP loadedDdp = (DDP) loaded.get(0);
+		loadedDdp.onLoad();
+		assertEquals("wled", loadedDdp.getId());
+		assertEquals("192.168.1.50", loadedDdp.getAddress());
+		assertEquals(DDP.PORT, loadedDdp.getPort());
+		assertEquals(150, loadedDdp.getPixels());
+	}
+	
+	private byte[] receive(DatagramSocket socket) throws IOException {
+		byte[] buffer = new byte[DdpPacket.HEADER_LENGTH + DdpPacket.MAX_DATA_LENGTH];
+		DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+		socket.receive(packet);
+		byte[] data = new byte[packet.getLength()];
+		System.arraycopy(buffer, 0, data, 0, data.length);
+		return data;
+	}
+
+}
@@ -0,0 +1,133 @@
+package de.lars.remotelightcore;
+
+import java.util.Arrays;
+
+import de.lars.remotelightcore.devices.arduino.DeltaProtocol;
+
+/**
+ * Reference decoder for the {@link DeltaProtocol}, implemented the way
+ * a microcontroller would: byte by byte with a fixed frame buffer.
+ */
+public class DeltaProtocolDecoder {
+	
+	private final byte[] pixels;
+	private final byte[] frame;
+	private int frameIndex;
+	private int expectedLength = -1;
+	private int lastSequence = -1;
+	private boolean synced;
+	private int pixelCount;
+	
+	private int framesDecoded;
+	private int framesDropped;
+	
+	public DeltaProtocolDecoder(int maxPixels) {
+		pixels = new byte[maxPixels * 3];
+		frame = new byte[DeltaProtocol.HEADER_LENGTH + maxPixels * 4 + DeltaProtocol.CHECKSUM_LENGTH];
+	}
+	
+	/**
+	 * Feed the received bytes to the decoder.
+	 */
+	public void receive(byte[] data, int off, int len) {
+		for(int i = off; i < off + len; i++)
+			receive(data[i]);
+	}
+	
+	public void receive(byte b) {
+		// wait for magic bytes
+		if(frameIndex == 0 && b != DeltaProtocol.MAGIC_1)
+			return;
+		if(frameIndex == 1 && b != DeltaProtocol.MAGIC_2) {
+			frameIndex = 0;
+			return;
+		}
+		if(frameIndex >= frame.length) {
+			frameIndex = 0;
+			framesDropped++;
+			return;
+		}
+		frame[frameIndex++] = b;
+		
+		if(frameIndex == DeltaProtocol.HEADER_LENGTH) {
+			int payload = ((frame[6] & 0xFF) << 8) | (frame[7] & 0xFF);
+			expectedLength = DeltaProtocol.HEADER_LENGTH + payload + DeltaProtocol.CHECKSUM_LENGTH;
+			if(expectedLength > frame.length) {
+				frameIndex = 0;
+				framesDropped++;
+			}
+		} else if(frameIndex > DeltaProtocol.HEADER_LENGTH && frameIndex == expectedLength) {
+			frameIndex = 0;
+			if(!decodeFrame(expectedLength))
+				framesDropped++;
+		}
+	}
+	
+	private boolean decodeFrame(int length) {
+		int end = length - DeltaProtocol.CHECKSUM_LENGTH;
+		int checksum = ((frame[end] & 0xFF) << 8) | (frame[end + 1] & 0xFF);
+		if(checksum != DeltaProtocol.checksum(frame, 2, end))
+			return false;
+		
+		int type = frame[2];
+		int sequence = frame[3] & 0xFF;
+		int count = ((frame[4] & 0xFF) << 8) | (frame[5] & 0xFF);
+		if(count * 3 > pixels.length)
+			return false;
+		
+		if(type == DeltaProtocol.TYPE_KEYFRAME) {
+			Arrays.fill(pixels, (byte) 0);
+			synced = true;
+		} else if(!synced || sequence != ((lastSequence + 1) & 0xFF) || count != pixelCount) {
+			// missed a frame, wait for the next keyframe
+			synced = false;
+			return false;
+		}
+		lastSequence = sequence;
+		pixelCount = count;
+		
+		int pixel = 0;
+		int i = DeltaProtocol.HEADER_LENGTH;
+		while(i < end) {
+			int op = frame[i] & DeltaProtocol.OP_MASK;
+			int n = (frame[i] & 0x3F) + 1;
+			i++;
+			if(pixel + n > count)
+				return false;
+			if(op == DeltaProtocol.OP_SKIP) {
+				pixel += n;
+			} else if(op == DeltaProtocol.OP_LITERAL) {
+				System.arraycopy(frame, i, pixels, pixel * 3, n * 3);
+				i += n * 3;
+				pixel += n;
+			} else if(op == DeltaProtocol.OP_FILL) {
+				for(int p = 0; p < n; p++, pixel++) {
+					pixels[pixel * 3] = frame[i];
+					pixels[pixel * 3 + 1] = frame[i + 1];
+					pixels[pixel * 3 + 2] = frame[i + 2];
+				}
+				i += 3;
+			} else {
+				return false;
+			}
+		}
+		framesDecoded++;
+		return true;
+	}
+	
+	/**
+	 * @return copy of the current pixels as raw RGB frame
+	 */
+	public byte[] getPixels() {
+		return Arrays.copyOf(pixels, pixelCount * 3);
+	}
+	
+	public int getFramesDecoded() {
+		return framesDecoded;
+	}
+	
+	public int getFramesDropped() {
+		return framesDropped;
+	}
+
+}
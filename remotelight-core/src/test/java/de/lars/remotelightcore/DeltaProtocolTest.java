@@ -0,0 +1,108 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.devices.arduino.DeltaProtocol;
+import de.lars.remotelightcore.devices.arduino.GlediatorProtocol;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+public class DeltaProtocolTest {
+	
+	private final static int PIXELS = 1000;
+	
+	@DisplayName("Delta protocol round trip")
+	@Test
+	public void roundTripTest() {
+		Random random = new Random(42);
+		DeltaProtocol encoder = new DeltaProtocol();
+		DeltaProtocolDecoder decoder = new DeltaProtocolDecoder(PIXELS);
+		PixelBuffer pixels = new PixelBuffer(PIXELS);
+		byte[] raw = null;
+		
+		for(int f = 0; f < 200; f++) {
+			// mix of random pixels, solid areas and unchanged pixels
+			int mode = f % 4;
+			for(int i = 0; i < PIXELS; i++) {
+				if(mode == 0)
+					pixels.set(i, random.nextInt(0x1000000));
+				else if(mode == 1)
+					pixels.set(i, (i / 37) * 0x010203);
+				else if(mode == 2 && random.nextInt(10) == 0)
+					pixels.set(i, random.nextInt(4) * 0x404040);
+			}
+			raw = DeltaProtocol.toRawFrame(pixels, raw);
+			int length = encoder.encode(raw, PIXELS * 3);
+			decoder.receive(encoder.getOutput(), 0, length);
+			assertArrayEquals(Arrays.copyOf(raw, PIXELS * 3), decoder.getPixels(), "frame " + f);
+		}
+		assertEquals(200, decoder.getFramesDecoded());
+		assertEquals(0, decoder.getFramesDropped());
+	}
+	
+	@DisplayName("Delta protocol compression")
+	@Test
+	public void compressionTest() {
+		DeltaProtocol encoder = new DeltaProtocol();
+		DeltaProtocolDecoder decoder = new DeltaProtocolDecoder(PIXELS);
+		PixelBuffer pixels = new PixelBuffer(PIXELS);
+		byte[] raw = null;
+		long encoded = 0;
+		int frames = 100;
+		
+		for(int f = 0; f < frames; f++) {
+			// solid color that changes its brightness, like a breath animation
+			int v = (int) (127.5 + 127.5 * Math.sin(f / 10.0));
+			pixels.fill((v << 16) | (v / 2 << 8));
+			raw = DeltaProtocol.toRawFrame(pixels, raw);
+			int length = encoder.encode(raw, PIXELS * 3);
+			encoded += length;
+			decoder.receive(encoder.getOutput(), 0, length);
+		}
+		long glediator = (long) GlediatorProtocol.getFrameLength(PIXELS) * frames;
+		System.out.println("Solid color: " + encoded + " bytes (Glediator: " + glediator + " bytes)");
+		assertArrayEquals(Arrays.copyOf(raw, PIXELS * 3), decoder.getPixels());
+		assertTrue(encoded * 20 < glediator, "solid colors should compress at least 20x");
+		
+		// static scene only sends headers (except for keyframes)
+		encoder.setKeyframeInterval(Integer.MAX_VALUE);
+		int length = encoder.encode(raw, PIXELS * 3);
+		assertEquals(DeltaProtocol.HEADER_LENGTH + DeltaProtocol.CHECKSUM_LENGTH, length);
+	}
+	
+	@DisplayName("Delta protocol recovers after lost frames")
+	@Test
+	public void recoveryTest() {
+		DeltaProtocol encoder = new DeltaProtocol();
+		encoder.setKeyframeInterval(10);
+		DeltaProtocolDecoder decoder = new DeltaProtocolDecoder(PIXELS);
+		PixelBuffer pixels = new PixelBuffer(PIXELS);
+		byte[] raw = null;
+		
+		for(int f = 0; f < 25; f++) {
+			pixels.set(f, 0xFFFFFF);
+			raw = DeltaProtocol.toRawFrame(pixels, raw);
+			int length = encoder.encode(raw, PIXELS * 3);
+			byte[] out = Arrays.copyOf(encoder.getOutput(), length);
+			if(f == 3)
+				continue; // lost frame
+			if(f == 12)
+				out[DeltaProtocol.HEADER_LENGTH + 1] ^= 0x10; // corrupted frame
+			decoder.receive(out, 0, out.length);
+			
+			boolean synced = f < 3 || f >= 20 || (f >= 10 && f < 12);
+			if(synced)
+				assertArrayEquals(Arrays.copyOf(raw, PIXELS * 3), decoder.getPixels(), "frame " + f);
+		}
+		// 6 deltas after the lost frame, the corrupted frame and 7 deltas after it
+		assertEquals(14, decoder.getFramesDropped());
+	}
+
+}
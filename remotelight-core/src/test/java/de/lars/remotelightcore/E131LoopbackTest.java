@@ -0,0 +1,95 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.devices.ConnectionState;
+import de.lars.remotelightcore.devices.e131.E131;
+import de.lars.remotelightcore.devices.e131.E131Packet;
+import de.lars.remotelightcore.devices.e131.E131SyncPacket;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+public class E131LoopbackTest {
+	
+	@DisplayName("E1.31 multi-universe frame with synchronization loopback test")
+	@Test
+	public void syncTest() throws IOException {
+		final int pixels = 600;		// 1800 channels -> 4 universes of 510 channels
+		final int syncUniverse = 100;
+		
+		try(DatagramSocket receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+			receiver.setSoTimeout(2000);
+			
+			E131 e131 = new E131("loopback");
+			e131.setUnicastAddress("127.0.0.1");
+			e131.setPort(receiver.getLocalPort());
+			e131.setStartUniverse(1);
+			e131.setUniverseSize(510);
+			e131.setSyncUniverse(syncUniverse);
+			assertEquals(ConnectionState.CONNECTED, e131.connect());
+			
+			try {
+				PixelBuffer frame = new PixelBuffer(pixels);
+				for(int f = 0; f < 3; f++) {
+					for(int i = 0; i < pixels; i++) {
+						frame.set(i, (i + f) & 0xFF, f, 255 - (i & 0xFF));
+					}
+					e131.send(frame);
+					
+					List<ByteBuffer> universes = new ArrayList<>();
+					ByteBuffer packet;
+					// every universe of the frame must arrive before the sync packet
+					while(!isSyncPacket(packet = receive(receiver))) {
+						universes.add(packet);
+					}
+					assertEquals(syncUniverse, packet.getShort(45) & 0xFFFF);
+					System.out.println("Frame " + f + ": received " + universes.size() + " universes before sync");
+					
+					assertEquals(4, universes.size());
+					byte[] channels = new byte[pixels * 3];
+					int offset = 0;
+					for(int u = 0; u < universes.size(); u++) {
+						ByteBuffer data = universes.get(u);
+						assertEquals(u + 1, data.getShort(113));						// universe
+						assertEquals(syncUniverse, data.getShort(109) & 0xFFFF);		// sync address
+						int slots = (data.getShort(123) & 0xFFFF) - 1;
+						assertEquals(u < 3 ? 510 : 270, slots);
+						for(int s = 0; s < slots; s++) {
+							channels[offset++] = data.get(E131Packet.HEADER_LENGTH + s);
+						}
+					}
+					for(int i = 0; i < pixels; i++) {
+						assertEquals((byte) frame.getRed(i), channels[i * 3]);
+						assertEquals((byte) frame.getGreen(i), channels[i * 3 + 1]);
+						assertEquals((byte) frame.getBlue(i), channels[i * 3 + 2]);
+					}
+				}
+			} finally {
+				e131.disconnect();
+			}
+		}
+	}
+	
+	private ByteBuffer receive(DatagramSocket socket) throws IOException {
+		DatagramPacket packet = new DatagramPacket(new byte[E131Packet.LENGTH], E131Packet.LENGTH);
+		socket.receive(packet);
+		assertTrue(packet.getLength() >= E131SyncPacket.LENGTH);
+		return ByteBuffer.wrap(packet.getData(), 0, packet.getLength()).slice();
+	}
+	
+	private boolean isSyncPacket(ByteBuffer packet) {
+		return packet.getInt(18) == E131SyncPacket.VECTOR_ROOT_E131_EXTENDED;
+	}
+
+}
@@ -0,0 +1,42 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.devices.e131.E131Packet;
+
+public class E131PacketTest {
+	
+	@DisplayName("E1.31 packet layout test")
+	@Test
+	public void layoutTest() {
+		final int slots = 300;
+		E131Packet packet = new E131Packet(7, slots);
+		for(int i = 0; i < slots; i++) {
+			packet.setSlot(i, (byte) i);
+		}
+		packet.setSequenceNumber(42);
+		
+		ByteBuffer buffer = packet.getBuffer();
+		assertEquals(E131Packet.HEADER_LENGTH + slots, buffer.remaining());
+		// PDU lengths (low 12 bits of flags & length)
+		assertEquals(buffer.remaining() - 16, buffer.getShort(16) & 0x0FFF);	// root layer
+		assertEquals(buffer.remaining() - 38, buffer.getShort(38) & 0x0FFF);	// framing layer
+		assertEquals(buffer.remaining() - 115, buffer.getShort(115) & 0x0FFF);	// DMP layer
+		assertEquals(42, buffer.get(111));				// sequence number
+		assertEquals(7, buffer.getShort(113));			// universe
+		assertEquals(slots + 1, buffer.getShort(123));	// property value count
+		assertEquals(0, buffer.get(125));				// start code
+		for(int i = 0; i < slots; i++) {
+			assertEquals((byte) i, buffer.get(E131Packet.HEADER_LENGTH + i));
+		}
+		
+		// full universe has the maximum packet length
+		assertEquals(E131Packet.LENGTH, new E131Packet(1, E131Packet.DATA_LENGTH).getLength());
+	}
+
+}
@@ -0,0 +1,92 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.out.FrameInterpolator;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+public class FrameInterpolatorTest {
+	
+	private final static long MS = 1000000L;
+	
+	@DisplayName("Packed fixed point lerp test")
+	@Test
+	public void lerpTest() {
+		assertEquals(0x102030, PixelBuffer.lerp(0x102030, 0xF0E0D0, 0));
+		assertEquals(0xF0E0D0, PixelBuffer.lerp(0x102030, 0xF0E0D0, 256));
+		assertEquals(0x7F7F7F, PixelBuffer.lerp(0x000000, 0xFFFFFF, 128));
+		assertEquals(0x7F7F7F, PixelBuffer.lerp(0xFFFF00, 0x0000FF, 128));
+		// all channels must stay separated
+		for(int alpha = 0; alpha <= 256; alpha += 16) {
+			int c = PixelBuffer.lerp(0xFF00FF, 0x00FF00, alpha);
+			assertEquals(255, PixelBuffer.red(c) + PixelBuffer.green(c), 1, "alpha " + alpha);
+			assertEquals(PixelBuffer.red(c), PixelBuffer.blue(c));
+		}
+	}
+	
+	@DisplayName("Cross-fade between slow frames test")
+	@Test
+	public void interpolationTest() {
+		FrameInterpolator interpolator = new FrameInterpolator();
+		PixelBuffer frame = new PixelBuffer(1);
+		final long outputInterval = 10 * MS;	// 100 fps output
+		final long frameInterval = 100 * MS;	// 10 fps effect
+		
+		long now = 0;
+		long sequence = 0;
+		// effect renders brightness 0, 100, 200 at 10 fps
+		int lastValue = -1;
+		int changes = 0;
+		for(int value = 0; value <= 200; value += 100) {
+			frame.fill(PixelBuffer.pack(value, value, value));
+			sequence++;
+			for(long t = 0; t < frameInterval; t += outputInterval) {
+				PixelBuffer out = interpolator.next(frame, sequence, now + t, outputInterval);
+				int red = out.getRed(0);
+				if(value == 200) {
+					// fades from 100 towards 200, the next output frame shows 200
+					assertTrue(red >= lastValue, "output must increase monotonically");
+					if(red != lastValue)
+						changes++;
+					assertEquals(100 + t * 100 / frameInterval, red, 1);
+				}
+				lastValue = red;
+			}
+			now += frameInterval;
+		}
+		assertEquals(frameInterval, interpolator.getFrameInterval());
+		System.out.println("Interpolated 100 -> 200 in " + changes + " steps");
+		assertEquals(9, changes);
+		
+		// after the frame interval the newest frame is shown
+		assertSame(frame, interpolator.next(frame, sequence, now + 5 * MS, outputInterval));
+	}
+	
+	@DisplayName("Pass through for fast effects and pauses test")
+	@Test
+	public void passThroughTest() {
+		FrameInterpolator interpolator = new FrameInterpolator();
+		PixelBuffer frame = new PixelBuffer(10);
+		// effect as fast as the output
+		for(int i = 1; i <= 10; i++) {
+			frame.fill(i);
+			assertSame(frame, interpolator.next(frame, i, i * 20 * MS, 20 * MS));
+		}
+		
+		// long pause, the next frame is shown without fading from the old frame
+		interpolator.reset();
+		frame.fill(0);
+		interpolator.next(frame, 1, 0, 10 * MS);
+		frame.fill(0xFF);
+		interpolator.next(frame, 2, 100 * MS, 10 * MS);
+		frame.fill(0x00);
+		PixelBuffer out = interpolator.next(frame, 3, 5000 * MS, 10 * MS);
+		assertSame(frame, out);
+	}
+
+}
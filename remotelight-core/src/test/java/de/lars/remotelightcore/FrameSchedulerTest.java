@@ -0,0 +1,107 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.utils.FrameScheduler;
+
+public class FrameSchedulerTest {
+	
+	@DisplayName("Frame scheduler drift test")
+	@Test
+	public void driftTest() throws InterruptedException {
+		FrameScheduler scheduler = new FrameScheduler(10);
+		final int frames = 30;
+		long start = System.nanoTime();
+		for(int i = 0; i < frames; i++) {
+			busyWait(4); // simulated render time must not add to the period
+			scheduler.waitForNextFrame();
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println("Frame scheduler: " + frames + " frames in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+		assertEquals(frames, scheduler.getFrames());
+		// every frame and every skipped frame takes one period
+		long periods = frames + scheduler.getSkippedFrames();
+		assertTrue(elapsed >= periods * scheduler.getPeriodNanos(), "Elapsed time " + elapsed + " ns");
+		// Thread.sleep(10) after each frame would add the render time to every period (~120 ms);
+		// the generous bound only allows for a late wake-up of the last frame
+		assertTrue(elapsed < periods * scheduler.getPeriodNanos() + TimeUnit.MILLISECONDS.toNanos(100),
+				"Elapsed time " + elapsed + " ns");
+	}
+	
+	@DisplayName("Frame scheduler skip test")
+	@Test
+	public void skipTest() throws InterruptedException {
+		FrameScheduler scheduler = new FrameScheduler(10);
+		long start = System.nanoTime();
+		scheduler.waitForNextFrame();
+		busyWait(35);
+		int skipped = scheduler.waitForNextFrame();
+		assertTrue(skipped >= 2, "Skipped " + skipped + " frames");
+		assertEquals(skipped, scheduler.getSkippedFrames());
+		assertEquals(1, scheduler.getOverruns());
+		
+		// the next frame stays on the grid of the skipped deadlines
+		scheduler.waitForNextFrame();
+		assertEquals(3, scheduler.getFrames());
+		long periods = scheduler.getFrames() + scheduler.getSkippedFrames();
+		assertTrue(System.nanoTime() - start >= periods * scheduler.getPeriodNanos());
+	}
+	
+	@DisplayName("Frame scheduler spin window test")
+	@Test
+	public void spinTest() throws InterruptedException {
+		FrameScheduler scheduler = new FrameScheduler(5);
+		assertEquals(0, scheduler.getSpinNanos());
+		scheduler.setSpinNanos(TimeUnit.MILLISECONDS.toNanos(2));
+		assertEquals(FrameScheduler.MAX_SPIN_NANOS, scheduler.getSpinNanos());
+		
+		long start = System.nanoTime();
+		for(int i = 0; i < 3; i++)
+			scheduler.waitForNextFrame();
+		long elapsed = System.nanoTime() - start;
+		assertEquals(3, scheduler.getFrames());
+		long periods = scheduler.getFrames() + scheduler.getSkippedFrames();
+		// the spin window must not end the wait before the deadline
+		assertTrue(elapsed >= periods * scheduler.getPeriodNanos(), "Elapsed time " + elapsed + " ns");
+		assertTrue(elapsed < periods * scheduler.getPeriodNanos() + TimeUnit.MILLISECONDS.toNanos(100),
+				"Elapsed time " + elapsed + " ns");
+	}
+	
+	@DisplayName("Frame scheduler cancel test")
+	@Test
+	public void cancelTest() throws InterruptedException {
+		FrameScheduler scheduler = new FrameScheduler(2000);
+		Thread waiter = new Thread(() -> {
+			try {
+				scheduler.waitForNextFrame();
+			} catch (InterruptedException e) {}
+		});
+		long start = System.nanoTime();
+		waiter.start();
+		Thread.sleep(20);
+		scheduler.cancel();
+		LockSupport.unpark(waiter);
+		waiter.join(1000);
+		assertFalse(waiter.isAlive());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+		
+		// reset restores normal waiting
+		scheduler.setDelay(5);
+		scheduler.reset();
+		assertFalse(scheduler.isCancelled());
+	}
+	
+	private void busyWait(long millis) {
+		long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		while(System.nanoTime() < end);
+	}
+
+}
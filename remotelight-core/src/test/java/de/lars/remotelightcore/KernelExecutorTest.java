@@ -0,0 +1,71 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.animation.Animation;
+import de.lars.remotelightcore.effect.KernelExecutor;
+import de.lars.remotelightcore.effect.PixelKernel;
+import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+public class KernelExecutorTest {
+	
+	@DisplayName("Kernel renders every pixel exactly once")
+	@Test
+	public void chunkTest() {
+		int parallelism = KernelExecutor.getParallelism();
+		try {
+			for(int threads : new int[] {1, 4}) {
+				KernelExecutor.setParallelism(threads);
+				for(int length : new int[] {0, 1, KernelExecutor.MIN_CHUNK, 5000, 12345}) {
+					AtomicIntegerArray calls = new AtomicIntegerArray(length);
+					PixelKernel kernel = (from, to, pixels, offset) -> {
+						for(int i = from; i < to; i++) {
+							pixels[offset + i] = i * 31 & 0xFFFFFF;
+							calls.incrementAndGet(i);
+						}
+					};
+					// render into a view to check the offset
+					PixelBuffer buffer = new PixelBuffer(length + 10).view(5, length);
+					KernelExecutor.render(kernel, buffer);
+					for(int i = 0; i < length; i++) {
+						assertEquals(1, calls.get(i));
+						assertEquals(i * 31 & 0xFFFFFF, buffer.get(i));
+					}
+				}
+			}
+		} finally {
+			KernelExecutor.setParallelism(parallelism);
+		}
+	}
+	
+	@DisplayName("Effects render kernels into the loop buffer")
+	@Test
+	public void effectTest() {
+		Animation animation = new Animation("_kernel", 0) {
+			private final PixelKernel kernel = (from, to, pixels, offset) -> {
+				for(int i = from; i < to; i++)
+					pixels[offset + i] = i & 0xFF;
+			};
+			
+			@Override
+			public boolean onEffect(PixelBuffer buffer) {
+				renderKernel(kernel, buffer);
+				return true;
+			}
+		};
+		animation.onEnable(5000);
+		PixelBuffer frame = new PixelBuffer(0);
+		assertTrue(OutputManager.captureFrames(frame, animation::onLoop));
+		assertEquals(5000, frame.length());
+		for(int i = 0; i < frame.length(); i++)
+			assertEquals(i & 0xFF, frame.get(i));
+	}
+
+}
@@ -0,0 +1,55 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.metrics.LatencyHistogram;
+
+public class LatencyHistogramTest {
+	
+	@DisplayName("Latency histogram percentile test")
+	@Test
+	public void percentileTest() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(long i = 1; i <= 100_000; i++) {
+			histogram.record(i * 1000); // 1µs .. 100ms
+		}
+		System.out.println("Histogram: " + histogram);
+		
+		assertEquals(100_000, histogram.getCount());
+		assertEquals(1000, histogram.getMin());
+		assertEquals(100_000_000, histogram.getMax());
+		assertEquals(50_000_500, histogram.getMean(), 1);
+		
+		double[] percentiles = {1, 10, 50, 90, 99, 99.9};
+		for(double p : percentiles) {
+			long expected = (long) (p * 1000 * 1000);
+			long actual = histogram.getValueAtPercentile(p);
+			double error = Math.abs(actual - expected) / (double) expected;
+			assertTrue(error < 0.035, "p" + p + " was " + actual + ", expected " + expected);
+		}
+		assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+	}
+	
+	@DisplayName("Latency histogram small values and reset test")
+	@Test
+	public void resetTest() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		for(int i = 0; i < 10; i++) {
+			histogram.record(i);
+		}
+		histogram.record(-1); // ignored
+		assertEquals(10, histogram.getCount());
+		assertEquals(4, histogram.getValueAtPercentile(50)); // small values are exact
+		
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getValueAtPercentile(99));
+	}
+
+}
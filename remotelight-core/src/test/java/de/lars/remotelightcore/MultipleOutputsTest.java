@@ -0,0 +1,113 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.devices.ConnectionState;
+import de.lars.remotelightcore.out.Output;
+import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.OutputWorker;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+public class MultipleOutputsTest {
+	
+	@DisplayName("Multiple active outputs with independent frame rates")
+	@Test
+	public void independentFrameRateTest() throws InterruptedException {
+		RemoteLightCore core = RemoteLightCore.isInitialized() ? RemoteLightCore.getInstance() : new RemoteLightCore(null, false);
+		OutputManager om = core.getOutputManager();
+		
+		// a slow serial strip (40 ms per frame) and a fast matrix
+		TestOutput slow = new TestOutput("_slow", 60, 40);
+		slow.setFrameRate(100);
+		TestOutput fast = new TestOutput("_fast", 300, 0);
+		fast.setFrameRate(100);
+		
+		om.setActiveOutput(slow);
+		om.addActiveOutput(fast);
+		try {
+			assertSame(slow, om.getActiveOutput());
+			assertEquals(2, om.getActiveOutputs().size());
+			assertEquals(60, RemoteLightCore.getLedNum());
+			
+			PixelBuffer frame = new PixelBuffer(60);
+			long end = System.currentTimeMillis() + 1000;
+			int frames = 0;
+			while(System.currentTimeMillis() < end) {
+				frame.fill(++frames);
+				OutputManager.addToOutput(frame);
+				Thread.sleep(5);
+			}
+			
+			OutputWorker slowWorker = om.getOutputWorker(slow);
+			OutputWorker fastWorker = om.getOutputWorker(fast);
+			System.out.println(String.format("Rendered %d frames, slow output: %d frames (%.1f fps, dropped %d), fast output: %d frames (%.1f fps, dropped %d)",
+					frames, slow.frames.get(), slowWorker.getFrameRate(), slowWorker.getDroppedFrames(),
+					fast.frames.get(), fastWorker.getFrameRate(), fastWorker.getDroppedFrames()));
+			
+			// the slow output must not slow down the fast output
+			assertTrue(fast.frames.get() > 60, "fast output sent only " + fast.frames.get() + " frames");
+			assertTrue(slow.frames.get() < 40, "slow output sent " + slow.frames.get() + " frames");
+			assertTrue(slowWorker.getDroppedFrames() > fastWorker.getDroppedFrames());
+			// every output gets the frame with its own pixel count
+			assertEquals(60, slow.lastLength);
+			assertEquals(300, fast.lastLength);
+		} finally {
+			om.deactivate(fast);
+			assertSame(slow, om.getActiveOutput());
+			om.deactivate(slow);
+		}
+		assertFalse(om.isActive(slow));
+		assertEquals(0, om.getActiveOutputs().size());
+		assertEquals(null, om.getActiveOutput());
+	}
+	
+	private static class TestOutput extends Output {
+		private static final long serialVersionUID = 1L;
+		final AtomicInteger frames = new AtomicInteger();
+		final long sendMillis;
+		volatile int lastLength;
+		volatile ConnectionState state = ConnectionState.DISCONNECTED;
+		
+		TestOutput(String id, int pixels, long sendMillis) {
+			super(id, pixels);
+			this.sendMillis = sendMillis;
+		}
+		
+		@Override
+		public void onActivate() {
+			state = ConnectionState.CONNECTED;
+		}
+		
+		@Override
+		public void onDeactivate() {
+			state = ConnectionState.DISCONNECTED;
+		}
+		
+		@Override
+		public ConnectionState getState() {
+			return state;
+		}
+		
+		@Override
+		public void onOutput(PixelBuffer pixels) {
+			lastLength = pixels.length();
+			frames.incrementAndGet();
+			if(sendMillis > 0) {
+				try {
+					Thread.sleep(sendMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,51 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.utils.maths.SimplexNoise;
+
+public class NoiseBatchTest {
+	
+	private final static int COUNT = 2000;
+	
+	@DisplayName("Batch simplex noise matches scalar noise")
+	@Test
+	public void simplexLineTest() {
+		float[] dest = new float[COUNT + 3];
+		// small steps stay in one cell for many points, large steps change the cell every point
+		for(double step : new double[] {0.002, 0.02, 0.7}) {
+			SimplexNoise.noiseLine(-3.1, 1.7, step, -step / 3, dest, 3, COUNT);
+			for(int i = 0; i < COUNT; i++)
+				assertEquals((float) SimplexNoise.noise(-3.1 + i * step, 1.7 + i * (-step / 3)), dest[3 + i]);
+			
+			SimplexNoise.noiseLine(-3.1, 1.7, 0.5, step, step / 2, -step, dest, 3, COUNT);
+			for(int i = 0; i < COUNT; i++)
+				assertEquals((float) SimplexNoise.noise(-3.1 + i * step, 1.7 + i * (step / 2), 0.5 + i * (-step)), dest[3 + i]);
+		}
+	}
+	
+	@DisplayName("Batch grids are filled row by row")
+	@Test
+	public void gridTest() {
+		final int width = 37, height = 11;
+		final double x = -0.4, y = 2.2, z = 0.9, stepX = 0.05, stepY = 0.3;
+		float[] simplex2D = new float[width * height];
+		float[] simplex3D = new float[width * height];
+		SimplexNoise.noiseGrid(x, y, stepX, stepY, width, height, simplex2D, 0);
+		SimplexNoise.noiseGrid(x, y, z, stepX, stepY, width, height, simplex3D, 0);
+		
+		for(int row = 0; row < height; row++) {
+			for(int col = 0; col < width; col++) {
+				final double px = x + col * stepX;
+				final double py = y + row * stepY;
+				final int i = row * width + col;
+				assertEquals((float) SimplexNoise.noise(px, py), simplex2D[i]);
+				assertEquals((float) SimplexNoise.noise(px, py, z), simplex3D[i]);
+			}
+		}
+	}
+
+}
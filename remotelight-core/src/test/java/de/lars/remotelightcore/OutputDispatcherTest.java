@@ -0,0 +1,200 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.devices.ConnectionState;
+import de.lars.remotelightcore.devices.Device;
+import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.devices.link.chain.Chain;
+import de.lars.remotelightcore.devices.link.multi.DividingMethod;
+import de.lars.remotelightcore.devices.link.multi.MultiOutput;
+import de.lars.remotelightcore.metrics.OutputMetrics;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.utils.color.Color;
+
+public class OutputDispatcherTest {
+	
+	@DisplayName("Pixel buffer view test")
+	@Test
+	public void viewTest() {
+		PixelBuffer buffer = new PixelBuffer(10);
+		for(int i = 0; i < 10; i++)
+			buffer.set(i, i);
+		PixelBuffer view = buffer.view(3, 4);
+		assertEquals(4, view.length());
+		assertEquals(3, view.get(0));
+		assertSame(buffer.array(), view.array());
+		
+		view.set(0, 42);
+		assertEquals(42, buffer.get(3));
+		assertEquals(new PixelBuffer(new int[] {42, 4, 5, 6}), view);
+		assertEquals(6, view.toColors()[3].getRGB() & 0xFFFFFF);
+		
+		// growing a view must not overwrite the parent buffer
+		view.resize(6);
+		assertEquals(0, view.get(5));
+		assertEquals(8, buffer.get(8));
+		view.set(1, 99);
+		assertEquals(4, buffer.get(4));
+	}
+	
+	@DisplayName("Growing a buffer adds black pixels")
+	@Test
+	public void resizeTest() {
+		PixelBuffer buffer = new PixelBuffer(8);
+		buffer.fill(0xFFFFFF);
+		buffer.resize(2);
+		// grow within the backing array and beyond it
+		buffer.resize(5);
+		assertEquals(0, buffer.get(4));
+		buffer.resize(2);
+		buffer.resize(12);
+		for(int i = 2; i < 12; i++)
+			assertEquals(0, buffer.get(i));
+	}
+	
+	@DisplayName("Chain passes sub-ranges to the devices")
+	@Test
+	public void chainTest() {
+		TestDevice d1 = new TestDevice("chain-1", 3, 0);
+		TestDevice d2 = new TestDevice("chain-2", 5, 0);
+		Chain chain = new Chain("chain");
+		chain.addDevices(d1, d2);
+		assertEquals(8, chain.getPixels());
+		
+		PixelBuffer frame = new PixelBuffer(8);
+		for(int i = 0; i < 8; i++)
+			frame.set(i, i + 1);
+		chain.onOutput(frame);
+		assertEquals(new PixelBuffer(new int[] {1, 2, 3}), d1.last);
+		assertEquals(new PixelBuffer(new int[] {4, 5, 6, 7, 8}), d2.last);
+		
+		chain.setParallel(true);
+		frame.fill(0x00FF00);
+		chain.onOutput(frame);
+		assertEquals(0x00FF00, d1.last.get(2));
+		assertEquals(0x00FF00, d2.last.get(4));
+	}
+	
+	@DisplayName("Parallel dispatch does not wait for slow devices")
+	@Test
+	public void parallelDeadlineTest() throws InterruptedException {
+		TestDevice fast = new TestDevice("multi-fast", 4, 0);
+		TestDevice slow = new TestDevice("multi-slow", 4, 150);
+		MultiOutput multi = new MultiOutput("multi");
+		multi.addDevices(fast, slow);
+		multi.setProcessingMethod(DividingMethod.CUT_OVERHANGING);
+		multi.setParallel(true);
+		multi.getDispatcher().setDeadline(20);
+		
+		PixelBuffer frame = new PixelBuffer(4);
+		frame.fill(0xFF0000);
+		long start = System.nanoTime();
+		multi.onOutput(frame);
+		long firstFrame = (System.nanoTime() - start) / 1_000_000;
+		// slow device is still busy and skips the second frame
+		frame.fill(0x0000FF);
+		multi.onOutput(frame);
+		long elapsed = (System.nanoTime() - start) / 1_000_000;
+		System.out.println("Two frames took " + elapsed + " ms (first " + firstFrame + " ms)");
+		
+		assertTrue(elapsed < 120, "Dispatch waited for the slow device: " + elapsed + " ms");
+		assertEquals(0x0000FF, fast.last.get(0));
+		
+		OutputMetrics slowMetrics = PipelineMetrics.getInstance().getOutputMetrics("multi-slow");
+		assertEquals(1, slowMetrics.getDeadlineMisses());
+		assertEquals(1, slowMetrics.getSkippedFrames());
+		
+		Thread.sleep(250);
+		assertNotNull(slow.last);
+		assertEquals(0xFF0000, slow.last.get(0));
+		assertEquals(1, slow.frames);
+	}
+	
+	@DisplayName("Linked outputs apply the global power scale once")
+	@Test
+	public void globalPowerScaleTest() {
+		TestDevice d1 = new TestDevice("power-1", 2, 0);
+		TestDevice d2 = new TestDevice("power-2", 2, 0);
+		Chain chain = new Chain("power-chain");
+		chain.addDevices(d1, d2);
+		
+		PixelBuffer frame = new PixelBuffer(4);
+		frame.fill(0xFFFFFF);
+		chain.onOutput(frame, 0.5);
+		assertEquals(0x7F7F7F, d1.last.get(0));
+		assertEquals(0x7F7F7F, d2.last.get(1));
+	}
+	
+	@DisplayName("Current is estimated before the RGB order is applied")
+	@Test
+	public void powerRgbOrderTest() {
+		TestDevice device = new TestDevice("power-order", 10, 0);
+		device.setRgbOrder(RgbOrder.GRB);
+		device.getPowerLimit().setChannelCurrent(20, 0, 0);
+		device.getPowerLimit().setIdleCurrent(0);
+		
+		PixelBuffer frame = new PixelBuffer(10);
+		frame.fill(0xFF0000);
+		device.onOutput(frame, 1.0);
+		assertEquals(200, device.getPowerLimit().getEstimatedCurrent(), 1e-9);
+		assertEquals(0x00FF00, device.last.get(0));
+	}
+	
+	private static class TestDevice extends Device {
+		private static final long serialVersionUID = 1L;
+		
+		private final long sendDelay;
+		volatile PixelBuffer last;
+		volatile int frames;
+		
+		public TestDevice(String id, int pixels, long sendDelay) {
+			super(id, pixels);
+			this.sendDelay = sendDelay;
+		}
+		
+		@Override
+		public void send(PixelBuffer pixels) {
+			if(sendDelay > 0) {
+				try {
+					Thread.sleep(sendDelay);
+				} catch (InterruptedException e) {
+				}
+			}
+			last = pixels.copy();
+			frames++;
+		}
+		
+		@Override
+		public void send(Color[] pixels) {
+			send(PixelBuffer.fromColors(pixels));
+		}
+
+		@Override
+		public ConnectionState connect() {
+			return ConnectionState.CONNECTED;
+		}
+
+		@Override
+		public ConnectionState disconnect() {
+			return ConnectionState.DISCONNECTED;
+		}
+
+		@Override
+		public ConnectionState getConnectionState() {
+			return ConnectionState.CONNECTED;
+		}
+
+		@Override
+		public void onLoad() {
+		}
+	}
+
+}
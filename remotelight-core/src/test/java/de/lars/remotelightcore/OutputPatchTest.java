@@ -0,0 +1,201 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.devices.arduino.DeltaProtocol;
+import de.lars.remotelightcore.devices.arduino.GlediatorProtocol;
+import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.out.patch.OutputPatch;
+import de.lars.remotelightcore.utils.color.Color;
+import de.lars.remotelightcore.utils.color.ColorUtil;
+
+public class OutputPatchTest {
+	
+	@DisplayName("Pixel buffer conversion test")
+	@Test
+	public void conversionTest() {
+		Color[] colors = randomColors(new Random(1), 50);
+		PixelBuffer buffer = PixelBuffer.fromColors(colors);
+		assertEquals(colors.length, buffer.length());
+		assertArrayEquals(colors, buffer.toColors());
+		
+		// reused array should keep unchanged colors
+		Color[] reused = buffer.toColors();
+		buffer.set(3, Color.RED);
+		Color unchanged = reused[0];
+		buffer.toColors(reused);
+		assertEquals(Color.RED, reused[3]);
+		assertEquals(unchanged, reused[0]);
+	}
+	
+	@DisplayName("Compiled patch equals the multi pass patch")
+	@Test
+	public void patchTest() {
+		Random random = new Random(7);
+		int[][] configs = {
+				// pixels, shift, clone, mirrored
+				{30, 0, 0, 0}, {30, 5, 0, 0}, {30, -4, 0, 0}, {30, 0, 0, 1},
+				{30, 0, 2, 0}, {30, 0, 2, 1}, {31, 3, 1, 1}, {2, 1, 0, 1}
+		};
+		for(int[] config : configs) {
+			OutputPatch patch = new OutputPatch(config[0]);
+			patch.setShift(config[1]);
+			patch.setClone(config[2]);
+			patch.setCloneMirrored(config[3] == 1);
+			
+			Color[] input = randomColors(random, patch.getPatchedPixelNumber());
+			PixelBuffer reuse = new PixelBuffer(1);
+			for(RgbOrder order : RgbOrder.values()) {
+				Color[] expected = referencePatch(patch, config[0], input.clone(), order);
+				String message = "Patch " + order + " " + Arrays.toString(config);
+				assertArrayEquals(expected, patch.patchOutput(input.clone(), order), message);
+				PixelBuffer actual = patch.patchOutput(PixelBuffer.fromColors(input), order, reuse);
+				assertArrayEquals(expected, actual.toColors(), message);
+			}
+		}
+	}
+	
+	@DisplayName("Index map rebuild and buffer reuse test")
+	@Test
+	public void indexMapTest() {
+		OutputPatch patch = new OutputPatch(6);
+		PixelBuffer input = new PixelBuffer(new int[] {0, 1, 2, 3, 4, 5});
+		
+		// identity patch returns the input
+		assertTrue(patch.isIdentity(6));
+		assertSame(input, patch.patchOutput(input, RgbOrder.RGB, null));
+		
+		patch.setShift(2);
+		assertArrayEquals(new int[] {4, 5, 0, 1, 2, 3}, patch.getIndexMap(6));
+		PixelBuffer reuse = new PixelBuffer(6);
+		PixelBuffer out = patch.patchOutput(input, RgbOrder.RGB, reuse);
+		assertSame(reuse, out);
+		assertEquals(4, out.get(0));
+		
+		patch.setShift(0);
+		patch.setCloneMirrored(true);
+		assertArrayEquals(new int[] {5, 4, 3, 2, 1, 0}, patch.getIndexMap(6));
+		
+		patch.setCloneMirrored(false);
+		patch.setClone(1);
+		assertArrayEquals(new int[] {0, 1, 2, 0, 1, 2}, patch.getIndexMap(3));
+		
+		// pixels after the last clone are black
+		patch.setPixelNumber(7);
+		assertArrayEquals(new int[] {0, 1, 2, 3, 0, 1, 2}, patch.getIndexMap(4));
+		patch.setClone(0);
+		assertTrue(patch.isIdentity(7));
+	}
+	
+	@DisplayName("RGB order encoding test")
+	@Test
+	public void rgbOrderEncodingTest() {
+		PixelBuffer pixels = new PixelBuffer(new int[] {0x102030, 0xA0B0C0});
+		for(RgbOrder order : RgbOrder.values()) {
+			byte[] raw = DeltaProtocol.toRawFrame(pixels, order, null);
+			byte[] glediator = GlediatorProtocol.doOutput(pixels, order, null);
+			for(int i = 0; i < pixels.length(); i++) {
+				int expected = ColorUtil.matchRgbOrder(new Color(pixels.get(i)), order).getRGB() & 0xFFFFFF;
+				assertEquals(expected, order.apply(pixels.get(i)));
+				int encoded = ((raw[i * 3] & 0xFF) << 16) | ((raw[i * 3 + 1] & 0xFF) << 8) | (raw[i * 3 + 2] & 0xFF);
+				assertEquals(expected, encoded, order.toString());
+				assertEquals(raw[i * 3], glediator[1 + i * 3]);
+			}
+		}
+	}
+	
+	@DisplayName("RGB order packet encoding test")
+	@Test
+	public void rgbOrderPacketTest() {
+		PixelBuffer pixels = new PixelBuffer(new int[] {0x010203, 0x040506, 0x070809});
+		byte[] expected = new byte[9];
+		RgbOrder.GRB.encode(pixels, expected, 0);
+		// 4 data bytes per packet after a 2 byte header, pixels are split across packets
+		ByteBuffer[] packets = {ByteBuffer.allocate(6), ByteBuffer.allocate(6), ByteBuffer.allocate(3)};
+		RgbOrder.GRB.encode(pixels, packets, 2, 4);
+		for(int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], packets[i / 4].get(2 + i % 4), "Byte " + i);
+		}
+		assertEquals(0, packets[0].get(0), "header must not be modified");
+		assertEquals(0, packets[0].position());
+		assertArrayEquals(new byte[] {2, 1, 3, 5, 4, 6, 8, 7, 9}, expected);
+	}
+	
+	/**
+	 * Previous implementation of the patch that applies the RGB order,
+	 * shift, clone and mirror in separate passes.
+	 */
+	private Color[] referencePatch(OutputPatch patch, int pixel, Color[] input, RgbOrder order) {
+		final int shift = patch.getShift();
+		final int clone = patch.getClone();
+		final boolean mirrored = patch.isCloneMirrored();
+		
+		Color[] out = new Color[input.length];
+		for(int i = 0; i < out.length; i++)
+			out[i] = ColorUtil.matchRgbOrder(input[i], order);
+		input = out;
+		
+		if(shift != 0 && Math.abs(shift) < input.length && input.length > 1) {
+			Color[] tmp = new Color[input.length];
+			int index = shift > 0 ? shift : input.length + shift;
+			for(int i = 0; i < input.length; i++) {
+				tmp[index] = input[i];
+				if(++index >= input.length)
+					index = 0;
+			}
+			input = tmp;
+		}
+		
+		if(clone != 0) {
+			Color[] tmp = new Color[pixel];
+			Arrays.fill(tmp, Color.BLACK);
+			int counterClone = 0;
+			int indexInput = 0;
+			int summand = 1;
+			for(int i = 0; i < tmp.length; i++) {
+				tmp[i] = input[indexInput];
+				indexInput += summand;
+				if(indexInput >= input.length || indexInput < 0) {
+					if(++counterClone <= clone) {
+						if(mirrored && summand == 1) {
+							indexInput = input.length - 1;
+							summand = -1;
+						} else {
+							indexInput = 0;
+							summand = 1;
+						}
+					} else {
+						break;
+					}
+				}
+			}
+			input = tmp;
+		} else if(mirrored && input.length > 1) {
+			Color[] tmp = new Color[input.length];
+			for(int i = 0; i < input.length; i++)
+				tmp[i] = input[input.length - 1 - i];
+			input = tmp;
+		}
+		return input;
+	}
+	
+	private Color[] randomColors(Random random, int size) {
+		Color[] colors = new Color[size];
+		for(int i = 0; i < size; i++) {
+			colors[i] = new Color(random.nextInt(0xFFFFFF));
+		}
+		return colors;
+	}
+
+}
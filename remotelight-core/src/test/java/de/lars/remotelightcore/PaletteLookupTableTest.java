@@ -0,0 +1,105 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.colors.palette.model.AbstractPalette;
+import de.lars.remotelightcore.colors.palette.model.ColorGradient;
+import de.lars.remotelightcore.colors.palette.model.ColorPalette;
+import de.lars.remotelightcore.colors.palette.model.EvenGradientPalette;
+import de.lars.remotelightcore.colors.palette.model.GradientPalette;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.utils.color.Color;
+
+public class PaletteLookupTableTest {
+	
+	private final static int STEPS = 1000;
+	
+	private GradientPalette createGradient() {
+		return new GradientPalette(1.0f / STEPS)
+				.add(0.0f, Color.RED)
+				.add(0.3f, Color.GREEN)
+				.add(0.35f, Color.WHITE)
+				.add(0.8f, Color.BLUE);
+	}
+	
+	@DisplayName("Baked gradients match the interpolated colors")
+	@Test
+	public void bakedTest() {
+		assertBakedMatches(createGradient(), createGradient());
+		assertBakedMatches(new EvenGradientPalette(1.0f / STEPS, Color.RED, Color.GREEN, Color.BLUE, Color.ORANGE),
+				new EvenGradientPalette(1.0f / STEPS, Color.RED, Color.GREEN, Color.BLUE, Color.ORANGE));
+	}
+	
+	private <T extends AbstractPalette & ColorGradient> void assertBakedMatches(T exact, T baked) {
+		baked.setBaked(true);
+		int maxDiff = 0;
+		for(int i = 0; i < STEPS; i++) {
+			int expected = exact.getNext().getRGB();
+			int actual = baked.getNext().getRGB();
+			maxDiff = Math.max(maxDiff, Math.abs(PixelBuffer.red(expected) - PixelBuffer.red(actual)));
+			maxDiff = Math.max(maxDiff, Math.abs(PixelBuffer.green(expected) - PixelBuffer.green(actual)));
+			maxDiff = Math.max(maxDiff, Math.abs(PixelBuffer.blue(expected) - PixelBuffer.blue(actual)));
+		}
+		System.out.println(exact.getClass().getSimpleName() + " max channel difference: " + maxDiff);
+		// the steepest gradient (green to white) changes by 255 in 0.05, half a table entry is ~2.5
+		assertTrue(maxDiff <= 3);
+	}
+	
+	@DisplayName("Lookup table is rebuilt after edits")
+	@Test
+	public void invalidateTest() {
+		GradientPalette gradient = createGradient();
+		int[] lut = gradient.getLookupTable();
+		assertEquals(AbstractPalette.LUT_SIZE, lut.length);
+		assertEquals(0xFF0000, gradient.sample(0.0f));
+		assertEquals(0x0000FF, gradient.sample(0.8f));
+		assertSame(lut, gradient.getLookupTable());
+		
+		gradient.setColorAtIndex(0, Color.YELLOW);
+		assertNotSame(lut, gradient.getLookupTable());
+		assertEquals(0xFFFF00, gradient.sample(-1.0f));
+		
+		gradient.clear();
+		assertThrows(IllegalStateException.class, () -> gradient.sample(0.5f));
+		gradient.add(0.5f, Color.CYAN);
+		assertEquals(0x00FFFF, gradient.sample(0.0f));
+		assertEquals(0x00FFFF, gradient.sample(1.0f));
+	}
+	
+	@DisplayName("Edits while baking are not lost")
+	@Test
+	public void concurrentEditTest() {
+		int[] bakes = new int[1];
+		ColorPalette palette = new ColorPalette(Color.RED, Color.GREEN) {
+			@Override
+			protected void bakeLookupTable(int[] lut) {
+				super.bakeLookupTable(lut);
+				// simulate an edit by another thread during the first bake
+				if(bakes[0]++ == 0)
+					setColorAtIndex(0, Color.BLUE);
+			}
+		};
+		assertEquals(0x0000FF, palette.sample(0.0f));
+		assertEquals(2, bakes[0]);
+		assertEquals(0x0000FF, palette.sample(0.0f));
+		assertEquals(2, bakes[0]);
+	}
+	
+	@DisplayName("Color palettes split the lookup table evenly")
+	@Test
+	public void colorPaletteTest() {
+		ColorPalette palette = new ColorPalette(Color.RED, Color.GREEN);
+		assertEquals(0xFF0000, palette.sample(0.25f));
+		assertEquals(0x00FF00, palette.sample(0.75f));
+		palette.add(Color.BLUE);
+		assertEquals(0x0000FF, palette.sample(1.0f));
+	}
+
+}
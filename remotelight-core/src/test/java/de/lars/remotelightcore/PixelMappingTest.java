@@ -0,0 +1,87 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.out.patch.OutputPatch;
+import de.lars.remotelightcore.out.patch.PixelMapping;
+
+public class PixelMappingTest {
+	
+	@DisplayName("Segment parsing test")
+	@Test
+	public void segmentTest() {
+		PixelMapping mapping = new PixelMapping("0-3, gap 2, 7-5; 9\n 4");
+		assertArrayEquals(new int[] {0, 1, 2, 3, -1, -1, 7, 6, 5, 9, 4}, mapping.toIndexMap());
+		assertEquals(11, mapping.getLength());
+		assertEquals(10, mapping.getSourceLength());
+		
+		assertNull(PixelMapping.parse("  "));
+		assertThrows(IllegalArgumentException.class, () -> new PixelMapping("0-x"));
+		assertThrows(IllegalArgumentException.class, () -> new PixelMapping("gap 0"));
+		assertThrows(IllegalArgumentException.class, () -> new PixelMapping("grid 4x"));
+		assertThrows(IllegalArgumentException.class, () -> new PixelMapping("grid 4x4 diagonal"));
+		assertThrows(IllegalArgumentException.class, () -> new PixelMapping("grid 2000x2000"));
+	}
+	
+	@DisplayName("2D grid wiring test")
+	@Test
+	public void gridTest() {
+		// 3x2 panel, frame pixels in rows: 0 1 2 / 3 4 5
+		assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5}, new PixelMapping("grid 3x2").toIndexMap());
+		assertArrayEquals(new int[] {0, 1, 2, 5, 4, 3}, new PixelMapping("grid 3x2 serpentine").toIndexMap());
+		assertArrayEquals(new int[] {0, 3, 4, 1, 2, 5}, new PixelMapping("grid 3x2 serpentine vertical").toIndexMap());
+		assertArrayEquals(new int[] {2, 1, 0, 3, 4, 5}, new PixelMapping("grid 3x2 serpentine flipx").toIndexMap());
+		assertArrayEquals(new int[] {3, 4, 5, 2, 1, 0}, new PixelMapping("grid 3x2 serpentine flipy").toIndexMap());
+		assertArrayEquals(new int[] {-1, 10, 11, 12, 15, 14, 13}, new PixelMapping("gap 1, grid 3x2 from 10 serpentine").toIndexMap());
+	}
+	
+	@DisplayName("Mapping in output patch test")
+	@Test
+	public void outputPatchTest() {
+		OutputPatch patch = new OutputPatch(8);
+		patch.setMapping(new PixelMapping("3-0, gap 1, 4-6"));
+		assertEquals(7, patch.getPatchedPixelNumber());
+		
+		PixelBuffer frame = new PixelBuffer(new int[] {0x10, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16});
+		PixelBuffer out = patch.patchOutput(frame, RgbOrder.RGB, null);
+		assertArrayEquals(new int[] {0x13, 0x12, 0x11, 0x10, 0, 0x14, 0x15, 0x16}, out.array());
+		
+		// frame pixels outside of a smaller frame are black
+		out = patch.patchOutput(frame.view(0, 5), RgbOrder.RGB, out);
+		assertArrayEquals(new int[] {0x13, 0x12, 0x11, 0x10, 0, 0x14, 0, 0}, out.array());
+		
+		// shift is applied to the physical pixels
+		patch.setShift(1);
+		assertArrayEquals(new int[] {6, 3, 2, 1, 0, -1, 4, 5}, patch.getIndexMap(7));
+		
+		patch.setShift(0);
+		patch.setMapping(null);
+		assertEquals(8, patch.getPatchedPixelNumber());
+		assertEquals(frame, patch.patchOutput(frame, RgbOrder.RGB, null));
+	}
+	
+	@DisplayName("Mapping persistence test")
+	@Test
+	public void persistenceTest() {
+		OutputPatch patch = new OutputPatch(6);
+		patch.setMapping(new PixelMapping("grid 3x2 serpentine"));
+		Gson gson = new Gson();
+		String json = gson.toJson(patch);
+		System.out.println("Persisted patch: " + json);
+		
+		OutputPatch loaded = gson.fromJson(json, OutputPatch.class);
+		assertEquals(patch.getMapping(), loaded.getMapping());
+		assertArrayEquals(patch.getIndexMap(6), loaded.getIndexMap(6));
+	}
+
+}
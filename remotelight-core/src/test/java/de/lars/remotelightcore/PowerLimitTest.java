@@ -0,0 +1,85 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.out.PowerLimit;
+
+public class PowerLimitTest {
+	
+	@DisplayName("Current estimation test")
+	@Test
+	public void estimateTest() {
+		PowerLimit power = new PowerLimit();
+		PixelBuffer pixels = new PixelBuffer(10);
+		// 10 idle LEDs
+		assertEquals(10, power.estimate(pixels), 1e-9);
+		pixels.fill(0xFFFFFF);
+		assertEquals(10 * 61, power.estimate(pixels), 1e-9);
+		
+		power.setChannelCurrent(10, 20, 30);
+		power.setIdleCurrent(0);
+		pixels.fill(PixelBuffer.pack(255, 0, 51));
+		assertEquals(10 * (10 + 6), power.estimate(pixels.view(0, 10)), 1e-9);
+		assertEquals(5 * (10 + 6), power.estimate(pixels.view(5, 5)), 1e-9);
+	}
+	
+	@DisplayName("Budget limiting and smooth release test")
+	@Test
+	public void limitTest() {
+		PowerLimit power = new PowerLimit();
+		PixelBuffer white = new PixelBuffer(100);
+		white.fill(0xFFFFFF);
+		PixelBuffer target = new PixelBuffer(0);
+		
+		// no budget
+		power.update(white);
+		assertSame(white, power.apply(white, target, 1.0));
+		assertEquals(6100, power.getEstimatedCurrent(), 1e-9);
+		
+		// limit 6.1 A to 2 A, applied immediately
+		power.setBudget(2000);
+		power.update(white);
+		PixelBuffer out = power.apply(white, target, 1.0);
+		assertSame(target, out);
+		assertEquals(0xFFFFFF, white.get(0), "input must not be modified");
+		double limited = power.estimate(out);
+		System.out.println(String.format("Estimated %.0f mA, limited to %.0f mA (scale %.3f)", power.getEstimatedCurrent(), limited, power.getAppliedScale()));
+		assertTrue(limited <= 2000, "Limited current " + limited);
+		assertTrue(limited > 1900, "Limited current " + limited);
+		
+		// global budget is applied as well
+		power.update(white);
+		out = power.apply(white, target, 0.5);
+		assertTrue(power.estimate(out) <= 0.5 * 6100 + 100);
+		
+		// release over several frames when the frame gets darker
+		PixelBuffer dark = new PixelBuffer(100);
+		dark.fill(0x101010);
+		double last = power.getAppliedScale();
+		int frames = 0;
+		while(power.getAppliedScale() < 1.0) {
+			power.update(dark);
+			power.apply(dark, target, 1.0);
+			assertTrue(power.getAppliedScale() >= last);
+			last = power.getAppliedScale();
+			frames++;
+		}
+		System.out.println("Released limit in " + frames + " frames");
+		assertTrue(frames > 5);
+		assertSame(dark, power.apply(dark, target, 1.0));
+		
+		assertEquals(1.0, PowerLimit.getScale(0, 10000, 0));
+		assertEquals(0.5, PowerLimit.getScale(1000, 2000, 0));
+		// the idle current is not scaled
+		assertEquals(0.5, PowerLimit.getScale(1100, 2100, 100), 1e-9);
+		assertEquals(0, PowerLimit.getScale(100, 2100, 200), 1e-9);
+		assertEquals(100, power.getEstimatedIdleCurrent(), 1e-9);
+	}
+
+}
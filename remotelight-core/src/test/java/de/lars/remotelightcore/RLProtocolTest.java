@@ -0,0 +1,118 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.devices.ConnectionState;
+import de.lars.remotelightcore.devices.remotelightserver.RLClient;
+import de.lars.remotelightcore.devices.remotelightserver.RLFrameReader;
+import de.lars.remotelightcore.devices.remotelightserver.RLProtocol;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+public class RLProtocolTest {
+	
+	@DisplayName("RemoteLightServer binary frames loopback test")
+	@Test
+	public void binaryTest() throws IOException {
+		runLoopback(true);
+	}
+	
+	@DisplayName("RemoteLightServer JSON fallback loopback test")
+	@Test
+	public void jsonFallbackTest() throws IOException {
+		runLoopback(false);
+	}
+	
+	@DisplayName("RemoteLightServer rejects oversized frames")
+	@Test
+	public void oversizedTest() {
+		// binary header announcing one pixel more than allowed
+		byte[] frame = RLProtocol.encodeFrame(new PixelBuffer(1), 0, null);
+		int payload = (RLProtocol.MAX_PIXELS + 1) * 3;
+		frame[8] = (byte) (payload >> 24);
+		frame[9] = (byte) (payload >> 16);
+		frame[10] = (byte) (payload >> 8);
+		frame[11] = (byte) payload;
+		RLFrameReader binaryReader = new RLFrameReader(new ByteArrayInputStream(frame));
+		assertThrows(IOException.class, binaryReader::read);
+		
+		// JSON line without line break
+		byte[] line = new byte[RLProtocol.MAX_JSON_LINE_LENGTH + 1];
+		Arrays.fill(line, (byte) '[');
+		RLFrameReader jsonReader = new RLFrameReader(new ByteArrayInputStream(line));
+		IOException e = assertThrows(IOException.class, jsonReader::read);
+		assertTrue(e.getMessage().startsWith("JSON frame exceeds"));
+	}
+	
+	private void runLoopback(boolean greeting) throws IOException {
+		try(ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			RLClient client = new RLClient("127.0.0.1");
+			client.setPort(server.getLocalPort());
+			
+			// the client waits for the greeting while connecting
+			Socket[] accepted = new Socket[1];
+			Thread acceptor = new Thread(() -> {
+				try {
+					accepted[0] = server.accept();
+					if(greeting) {
+						OutputStream out = accepted[0].getOutputStream();
+						out.write(RLProtocol.getGreeting());
+						out.flush();
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			});
+			acceptor.start();
+			assertEquals(ConnectionState.CONNECTED, client.connect());
+			try {
+				acceptor.join(2000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			assertEquals(greeting, client.isBinary());
+			
+			try(Socket socket = accepted[0]) {
+				socket.setSoTimeout(2000);
+				RLFrameReader reader = new RLFrameReader(new BufferedInputStream(socket.getInputStream()));
+				PixelBuffer frame = new PixelBuffer(300);
+				for(int f = 0; f < 3; f++) {
+					for(int i = 0; i < frame.length(); i++)
+						frame.set(i, (i * 31 + f) & 0xFFFFFF);
+					int bytes = client.send(frame);
+					int[] received = reader.read();
+					
+					System.out.println((greeting ? "Binary" : "JSON") + " frame " + f + ": " + bytes + " bytes");
+					assertArrayEquals(frame.array(), received);
+					assertEquals(greeting, reader.isBinary());
+					if(greeting) {
+						assertEquals(RLProtocol.getFrameLength(frame.length()), bytes);
+						assertEquals(f, reader.getSequence());
+					} else {
+						assertTrue(bytes > 20 * frame.length());
+					}
+				}
+				assertEquals(0, reader.getMissedFrames());
+			} finally {
+				client.disconnect();
+			}
+			assertFalse(client.isConnected());
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.devices.arduino.GlediatorProtocol;
+import de.lars.remotelightcore.devices.arduino.SerialWriter;
+import de.lars.remotelightcore.metrics.LatencyHistogram;
+import de.lars.remotelightcore.metrics.OutputMetrics;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+public class SerialWriterTest {
+	
+	@DisplayName("Glediator encoding into reused buffer")
+	@Test
+	public void encodeTest() {
+		PixelBuffer pixels = new PixelBuffer(new int[] {0x010203, 0xFF0000});
+		byte[] buffer = GlediatorProtocol.doOutput(pixels, null);
+		assertEquals(GlediatorProtocol.getFrameLength(2), buffer.length);
+		assertArrayEquals(new byte[] {1, 2, 2, 3, (byte) 0xFF, 0, 0}, buffer);
+		
+		// smaller frames reuse the buffer
+		byte[] reused = GlediatorProtocol.doOutput(pixels.view(1, 1), buffer);
+		assertTrue(reused == buffer);
+		assertArrayEquals(new byte[] {1, (byte) 0xFF, 0, 0}, Arrays.copyOf(reused, 4));
+	}
+	
+	@DisplayName("Coalescing serial writer test")
+	@Test
+	public void coalescingTest() throws Exception {
+		final int frames = 20;
+		final int pixels = 1000;
+		SlowSerialStream stream = new SlowSerialStream();
+		SerialWriter writer = new SerialWriter(stream, "test");
+		OutputMetrics metrics = new OutputMetrics("test");
+		writer.setMetrics(metrics);
+		writer.start();
+		
+		byte[] buffer = null;
+		LatencyHistogram submitTime = new LatencyHistogram();
+		for(int i = 0; i < frames; i++) {
+			PixelBuffer frame = new PixelBuffer(pixels);
+			frame.fill(i + 2);
+			buffer = GlediatorProtocol.doOutput(frame, buffer);
+			long start = System.nanoTime();
+			writer.submit(buffer, buffer.length);
+			submitTime.recordSince(start);
+			Thread.sleep(5);
+		}
+		
+		long timeout = System.currentTimeMillis() + 5000;
+		while(writer.getFramesWritten() + writer.getFramesCoalesced() < frames
+				&& System.currentTimeMillis() < timeout) {
+			Thread.sleep(5);
+		}
+		writer.stop();
+		
+		System.out.println("Submit: " + submitTime);
+		System.out.println("Write:  " + writer.getWriteTime());
+		System.out.println("Written: " + writer.getFramesWritten() + " coalesced: " + writer.getFramesCoalesced());
+		
+		assertEquals(frames, writer.getFramesWritten() + writer.getFramesCoalesced());
+		assertTrue(writer.getFramesCoalesced() > 0, "stale frames must be coalesced");
+		assertEquals(writer.getFramesCoalesced(), metrics.getCoalescedFrames());
+		assertEquals(writer.getFramesWritten(), metrics.getWriteTime().getCount());
+		assertEquals(writer.getFramesWritten() * GlediatorProtocol.getFrameLength(pixels), writer.getBytesWritten());
+		// a 1000 LED frame takes ~30 ms on the wire, submitting must not block
+		assertTrue(submitTime.getMax() < 25_000_000L, "submit blocked for " + LatencyHistogram.format(submitTime.getMax()));
+		// the latest frame wins
+		assertArrayEquals(Arrays.copyOf(buffer, buffer.length), stream.lastFrame);
+	}
+	
+	/**
+	 * Stands in for a serial port running at 1 Mbaud (about 100 bytes per millisecond).
+	 */
+	private static class SlowSerialStream extends OutputStream {
+		volatile byte[] lastFrame;
+		
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			try {
+				Thread.sleep(len / 100);
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			lastFrame = Arrays.copyOfRange(b, off, off + len);
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.io.FileStorage;
+import de.lars.remotelightcore.settings.Setting;
+import de.lars.remotelightcore.settings.SettingHandle;
+import de.lars.remotelightcore.settings.SettingsManager;
+import de.lars.remotelightcore.settings.SettingsManager.SettingCategory;
+import de.lars.remotelightcore.settings.types.SettingInt;
+import de.lars.remotelightcore.settings.types.SettingObject;
+import de.lars.remotelightcore.settings.types.SettingString;
+
+public class SettingsRegistryTest {
+	
+	private SettingsManager createManager() {
+		return new SettingsManager(new FileStorage(new File("SettingsRegistryTest_out.json")));
+	}
+	
+	private SettingInt createDelay(int value) {
+		return new SettingInt("out.delay", "Delay", SettingCategory.Others, null, value, 5, 500, 5);
+	}
+	
+	@DisplayName("Settings are found by id after add and remove")
+	@Test
+	public void lookupTest() {
+		SettingsManager sm = createManager();
+		SettingInt delay = sm.addSetting(createDelay(50));
+		SettingObject object = sm.addSetting(new SettingObject("out.lastoutput", null, "test"));
+		
+		assertSame(delay, sm.getSettingFromId("out.delay"));
+		assertSame(delay, sm.getSetting(SettingInt.class, "out.delay"));
+		assertNull(sm.getSetting(SettingString.class, "out.delay"));
+		assertSame(object, sm.getSettingObject("out.lastoutput"));
+		assertNull(sm.getSettingFromId("unknown"));
+		assertNull(sm.getSettingFromId(null));
+		
+		sm.removeSetting("out.delay");
+		assertNull(sm.getSettingFromId("out.delay"));
+		assertFalse(sm.isRegistered("out.delay"));
+		assertEquals(1, sm.getSettings().size());
+	}
+	
+	@DisplayName("Handles follow registered, replaced and loaded settings")
+	@Test
+	public void handleTest() {
+		SettingsManager sm = createManager();
+		// handle of a setting that is not registered yet
+		SettingHandle<SettingInt> handle = sm.getHandle(SettingInt.class, "out.delay");
+		assertFalse(handle.isPresent());
+		assertSame(handle, sm.getHandle(SettingInt.class, "out.delay"));
+		
+		AtomicInteger calls = new AtomicInteger();
+		handle.addValueListener(s -> calls.incrementAndGet());
+		
+		SettingInt delay = sm.addSetting(createDelay(50));
+		assertSame(delay, handle.getSetting());
+		assertEquals(1, calls.get());
+		
+		// value changes are pushed to the listener
+		delay.setValue(20);
+		assertEquals(2, calls.get());
+		assertEquals(20, handle.getSetting().get());
+		
+		// loading replaces all setting instances
+		SettingInt loaded = createDelay(30);
+		List<Setting> list = new ArrayList<Setting>();
+		list.add(loaded);
+		FileStorage storage = new FileStorage(new File("SettingsRegistryTest_out.json"));
+		storage.store("settings", list);
+		sm = new SettingsManager(storage);
+		SettingHandle<SettingInt> loadedHandle = sm.getHandle(SettingInt.class, "out.delay");
+		loadedHandle.addValueListener(s -> calls.incrementAndGet());
+		sm.load("settings");
+		assertSame(loaded, loadedHandle.getSetting());
+		assertEquals(3, calls.get());
+		
+		// the listener is moved to the new instance
+		loaded.setValue(40);
+		assertEquals(4, calls.get());
+		
+		// changing the setting type unbinds the handle
+		sm.addSetting(new SettingString("out.delay", "Delay", SettingCategory.Others, null, "fast"));
+		assertNull(loadedHandle.getSetting());
+		assertTrue(sm.getHandle(SettingString.class, "out.delay").isPresent());
+		loaded.setValue(60);
+		assertEquals(4, calls.get());
+	}
+
+}
@@ -0,0 +1,209 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.devices.ConnectionState;
+import de.lars.remotelightcore.out.FrameInterpolator;
+import de.lars.remotelightcore.out.Output;
+import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.out.Transition;
+import de.lars.remotelightcore.out.TransitionEngine;
+
+public class TransitionEngineTest {
+	
+	private final static int RED = 0xFF0000;
+	private final static int BLUE = 0x0000FF;
+	
+	@DisplayName("Crossfade blends all pixels")
+	@Test
+	public void crossfadeTest() {
+		PixelBuffer from = filled(10, RED);
+		PixelBuffer to = filled(10, BLUE);
+		PixelBuffer dest = new PixelBuffer(0);
+		
+		TransitionEngine.blend(Transition.Type.CROSSFADE, from, to, 0, null, dest);
+		assertEquals(from, dest);
+		TransitionEngine.blend(Transition.Type.CROSSFADE, from, to, 128, null, dest);
+		assertEquals(FrameInterpolator.interpolate(from, to, 128, new PixelBuffer(0)), dest);
+		TransitionEngine.blend(Transition.Type.CROSSFADE, from, to, 256, null, dest);
+		assertEquals(to, dest);
+	}
+	
+	@DisplayName("Wipe moves in from the first pixel")
+	@Test
+	public void wipeTest() {
+		PixelBuffer from = filled(100, RED);
+		PixelBuffer to = filled(100, BLUE);
+		PixelBuffer dest = new PixelBuffer(0);
+		
+		TransitionEngine.blend(Transition.Type.WIPE, from, to, 0, null, dest);
+		assertEquals(from, dest);
+		
+		TransitionEngine.blend(Transition.Type.WIPE, from, to, 128, null, dest);
+		assertEquals(BLUE, dest.get(0));
+		assertEquals(RED, dest.get(99));
+		// the new effect covers about half of the strip
+		int covered = 0;
+		for(int i = 0; i < dest.length(); i++) {
+			if(dest.get(i) == BLUE)
+				covered++;
+			// no pixel of the old effect before the edge
+			if(i > 0)
+				assertTrue(dest.getBlue(i) <= dest.getBlue(i - 1));
+		}
+		assertTrue(covered > 40 && covered < 55, "covered " + covered + " pixels");
+		
+		TransitionEngine.blend(Transition.Type.WIPE, from, to, 255, null, dest);
+		assertEquals(to, dest);
+	}
+	
+	@DisplayName("Dissolve switches the pixels in random order")
+	@Test
+	public void dissolveTest() {
+		final int length = 200;
+		PixelBuffer from = filled(length, RED);
+		PixelBuffer to = filled(length, BLUE);
+		PixelBuffer dest = new PixelBuffer(0);
+		int[] thresholds = new int[length];
+		java.util.Random random = new java.util.Random(42);
+		for(int i = 0; i < length; i++) {
+			thresholds[i] = random.nextInt(224);
+		}
+		
+		TransitionEngine.blend(Transition.Type.DISSOLVE, from, to, 0, thresholds, dest);
+		assertEquals(from, dest);
+		
+		int lastCovered = 0;
+		for(int progress = 16; progress <= 256; progress += 16) {
+			TransitionEngine.blend(Transition.Type.DISSOLVE, from, to, progress, thresholds, dest);
+			int covered = 0;
+			for(int i = 0; i < length; i++) {
+				if(dest.get(i) == BLUE)
+					covered++;
+			}
+			assertTrue(covered >= lastCovered);
+			lastCovered = covered;
+		}
+		assertEquals(length, lastCovered);
+		// not a wipe, the last pixel is not always the last one to switch
+		TransitionEngine.blend(Transition.Type.DISSOLVE, from, to, 128, thresholds, dest);
+		assertTrue(dest.get(0) != RED || dest.get(length - 1) != RED || dest.get(length / 2) == BLUE);
+	}
+	
+	@DisplayName("Transition keeps the old effect rendering without black frames")
+	@Test
+	public void transitionTest() throws InterruptedException {
+		RemoteLightCore core = RemoteLightCore.isInitialized() ? RemoteLightCore.getInstance() : new RemoteLightCore(null, false);
+		OutputManager om = core.getOutputManager();
+		TransitionEngine transitions = om.getTransitionEngine();
+		CaptureOutput output = new CaptureOutput("_transition", 30);
+		output.setFrameRate(100);
+		om.setActiveOutput(output);
+		
+		Transition defaultTransition = transitions.getDefaultTransition();
+		try {
+			transitions.setDefaultTransition(Transition.NONE);
+			assertFalse(transitions.begin());
+			
+			// old effect
+			PixelBuffer frame = filled(30, RED);
+			OutputManager.addToOutput(frame);
+			Thread.sleep(50);
+			
+			transitions.setDefaultTransition(new Transition(Transition.Type.CROSSFADE, 400));
+			assertTrue(transitions.begin());
+			assertTrue(transitions.isRunning());
+			
+			AtomicInteger outgoingFrames = new AtomicInteger();
+			AtomicInteger cleanups = new AtomicInteger();
+			PixelBuffer outgoingFrame = filled(30, RED);
+			transitions.setOutgoingEffect(() -> {
+				outgoingFrames.incrementAndGet();
+				OutputManager.addToOutput(outgoingFrame);
+			}, 10, () -> cleanups.incrementAndGet());
+			
+			// new effect
+			output.reset();
+			frame.fill(BLUE);
+			long end = System.currentTimeMillis() + 700;
+			while(System.currentTimeMillis() < end) {
+				OutputManager.addToOutput(frame);
+				Thread.sleep(10);
+			}
+			
+			System.out.println(String.format("Outgoing effect rendered %d frames, output sent %d mixed frames, %d black frames",
+					outgoingFrames.get(), output.mixed.get(), output.black.get()));
+			assertFalse(transitions.isRunning());
+			assertEquals(1, cleanups.get());
+			assertTrue(outgoingFrames.get() > 0);
+			assertTrue(output.mixed.get() > 5, "only " + output.mixed.get() + " mixed frames");
+			assertEquals(0, output.black.get());
+			assertEquals(BLUE, output.last);
+			
+			// the old effect must not render after the transition
+			int rendered = outgoingFrames.get();
+			Thread.sleep(50);
+			assertEquals(rendered, outgoingFrames.get());
+		} finally {
+			transitions.cancel();
+			transitions.setDefaultTransition(defaultTransition);
+			om.deactivate(output);
+		}
+	}
+	
+	private static PixelBuffer filled(int length, int rgb) {
+		PixelBuffer buffer = new PixelBuffer(length);
+		buffer.fill(rgb);
+		return buffer;
+	}
+	
+	private static class CaptureOutput extends Output {
+		private static final long serialVersionUID = 1L;
+		final AtomicInteger mixed = new AtomicInteger();
+		final AtomicInteger black = new AtomicInteger();
+		volatile int last;
+		volatile ConnectionState state = ConnectionState.DISCONNECTED;
+		
+		CaptureOutput(String id, int pixels) {
+			super(id, pixels);
+		}
+		
+		void reset() {
+			mixed.set(0);
+			black.set(0);
+		}
+		
+		@Override
+		public void onActivate() {
+			state = ConnectionState.CONNECTED;
+		}
+		
+		@Override
+		public void onDeactivate() {
+			state = ConnectionState.DISCONNECTED;
+		}
+		
+		@Override
+		public ConnectionState getState() {
+			return state;
+		}
+		
+		@Override
+		public void onOutput(PixelBuffer pixels) {
+			last = pixels.get(0);
+			if(last == 0)
+				black.incrementAndGet();
+			else if(pixels.getRed(0) > 0 && pixels.getBlue(0) > 0)
+				mixed.incrementAndGet();
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+package de.lars.remotelightcore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.out.TripleBuffer;
+
+public class TripleBufferTest {
+	
+	@DisplayName("Triple buffer frame counter test")
+	@Test
+	public void counterTest() {
+		TripleBuffer tb = new TripleBuffer();
+		tb.getWriteBuffer().resize(4);
+		tb.getWriteBuffer().fill(1);
+		assertEquals(1, tb.publish());
+		tb.getWriteBuffer().resize(4);
+		tb.getWriteBuffer().fill(2);
+		assertEquals(2, tb.publish()); // frame 1 was not read
+		assertEquals(1, tb.getDroppedFrames());
+		
+		PixelBuffer frame = tb.acquire();
+		assertEquals(2, frame.get(0));
+		assertEquals(2, tb.getReadSequence());
+		assertSame(frame, tb.acquire()); // no new frame
+		assertEquals(1, tb.getDuplicatedFrames());
+	}
+	
+	@DisplayName("Triple buffer frame flags test")
+	@Test
+	public void flagsTest() {
+		TripleBuffer tb = new TripleBuffer();
+		tb.publish(1);
+		tb.acquire();
+		assertEquals(1, tb.getReadFlags());
+		tb.publish();
+		tb.acquire();
+		assertEquals(0, tb.getReadFlags());
+		tb.publish(1);
+		tb.acquire();
+		tb.acquire();
+		assertEquals(1, tb.getReadFlags(), "a duplicated frame keeps its flags");
+	}
+	
+	@DisplayName("Triple buffer concurrent handoff test")
+	@Test
+	public void concurrentTest() throws InterruptedException {
+		final TripleBuffer tb = new TripleBuffer();
+		final int frames = 200_000;
+		final int pixels = 64;
+		final AtomicReference<String> error = new AtomicReference<>();
+		
+		Thread writer = new Thread(() -> {
+			for(int f = 1; f <= frames; f++) {
+				PixelBuffer buffer = tb.getWriteBuffer();
+				buffer.resize(pixels);
+				buffer.fill(f);
+				tb.publish();
+			}
+		});
+		writer.start();
+		
+		long lastSequence = 0;
+		long framesRead = 0;
+		while(writer.isAlive() || tb.hasNewFrame()) {
+			PixelBuffer frame = tb.acquire();
+			long sequence = tb.getReadSequence();
+			if(sequence == 0)
+				continue;
+			// every pixel must belong to the same frame
+			for(int i = 0; i < frame.length(); i++) {
+				if(frame.get(i) != sequence) {
+					error.set("Torn frame " + sequence + " at pixel " + i + ": " + frame.get(i));
+				}
+			}
+			if(sequence < lastSequence)
+				error.set("Sequence went backwards: " + sequence + " < " + lastSequence);
+			if(sequence != lastSequence)
+				framesRead++;
+			lastSequence = sequence;
+		}
+		writer.join();
+		
+		assertEquals(null, error.get());
+		assertEquals(frames, lastSequence);
+		assertTrue(framesRead > 0);
+		assertEquals(frames, framesRead + tb.getDroppedFrames());
+	}
+
+}
@@ -0,0 +1,93 @@
+package de.lars.remotelightcore.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.lars.remotelightcore.out.ColorCorrection;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+/**
+ * Compares the previous linear brightness scaling with the gamma
+ * lookup tables with and without temporal dithering.
+ * <p>
+ * Run with {@code -prof gc} to verify that no memory is allocated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorCorrectionBenchmark {
+	
+	@Param({"100", "1000"})
+	public int pixels;
+	
+	private PixelBuffer frame;
+	private PixelBuffer out;
+	private ColorCorrection gamma;
+	private ColorCorrection.Dither dithering;
+	
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		frame = new PixelBuffer(pixels);
+		for(int i = 0; i < pixels; i++) {
+			frame.set(i, random.nextInt(0xFFFFFF));
+		}
+		out = new PixelBuffer(pixels);
+		gamma = new ColorCorrection();
+		gamma.setBrightness(30);
+		gamma.setGamma(2.2);
+		dithering = gamma.newDither();
+	}
+	
+	@Benchmark
+	public PixelBuffer linear() {
+		final int value = 30;
+		int[] in = frame.array();
+		int[] dest = out.array();
+		for(int i = 0; i < pixels; i++) {
+			int rgb = in[i];
+			int r = ((rgb >> 16) & 0xFF) * value / 100;
+			int g = ((rgb >> 8) & 0xFF) * value / 100;
+			int b = (rgb & 0xFF) * value / 100;
+			dest[i] = (r << 16) | (g << 8) | b;
+		}
+		return out;
+	}
+	
+	@Benchmark
+	public PixelBuffer gammaLut() {
+		return gamma.apply(frame, out);
+	}
+	
+	@Benchmark
+	public PixelBuffer gammaLutDithering() {
+		return dithering.apply(frame, out);
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(ColorCorrectionBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
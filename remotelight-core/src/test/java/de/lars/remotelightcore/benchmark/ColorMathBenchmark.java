@@ -0,0 +1,129 @@
+package de.lars.remotelightcore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.utils.color.Color;
+import de.lars.remotelightcore.utils.color.ColorMath;
+import de.lars.remotelightcore.utils.color.ColorUtil;
+
+/**
+ * Per pixel color conversions and math on 1000 pixels, with the float
+ * {@link Color} methods and with the packed {@link ColorMath} methods.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorMathBenchmark {
+	
+	private final static int PIXELS = 1000;
+	
+	private Color[] strip;
+	private Color[] source;
+	private PixelBuffer buffer;
+	private PixelBuffer sourceBuffer;
+	private final float[] hsb = new float[3];
+	
+	@Setup
+	public void setup() {
+		strip = new Color[PIXELS];
+		source = new Color[PIXELS];
+		buffer = new PixelBuffer(PIXELS);
+		sourceBuffer = new PixelBuffer(PIXELS);
+		for(int i = 0; i < PIXELS; i++) {
+			source[i] = new Color(i * 0x9E3779 & 0xFFFFFF);
+			sourceBuffer.set(i, source[i]);
+		}
+	}
+	
+	@Benchmark
+	public Color[] hsbColor() {
+		for(int i = 0; i < PIXELS; i++)
+			strip[i] = Color.getHSBColor((float) i / PIXELS, 1.0f, 1.0f);
+		return strip;
+	}
+	
+	@Benchmark
+	public PixelBuffer hsvSpectrum() {
+		for(int i = 0; i < PIXELS; i++)
+			buffer.set(i, ColorMath.hsv2rgbSpectrum16(i * 0x10000 / PIXELS, 255, 255));
+		return buffer;
+	}
+	
+	@Benchmark
+	public PixelBuffer hsvRainbow() {
+		buffer.fillRainbow(0, 0x10000 / PIXELS);
+		return buffer;
+	}
+	
+	@Benchmark
+	public float[] rgbToHsb() {
+		for(int i = 0; i < PIXELS; i++) {
+			Color c = source[i];
+			Color.RGBtoHSB(c.getRed(), c.getGreen(), c.getBlue(), hsb);
+		}
+		return hsb;
+	}
+	
+	@Benchmark
+	public int rgbToHsv() {
+		int hsv = 0;
+		for(int i = 0; i < PIXELS; i++)
+			hsv ^= ColorMath.rgb2hsv(sourceBuffer.get(i));
+		return hsv;
+	}
+	
+	@Benchmark
+	public Color[] dimColor() {
+		for(int i = 0; i < PIXELS; i++)
+			strip[i] = ColorUtil.dimColor(source[i], 60);
+		return strip;
+	}
+	
+	@Benchmark
+	public PixelBuffer nscale8() {
+		for(int i = 0; i < PIXELS; i++)
+			buffer.set(i, ColorMath.nscale8(sourceBuffer.get(i), 153));
+		return buffer;
+	}
+	
+	@Benchmark
+	public Color[] fadeToColor() {
+		for(int i = 0; i < PIXELS; i++)
+			strip[i] = ColorUtil.fadeToColor(source[i], Color.BLUE, 0.3f);
+		return strip;
+	}
+	
+	@Benchmark
+	public PixelBuffer blend() {
+		for(int i = 0; i < PIXELS; i++)
+			buffer.set(i, ColorMath.blend(sourceBuffer.get(i), 0x0000FF, 77));
+		return buffer;
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(ColorMathBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,97 @@
+package de.lars.remotelightcore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.lars.remotelightcore.animation.Animation;
+import de.lars.remotelightcore.compositor.BlendMode;
+import de.lars.remotelightcore.compositor.Compositor;
+import de.lars.remotelightcore.out.OutputManager;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+/**
+ * Time to render and blend one frame depending on the number of layers,
+ * with the layers rendered one after another and on the thread pool.
+ * Every layer runs a synthetic effect of about the cost of a noise effect.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompositorBenchmark {
+	
+	@Param({"1", "2", "4", "8"})
+	public int layers;
+	
+	@Param({"false", "true"})
+	public boolean parallel;
+	
+	private final static int PIXELS = 1000;
+	private Compositor compositor;
+	
+	@Setup
+	public void setup() {
+		compositor = new Compositor();
+		compositor.setParallel(parallel);
+		BlendMode[] modes = {BlendMode.NORMAL, BlendMode.ADD, BlendMode.SCREEN, BlendMode.MAX};
+		for(int i = 0; i < layers; i++) {
+			compositor.addLayer(new WaveAnimation("wave" + i, i), modes[i % modes.length]).setOpacity(80);
+		}
+	}
+	
+	@Benchmark
+	public PixelBuffer renderFrame() {
+		return compositor.renderFrame(PIXELS);
+	}
+	
+	private static class WaveAnimation extends Animation {
+		final PixelBuffer buffer = new PixelBuffer(0);
+		final double phaseOffset;
+		double phase;
+		
+		WaveAnimation(String name, int index) {
+			super(name, 0);
+			phaseOffset = index * 0.7;
+		}
+		
+		@Override
+		public void onLoop() {
+			final int pixels = getPixel();
+			buffer.resize(pixels);
+			phase += 0.05;
+			for(int i = 0; i < pixels; i++) {
+				double x = i * 0.02 + phase + phaseOffset;
+				int r = (int) ((Math.sin(x) + 1) * 127.5);
+				int g = (int) ((Math.sin(x * 1.3 + 2) + 1) * 127.5);
+				int b = (int) ((Math.sin(x * 0.7 + 4) * Math.cos(x * 0.3) + 1) * 127.5);
+				buffer.set(i, r, g, b);
+			}
+			OutputManager.addToOutput(buffer);
+		}
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(CompositorBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
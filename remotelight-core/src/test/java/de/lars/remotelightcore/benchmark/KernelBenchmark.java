@@ -0,0 +1,118 @@
+package de.lars.remotelightcore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.lars.remotelightcore.effect.KernelExecutor;
+import de.lars.remotelightcore.effect.PixelKernel;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.utils.color.Color;
+import de.lars.remotelightcore.utils.color.ColorUtil;
+import de.lars.remotelightcore.utils.color.RainbowWheel;
+import de.lars.remotelightcore.utils.maths.MathHelper;
+import de.lars.remotelightcore.utils.maths.OpenSimplexNoise;
+
+/**
+ * One frame of the rainbow noise animation, rendered serially into a
+ * color array (previous implementation) and with a pixel kernel on
+ * 1 to 4 threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelBenchmark {
+	
+	@Param({"1000", "5000"})
+	public int pixels;
+	
+	@Param({"1", "2", "4"})
+	public int threads;
+	
+	private final OpenSimplexNoise noiseBright = new OpenSimplexNoise();
+	private final OpenSimplexNoise noiseColor = new OpenSimplexNoise();
+	private final float xincrement = 0.02f;
+	private final float yincrement = 0.005f;
+	private float zoff;
+	private Color[] strip;
+	private PixelBuffer frame;
+	private PixelKernel kernel;
+	private int previousParallelism;
+	
+	@Setup
+	public void setup() {
+		RainbowWheel.init();
+		strip = new Color[pixels];
+		frame = new PixelBuffer(pixels);
+		kernel = this::renderPixels;
+		previousParallelism = KernelExecutor.getParallelism();
+		KernelExecutor.setParallelism(threads);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		KernelExecutor.setParallelism(previousParallelism);
+	}
+	
+	@Benchmark
+	public Color[] serialColors() {
+		zoff += 0.02f;
+		float xoff = 0.0f;
+		float yoff = 0.0f;
+		for(int x = 0; x < strip.length; x++) {
+			xoff += xincrement;
+			yoff += yincrement;
+			float nB = (float) noiseBright.eval(xoff, yoff, zoff);
+			int bright = (int) MathHelper.map(nB, -1, 1, 0, 100);
+			float nC = (float) noiseColor.eval(xoff, yoff, zoff);
+			int hue = (int) MathHelper.map(nC, -1, 1, 0, RainbowWheel.getRainbow().length-1);
+			strip[x] = ColorUtil.dimColor(RainbowWheel.getRainbow()[hue], bright);
+		}
+		return strip;
+	}
+	
+	@Benchmark
+	public PixelBuffer kernel() {
+		zoff += 0.02f;
+		KernelExecutor.render(kernel, frame);
+		return frame;
+	}
+	
+	private void renderPixels(int from, int to, int[] out, int offset) {
+		final int[] rainbow = RainbowWheel.getPackedRainbow();
+		for(int x = from; x < to; x++) {
+			final float xoff = (x + 1) * xincrement;
+			final float yoff = (x + 1) * yincrement;
+			float nC = (float) noiseColor.eval(xoff, yoff, zoff);
+			int color = rainbow[(int) MathHelper.map(nC, -1, 1, 0, rainbow.length - 1)];
+			float nB = (float) noiseBright.eval(xoff, yoff, zoff);
+			out[offset + x] = ColorUtil.dimColor(color, (int) MathHelper.map(nB, -1, 1, 0, 100));
+		}
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(KernelBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
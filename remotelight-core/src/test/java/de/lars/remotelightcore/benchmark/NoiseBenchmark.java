@@ -0,0 +1,81 @@
+package de.lars.remotelightcore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.lars.remotelightcore.utils.maths.OpenSimplexNoise;
+import de.lars.remotelightcore.utils.maths.SimplexNoise;
+
+/**
+ * 3D noise sampled along a line with the increments of the rainbow noise
+ * animation, evaluated point by point and with the batch methods.
+ * The scalar OpenSimplex noise the animation uses is measured as reference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoiseBenchmark {
+	
+	@Param({"1000", "10000"})
+	public int points;
+	
+	private final OpenSimplexNoise noise = new OpenSimplexNoise();
+	private final double xincrement = 0.02;
+	private final double yincrement = 0.005;
+	private double zoff;
+	private float[] values;
+	
+	@Setup
+	public void setup() {
+		values = new float[points];
+	}
+	
+	@Benchmark
+	public float[] simplexScalar() {
+		zoff += 0.02;
+		for(int i = 0; i < values.length; i++)
+			values[i] = (float) SimplexNoise.noise((i + 1) * xincrement, (i + 1) * yincrement, zoff);
+		return values;
+	}
+	
+	@Benchmark
+	public float[] simplexBatch() {
+		zoff += 0.02;
+		SimplexNoise.noiseLine(xincrement, yincrement, zoff, xincrement, yincrement, 0, values, 0, values.length);
+		return values;
+	}
+	
+	@Benchmark
+	public float[] openSimplexScalar() {
+		zoff += 0.02;
+		for(int i = 0; i < values.length; i++)
+			values[i] = (float) noise.eval((i + 1) * xincrement, (i + 1) * yincrement, zoff);
+		return values;
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(NoiseBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,102 @@
+package de.lars.remotelightcore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.lars.remotelightcore.colors.palette.model.GradientPalette;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.utils.color.Color;
+import de.lars.remotelightcore.utils.color.RainbowWheel;
+
+/**
+ * Rendering a gradient over 300 pixels with the interpolating
+ * {@code getNext()}, with the baked {@code getNext()} and by sampling
+ * the lookup table directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaletteBenchmark {
+	
+	private final static int PIXELS = 300;
+	
+	@Param({"2", "8", "32"})
+	public int colors;
+	
+	private GradientPalette palette;
+	private GradientPalette bakedPalette;
+	private Color[] strip;
+	private PixelBuffer buffer;
+	
+	@Setup
+	public void setup() {
+		RainbowWheel.init();
+		palette = createPalette();
+		bakedPalette = createPalette();
+		bakedPalette.setBaked(true);
+		strip = new Color[PIXELS];
+		buffer = new PixelBuffer(PIXELS);
+	}
+	
+	private GradientPalette createPalette() {
+		GradientPalette gp = new GradientPalette(1.0f / PIXELS);
+		Color[] rainbow = RainbowWheel.getRainbow();
+		for(int i = 0; i < colors; i++) {
+			gp.add((float) i / colors, rainbow[i * rainbow.length / colors]);
+		}
+		return gp;
+	}
+	
+	@Benchmark
+	public Color[] getNext() {
+		palette.resetStepPosition();
+		for(int i = 0; i < PIXELS; i++) {
+			strip[i] = palette.getNext();
+		}
+		return strip;
+	}
+	
+	@Benchmark
+	public Color[] bakedGetNext() {
+		bakedPalette.resetStepPosition();
+		for(int i = 0; i < PIXELS; i++) {
+			strip[i] = bakedPalette.getNext();
+		}
+		return strip;
+	}
+	
+	@Benchmark
+	public PixelBuffer sample() {
+		final float stepSize = 1.0f / PIXELS;
+		for(int i = 0; i < PIXELS; i++) {
+			buffer.set(i, bakedPalette.sample(i * stepSize));
+		}
+		return buffer;
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(PaletteBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
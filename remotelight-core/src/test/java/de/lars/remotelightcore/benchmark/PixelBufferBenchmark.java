@@ -0,0 +1,114 @@
+package de.lars.remotelightcore.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.lars.remotelightcore.devices.arduino.GlediatorProtocol;
+import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.out.patch.OutputPatch;
+import de.lars.remotelightcore.utils.color.Color;
+
+/**
+ * Compares one frame of the render to output pipeline (brightness,
+ * output patch, Glediator encoding) using {@code Color[]} and {@link PixelBuffer}
+ * with and without reused buffers.
+ * <p>
+ * Run with {@code -prof gc} to compare the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PixelBufferBenchmark {
+	
+	@Param({"300", "3000"})
+	public int pixels;
+	
+	private Color[] colors;
+	private PixelBuffer buffer;
+	private OutputPatch patch;
+	private PixelBuffer dimmed;
+	private PixelBuffer patched;
+	private byte[] encoded;
+	
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		colors = new Color[pixels];
+		for(int i = 0; i < pixels; i++) {
+			colors[i] = new Color(random.nextInt(0xFFFFFF));
+		}
+		buffer = PixelBuffer.fromColors(colors);
+		patch = new OutputPatch(pixels);
+		patch.setShift(10);
+		dimmed = new PixelBuffer(pixels);
+	}
+	
+	@Benchmark
+	public byte[] colorArray() {
+		Color[] out = new Color[colors.length];
+		for(int i = 0; i < out.length; i++) {
+			Color c = colors[i];
+			out[i] = new Color(c.getRed() * 80 / 100, c.getGreen() * 80 / 100, c.getBlue() * 80 / 100);
+		}
+		out = patch.patchOutput(out, RgbOrder.GRB);
+		return GlediatorProtocol.doOutput(out);
+	}
+	
+	@Benchmark
+	public byte[] pixelBuffer() {
+		PixelBuffer out = new PixelBuffer(buffer.length());
+		int[] src = buffer.array();
+		int[] dest = out.array();
+		for(int i = 0; i < dest.length; i++) {
+			int rgb = src[i];
+			dest[i] = PixelBuffer.pack(((rgb >> 16) & 0xFF) * 80 / 100, ((rgb >> 8) & 0xFF) * 80 / 100, (rgb & 0xFF) * 80 / 100);
+		}
+		out = patch.patchOutput(out, RgbOrder.GRB);
+		return GlediatorProtocol.doOutput(out);
+	}
+	
+	/**
+	 * Output stage as it runs in a device: reused buffers, single pass
+	 * patch and RGB order applied while encoding.
+	 */
+	@Benchmark
+	public byte[] pixelBufferReused() {
+		int[] src = buffer.array();
+		int[] dest = dimmed.array();
+		for(int i = 0; i < pixels; i++) {
+			int rgb = src[i];
+			dest[i] = PixelBuffer.pack(((rgb >> 16) & 0xFF) * 80 / 100, ((rgb >> 8) & 0xFF) * 80 / 100, (rgb & 0xFF) * 80 / 100);
+		}
+		patched = patch.patchOutput(dimmed, RgbOrder.RGB, patched);
+		encoded = GlediatorProtocol.doOutput(patched, RgbOrder.GRB, encoded);
+		return encoded;
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(PixelBufferBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
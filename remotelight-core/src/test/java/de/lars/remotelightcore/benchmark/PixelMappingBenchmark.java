@@ -0,0 +1,94 @@
+package de.lars.remotelightcore.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.lars.remotelightcore.devices.arduino.RgbOrder;
+import de.lars.remotelightcore.out.PixelBuffer;
+import de.lars.remotelightcore.out.patch.OutputPatch;
+import de.lars.remotelightcore.out.patch.PixelMapping;
+
+/**
+ * Compares the per frame cost of an output patch with a complex pixel mapping
+ * (segments, reversed runs, gaps and a serpentine grid) to a simple shift
+ * and to a plain copy of the frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PixelMappingBenchmark {
+	
+	@Param({"1024", "16384"})
+	public int pixels;
+	
+	private PixelBuffer frame;
+	private PixelBuffer out;
+	private OutputPatch shiftPatch;
+	private OutputPatch mappingPatch;
+	
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		frame = new PixelBuffer(pixels);
+		for(int i = 0; i < pixels; i++) {
+			frame.set(i, random.nextInt(0xFFFFFF));
+		}
+		out = new PixelBuffer(pixels);
+		
+		shiftPatch = new OutputPatch(pixels);
+		shiftPatch.setShift(10);
+		
+		// a strip with a reversed run and dead pixels followed by a serpentine panel
+		final int strip = pixels / 4;
+		final int width = 32;
+		final int height = (pixels - strip) / width;
+		mappingPatch = new OutputPatch(pixels);
+		mappingPatch.setMapping(new PixelMapping(String.format("0-%d, gap 4, %d-%d, grid %dx%d from %d serpentine",
+				strip / 2 - 1, strip - 1, strip / 2, width, height, strip)));
+	}
+	
+	@Benchmark
+	public PixelBuffer copy() {
+		out.copyFrom(frame);
+		return out;
+	}
+	
+	@Benchmark
+	public PixelBuffer shift() {
+		out = shiftPatch.patchOutput(frame, RgbOrder.RGB, out);
+		return out;
+	}
+	
+	@Benchmark
+	public PixelBuffer mapping() {
+		out = mappingPatch.patchOutput(frame, RgbOrder.RGB, out);
+		return out;
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(PixelMappingBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
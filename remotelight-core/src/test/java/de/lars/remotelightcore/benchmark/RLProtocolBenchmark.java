@@ -0,0 +1,111 @@
+package de.lars.remotelightcore.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.lars.remotelightcore.devices.remotelightserver.RLClient;
+import de.lars.remotelightcore.devices.remotelightserver.RLFrameReader;
+import de.lars.remotelightcore.devices.remotelightserver.RLProtocol;
+import de.lars.remotelightcore.out.PixelBuffer;
+
+/**
+ * Frame throughput of a RemoteLightServer connection over loopback
+ * using JSON lines and binary frames. The receiving side decodes every
+ * frame, so the result includes encoding, transfer and decoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RLProtocolBenchmark {
+	
+	@Param({"json", "binary"})
+	public String mode;
+	
+	@Param({"300", "3000"})
+	public int pixels;
+	
+	private ServerSocket server;
+	private Thread receiver;
+	private RLClient client;
+	private PixelBuffer frame;
+	
+	@Setup
+	public void setup() throws IOException {
+		final boolean binary = "binary".equals(mode);
+		server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		receiver = new Thread(() -> {
+			try(Socket socket = server.accept()) {
+				if(binary) {
+					OutputStream out = socket.getOutputStream();
+					out.write(RLProtocol.getGreeting());
+					out.flush();
+				}
+				RLFrameReader reader = new RLFrameReader(new BufferedInputStream(socket.getInputStream()));
+				while(true) {
+					reader.read();
+				}
+			} catch (IOException e) {
+				// connection closed
+			}
+		}, "Benchmark receiver");
+		receiver.setDaemon(true);
+		receiver.start();
+		
+		client = new RLClient("127.0.0.1");
+		client.setPort(server.getLocalPort());
+		client.connect();
+		if(client.isBinary() != binary)
+			throw new IllegalStateException("Negotiation failed");
+		
+		Random random = new Random(42);
+		frame = new PixelBuffer(pixels);
+		for(int i = 0; i < pixels; i++)
+			frame.set(i, random.nextInt(0x1000000));
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException, InterruptedException {
+		client.disconnect();
+		server.close();
+		receiver.join(1000);
+	}
+	
+	@Benchmark
+	public int send() {
+		return client.send(frame);
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(RLProtocolBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
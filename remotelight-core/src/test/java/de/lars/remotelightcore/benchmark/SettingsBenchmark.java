@@ -0,0 +1,86 @@
+package de.lars.remotelightcore.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.lars.remotelightcore.io.FileStorage;
+import de.lars.remotelightcore.settings.Setting;
+import de.lars.remotelightcore.settings.SettingHandle;
+import de.lars.remotelightcore.settings.SettingsManager;
+import de.lars.remotelightcore.settings.SettingsManager.SettingCategory;
+import de.lars.remotelightcore.settings.types.SettingInt;
+
+/**
+ * Reading an int setting that was registered last, with a linear scan
+ * of the settings list (previous implementation), with the id index
+ * and with a cached handle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettingsBenchmark {
+	
+	@Param({"50", "250"})
+	public int settings;
+	
+	private SettingsManager sm;
+	private SettingHandle<SettingInt> handle;
+	private String id;
+	
+	@Setup
+	public void setup() {
+		sm = new SettingsManager(new FileStorage(new File("SettingsBenchmark_out.json")));
+		for(int i = 0; i < settings; i++) {
+			id = "benchmark.setting" + i;
+			sm.addSetting(new SettingInt(id, "Setting", SettingCategory.Intern, null, i, 0, settings, 1));
+		}
+		handle = sm.getHandle(SettingInt.class, id);
+	}
+	
+	@Benchmark
+	public int linearScan() {
+		for(Setting s : sm.getSettings()) {
+			if(s.getId().equals(id)) {
+				return ((SettingInt) s).get();
+			}
+		}
+		return 0;
+	}
+	
+	@Benchmark
+	public int indexLookup() {
+		return sm.getSetting(SettingInt.class, id).get();
+	}
+	
+	@Benchmark
+	public int handle() {
+		return handle.getSetting().get();
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(SettingsBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
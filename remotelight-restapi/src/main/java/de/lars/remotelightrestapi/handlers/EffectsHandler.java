@@ -12,12 +12,13 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
-import de.lars.remotelightcore.EffectManagerHelper;
+import de.lars.remotelightcore.EffectManager;
 import de.lars.remotelightcore.RemoteLightCore;
 import de.lars.remotelightcore.animation.Animation;
 import de.lars.remotelightcore.effect.AbstractEffect;
 import de.lars.remotelightcore.effect.Effect;
 import de.lars.remotelightcore.musicsync.MusicEffect;
+import de.lars.remotelightcore.out.Transition;
 import de.lars.remotelightcore.scene.Scene;
 import de.lars.remotelightrestapi.RestAPI;
 import fi.iki.elonen.NanoHTTPD.IHTTPSession;
@@ -119,6 +120,9 @@ public class EffectsHandler extends RequestHandler {
 	
 	
 	public static class EffectsActiveHandler extends RequestHandler {
+		
+		/** duration of a transition without duration if no default transition is set */
+		public final static int DEFAULT_TRANSITION_DURATION = 1000;
 
 		@Override
 		public IStatus getStatus() {
@@ -172,7 +176,8 @@ public class EffectsHandler extends RequestHandler {
 							throw new IllegalStateException("JSON object must have 'name' parameter.");
 						// enable effect
 						String effectName = nameEl.getAsString();
-						startEffect(effectTypeUrl.toLowerCase(), effectName);
+						Transition transition = parseTransition(jsonEl.getAsJsonObject().get("transition"));
+						startEffect(effectTypeUrl.toLowerCase(), effectName, transition);
 					}
 				} catch(Exception e) {
 					if(RestAPI.shouldLog) Logger.error("Failed to parse body content from PUT request: " + e.getMessage());
@@ -214,29 +219,44 @@ public class EffectsHandler extends RequestHandler {
 			}
 		}
 		
-		protected void startEffect(String type, String effect) {
+		protected void startEffect(String type, String effect, Transition transition) {
 			RemoteLightCore core = RemoteLightCore.getInstance();
-			EffectManagerHelper helper = core.getEffectManagerHelper();
-			boolean notFound = false;
+			EffectManager manager;
 			if(type.startsWith("animations")) {
-				AbstractEffect e = helper.getEffect(core.getAnimationManager(), effect);
-				notFound = e == null;
-				core.getAnimationManager().start((Animation) e);
+				manager = core.getAnimationManager();
 			} else if(type.startsWith("scenes")) {
-				AbstractEffect e = helper.getEffect(core.getSceneManager(), effect);
-				notFound = e == null;
-				core.getSceneManager().start((Scene) e);
+				manager = core.getSceneManager();
 			} else if(type.startsWith("music")) {
-				AbstractEffect e = helper.getEffect(core.getMusicSyncManager(), effect);
-				notFound = e == null;
-				core.getMusicSyncManager().start((MusicEffect) e);
+				manager = core.getMusicSyncManager();
 			} else {
 				throw new IllegalArgumentException("Invalid effect type '" + type + "'.");
 			}
-			if(notFound)
+			if(!core.getEffectManagerHelper().startEffect(manager, effect, transition))
 				throw new IllegalArgumentException("Invalid effect name. Could not find effect for '" + effect + "'.");
 		}
 		
+		/**
+		 * Parse the optional transition parameter.
+		 * Supports {@code "transition": "crossfade"} and {@code "transition": {"type": "crossfade", "duration": 1000}}.
+		 * @return the transition or null to use the default transition
+		 */
+		protected Transition parseTransition(JsonElement transitionEl) {
+			if(transitionEl == null || transitionEl.isJsonNull())
+				return null;
+			Transition defaultTransition = RemoteLightCore.getInstance().getOutputManager().getTransitionEngine().getDefaultTransition();
+			int duration = defaultTransition.isNone() ? DEFAULT_TRANSITION_DURATION : defaultTransition.getDuration();
+			JsonElement typeEl = transitionEl;
+			if(transitionEl.isJsonObject()) {
+				typeEl = transitionEl.getAsJsonObject().get("type");
+				JsonElement durationEl = transitionEl.getAsJsonObject().get("duration");
+				if(durationEl != null && !durationEl.isJsonNull())
+					duration = durationEl.getAsInt();
+			}
+			if(typeEl == null || typeEl.isJsonNull())
+				throw new IllegalStateException("Transition must have 'type' parameter.");
+			return new Transition(Transition.parseType(typeEl.getAsString()), duration);
+		}
+		
 	}
 
 }
@@ -0,0 +1,40 @@
+package de.lars.remotelightrestapi.handlers;
+
+import java.util.Map;
+
+import de.lars.remotelightcore.RemoteLightCore;
+import de.lars.remotelightcore.metrics.PipelineMetrics;
+import fi.iki.elonen.NanoHTTPD.IHTTPSession;
+import fi.iki.elonen.NanoHTTPD.Response;
+import fi.iki.elonen.NanoHTTPD.Response.IStatus;
+import fi.iki.elonen.router.RouterNanoHTTPD.UriResource;
+
+/**
+ * Returns the render/output pipeline metrics.
+ * A DELETE request resets all metrics.
+ */
+public class MetricsHandler extends RequestHandler {
+
+	@Override
+	public IStatus getStatus() {
+		return Response.Status.OK;
+	}
+
+	@Override
+	public Response get(UriResource uriResource, Map<String, String> urlParams, IHTTPSession session) {
+		return json(getMetrics().snapshot());
+	}
+	
+	@Override
+	public Response delete(UriResource uriResource, Map<String, String> urlParams, IHTTPSession session) {
+		getMetrics().reset();
+		return get(uriResource, urlParams, session);
+	}
+	
+	private PipelineMetrics getMetrics() {
+		if(RemoteLightCore.isInitialized())
+			return RemoteLightCore.getInstance().getPipelineMetrics();
+		return PipelineMetrics.getInstance();
+	}
+
+}
@@ -6,6 +6,7 @@ import java.util.stream.Collectors;
 
 import org.tinylog.Logger;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
@@ -14,6 +15,7 @@ import de.lars.remotelightcore.devices.ConnectionState;
 import de.lars.remotelightcore.devices.Device;
 import de.lars.remotelightcore.devices.DeviceManager;
 import de.lars.remotelightcore.out.Output;
+import de.lars.remotelightcore.out.OutputManager;
 import de.lars.remotelightcore.utils.OutputUtil;
 import de.lars.remotelightrestapi.RestAPI;
 import fi.iki.elonen.NanoHTTPD.IHTTPSession;
@@ -75,6 +77,11 @@ public class OutputsHandler extends RequestHandler {
 			String id = activeOutput != null ? activeOutput.getId() : null;
 			JsonObject jsonObj = new JsonObject();
 			jsonObj.addProperty("active_output", id);
+			JsonArray activeOutputs = new JsonArray();
+			for(Output output : RemoteLightCore.getInstance().getOutputManager().getActiveOutputs()) {
+				activeOutputs.add(output.getId());
+			}
+			jsonObj.add("active_outputs", activeOutputs);
 			return json(jsonObj);
 		}
 		
@@ -93,10 +100,29 @@ public class OutputsHandler extends RequestHandler {
 					String content = new String(buffer);
 					JsonElement jsonEl = RestAPI.getGson().fromJson(content, JsonElement.class);
 					JsonElement activeEl = jsonEl.getAsJsonObject().get("active_output");
-					if(activeEl == null)
-						throw new IllegalStateException("JSON object must have 'active_output' paramter.");
+					JsonElement activeListEl = jsonEl.getAsJsonObject().get("active_outputs");
+					if(activeEl == null && activeListEl == null)
+						throw new IllegalStateException("JSON object must have 'active_output' or 'active_outputs' paramter.");
 					
-					if(activeEl.isJsonNull()) {
+					if(activeListEl != null) {
+						// activate multiple outputs, the first one is the primary output
+						OutputManager om = RemoteLightCore.getInstance().getOutputManager();
+						JsonArray ids = activeListEl.isJsonNull() ? new JsonArray() : activeListEl.getAsJsonArray();
+						for(JsonElement idEl : ids) {
+							if(!dm.isIdUsed(idEl.getAsString()))
+								throw new IllegalArgumentException("Invalid device id! There is no device with id '" + idEl.getAsString() + "'.");
+						}
+						if(ids.size() == 0) {
+							om.setEnabled(false);
+						}
+						for(int i = 0; i < ids.size(); i++) {
+							Device device = dm.getDevice(ids.get(i).getAsString());
+							if(i == 0)
+								om.setActiveOutput(device);
+							else
+								om.addActiveOutput(device);
+						}
+					} else if(activeEl.isJsonNull()) {
 						// deactivate current output
 						RemoteLightCore.getInstance().getOutputManager().setEnabled(false);
 					} else {